@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.dataset.IDataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Compares the {@link FlatXmlDataSetLoader} with the {@link StaxFlatXmlDataSetLoader}. Run with
+ * <code>mvn -Pbenchmark verify -DskipTests</code>; the <code>gc</code> profiler reports the allocation rate per
+ * operation next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FlatXmlDataSetLoaderBenchmark {
+
+	private static final String[] STATUSES = { "NEW", "ACTIVE", "SUSPENDED", "CLOSED" };
+
+	@Param({ "10000", "100000", "1000000" })
+	private int rows;
+
+	private File file;
+
+	private Resource resource;
+
+	private final FlatXmlDataSetLoader builderLoader = new FlatXmlDataSetLoader();
+
+	private final StaxFlatXmlDataSetLoader staxLoader = new StaxFlatXmlDataSetLoader();
+
+	@Setup(Level.Trial)
+	public void writeDataSet() throws Exception {
+		this.file = File.createTempFile("benchmark-", ".xml");
+		try (Writer writer = Files.newBufferedWriter(this.file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<dataset>\n");
+			for (int row = 0; row < this.rows; row++) {
+				writer.write("\t<Customer id=\"" + row + "\" name=\"customer" + row + "\" status=\""
+						+ STATUSES[row % STATUSES.length] + "\" country=\"" + (row % 50) + "\"/>\n");
+				if (row % 10 == 0) {
+					writer.write("\t<Account id=\"" + row + "\" customer_id=\"" + row + "\" balance=\"0\"/>\n");
+				}
+			}
+			writer.write("</dataset>\n");
+		}
+		this.resource = new FileSystemResource(this.file);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteDataSet() {
+		this.file.delete();
+	}
+
+	@Benchmark
+	public IDataSet builder() throws Exception {
+		return this.builderLoader.createDataSet(this.resource, null);
+	}
+
+	@Benchmark
+	public IDataSet stax() throws Exception {
+		return this.staxLoader.createDataSet(this.resource, null);
+	}
+
+}
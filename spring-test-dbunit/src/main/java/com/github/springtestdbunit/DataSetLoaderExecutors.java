@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Shared executors used to load datasets in the background. One fixed size pool of daemon threads is created per
+ * configured thread count and reused by all tests for the lifetime of the JVM.
+ */
+final class DataSetLoaderExecutors {
+
+	private static final Map<Integer, ExecutorService> EXECUTORS = new ConcurrentHashMap<>();
+
+	private DataSetLoaderExecutors() {
+	}
+
+	/**
+	 * Returns the shared executor with the given number of threads.
+	 * @param threads the number of threads
+	 * @return the executor
+	 */
+	public static ExecutorService get(int threads) {
+		return EXECUTORS.computeIfAbsent(threads, DataSetLoaderExecutors::create);
+	}
+
+	/**
+	 * Wait for the given future, rethrowing the exception thrown by its task.
+	 * @param future the future
+	 * @return the result of the task
+	 * @throws Exception the exception thrown by the task
+	 */
+	public static <T> T getResult(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof Exception) {
+				throw (Exception) ex.getCause();
+			}
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	private static ExecutorService create(int threads) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dbunit-dataset-loader-");
+		threadFactory.setDaemon(true);
+		return Executors.newFixedThreadPool(threads, threadFactory);
+	}
+
+}
@@ -18,6 +18,8 @@ package com.github.springtestdbunit;
 
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
 import org.dbunit.database.IDatabaseConnection;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -33,12 +35,28 @@ public class DatabaseConnections {
 
 	private final IDatabaseConnection[] connections;
 
+	private final DataSource[] dataSources;
+
 	public DatabaseConnections(String[] names, IDatabaseConnection[] connections) {
+		this(names, connections, new DataSource[connections.length]);
+	}
+
+	/**
+	 * Create a new {@link DatabaseConnections} instance.
+	 * @param names the connection names
+	 * @param connections the connections
+	 * @param dataSources the data sources that the connections were created from, or {@code null} elements for
+	 * connections that were not created from a data source
+	 */
+	public DatabaseConnections(String[] names, IDatabaseConnection[] connections, DataSource[] dataSources) {
 		Assert.notEmpty(names, "Names must not be empty");
 		Assert.notEmpty(connections, "Connections must not be empty");
 		Assert.isTrue(names.length == connections.length, "Names and Connections must have the same length");
+		Assert.isTrue(dataSources.length == connections.length,
+				"DataSources and Connections must have the same length");
 		this.names = names;
 		this.connections = connections;
+		this.dataSources = dataSources;
 	}
 
 	public void closeAll() throws SQLException {
@@ -48,12 +66,26 @@ public class DatabaseConnections {
 	}
 
 	public IDatabaseConnection get(String name) {
+		return this.connections[indexOf(name)];
+	}
+
+	/**
+	 * Returns the data source that the named connection was created from, used to open additional connections to the
+	 * same database.
+	 * @param name the connection name
+	 * @return the data source or {@code null} if the connection was not created from a data source
+	 */
+	public DataSource getDataSource(String name) {
+		return this.dataSources[indexOf(name)];
+	}
+
+	private int indexOf(String name) {
 		if (!StringUtils.hasLength(name)) {
-			return this.connections[0];
+			return 0;
 		}
 		for (int i = 0; i < this.names.length; i++) {
 			if (this.names[i].equals(name)) {
-				return this.connections[i];
+				return i;
 			}
 		}
 		throw new IllegalStateException("Unable to find connection named " + name);
@@ -16,9 +16,20 @@
 
 package com.github.springtestdbunit;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.sql.DataSource;
 
 import com.github.springtestdbunit.annotation.*;
 import org.apache.commons.io.FileUtils;
@@ -36,17 +47,18 @@ import org.dbunit.dataset.xml.FlatXmlDataSet;
 import org.dbunit.dataset.yaml.YamlDataSet;
 import org.dbunit.operation.ExecuteSqlOperation;
 import org.dbunit.operation.TruncateTableOperation;
-import org.springframework.core.io.ClassRelativeResourceLoader;
-import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import com.github.springtestdbunit.assertion.DatabaseAssertion;
+import com.github.springtestdbunit.dataset.Compression;
 import com.github.springtestdbunit.dataset.DataSetLoader;
 import com.github.springtestdbunit.dataset.DataSetModifier;
+import com.github.springtestdbunit.dataset.DataSetResourceCache;
+import com.github.springtestdbunit.dataset.StreamableDataSet;
 
 /**
  * Internal delegate class used to run tests with support for {@link DatabaseSetup &#064;DatabaseSetup},
@@ -61,6 +73,9 @@ public class DbUnitRunner {
 
 	private static final Log logger = LogFactory.getLog(DbUnitTestExecutionListener.class);
 
+	private static final Pattern DDL_PATTERN = Pattern.compile("\\b(CREATE|ALTER|DROP|RENAME)\\b",
+			Pattern.CASE_INSENSITIVE);
+
 	/**
 	 * Called before a test method is executed to perform any database setup.
 	 * @param testContext The test context
@@ -116,6 +131,7 @@ public class DbUnitRunner {
 		boolean xmlElement = false;
 		boolean sortColumn = false;
 		String[] replacements = new String[]{};
+		String compression = "";
 		for (Export annotation : list) {
 			connection = connections.get(annotation.connection());
 			fileName = StringUtils.isEmpty(annotation.fileName()) ? testContext.getTestMethod().getName() : annotation.fileName();
@@ -123,9 +139,10 @@ public class DbUnitRunner {
 			xmlElement = annotation.xmlElement();
 			sortColumn = annotation.sortColumn();
 			replacements = annotation.replacements();
+			compression = annotation.compression();
 			tableNameAndSql.add(Pair.of(annotation.tableName(), annotation.query()));
 		}
-		export(connection, testClassPackage + "/" + fileName, tableNameAndSql, format, xmlElement, sortColumn, replacements);
+		export(connection, testClassPackage + "/" + fileName, tableNameAndSql, format, xmlElement, sortColumn, replacements, compression);
 	}
 
 	private void verifyExpected(DbUnitTestContext testContext, Annotations<ExpectedDatabase> annotations) throws Exception {
@@ -156,7 +173,7 @@ public class DbUnitRunner {
 		String table = annotation.table();
 		//IDataSet expectedDataSet = loadDataset(testContext, annotation.value(), modifier);
 		IDataSet expectedDataSet = loadDataset(testContext, new ExpectedDatabaseAnnotationAttributes(annotation),
-				annotation.value(), modifier);
+				annotation.value(), modifier, getExpectedTableNames(query, table));
 		IDatabaseConnection connection = connections.get(annotation.connection());
 		FailureHandler failureHandler = getFailureHandler(testContext);
 		if (expectedDataSet != null) {
@@ -185,27 +202,88 @@ public class DbUnitRunner {
 		}
 	}
 
+	private Set<String> getExpectedTableNames(String query, String table) {
+		if (!StringUtils.hasLength(table)) {
+			return null;
+		}
+		if (StringUtils.hasLength(query)) {
+			return Collections.singleton(table);
+		}
+		return new LinkedHashSet<>(Arrays.asList(table.split(",", -1)));
+	}
+
 	public static void export(IDatabaseConnection connection, String fileName, List<Pair<String, String>> tableNameAndSql, String format, boolean xmlElement, boolean sortColumn, String[] replacements) throws DataSetException, IOException {
+		export(connection, fileName, tableNameAndSql, format, xmlElement, sortColumn, replacements, "");
+	}
+
+	/**
+	 * Export the given tables, compressing the written file when a compression is given. The compressed file is named
+	 * after the uncompressed file with the extension of the compression appended (for example
+	 * <code>export.xml.gz</code>), so that it can be loaded directly by the dataset loaders. CSV exports can only be
+	 * compressed with <code>zip</code>, which replaces the CSV directory with a zip archive of its files.
+	 * @see Compression
+	 */
+	public static void export(IDatabaseConnection connection, String fileName, List<Pair<String, String>> tableNameAndSql, String format, boolean xmlElement, boolean sortColumn, String[] replacements, String compressionName) throws DataSetException, IOException {
 		connection.getConfig().setProperty(DatabaseConfig.FEATURE_QUALIFIED_TABLE_NAMES, true);
 		DatabaseConfig config = connection.getConfig();
 		config.setProperty(DatabaseConfig.PROPERTY_RESULTSET_TABLE_FACTORY, new CachedResultSetTableFactory());
 		if (CollectionUtils.isEmpty(tableNameAndSql)) return;
+		Compression compression = Compression.forName(compressionName);
 		QueryDataSet queryDataSet = new QueryDataSet(connection);
 		Collections.sort(tableNameAndSql, Comparator.comparing(Pair::getLeft));
 		for(Pair<String, String> each : tableNameAndSql) {
 			queryDataSet.addTable(each.getLeft(), each.getRight());
 		}
 		if ("csv".equalsIgnoreCase(format)) {
-			CsvDataSetWriter.write(queryDataSet, new File(fileName + "." + format));
-		} else if ("xml".equalsIgnoreCase(format)){
-			FlatXmlDataSet.write(queryDataSet, FileUtils.openOutputStream(new File(fileName + "." + format)), xmlElement, sortColumn, replacements, "", true);
-		} else if ("json".equalsIgnoreCase(format)) {
-			JsonDataSet.write(queryDataSet, FileUtils.openOutputStream(new File(fileName + "." + format)), sortColumn, replacements);
-		} else if ("xls".equalsIgnoreCase(format) || "xlsx".equalsIgnoreCase(format)) {
-			XlsDataSet.write(queryDataSet, FileUtils.openOutputStream(new File(fileName+ "." + format)), sortColumn, replacements, "", true);
-		} else if ("yml".equalsIgnoreCase(format) || "yaml".equalsIgnoreCase(format)) {
-			YamlDataSet.write(queryDataSet, FileUtils.openOutputStream(new File(fileName+ "." + format)), sortColumn, replacements);
+			Assert.isTrue(compression == null || compression == Compression.ZIP, "CSV exports can only be compressed with zip");
+			File directory = new File(fileName + "." + format);
+			CsvDataSetWriter.write(queryDataSet, directory);
+			if (compression != null) {
+				zipDirectory(directory);
+			}
+			return;
 		}
+		File file = new File(fileName + "." + format);
+		try (OutputStream outputStream = openOutputStream(file, compression)) {
+			if ("xml".equalsIgnoreCase(format)) {
+				FlatXmlDataSet.write(queryDataSet, outputStream, xmlElement, sortColumn, replacements, "", true);
+			} else if ("json".equalsIgnoreCase(format)) {
+				JsonDataSet.write(queryDataSet, outputStream, sortColumn, replacements);
+			} else if ("xls".equalsIgnoreCase(format) || "xlsx".equalsIgnoreCase(format)) {
+				XlsDataSet.write(queryDataSet, outputStream, sortColumn, replacements, "", true);
+			} else if ("yml".equalsIgnoreCase(format) || "yaml".equalsIgnoreCase(format)) {
+				YamlDataSet.write(queryDataSet, outputStream, sortColumn, replacements);
+			}
+		}
+	}
+
+	private static OutputStream openOutputStream(File file, Compression compression) throws IOException {
+		if (compression == null) {
+			return FileUtils.openOutputStream(file);
+		}
+		File compressedFile = new File(file.getPath() + "." + compression.getExtension());
+		OutputStream outputStream = new BufferedOutputStream(FileUtils.openOutputStream(compressedFile));
+		try {
+			return compression.compress(outputStream, file.getName());
+		} catch (IOException | RuntimeException ex) {
+			outputStream.close();
+			throw ex;
+		}
+	}
+
+	private static void zipDirectory(File directory) throws IOException {
+		File zipFile = new File(directory.getPath() + "." + Compression.ZIP.getExtension());
+		try (ZipOutputStream outputStream = new ZipOutputStream(
+				new BufferedOutputStream(FileUtils.openOutputStream(zipFile)))) {
+			File[] files = directory.listFiles(File::isFile);
+			Arrays.sort(files);
+			for (File file : files) {
+				outputStream.putNextEntry(new ZipEntry(file.getName()));
+				FileUtils.copyFile(file, outputStream);
+				outputStream.closeEntry();
+			}
+		}
+		FileUtils.deleteDirectory(directory);
 	}
 
 	private FailureHandler getFailureHandler(DbUnitTestContext testContext) throws Exception {
@@ -230,80 +308,209 @@ public class DbUnitRunner {
 	private void setupOrTeardown(DbUnitTestContext testContext, boolean isSetup, Collection<DatabaseSetupTearDownAnnotationAttributes> annotations)
 			throws Exception {
 		DatabaseConnections connections = testContext.getConnections();
+		Map<DatabaseSetupTearDownAnnotationAttributes, List<Future<IDataSet>>> loading = startLoadingDataSets(
+				testContext, annotations);
+		try {
+			setupOrTeardown(testContext, isSetup, annotations, connections, loading);
+		} finally {
+			for (List<Future<IDataSet>> futures : loading.values()) {
+				for (Future<IDataSet> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+	}
+
+	private void setupOrTeardown(DbUnitTestContext testContext, boolean isSetup,
+			Collection<DatabaseSetupTearDownAnnotationAttributes> annotations, DatabaseConnections connections,
+			Map<DatabaseSetupTearDownAnnotationAttributes, List<Future<IDataSet>>> loading) throws Exception {
 		for (DatabaseSetupTearDownAnnotationAttributes annotation : annotations) {
 			DatabaseOperation operation = annotation.getType();
 			org.dbunit.operation.DatabaseOperation dbUnitOperation = getDbUnitDatabaseOperation(testContext, operation);
 			IDatabaseConnection connection = connections.get(annotation.getConnection());
+			DataSource dataSource = (isSetup ? connections.getDataSource(annotation.getConnection()) : null);
 			if (dbUnitOperation instanceof ExecuteSqlOperation) {
 				for (String each : annotation.getValue()) {
-					Resource resource = getClassRelativeResource(testContext.getTestClass(), each);
-					if (resource.exists()) {
-						dbUnitOperation.execute(connection, resource.getFile());
-						continue;
-					}
-					resource = getClasspathResource(each);
-					if (resource.exists()) {
+					Resource resource = getResource(testContext, each);
+					if (resource != null) {
 						dbUnitOperation.execute(connection, resource.getFile());
 						continue;
 					}
 					dbUnitOperation.execute(connection, each);
 				}
+				invalidateForeignKeyGraph(testContext, connection, annotation.getValue());
 				continue;
 			}
 			if (dbUnitOperation instanceof TruncateTableOperation) {
 				for (String each : annotation.getValue()) {
-					Resource resource1 = getClassRelativeResource(testContext.getTestClass(), each);
-					Resource resource2 = getClasspathResource(each);
-					if (!resource1.exists() && !resource2.exists()) {
+					if (getResource(testContext, each) == null) {
 						dbUnitOperation.execute(connection, each);
 					} else {
-						List<IDataSet> datasets = loadDataSets(testContext, annotation);
+						List<IDataSet> datasets = loadDataSets(testContext, annotation, loading.get(annotation));
 						if (!datasets.isEmpty()) {
 							if (logger.isDebugEnabled()) {
 								logger.debug("Executing " + (isSetup ? "Setup" : "Teardown") + " of @DatabaseTest using "+ operation + " on " + datasets);
 							}
-							IDataSet dataSet = new CompositeDataSet(datasets.toArray(new IDataSet[datasets.size()]));
-							dbUnitOperation.execute(connection, dataSet);
+							execute(testContext, operation, dbUnitOperation, connection, dataSource, datasets);
 						}
 					}
 				}
 				continue;
 			}
-			List<IDataSet> datasets = loadDataSets(testContext, annotation);
+			List<IDataSet> datasets = loadDataSets(testContext, annotation, loading.get(annotation));
 			if (!datasets.isEmpty()) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Executing " + (isSetup ? "Setup" : "Teardown") + " of @DatabaseTest using "+ operation + " on " + datasets);
 				}
-				IDataSet dataSet = new CompositeDataSet(datasets.toArray(new IDataSet[datasets.size()]));
-				dbUnitOperation.execute(connection, dataSet);
+				execute(testContext, operation, dbUnitOperation, connection, dataSource, datasets);
 			}
 		}
 	}
 
-	private Resource getClassRelativeResource(Class<?> testClass, String location) {
-		ResourceLoader resourceLoader = getResourceLoader(testClass);
-		return resourceLoader.getResource(location);
+	private void execute(DbUnitTestContext testContext, DatabaseOperation operation,
+			org.dbunit.operation.DatabaseOperation dbUnitOperation, IDatabaseConnection connection,
+			DataSource dataSource, List<IDataSet> datasets) throws Exception {
+		IDataSet dataSet;
+		if (datasets.size() == 1 && datasets.get(0) instanceof StreamableDataSet) {
+			dataSet = ((StreamableDataSet) datasets.get(0)).stream(connection);
+		} else {
+			dataSet = new CompositeDataSet(datasets.toArray(new IDataSet[datasets.size()]));
+			if (dataSource != null && isSortTables(testContext)) {
+				checkNoTransaction(testContext);
+				if (executePartitioned(testContext, operation, dbUnitOperation, connection, dataSource, dataSet)) {
+					return;
+				}
+				int setupThreads = getSetupThreads(testContext);
+				if (setupThreads > 1) {
+					ParallelDataSetOperation.execute(dbUnitOperation, connection, dataSource, dataSet, setupThreads);
+					return;
+				}
+			}
+			dataSet = sortTables(testContext, connection, dataSet);
+		}
+		try {
+			dbUnitOperation.execute(connection, dataSet);
+		} finally {
+			if (dataSet instanceof Closeable) {
+				((Closeable) dataSet).close();
+			}
+		}
 	}
 
-	private ResourceLoader getResourceLoader(Class<?> testClass) {
-		return new ClassRelativeResourceLoader(testClass);
+	/**
+	 * Sort the tables of the dataset so that referenced tables are inserted first. DBUnit deletes tables in reverse
+	 * order, so referencing tables are deleted first.
+	 */
+	private IDataSet sortTables(DbUnitTestContext testContext, IDatabaseConnection connection, IDataSet dataSet)
+			throws Exception {
+		if (!isSortTables(testContext)) {
+			return dataSet;
+		}
+		String[] tableNames = dataSet.getTableNames();
+		if (tableNames.length < 2) {
+			return dataSet;
+		}
+		String[] sortedTableNames;
+		try {
+			sortedTableNames = ForeignKeyGraph.get(connection, tableNames).sort(tableNames);
+		} catch (SQLException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Unable to read foreign keys, tables are used in dataset order", ex);
+			}
+			return dataSet;
+		}
+		if (Arrays.equals(tableNames, sortedTableNames)) {
+			return dataSet;
+		}
+		return new FilteredDataSet(sortedTableNames, dataSet);
 	}
 
-	private Resource getClasspathResource(String location) {
-		ResourceLoader resourceLoader = new DefaultResourceLoader();
-		String classpathLocation = location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX) ? location :
-				ResourceLoader.CLASSPATH_URL_PREFIX + location;
-		return resourceLoader.getResource(classpathLocation);
+	/**
+	 * Discard the foreign key graph of the connection after SQL that may have changed the schema.
+	 */
+	private void invalidateForeignKeyGraph(DbUnitTestContext testContext, IDatabaseConnection connection,
+			String[] statements) throws SQLException {
+		if (!isSortTables(testContext)) {
+			return;
+		}
+		for (String statement : statements) {
+			if (getResource(testContext, statement) != null || DDL_PATTERN.matcher(statement).find()) {
+				ForeignKeyGraph.invalidate(connection);
+				return;
+			}
+		}
+	}
+
+	private boolean isSortTables(DbUnitTestContext testContext) {
+		DbUnitConfiguration configuration = testContext.getTestClass().getAnnotation(DbUnitConfiguration.class);
+		return configuration != null && configuration.sortTables();
+	}
+
+	/**
+	 * Parallel and partitioned setups commit on their own connections, so their data would not be rolled back with a
+	 * Spring managed test transaction.
+	 */
+	private void checkNoTransaction(DbUnitTestContext testContext) {
+		DbUnitConfiguration configuration = testContext.getTestClass().getAnnotation(DbUnitConfiguration.class);
+		if (configuration != null
+				&& (configuration.setupThreads() > 1 || configuration.partitionedTables().length > 0)) {
+			Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(),
+					"The setupThreads and partitionedTables attributes of @DbUnitConfiguration commit setup data "
+							+ "outside of the test transaction and cannot be used with @Transactional tests");
+		}
+	}
+
+	/**
+	 * Execute the operation in stages when the dataset contains one of the configured partitioned tables.
+	 * @return {@code true} if the operation was executed
+	 */
+	private boolean executePartitioned(DbUnitTestContext testContext, DatabaseOperation operation,
+			org.dbunit.operation.DatabaseOperation dbUnitOperation, IDatabaseConnection connection,
+			DataSource dataSource, IDataSet dataSet) throws Exception {
+		DbUnitConfiguration configuration = testContext.getTestClass().getAnnotation(DbUnitConfiguration.class);
+		if (configuration == null || configuration.partitionedTables().length == 0) {
+			return false;
+		}
+		org.dbunit.operation.DatabaseOperation deleteOperation = null;
+		if (operation == DatabaseOperation.CLEAN_INSERT) {
+			deleteOperation = getDbUnitDatabaseOperation(testContext, DatabaseOperation.DELETE_ALL);
+			dbUnitOperation = getDbUnitDatabaseOperation(testContext, DatabaseOperation.INSERT);
+		} else if (operation != DatabaseOperation.INSERT && operation != DatabaseOperation.UPDATE
+				&& operation != DatabaseOperation.REFRESH) {
+			return false;
+		}
+		Map<String, PartitionedTable> partitionedTables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (PartitionedTable partitionedTable : configuration.partitionedTables()) {
+			partitionedTables.put(partitionedTable.name(), partitionedTable);
+		}
+		return PartitionedDataSetOperation.execute(deleteOperation, dbUnitOperation, connection, dataSource, dataSet,
+				partitionedTables);
+	}
+
+	private int getSetupThreads(DbUnitTestContext testContext) {
+		DbUnitConfiguration configuration = testContext.getTestClass().getAnnotation(DbUnitConfiguration.class);
+		return (configuration == null ? 1 : configuration.setupThreads());
+	}
+
+	private Resource getResource(DbUnitTestContext testContext, String location) {
+		return DataSetResourceCache.getSharedInstance().getResource(testContext.getTestClass(), location,
+				testContext.getDataSetResourceIndex());
 	}
 
 	//private List<IDataSet> loadDataSets(DbUnitTestContext testContext, AnnotationAttributes annotation)
 	//		throws Exception {
 	private List<IDataSet> loadDataSets(DbUnitTestContext testContext,
-				DatabaseSetupTearDownAnnotationAttributes annotation) throws Exception {
+				DatabaseSetupTearDownAnnotationAttributes annotation, List<Future<IDataSet>> loading) throws Exception {
 		List<IDataSet> datasets = new ArrayList<>();
-		for (String dataSetLocation : annotation.getValue()) {
-			//datasets.add(loadDataset(testContext, dataSetLocation, DataSetModifier.NONE));
-			datasets.add(loadDataset(testContext, annotation, dataSetLocation, DataSetModifier.NONE));
+		if (loading != null) {
+			for (Future<IDataSet> future : loading) {
+				datasets.add(DataSetLoaderExecutors.getResult(future));
+			}
+		} else {
+			for (String dataSetLocation : annotation.getValue()) {
+				//datasets.add(loadDataset(testContext, dataSetLocation, DataSetModifier.NONE));
+				datasets.add(loadDataset(testContext, annotation, dataSetLocation, DataSetModifier.NONE));
+			}
 		}
 		if (datasets.isEmpty()) {
 			datasets.add(getFullDatabaseDataSet(testContext, annotation.getConnection()));
@@ -311,6 +518,35 @@ public class DbUnitRunner {
 		return datasets;
 	}
 
+	/**
+	 * Start loading the datasets of all annotations on the configured number of threads. Annotations that execute SQL
+	 * or truncate tables are skipped since their values are not necessarily dataset locations.
+	 */
+	private Map<DatabaseSetupTearDownAnnotationAttributes, List<Future<IDataSet>>> startLoadingDataSets(
+			final DbUnitTestContext testContext, Collection<DatabaseSetupTearDownAnnotationAttributes> annotations)
+			throws Exception {
+		Map<DatabaseSetupTearDownAnnotationAttributes, List<Future<IDataSet>>> loading = new IdentityHashMap<>();
+		DbUnitConfiguration configuration = testContext.getTestClass().getAnnotation(DbUnitConfiguration.class);
+		if (configuration == null || configuration.dataSetLoaderThreads() <= 1) {
+			return loading;
+		}
+		ExecutorService executor = DataSetLoaderExecutors.get(configuration.dataSetLoaderThreads());
+		for (final DatabaseSetupTearDownAnnotationAttributes annotation : annotations) {
+			org.dbunit.operation.DatabaseOperation dbUnitOperation = getDbUnitDatabaseOperation(testContext,
+					annotation.getType());
+			if (dbUnitOperation instanceof ExecuteSqlOperation || dbUnitOperation instanceof TruncateTableOperation) {
+				continue;
+			}
+			List<Future<IDataSet>> futures = new ArrayList<>();
+			for (final String dataSetLocation : annotation.getValue()) {
+				futures.add(executor.submit(
+						() -> loadDataset(testContext, annotation, dataSetLocation, DataSetModifier.NONE)));
+			}
+			loading.put(annotation, futures);
+		}
+		return loading;
+	}
+
 	private IDataSet getFullDatabaseDataSet(DbUnitTestContext testContext, String name) throws Exception {
 		IDatabaseConnection connection = testContext.getConnections().get(name);
 		return connection.createDataSet();
@@ -331,10 +567,15 @@ public class DbUnitRunner {
 		 */
 	private IDataSet loadDataset(final DbUnitTestContext testContext, final AbstractDatabaseAnnotationAttributes annotation,
 								 final String dataSetLocation, final DataSetModifier modifier) throws Exception {
+		return loadDataset(testContext, annotation, dataSetLocation, modifier, null);
+	}
+
+	private IDataSet loadDataset(final DbUnitTestContext testContext, final AbstractDatabaseAnnotationAttributes annotation,
+								 final String dataSetLocation, final DataSetModifier modifier, final Set<String> tableNames) throws Exception {
 			DataSetLoader dataSetLoader = DataSetAnnotationUtils.getDataSetLoader(testContext, annotation);
 		//DataSetLoader dataSetLoader = testContext.getDataSetLoader();
 		if (StringUtils.hasLength(dataSetLocation)) {
-			IDataSet dataSet = dataSetLoader.loadDataSet(testContext.getTestClass(), dataSetLocation, annotation.getDatasetId());
+			IDataSet dataSet = dataSetLoader.loadDataSet(testContext.getTestClass(), dataSetLocation, annotation.getDatasetId(), tableNames);
 			dataSet = modifier.modify(dataSet);
 			Assert.notNull(dataSet,"Unable to load dataset from \"" + dataSetLocation + "\" using " + dataSetLoader.getClass());
 			return dataSet;
@@ -22,6 +22,7 @@ import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.IDataSet;
 
 import com.github.springtestdbunit.dataset.DataSetLoader;
+import com.github.springtestdbunit.dataset.DataSetResourceIndex;
 import com.github.springtestdbunit.operation.DatabaseOperationLookup;
 
 /**
@@ -43,6 +44,14 @@ public interface DbUnitTestContext {
 	 */
 	DataSetLoader getDataSetLoader();
 
+	/**
+	 * Returns the {@link DataSetResourceIndex} that should be used to resolve dataset locations.
+	 * @return the index or {@code null} if locations are resolved by probing the classpath
+	 */
+	default DataSetResourceIndex getDataSetResourceIndex() {
+		return null;
+	}
+
 	/**
 	 * Returns the {@link DatabaseOperationLookup} that should be used to lookup database operations.
 	 * @return the database operation lookup
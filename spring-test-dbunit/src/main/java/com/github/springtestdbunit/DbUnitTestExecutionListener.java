@@ -16,6 +16,7 @@
 
 package com.github.springtestdbunit;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 
@@ -26,7 +27,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dbunit.database.IDatabaseConnection;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.Conventions;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.test.context.TestContext;
 import org.springframework.test.context.support.AbstractTestExecutionListener;
 import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
@@ -36,8 +39,15 @@ import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 import com.github.springtestdbunit.bean.DatabaseDataSourceConnectionFactoryBean;
+import com.github.springtestdbunit.dataset.AbstractDataSetLoader;
+import com.github.springtestdbunit.dataset.CachingDataSetLoader;
 import com.github.springtestdbunit.dataset.DataSetLoader;
+import com.github.springtestdbunit.dataset.DataSetParseCache;
+import com.github.springtestdbunit.dataset.DataSetResourceCache;
+import com.github.springtestdbunit.dataset.DataSetResourceIndex;
 import com.github.springtestdbunit.dataset.FlatXmlDataSetLoader;
+import com.github.springtestdbunit.dataset.PrefetchingDataSetLoader;
+import com.github.springtestdbunit.dataset.ReplacementDataSetLoader;
 import com.github.springtestdbunit.operation.DatabaseOperationLookup;
 import com.github.springtestdbunit.operation.DefaultDatabaseOperationLookup;
 
@@ -68,6 +78,18 @@ public class DbUnitTestExecutionListener extends AbstractTestExecutionListener {
 
 	private static final String DATA_SET_LOADER_BEAN_NAME = "dbUnitDataSetLoader";
 
+	private static final String DATA_SET_RESOURCE_INDEX_BEAN_NAME = "dbUnitDataSetResourceIndex";
+
+	private static final String CACHING_DATA_SET_LOADER_BEAN_NAME_PREFIX = "dbUnitCachingDataSetLoader#";
+
+	/**
+	 * Annotations of the supported test frameworks that mark test methods. The JUnit Jupiter annotations are also found
+	 * as meta-annotations, so that <code>@ParameterizedTest</code>, <code>@RepeatedTest</code> and composed annotations
+	 * are matched.
+	 */
+	private static final String[] TEST_ANNOTATION_NAMES = { "org.junit.Test", "org.junit.jupiter.api.Test",
+			"org.junit.jupiter.api.TestTemplate", "org.junit.jupiter.api.TestFactory", "org.testng.annotations.Test" };
+
 	//protected static final String CONNECTION_ATTRIBUTE = Conventions
 	//		.getQualifiedAttributeName(DbUnitTestExecutionListener.class, "connection");
 
@@ -92,6 +114,10 @@ public class DbUnitTestExecutionListener extends AbstractTestExecutionListener {
 		String dataSetLoaderBeanName = null;
 		Class<? extends DataSetLoader> dataSetLoaderClass = FlatXmlDataSetLoader.class;
 		Class<? extends DatabaseOperationLookup> databaseOperationLookupClass = DefaultDatabaseOperationLookup.class;
+		boolean cacheDataSets = false;
+		boolean prefetchDataSets = false;
+		boolean persistentDataSetCache = false;
+		boolean indexDataSets = false;
 
 		DbUnitConfiguration configuration = testContext.getTestClass().getAnnotation(DbUnitConfiguration.class);
 		if (configuration != null) {
@@ -102,6 +128,14 @@ public class DbUnitTestExecutionListener extends AbstractTestExecutionListener {
 			dataSetLoaderClass = configuration.dataSetLoader();
 			dataSetLoaderBeanName = configuration.dataSetLoaderBean();
 			databaseOperationLookupClass = configuration.databaseOperationLookup();
+			cacheDataSets = configuration.cacheDataSets();
+			prefetchDataSets = configuration.prefetchDataSets();
+			persistentDataSetCache = configuration.persistentDataSetCache();
+			indexDataSets = configuration.indexDataSets();
+			Assert.state(configuration.sortTables()
+					|| (configuration.setupThreads() <= 1 && configuration.partitionedTables().length == 0),
+					"The setupThreads and partitionedTables attributes of @DbUnitConfiguration require sortTables "
+							+ "on " + testContext.getTestClass());
 		}
 
 		if (ObjectUtils.isEmpty(databaseConnectionBeanNames)
@@ -122,7 +156,10 @@ public class DbUnitTestExecutionListener extends AbstractTestExecutionListener {
 							? "'" + dataSetLoaderBeanName + "'" : dataSetLoaderClass));
 		}
 		prepareDatabaseConnection(testContext, databaseConnectionBeanNames);
-		prepareDataSetLoader(testContext, dataSetLoaderBeanName, dataSetLoaderClass);
+		DataSetResourceIndex index = (indexDataSets ? getDataSetResourceIndex(testContext) : null);
+		testContext.setAttribute(DbUnitTestContextConstants.DATA_SET_RESOURCE_INDEX_ATTRIBUTE, index);
+		prepareDataSetLoader(testContext, dataSetLoaderBeanName, dataSetLoaderClass, cacheDataSets, prefetchDataSets,
+				persistentDataSetCache, index);
 		prepareDatabaseOperationLookup(testContext, databaseOperationLookupClass);
 	}
 
@@ -139,31 +176,162 @@ public class DbUnitTestExecutionListener extends AbstractTestExecutionListener {
 
 	private void prepareDatabaseConnection(DbUnitTestContextAdapter testContext, String[] connectionBeanNames) {
 		IDatabaseConnection[] connections = new IDatabaseConnection[connectionBeanNames.length];
+		DataSource[] dataSources = new DataSource[connectionBeanNames.length];
 		for (int i = 0; i < connectionBeanNames.length; i++) {
 			Object databaseConnection = testContext.getApplicationContext().getBean(connectionBeanNames[i]);
 			if (databaseConnection instanceof DataSource) {
+				dataSources[i] = (DataSource) databaseConnection;
 				databaseConnection = DatabaseDataSourceConnectionFactoryBean
 						.newConnection((DataSource) databaseConnection);
 			}
 			Assert.isInstanceOf(IDatabaseConnection.class, databaseConnection);
 			connections[i] = (IDatabaseConnection) databaseConnection;
 		}
-		testContext.setAttribute(DbUnitTestContextConstants.CONNECTION_ATTRIBUTE, new DatabaseConnections(connectionBeanNames, connections));
+		testContext.setAttribute(DbUnitTestContextConstants.CONNECTION_ATTRIBUTE,
+				new DatabaseConnections(connectionBeanNames, connections, dataSources));
+	}
+
+	/**
+	 * Returns the {@link DataSetResourceIndex} of the application context, creating it when no index has been declared.
+	 * A created index is registered with the context so that it is only built once.
+	 */
+	private DataSetResourceIndex getDataSetResourceIndex(DbUnitTestContextAdapter testContext) {
+		ApplicationContext applicationContext = testContext.getApplicationContext();
+		DataSetResourceIndex index;
+		synchronized (applicationContext) {
+			if (applicationContext.containsBean(DATA_SET_RESOURCE_INDEX_BEAN_NAME)) {
+				index = applicationContext.getBean(DATA_SET_RESOURCE_INDEX_BEAN_NAME, DataSetResourceIndex.class);
+			} else {
+				try {
+					index = new DataSetResourceIndex(applicationContext.getClassLoader());
+				} catch (IOException ex) {
+					throw new IllegalStateException("Unable to index dataset resources", ex);
+				}
+				if (applicationContext instanceof ConfigurableApplicationContext) {
+					((ConfigurableApplicationContext) applicationContext).getBeanFactory()
+							.registerSingleton(DATA_SET_RESOURCE_INDEX_BEAN_NAME, index);
+				}
+			}
+		}
+		return index;
 	}
 
 	private void prepareDataSetLoader(DbUnitTestContextAdapter testContext, String beanName,
-			Class<? extends DataSetLoader> dataSetLoaderClass) {
+			Class<? extends DataSetLoader> dataSetLoaderClass, boolean cacheDataSets, boolean prefetchDataSets,
+			boolean persistentDataSetCache, DataSetResourceIndex index) {
+		DataSetLoader dataSetLoader;
 		if (StringUtils.hasLength(beanName)) {
-			testContext.setAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE,
-					testContext.getApplicationContext().getBean(beanName, DataSetLoader.class));
+			dataSetLoader = testContext.getApplicationContext().getBean(beanName, DataSetLoader.class);
 		} else {
 			try {
-				testContext.setAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE, dataSetLoaderClass.getDeclaredConstructor().newInstance());
+				dataSetLoader = dataSetLoaderClass.getDeclaredConstructor().newInstance();
 			} catch (Exception ex) {
 				throw new IllegalArgumentException(
 						"Unable to create data set loader instance for " + dataSetLoaderClass, ex);
 			}
 		}
+		if (dataSetLoader instanceof ReplacementDataSetLoader) {
+			testContext.setAttribute(DbUnitTestContextConstants.REPLACEMENT_DATA_SET_LOADER_ATTRIBUTE, dataSetLoader);
+		}
+		if (persistentDataSetCache && dataSetLoader instanceof AbstractDataSetLoader
+				&& ((AbstractDataSetLoader) dataSetLoader).getParseCache() == null) {
+			((AbstractDataSetLoader) dataSetLoader).setParseCache(DataSetParseCache.getSharedInstance());
+		}
+		if (index != null && dataSetLoader instanceof AbstractDataSetLoader
+				&& ((AbstractDataSetLoader) dataSetLoader).getResourceIndex() == null) {
+			((AbstractDataSetLoader) dataSetLoader).setResourceIndex(index);
+		}
+		if (cacheDataSets && !(dataSetLoader instanceof CachingDataSetLoader)) {
+			if (StringUtils.hasLength(beanName)) {
+				dataSetLoader = new CachingDataSetLoader(dataSetLoader);
+			} else {
+				// Loaders created from the same class are configured alike, so they share one caching loader
+				dataSetLoader = getCachingDataSetLoader(testContext, dataSetLoaderClass.getName()
+						+ (persistentDataSetCache ? "#persistent" : "") + (index != null ? "#indexed" : ""),
+						dataSetLoader);
+			}
+		}
+		if (prefetchDataSets) {
+			dataSetLoader = preparePrefetchingDataSetLoader(testContext, dataSetLoader);
+		}
+		testContext.setAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE, dataSetLoader);
+	}
+
+	/**
+	 * Returns the caching loader of the application context with the given name, creating it from the source loader
+	 * when it is first requested. A created loader is registered with the context so that tests of other contexts never
+	 * use its source loader.
+	 */
+	private DataSetLoader getCachingDataSetLoader(DbUnitTestContextAdapter testContext, String name,
+			DataSetLoader source) {
+		ApplicationContext applicationContext = testContext.getApplicationContext();
+		String beanName = CACHING_DATA_SET_LOADER_BEAN_NAME_PREFIX + name;
+		synchronized (applicationContext) {
+			if (applicationContext.containsBean(beanName)) {
+				return applicationContext.getBean(beanName, DataSetLoader.class);
+			}
+			CachingDataSetLoader cachingDataSetLoader = new CachingDataSetLoader(source);
+			if (applicationContext instanceof ConfigurableApplicationContext) {
+				((ConfigurableApplicationContext) applicationContext).getBeanFactory().registerSingleton(beanName,
+						cachingDataSetLoader);
+			}
+			return cachingDataSetLoader;
+		}
+	}
+
+	/**
+	 * Returns the prefetching loader of the test class, creating it and requesting the datasets of all test methods
+	 * when the first test instance is prepared.
+	 */
+	private PrefetchingDataSetLoader preparePrefetchingDataSetLoader(DbUnitTestContextAdapter testContext,
+			DataSetLoader dataSetLoader) {
+		PrefetchingDataSetLoader prefetchingDataSetLoader = (PrefetchingDataSetLoader) testContext
+				.getAttribute(DbUnitTestContextConstants.PREFETCHING_DATA_SET_LOADER_ATTRIBUTE);
+		if (prefetchingDataSetLoader == null) {
+			prefetchingDataSetLoader = new PrefetchingDataSetLoader(dataSetLoader);
+			testContext.setAttribute(DbUnitTestContextConstants.PREFETCHING_DATA_SET_LOADER_ATTRIBUTE,
+					prefetchingDataSetLoader);
+			Class<?> testClass = testContext.getTestClass();
+			for (Method method : ReflectionUtils.getUniqueDeclaredMethods(testClass)) {
+				if (isTestMethod(method)) {
+					prefetch(prefetchingDataSetLoader, testClass, method);
+				}
+			}
+		}
+		return prefetchingDataSetLoader;
+	}
+
+	private boolean isTestMethod(Method method) {
+		for (String annotationName : TEST_ANNOTATION_NAMES) {
+			if (AnnotatedElementUtils.isAnnotated(method, annotationName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void prefetch(PrefetchingDataSetLoader prefetchingDataSetLoader, Class<?> testClass, Method method) {
+		Annotations<DatabaseSetup> setups = Annotations.get(testClass, method, DatabaseSetups.class, DatabaseSetup.class);
+		for (DatabaseSetupTearDownAnnotationAttributes annotation : DatabaseSetupTearDownAnnotationAttributes.get(setups)) {
+			if (usesDefaultDataSetLoader(annotation) && annotation.getType() != DatabaseOperation.SQL
+					&& annotation.getType() != DatabaseOperation.TRUNCATE_TABLE) {
+				for (String location : annotation.getValue()) {
+					prefetchingDataSetLoader.prefetch(testClass, location, annotation.getDatasetId());
+				}
+			}
+		}
+		Annotations<ExpectedDatabase> expectations = Annotations.get(testClass, method, ExpectedDatabases.class,
+				ExpectedDatabase.class);
+		for (ExpectedDatabaseAnnotationAttributes annotation : ExpectedDatabaseAnnotationAttributes.get(expectations)) {
+			if (usesDefaultDataSetLoader(annotation) && StringUtils.hasLength(annotation.getValue())) {
+				prefetchingDataSetLoader.prefetch(testClass, annotation.getValue(), annotation.getDatasetId());
+			}
+		}
+	}
+
+	private boolean usesDefaultDataSetLoader(AbstractDatabaseAnnotationAttributes annotation) {
+		return !StringUtils.hasLength(annotation.getDataSetLoaderBean())
+				&& (annotation.getDataSetLoader() == null || annotation.getDataSetLoader() == DataSetLoader.class);
 	}
 
 	private void prepareDatabaseOperationLookup(DbUnitTestContextAdapter testContext,
@@ -183,6 +351,39 @@ public class DbUnitTestExecutionListener extends AbstractTestExecutionListener {
 
 	@Override
 	public void afterTestMethod(TestContext testContext) throws Exception {
-		runner.afterTestMethod(new DbUnitTestContextAdapter(testContext));
+		DbUnitTestContextAdapter adapter = new DbUnitTestContextAdapter(testContext);
+		try {
+			runner.afterTestMethod(adapter);
+		} finally {
+			// Prefetched datasets of later tests already hold their function results
+			if (adapter.getAttribute(DbUnitTestContextConstants.PREFETCHING_DATA_SET_LOADER_ATTRIBUTE) == null) {
+				clearFunctionResults(adapter);
+			}
+		}
+	}
+
+	@Override
+	public void afterTestClass(TestContext testContext) throws Exception {
+		DbUnitTestContextAdapter adapter = new DbUnitTestContextAdapter(testContext);
+		PrefetchingDataSetLoader prefetchingDataSetLoader = (PrefetchingDataSetLoader) adapter
+				.getAttribute(DbUnitTestContextConstants.PREFETCHING_DATA_SET_LOADER_ATTRIBUTE);
+		if (prefetchingDataSetLoader != null) {
+			prefetchingDataSetLoader.cancel();
+			adapter.setAttribute(DbUnitTestContextConstants.PREFETCHING_DATA_SET_LOADER_ATTRIBUTE, null);
+		}
+		clearFunctionResults(adapter);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Dataset resource resolution after " + testContext.getTestClass().getName() + ": "
+					+ DataSetResourceCache.getSharedInstance());
+		}
+		DataSetResourceCache.getSharedInstance().clearMissing();
+	}
+
+	private void clearFunctionResults(DbUnitTestContextAdapter testContext) {
+		ReplacementDataSetLoader replacementDataSetLoader = (ReplacementDataSetLoader) testContext
+				.getAttribute(DbUnitTestContextConstants.REPLACEMENT_DATA_SET_LOADER_ATTRIBUTE);
+		if (replacementDataSetLoader != null) {
+			replacementDataSetLoader.clearFunctionResults();
+		}
 	}
 }
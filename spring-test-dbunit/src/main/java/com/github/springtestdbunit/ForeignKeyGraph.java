@@ -0,0 +1,397 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.database.IDatabaseConnection;
+
+/**
+ * The foreign key dependencies between the tables of a database, used to order the tables of setup and teardown
+ * datasets so that parent rows are inserted before the rows that reference them and deleted after them, and to split
+ * them into {@link #group(String[]) groups} that can be loaded in parallel.
+ * <p>
+ * Graphs are cached per database, identified by the JDBC URL, user and schema of the connection, so that the
+ * connections created for each test share a graph. Each graph is built with a single query on
+ * {@code INFORMATION_SCHEMA}, or on {@code pg_constraint} for PostgreSQL where constraint names are only unique per
+ * table, otherwise with JDBC {@link DatabaseMetaData}. Only foreign keys between tables of the schema of the
+ * connection are used. A graph is
+ * rebuilt when a table it does not know about is requested, and can be {@link #invalidate(IDatabaseConnection)
+ * invalidated} after other schema changes. Foreign key cycles are logged once when a graph is built.
+ */
+public final class ForeignKeyGraph {
+
+	private static final Log logger = LogFactory.getLog(ForeignKeyGraph.class);
+
+	private static final Set<String> INFORMATION_SCHEMA_PRODUCTS = new HashSet<>(
+			Arrays.asList("HSQL Database Engine", "H2", "Microsoft SQL Server"));
+
+	private static final String INFORMATION_SCHEMA_QUERY = "SELECT fk.TABLE_SCHEMA, fk.TABLE_NAME, "
+			+ "pk.TABLE_SCHEMA, pk.TABLE_NAME FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS rc "
+			+ "JOIN INFORMATION_SCHEMA.TABLE_CONSTRAINTS fk ON rc.CONSTRAINT_SCHEMA = fk.CONSTRAINT_SCHEMA "
+			+ "AND rc.CONSTRAINT_NAME = fk.CONSTRAINT_NAME "
+			+ "JOIN INFORMATION_SCHEMA.TABLE_CONSTRAINTS pk ON rc.UNIQUE_CONSTRAINT_SCHEMA = pk.CONSTRAINT_SCHEMA "
+			+ "AND rc.UNIQUE_CONSTRAINT_NAME = pk.CONSTRAINT_NAME";
+
+	private static final String POSTGRESQL_QUERY = "SELECT fkn.nspname, fkc.relname, pkn.nspname, pkc.relname "
+			+ "FROM pg_catalog.pg_constraint c "
+			+ "JOIN pg_catalog.pg_class fkc ON c.conrelid = fkc.oid "
+			+ "JOIN pg_catalog.pg_namespace fkn ON fkc.relnamespace = fkn.oid "
+			+ "JOIN pg_catalog.pg_class pkc ON c.confrelid = pkc.oid "
+			+ "JOIN pg_catalog.pg_namespace pkn ON pkc.relnamespace = pkn.oid WHERE c.contype = 'f'";
+
+	private static final String[] TABLE_TYPES = { "TABLE" };
+
+	private static final Map<String, ForeignKeyGraph> CACHE = new ConcurrentHashMap<>();
+
+	private final Set<String> tables;
+
+	private final Map<String, Set<String>> parents;
+
+	private final Map<String, Integer> components;
+
+	private final Set<String> missingTables = ConcurrentHashMap.newKeySet();
+
+	ForeignKeyGraph(Set<String> tables, Map<String, Set<String>> parents) {
+		this.tables = tables;
+		this.parents = parents;
+		this.components = findStronglyConnectedComponents();
+	}
+
+	/**
+	 * Returns the graph of the database of the given connection, building it if necessary.
+	 * @param connection the database connection
+	 * @return the foreign key graph
+	 * @throws SQLException on a database error
+	 */
+	public static ForeignKeyGraph get(IDatabaseConnection connection) throws SQLException {
+		String key = getKey(connection);
+		ForeignKeyGraph graph = CACHE.get(key);
+		if (graph == null) {
+			graph = build(connection);
+			CACHE.put(key, graph);
+		}
+		return graph;
+	}
+
+	/**
+	 * Returns the graph of the database of the given connection, rebuilding it when it does not contain all of the
+	 * given tables.
+	 * @param connection the database connection
+	 * @param tableNames the tables that the graph should contain
+	 * @return the foreign key graph
+	 * @throws SQLException on a database error
+	 */
+	public static ForeignKeyGraph get(IDatabaseConnection connection, String[] tableNames) throws SQLException {
+		ForeignKeyGraph graph = get(connection);
+		if (!graph.isMissingTables(tableNames)) {
+			return graph;
+		}
+		invalidate(connection);
+		graph = get(connection);
+		for (String tableName : tableNames) {
+			if (!graph.tables.contains(getKey(tableName))) {
+				graph.missingTables.add(getKey(tableName));
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Discard the cached graph of the database of the given connection, for example after tables or constraints have
+	 * been changed.
+	 * @param connection the database connection
+	 * @throws SQLException on a database error
+	 */
+	public static void invalidate(IDatabaseConnection connection) throws SQLException {
+		CACHE.remove(getKey(connection));
+	}
+
+	/**
+	 * Discard all cached graphs.
+	 */
+	public static void invalidateAll() {
+		CACHE.clear();
+	}
+
+	private static String getKey(IDatabaseConnection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getConnection().getMetaData();
+		return metaData.getURL() + "|" + metaData.getUserName() + "|" + connection.getSchema();
+	}
+
+	private static ForeignKeyGraph build(IDatabaseConnection connection) throws SQLException {
+		Connection jdbcConnection = connection.getConnection();
+		DatabaseMetaData metaData = jdbcConnection.getMetaData();
+		String schema = connection.getSchema();
+		List<String> tableNames = getTableNames(metaData, schema);
+		Set<String> tables = new HashSet<>();
+		for (String tableName : tableNames) {
+			tables.add(getKey(tableName));
+		}
+		Map<String, Set<String>> parents = new HashMap<>();
+		String productName = metaData.getDatabaseProductName();
+		String query = ("PostgreSQL".equals(productName) ? POSTGRESQL_QUERY
+				: INFORMATION_SCHEMA_PRODUCTS.contains(productName) ? INFORMATION_SCHEMA_QUERY : null);
+		if (query != null) {
+			try (PreparedStatement statement = jdbcConnection.prepareStatement(query);
+					ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					if (isInSchema(schema, resultSet.getString(1)) && isInSchema(schema, resultSet.getString(3))) {
+						addParent(parents, resultSet.getString(2), resultSet.getString(4));
+					}
+				}
+			}
+		} else {
+			for (String table : tableNames) {
+				try (ResultSet resultSet = metaData.getImportedKeys(null, schema, table)) {
+					while (resultSet.next()) {
+						if (isInSchema(schema, resultSet.getString("PKTABLE_SCHEM"))) {
+							addParent(parents, resultSet.getString("FKTABLE_NAME"),
+									resultSet.getString("PKTABLE_NAME"));
+						}
+					}
+				}
+			}
+		}
+		ForeignKeyGraph graph = new ForeignKeyGraph(tables, parents);
+		graph.logCycles();
+		return graph;
+	}
+
+	private static List<String> getTableNames(DatabaseMetaData metaData, String schema) throws SQLException {
+		List<String> tableNames = new ArrayList<>();
+		try (ResultSet resultSet = metaData.getTables(null, schema, null, TABLE_TYPES)) {
+			while (resultSet.next()) {
+				tableNames.add(resultSet.getString("TABLE_NAME"));
+			}
+		}
+		return tableNames;
+	}
+
+	private static boolean isInSchema(String schema, String tableSchema) {
+		return schema == null || schema.equalsIgnoreCase(tableSchema);
+	}
+
+	private static void addParent(Map<String, Set<String>> parents, String table, String parent) {
+		if (!getKey(table).equals(getKey(parent))) {
+			parents.computeIfAbsent(getKey(table), k -> new LinkedHashSet<>()).add(getKey(parent));
+		}
+	}
+
+	private static String getKey(String tableName) {
+		int index = tableName.lastIndexOf('.');
+		return tableName.substring(index + 1).toUpperCase(Locale.ENGLISH);
+	}
+
+	private boolean isMissingTables(String[] tableNames) {
+		for (String tableName : tableNames) {
+			String key = getKey(tableName);
+			if (!this.tables.contains(key) && !this.missingTables.contains(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the tables directly referenced by the foreign keys of the given table.
+	 * @param tableName the table name
+	 * @return the names of the referenced tables, in upper case
+	 */
+	public Set<String> getParents(String tableName) {
+		Set<String> parents = this.parents.get(getKey(tableName));
+		return (parents != null ? Collections.unmodifiableSet(parents) : Collections.emptySet());
+	}
+
+	/**
+	 * Returns if the two tables are part of the same foreign key cycle.
+	 * @param tableName the first table name
+	 * @param otherTableName the second table name
+	 * @return if the tables are part of a cycle
+	 */
+	public boolean isCyclic(String tableName, String otherTableName) {
+		Integer component = this.components.get(getKey(tableName));
+		return component != null && component.equals(this.components.get(getKey(otherTableName)));
+	}
+
+	/**
+	 * Sort the given tables so that every table follows the tables that it references. Tables that do not depend on
+	 * each other keep their relative order, as do tables that are part of a cycle.
+	 * @param tableNames the table names
+	 * @return the sorted table names
+	 */
+	public String[] sort(String[] tableNames) {
+		Map<String, Integer> positions = new HashMap<>();
+		for (int i = 0; i < tableNames.length; i++) {
+			positions.putIfAbsent(getKey(tableNames[i]), i);
+		}
+		String[] sorted = new String[tableNames.length];
+		boolean[] added = new boolean[tableNames.length];
+		for (int count = 0; count < tableNames.length; count++) {
+			int next = -1;
+			for (int i = 0; i < tableNames.length && next == -1; i++) {
+				if (!added[i] && isReady(tableNames[i], positions, added)) {
+					next = i;
+				}
+			}
+			if (next == -1) {
+				throw new IllegalStateException("Unable to sort tables " + Arrays.toString(tableNames));
+			}
+			added[next] = true;
+			sorted[count] = tableNames[next];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Split the given tables into groups that can be loaded independently of each other. Tables are in the same group
+	 * when one references the other, directly or through other given tables. Each group is {@link #sort(String[])
+	 * sorted} and the groups are ordered by the position of their first table.
+	 * @param tableNames the table names
+	 * @return the groups of table names
+	 */
+	public List<String[]> group(String[] tableNames) {
+		Map<String, Integer> positions = new HashMap<>();
+		for (int i = 0; i < tableNames.length; i++) {
+			positions.putIfAbsent(getKey(tableNames[i]), i);
+		}
+		int[] roots = new int[tableNames.length];
+		for (int i = 0; i < roots.length; i++) {
+			roots[i] = i;
+		}
+		for (int i = 0; i < tableNames.length; i++) {
+			roots[findRoot(roots, i)] = findRoot(roots, positions.get(getKey(tableNames[i])));
+			for (String parent : getParents(tableNames[i])) {
+				Integer position = positions.get(parent);
+				if (position != null) {
+					roots[findRoot(roots, i)] = findRoot(roots, position);
+				}
+			}
+		}
+		Map<Integer, List<String>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < tableNames.length; i++) {
+			groups.computeIfAbsent(findRoot(roots, i), k -> new ArrayList<>()).add(tableNames[i]);
+		}
+		List<String[]> sortedGroups = new ArrayList<>();
+		for (List<String> group : groups.values()) {
+			sortedGroups.add(sort(group.toArray(new String[0])));
+		}
+		return sortedGroups;
+	}
+
+	private int findRoot(int[] roots, int index) {
+		while (roots[index] != index) {
+			roots[index] = roots[roots[index]];
+			index = roots[index];
+		}
+		return index;
+	}
+
+	private boolean isReady(String tableName, Map<String, Integer> positions, boolean[] added) {
+		for (String parent : getParents(tableName)) {
+			Integer position = positions.get(parent);
+			if (position != null && !added[position] && !isCyclic(tableName, parent)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find the strongly connected components of the graph using Tarjan's algorithm. Tables that are not part of a
+	 * cycle are not included.
+	 */
+	private Map<String, Integer> findStronglyConnectedComponents() {
+		Map<String, Integer> components = new HashMap<>();
+		Map<String, Integer> indexes = new HashMap<>();
+		Map<String, Integer> lowLinks = new HashMap<>();
+		Deque<String> stack = new ArrayDeque<>();
+		Set<String> onStack = new HashSet<>();
+		for (String table : this.parents.keySet()) {
+			if (!indexes.containsKey(table)) {
+				connect(table, indexes, lowLinks, stack, onStack, components);
+			}
+		}
+		return components;
+	}
+
+	private void connect(String table, Map<String, Integer> indexes, Map<String, Integer> lowLinks,
+			Deque<String> stack, Set<String> onStack, Map<String, Integer> components) {
+		indexes.put(table, indexes.size());
+		lowLinks.put(table, indexes.get(table));
+		stack.push(table);
+		onStack.add(table);
+		for (String parent : getParents(table)) {
+			if (!indexes.containsKey(parent)) {
+				connect(parent, indexes, lowLinks, stack, onStack, components);
+				lowLinks.put(table, Math.min(lowLinks.get(table), lowLinks.get(parent)));
+			} else if (onStack.contains(parent)) {
+				lowLinks.put(table, Math.min(lowLinks.get(table), indexes.get(parent)));
+			}
+		}
+		if (lowLinks.get(table).equals(indexes.get(table))) {
+			List<String> component = new ArrayList<>();
+			String member;
+			do {
+				member = stack.pop();
+				onStack.remove(member);
+				component.add(member);
+			} while (!member.equals(table));
+			if (component.size() > 1) {
+				int id = indexes.get(table);
+				for (String cyclicTable : component) {
+					components.put(cyclicTable, id);
+				}
+			}
+		}
+	}
+
+	private void logCycles() {
+		if (this.components.isEmpty() || !logger.isWarnEnabled()) {
+			return;
+		}
+		Map<Integer, Set<String>> cycles = new LinkedHashMap<>();
+		for (Map.Entry<String, Integer> entry : this.components.entrySet()) {
+			cycles.computeIfAbsent(entry.getValue(), k -> new LinkedHashSet<>()).add(entry.getKey());
+		}
+		for (Set<String> cycle : cycles.values()) {
+			logger.warn("Foreign keys form a cycle between tables " + cycle
+					+ ", their rows are inserted and deleted in dataset order");
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Runs a setup operation in parallel on groups of tables that do not reference each other. Each worker thread takes
+ * groups from a shared queue and runs them on its own connection obtained from the data source of the test
+ * connection, so that no more connections are opened than there are threads. The first failing worker stops all
+ * remaining groups from being started and every connection is then rolled back. Once every group has succeeded the
+ * connections are committed one after the other, which is best-effort: a failed commit cannot undo the commits of the
+ * connections before it.
+ * <p>
+ * One fixed size pool of daemon threads is created per configured thread count and reused by all tests for the
+ * lifetime of the JVM.
+ *
+ * @see ForeignKeyGraph#group(String[])
+ */
+final class ParallelDataSetOperation {
+
+	private static final Log logger = LogFactory.getLog(ParallelDataSetOperation.class);
+
+	private static final Map<Integer, ExecutorService> EXECUTORS = new ConcurrentHashMap<>();
+
+	private ParallelDataSetOperation() {
+	}
+
+	/**
+	 * Execute the operation on the dataset, running independent groups of tables in parallel.
+	 * @param operation the operation
+	 * @param connection the test connection, used when the tables cannot be split into groups
+	 * @param dataSource the data source used to open a connection per worker thread
+	 * @param dataSet the dataset
+	 * @param threads the maximum number of groups run at the same time
+	 * @throws Exception if the operation fails
+	 */
+	public static void execute(DatabaseOperation operation, IDatabaseConnection connection, DataSource dataSource,
+			IDataSet dataSet, int threads) throws Exception {
+		String[] tableNames = dataSet.getTableNames();
+		List<String[]> groups;
+		try {
+			groups = ForeignKeyGraph.get(connection, tableNames).group(tableNames);
+		} catch (SQLException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Unable to read foreign keys, tables are used in dataset order", ex);
+			}
+			operation.execute(connection, dataSet);
+			return;
+		}
+		if (groups.size() < 2) {
+			operation.execute(connection, (groups.isEmpty() ? dataSet : new FilteredDataSet(groups.get(0), dataSet)));
+			return;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing " + operation + " on " + groups.size() + " groups of tables using " + threads
+					+ " threads");
+		}
+		ExecutorService executor = getExecutor(threads);
+		Queue<String[]> pending = new ConcurrentLinkedQueue<>(groups);
+		List<Connection> jdbcConnections = Collections.synchronizedList(new ArrayList<>());
+		List<Future<Void>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < Math.min(threads, groups.size()); i++) {
+				futures.add(executor.submit(() -> {
+					Connection jdbcConnection = dataSource.getConnection();
+					jdbcConnections.add(jdbcConnection);
+					jdbcConnection.setAutoCommit(false);
+					IDatabaseConnection groupConnection = createConnection(jdbcConnection, connection);
+					try {
+						for (String[] group = pending.poll(); group != null; group = pending.poll()) {
+							operation.execute(groupConnection, new FilteredDataSet(group, dataSet));
+						}
+					} catch (Exception ex) {
+						pending.clear();
+						throw ex;
+					}
+					return null;
+				}));
+			}
+			Exception failure = null;
+			for (Future<Void> future : futures) {
+				try {
+					DataSetLoaderExecutors.getResult(future);
+				} catch (Exception ex) {
+					failure = (failure != null ? failure : ex);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			for (Connection jdbcConnection : jdbcConnections) {
+				jdbcConnection.commit();
+			}
+		} catch (Exception ex) {
+			pending.clear();
+			for (Future<Void> future : futures) {
+				future.cancel(true);
+			}
+			rollback(jdbcConnections);
+			throw ex;
+		} finally {
+			close(jdbcConnections);
+		}
+	}
+
+	/**
+	 * Returns the shared executor with the given number of threads.
+	 * @param threads the number of threads
+	 * @return the executor
+	 */
+	static ExecutorService getExecutor(int threads) {
+		return EXECUTORS.computeIfAbsent(threads, ParallelDataSetOperation::create);
+	}
+
+	/**
+	 * Create a connection that wraps the given JDBC connection with the schema and configuration of the test
+	 * connection.
+	 * @param jdbcConnection the JDBC connection
+	 * @param connection the test connection
+	 * @return the connection
+	 * @throws Exception if the connection cannot be created
+	 */
+	static IDatabaseConnection createConnection(Connection jdbcConnection, IDatabaseConnection connection)
+			throws Exception {
+		IDatabaseConnection groupConnection = new DatabaseConnection(jdbcConnection, connection.getSchema());
+		DatabaseConfig config = connection.getConfig();
+		DatabaseConfig groupConfig = groupConnection.getConfig();
+		for (DatabaseConfig.ConfigProperty property : DatabaseConfig.ALL_PROPERTIES) {
+			Object value = config.getProperty(property.getProperty());
+			if (value != null || property.isNullable()) {
+				groupConfig.setProperty(property.getProperty(), value);
+			}
+		}
+		return groupConnection;
+	}
+
+	static void rollback(List<Connection> jdbcConnections) {
+		for (Connection jdbcConnection : jdbcConnections) {
+			try {
+				jdbcConnection.rollback();
+			} catch (SQLException ex) {
+				logger.warn("Unable to rollback setup connection", ex);
+			}
+		}
+	}
+
+	static void close(List<Connection> jdbcConnections) {
+		for (Connection jdbcConnection : jdbcConnections) {
+			try {
+				jdbcConnection.close();
+			} catch (SQLException ex) {
+				logger.warn("Unable to close setup connection", ex);
+			}
+		}
+	}
+
+	private static ExecutorService create(int threads) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dbunit-setup-");
+		threadFactory.setDaemon(true);
+		return Executors.newFixedThreadPool(threads, threadFactory);
+	}
+
+}
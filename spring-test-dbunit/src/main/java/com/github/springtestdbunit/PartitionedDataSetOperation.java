@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.FilteredDataSet;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.operation.DatabaseOperation;
+
+import com.github.springtestdbunit.annotation.PartitionedTable;
+
+/**
+ * Runs a setup operation in stages so that the rows of large tables can be split into partitions that are inserted on
+ * separate connections at the same time. Tables are taken in {@link ForeignKeyGraph#sort(String[]) foreign key order}:
+ * consecutive tables that are not partitioned are run and committed on a single connection, and each partitioned table
+ * is run once the tables before it have been committed, so that the rows it references are visible to all of its
+ * partitions.
+ *
+ * @see PartitionedTable
+ */
+final class PartitionedDataSetOperation {
+
+	private static final Log logger = LogFactory.getLog(PartitionedDataSetOperation.class);
+
+	private PartitionedDataSetOperation() {
+	}
+
+	/**
+	 * Execute the operation on the dataset, partitioning the rows of the given tables.
+	 * @param deleteOperation an operation run on all tables before the first stage or {@code null}
+	 * @param operation the row operation run on each stage
+	 * @param connection the test connection
+	 * @param dataSource the data source used to open the setup connections
+	 * @param dataSet the dataset
+	 * @param partitionedTables the partitioned tables, keyed by table name ignoring case
+	 * @return {@code false} if the dataset contains no partitioned table and nothing was executed
+	 * @throws Exception if the operation fails
+	 */
+	public static boolean execute(DatabaseOperation deleteOperation, DatabaseOperation operation,
+			IDatabaseConnection connection, DataSource dataSource, IDataSet dataSet,
+			Map<String, PartitionedTable> partitionedTables) throws Exception {
+		String[] tableNames = dataSet.getTableNames();
+		if (!containsPartitionedTable(tableNames, partitionedTables)) {
+			return false;
+		}
+		String[] sortedTableNames;
+		try {
+			sortedTableNames = ForeignKeyGraph.get(connection, tableNames).sort(tableNames);
+		} catch (SQLException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Unable to read foreign keys, tables are used in dataset order", ex);
+			}
+			sortedTableNames = tableNames;
+		}
+		List<Connection> jdbcConnections = new ArrayList<>();
+		try {
+			Connection jdbcConnection = dataSource.getConnection();
+			jdbcConnections.add(jdbcConnection);
+			jdbcConnection.setAutoCommit(false);
+			IDatabaseConnection setupConnection = ParallelDataSetOperation.createConnection(jdbcConnection,
+					connection);
+			if (deleteOperation != null) {
+				deleteOperation.execute(setupConnection, new FilteredDataSet(sortedTableNames, dataSet));
+				jdbcConnection.commit();
+			}
+			List<String> stage = new ArrayList<>();
+			for (String tableName : sortedTableNames) {
+				PartitionedTable partitionedTable = partitionedTables.get(tableName);
+				if (partitionedTable == null) {
+					stage.add(tableName);
+					continue;
+				}
+				executeStage(operation, setupConnection, jdbcConnection, dataSet, stage);
+				executePartitioned(operation, connection, dataSource, dataSet.getTable(tableName), partitionedTable);
+			}
+			executeStage(operation, setupConnection, jdbcConnection, dataSet, stage);
+		} catch (Exception ex) {
+			ParallelDataSetOperation.rollback(jdbcConnections);
+			throw ex;
+		} finally {
+			ParallelDataSetOperation.close(jdbcConnections);
+		}
+		return true;
+	}
+
+	private static boolean containsPartitionedTable(String[] tableNames,
+			Map<String, PartitionedTable> partitionedTables) {
+		for (String tableName : tableNames) {
+			if (partitionedTables.containsKey(tableName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void executeStage(DatabaseOperation operation, IDatabaseConnection setupConnection,
+			Connection jdbcConnection, IDataSet dataSet, List<String> stage) throws Exception {
+		if (!stage.isEmpty()) {
+			operation.execute(setupConnection, new FilteredDataSet(stage.toArray(new String[0]), dataSet));
+			jdbcConnection.commit();
+			stage.clear();
+		}
+	}
+
+	private static void executePartitioned(DatabaseOperation operation, IDatabaseConnection connection,
+			DataSource dataSource, ITable table, PartitionedTable partitionedTable) throws Exception {
+		int rowCount = table.getRowCount();
+		int partitions = Math.max(Math.min(partitionedTable.partitions(), rowCount), 1);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing " + operation + " on " + rowCount + " rows of "
+					+ table.getTableMetaData().getTableName() + " using " + partitions + " partitions");
+		}
+		ExecutorService executor = ParallelDataSetOperation.getExecutor(partitions);
+		List<Connection> jdbcConnections = Collections.synchronizedList(new ArrayList<>());
+		List<Future<Void>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < partitions; i++) {
+				int start = (int) ((long) rowCount * i / partitions);
+				int end = (int) ((long) rowCount * (i + 1) / partitions);
+				futures.add(executor.submit(() -> {
+					Connection jdbcConnection = dataSource.getConnection();
+					jdbcConnections.add(jdbcConnection);
+					jdbcConnection.setAutoCommit(false);
+					IDatabaseConnection partitionConnection = createConnection(jdbcConnection, connection,
+							partitionedTable);
+					int commitRows = (partitionedTable.commitRows() > 0 ? partitionedTable.commitRows()
+							: end - start);
+					try {
+						for (int row = start; row < end; row += commitRows) {
+							ITable rows = new RowRangeTable(table, row, Math.min(row + commitRows, end));
+							operation.execute(partitionConnection, new DefaultDataSet(rows));
+							jdbcConnection.commit();
+						}
+					} catch (Exception ex) {
+						// Release the locks held by the partition so that the other partitions can finish
+						jdbcConnection.rollback();
+						throw ex;
+					}
+					return null;
+				}));
+			}
+			Exception failure = null;
+			for (Future<Void> future : futures) {
+				try {
+					DataSetLoaderExecutors.getResult(future);
+				} catch (Exception ex) {
+					failure = (failure != null ? failure : ex);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} catch (Exception ex) {
+			for (Future<Void> future : futures) {
+				future.cancel(true);
+			}
+			ParallelDataSetOperation.rollback(jdbcConnections);
+			throw ex;
+		} finally {
+			ParallelDataSetOperation.close(jdbcConnections);
+		}
+	}
+
+	private static IDatabaseConnection createConnection(Connection jdbcConnection, IDatabaseConnection connection,
+			PartitionedTable partitionedTable) throws Exception {
+		IDatabaseConnection partitionConnection = ParallelDataSetOperation.createConnection(jdbcConnection,
+				connection);
+		if (partitionedTable.batchSize() > 0) {
+			DatabaseConfig config = partitionConnection.getConfig();
+			config.setProperty(DatabaseConfig.FEATURE_BATCHED_STATEMENTS, Boolean.TRUE);
+			config.setProperty(DatabaseConfig.PROPERTY_BATCH_SIZE, partitionedTable.batchSize());
+		}
+		return partitionConnection;
+	}
+
+	/**
+	 * A range of the rows of another table.
+	 */
+	private static class RowRangeTable implements ITable {
+
+		private final ITable table;
+
+		private final int start;
+
+		private final int end;
+
+		RowRangeTable(ITable table, int start, int end) {
+			this.table = table;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public ITableMetaData getTableMetaData() {
+			return this.table.getTableMetaData();
+		}
+
+		@Override
+		public int getRowCount() {
+			return this.end - this.start;
+		}
+
+		@Override
+		public Object getValue(int row, String column) throws DataSetException {
+			if (row < 0 || row >= getRowCount()) {
+				throw new RowOutOfBoundsException(row + " is out of bounds of " + getRowCount() + " rows");
+			}
+			return this.table.getValue(this.start + row, column);
+		}
+
+	}
+
+}
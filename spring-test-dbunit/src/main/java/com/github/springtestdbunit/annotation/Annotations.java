@@ -20,9 +20,14 @@ public class Annotations<T extends Annotation> implements Iterable<T> {
 	private final List<T> allAnnotations;
 
 	public Annotations(DbUnitTestContext context, Class<? extends Annotation> container, Class<T> annotation) {
+		this(context.getTestClass(), context.getTestMethod(), container, annotation);
+	}
+
+	public Annotations(Class<?> testClass, Method testMethod, Class<? extends Annotation> container,
+			Class<T> annotation) {
 
-		this.classAnnotations = getClassAnnotations(context.getTestClass(), container, annotation);
-		this.methodAnnotations = getMethodAnnotations(context.getTestMethod(), container, annotation);
+		this.classAnnotations = getClassAnnotations(testClass, container, annotation);
+		this.methodAnnotations = getMethodAnnotations(testMethod, container, annotation);
 
 		List<T> allAnnotations = new ArrayList<T>(this.classAnnotations.size() + this.methodAnnotations.size());
 		allAnnotations.addAll(this.classAnnotations);
@@ -99,4 +104,9 @@ public class Annotations<T extends Annotation> implements Iterable<T> {
 		return new Annotations<T>(testContext, container, annotation);
 	}
 
+	public static <T extends Annotation> Annotations<T> get(Class<?> testClass, Method testMethod,
+			Class<? extends Annotation> container, Class<T> annotation) {
+		return new Annotations<T>(testClass, testMethod, container, annotation);
+	}
+
 }
\ No newline at end of file
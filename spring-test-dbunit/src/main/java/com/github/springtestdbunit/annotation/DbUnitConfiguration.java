@@ -32,8 +32,10 @@ import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.IDataSet;
 
 import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.github.springtestdbunit.dataset.CachingDataSetLoader;
 import com.github.springtestdbunit.dataset.DataSetLoader;
 import com.github.springtestdbunit.dataset.FlatXmlDataSetLoader;
+import com.github.springtestdbunit.dataset.PrefetchingDataSetLoader;
 import com.github.springtestdbunit.operation.DatabaseOperationLookup;
 import com.github.springtestdbunit.operation.DefaultDatabaseOperationLookup;
 import org.dbunit.dataset.filter.IColumnFilter;
@@ -90,4 +92,82 @@ public @interface DbUnitConfiguration {
 	Class<? extends IColumnFilter>[] columnFilters() default {};
 
 	Class<? extends FailureHandler> failureHandler() default DefaultFailureHandler.class;
+
+	/**
+	 * If loaded {@link IDataSet datasets} should be cached and shared between tests. When {@code true} the configured
+	 * {@link #dataSetLoader() loader} is wrapped in a {@link CachingDataSetLoader} so that each resource is only parsed
+	 * once. Defaults to {@code false}.
+	 * @return if datasets should be cached
+	 */
+	boolean cacheDataSets() default false;
+
+	/**
+	 * The number of threads used to load the datasets of {@link DatabaseSetup &#064;DatabaseSetup} and
+	 * {@link DatabaseTearDown &#064;DatabaseTearDown} annotations. When greater than one, all dataset locations of a
+	 * test are loaded in parallel on a shared pool of that size before the operations are run in declaration order.
+	 * Defaults to {@code 1}, loading datasets one after another.
+	 * @return the number of dataset loader threads
+	 */
+	int dataSetLoaderThreads() default 1;
+
+	/**
+	 * If the datasets of {@link DatabaseSetup &#064;DatabaseSetup} and {@link ExpectedDatabase &#064;ExpectedDatabase}
+	 * annotations should be loaded ahead of time. When {@code true} the datasets of all test methods are loaded on a
+	 * background thread as soon as the first test instance is prepared, using a {@link PrefetchingDataSetLoader}.
+	 * Outstanding work is cancelled at the end of the test class. Defaults to {@code false}.
+	 * @return if datasets should be prefetched
+	 */
+	boolean prefetchDataSets() default false;
+
+	/**
+	 * If parsed datasets should be persisted between test runs. When {@code true} and the configured loader extends
+	 * {@link com.github.springtestdbunit.dataset.AbstractDataSetLoader AbstractDataSetLoader}, each parsed dataset is
+	 * written to <code>target/dataset-cache</code> and reused by later JVMs for as long as the source file is unchanged.
+	 * Defaults to {@code false}.
+	 * @return if parsed datasets should be persisted
+	 * @see com.github.springtestdbunit.dataset.DataSetParseCache
+	 */
+	boolean persistentDataSetCache() default false;
+
+	/**
+	 * If dataset resources on the classpath should be indexed. When {@code true} every <code>xml</code>,
+	 * <code>xlsx</code>, <code>csv</code>, <code>yml</code>, <code>json</code> and <code>sql</code> resource is enumerated
+	 * once per application context and dataset locations are then resolved with index lookups. A
+	 * <code>dbUnitDataSetResourceIndex</code> bean is used when declared, so that the index is built when the context
+	 * starts. Defaults to {@code false}.
+	 * @return if dataset resources should be indexed
+	 * @see com.github.springtestdbunit.dataset.DataSetResourceIndex
+	 */
+	boolean indexDataSets() default false;
+
+	/**
+	 * If the tables of setup and teardown datasets should be sorted by their foreign keys. When {@code true} tables
+	 * are inserted after the tables that they reference and deleted before them, using a
+	 * {@link com.github.springtestdbunit.ForeignKeyGraph ForeignKeyGraph} that is read once per database. Streamed
+	 * datasets are always used in dataset order. Defaults to {@code false}, using tables in dataset order.
+	 * @return if tables should be sorted
+	 */
+	boolean sortTables() default false;
+
+	/**
+	 * The number of threads used to run the operations of {@link DatabaseSetup &#064;DatabaseSetup} annotations. When
+	 * greater than one, and the connection is a {@link javax.sql.DataSource DataSource}, the tables of each setup are
+	 * split into groups that do not reference each other by foreign key and each group is run on its own connection
+	 * from the data source. The connections are committed together once all groups have succeeded, outside of any test
+	 * transaction, so tests that run in a Spring managed transaction are rejected. Requires {@link #sortTables()}.
+	 * Defaults to {@code 1}, running setup on the test connection.
+	 * @return the number of setup threads
+	 */
+	int setupThreads() default 1;
+
+	/**
+	 * Large tables whose {@link DatabaseSetup &#064;DatabaseSetup} rows are split into partitions that are inserted in
+	 * parallel, each on its own connection from the {@link javax.sql.DataSource DataSource} of the test connection.
+	 * When a dataset contains one of these tables, setup runs in foreign key order: the tables before it are run and
+	 * committed, then its partitions, then the tables after it. Applies to {@code CLEAN_INSERT}, {@code INSERT},
+	 * {@code UPDATE} and {@code REFRESH} setups. Since each stage is committed, a failed setup is not rolled back and
+	 * tests that run in a Spring managed transaction are rejected. Requires {@link #sortTables()}.
+	 * @return the partitioned tables
+	 */
+	PartitionedTable[] partitionedTables() default {};
 }
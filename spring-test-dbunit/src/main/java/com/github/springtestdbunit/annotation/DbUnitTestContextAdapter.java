@@ -24,6 +24,7 @@ import org.springframework.test.context.TestContext;
 import org.springframework.util.ReflectionUtils;
 
 import com.github.springtestdbunit.dataset.DataSetLoader;
+import com.github.springtestdbunit.dataset.DataSetResourceIndex;
 import com.github.springtestdbunit.operation.DatabaseOperationLookup;
 
 /**
@@ -70,6 +71,11 @@ public class DbUnitTestContextAdapter implements DbUnitTestContext {
 		return (DataSetLoader) getAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE);
 	}
 
+	@Override
+	public DataSetResourceIndex getDataSetResourceIndex() {
+		return (DataSetResourceIndex) getAttribute(DbUnitTestContextConstants.DATA_SET_RESOURCE_INDEX_ATTRIBUTE);
+	}
+
 	public DatabaseOperationLookup getDatabaseOperationLookup() {
 		return (DatabaseOperationLookup) getAttribute(DbUnitTestContextConstants.DATABASE_OPERATION_LOOKUP_ATTRIBUTE);
 	}
@@ -31,6 +31,15 @@ public final class DbUnitTestContextConstants {
 	public static final String DATA_SET_LOADER_ATTRIBUTE = Conventions
 			.getQualifiedAttributeName(DbUnitTestExecutionListener.class, "dataSetLoader");
 
+	public static final String PREFETCHING_DATA_SET_LOADER_ATTRIBUTE = Conventions
+			.getQualifiedAttributeName(DbUnitTestExecutionListener.class, "prefetchingDataSetLoader");
+
+	public static final String REPLACEMENT_DATA_SET_LOADER_ATTRIBUTE = Conventions
+			.getQualifiedAttributeName(DbUnitTestExecutionListener.class, "replacementDataSetLoader");
+
+	public static final String DATA_SET_RESOURCE_INDEX_ATTRIBUTE = Conventions
+			.getQualifiedAttributeName(DbUnitTestExecutionListener.class, "dataSetResourceIndex");
+
 	public static final String DATABASE_OPERATION_LOOKUP_ATTRIBUTE = Conventions
 			.getQualifiedAttributeName(DbUnitTestExecutionListener.class, "databseOperationLookup");
 
@@ -22,4 +22,12 @@ public @interface Export {
 	boolean xmlElement() default false;
 	boolean sortColumn() default false;
 	String[] replacements() default {};
+
+	/**
+	 * The compression of the exported file: <code>gz</code>, <code>zst</code> or <code>zip</code>. The compressed file
+	 * can be loaded directly by the dataset loaders. Defaults to no compression.
+	 * @return the compression
+	 * @see com.github.springtestdbunit.dataset.Compression
+	 */
+	String compression() default "";
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures a large table whose setup rows are split into partitions that are inserted on separate connections at
+ * the same time. Used in {@link DbUnitConfiguration#partitionedTables()}.
+ *
+ * @see DbUnitConfiguration#partitionedTables()
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface PartitionedTable {
+
+	/**
+	 * The name of the table, compared ignoring case.
+	 * @return the table name
+	 */
+	String name();
+
+	/**
+	 * The number of partitions, each inserted on its own connection. Defaults to {@code 4}.
+	 * @return the number of partitions
+	 */
+	int partitions() default 4;
+
+	/**
+	 * The number of rows after which each partition commits. Defaults to {@code 0}, committing each partition once
+	 * all of its rows have been inserted.
+	 * @return the number of rows per commit
+	 */
+	int commitRows() default 0;
+
+	/**
+	 * The JDBC batch size used by each partition. Defaults to {@code 0}, using the batch configuration of the test
+	 * connection.
+	 * @return the batch size
+	 */
+	int batchSize() default 0;
+
+}
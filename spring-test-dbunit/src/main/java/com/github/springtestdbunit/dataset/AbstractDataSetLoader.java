@@ -16,8 +16,20 @@
 
 package com.github.springtestdbunit.dataset;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.FilteredDataSet;
 import org.dbunit.dataset.IDataSet;
 import org.springframework.core.io.*;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Abstract data set loader, which provides a basis for concrete implementations of the {@link DataSetLoader} strategy.
@@ -31,6 +43,48 @@ import org.springframework.core.io.*;
  */
 public abstract class AbstractDataSetLoader implements DataSetLoader {
 
+	private static final Map<Class<?>, Boolean> DEFAULT_RESOURCE_LOADERS = new ConcurrentHashMap<>();
+
+	private DataSetParseCache parseCache;
+
+	private DataSetResourceIndex resourceIndex;
+
+	/**
+	 * Set the cache used to persist parsed datasets between JVMs. When set, datasets are only
+	 * {@link #createDataSet(Resource, String, Set) created} when the cache holds no entry for the current content of the
+	 * resource.
+	 * @param parseCache the parse cache or {@code null} to always parse resources
+	 * @see DataSetParseCache
+	 */
+	public void setParseCache(DataSetParseCache parseCache) {
+		this.parseCache = parseCache;
+	}
+
+	/**
+	 * Returns the cache used to persist parsed datasets between JVMs.
+	 * @return the parse cache or {@code null}
+	 */
+	public DataSetParseCache getParseCache() {
+		return this.parseCache;
+	}
+
+	/**
+	 * Set the index used to resolve locations of dataset resources, rather than probing the classpath.
+	 * @param resourceIndex the index or {@code null} to probe the classpath
+	 * @see DataSetResourceIndex
+	 */
+	public void setResourceIndex(DataSetResourceIndex resourceIndex) {
+		this.resourceIndex = resourceIndex;
+	}
+
+	/**
+	 * Returns the index used to resolve locations of dataset resources.
+	 * @return the index or {@code null}
+	 */
+	public DataSetResourceIndex getResourceIndex() {
+		return this.resourceIndex;
+	}
+
 	/**
 	 * Loads a {@link IDataSet dataset} from {@link Resource}s obtained from the specified <code>location</code>.
 	 * {@link Resource}s are loaded using the {@link ResourceLoader} returned from {@link #getResourceLoader}.
@@ -41,27 +95,79 @@ public abstract class AbstractDataSetLoader implements DataSetLoader {
 	 * @see com.github.springtestdbunit.dataset.DataSetLoader#loadDataSet(Class, String, String) java.lang.String)
 	 */
 	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId) throws Exception {
-		Resource resource = getClassRelativeResource(testClass, location);
-		if (resource.exists()) {
-			return createDataSet(resource, datasetId);
-		}
-		resource = getClasspathResource(location);
-		if (resource.exists()) {
-			return createDataSet(resource, datasetId);
+		return loadDataSet(testClass, location, datasetId, null);
+	}
+
+	/**
+	 * Loads a {@link IDataSet dataset} from {@link Resource}s obtained from the specified <code>location</code>, passing
+	 * the names of the tables that are needed to {@link #createDataSet(Resource, String, Set)}.
+	 * <p>
+	 * If no resource can be found then <code>null</code> will be returned.
+	 *
+	 * @see #createDataSet(Resource, String, Set)
+	 * @see com.github.springtestdbunit.dataset.DataSetLoader#loadDataSet(Class, String, String, Set)
+	 */
+	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId, Set<String> tableNames)
+			throws Exception {
+		Resource resource = getResource(testClass, location);
+		return (resource != null ? createCachedDataSet(resource, datasetId, tableNames) : null);
+	}
+
+	private IDataSet createCachedDataSet(Resource resource, String datasetId, Set<String> tableNames)
+			throws Exception {
+		Resource dataSetResource = decompress(resource);
+		if (this.parseCache == null) {
+			return createDataSet(dataSetResource, datasetId, tableNames);
 		}
-		return null;
+		return this.parseCache.load(resource, getParseCacheKey(), datasetId, tableNames,
+				() -> createDataSet(dataSetResource, datasetId, tableNames));
 	}
 
-	private Resource getClassRelativeResource(Class<?> testClass, String location) {
-		ResourceLoader resourceLoader = getResourceLoader(testClass);
-		return resourceLoader.getResource(location);
+	/**
+	 * Returns the part of the {@link DataSetParseCache parse cache} key that identifies this loader. Subclasses with
+	 * settings that change the datasets they create must include those settings, so that datasets parsed with other
+	 * settings are not reused. By default the class name of the loader is returned.
+	 * @return the key of this loader
+	 */
+	protected String getParseCacheKey() {
+		return getClass().getName();
+	}
+
+	/**
+	 * Returns the resource that is passed to {@link #createDataSet(Resource, String, Set)}. Resources named with the
+	 * extension of a {@link Compression} format (for example <code>dataset.xml.gz</code>) are decompressed as a stream
+	 * while they are read; all other resources are returned unchanged.
+	 * @param resource the resource of the dataset location
+	 * @return the resource to read the dataset from
+	 * @throws Exception if the resource cannot be decompressed
+	 */
+	protected Resource decompress(Resource resource) throws Exception {
+		return DecompressingResource.decompress(resource);
 	}
 
-	private Resource getClasspathResource(String location) {
-		ResourceLoader resourceLoader = new DefaultResourceLoader();
+	/**
+	 * Returns the resource for the location, resolved relative to the test class and then against the root of the
+	 * classpath. Resolution is cached using the {@link DataSetResourceCache#getSharedInstance() shared cache} unless
+	 * {@link #getResourceLoader(Class)} has been overridden. Whether it has is checked once per loader class.
+	 */
+	private Resource getResource(Class<?> testClass, String location) {
+		if (DEFAULT_RESOURCE_LOADERS.computeIfAbsent(getClass(), AbstractDataSetLoader::hasDefaultResourceLoader)) {
+			return DataSetResourceCache.getSharedInstance().getResource(testClass, location, this.resourceIndex);
+		}
+		ResourceLoader resourceLoader = getResourceLoader(testClass);
+		Resource resource = resourceLoader.getResource(location);
+		if (resource.exists()) {
+			return resource;
+		}
 		String classpathLocation = location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX) ? location :
 				ResourceLoader.CLASSPATH_URL_PREFIX + location;
-		return resourceLoader.getResource(classpathLocation);
+		resource = new DefaultResourceLoader().getResource(classpathLocation);
+		return (resource.exists() ? resource : null);
+	}
+
+	private static boolean hasDefaultResourceLoader(Class<?> loaderClass) {
+		Method method = ReflectionUtils.findMethod(loaderClass, "getResourceLoader", Class.class);
+		return (method != null && method.getDeclaringClass() == AbstractDataSetLoader.class);
 	}
 
 	/**
@@ -82,4 +188,39 @@ public abstract class AbstractDataSetLoader implements DataSetLoader {
 	 */
 	protected abstract IDataSet createDataSet(Resource resource, String datasetId) throws Exception;
 
+	/**
+	 * Factory method used to create the {@link IDataSet dataset} when only some tables are needed. Subclasses that can
+	 * skip tables while parsing should override this method, by default the complete dataset is created.
+	 * @param resource an existing resource that contains the dataset data
+	 * @param datasetId datasetId
+	 * @param tableNames the names of the tables that are needed or {@code null} if all tables are needed
+	 * @return a dataset
+	 * @throws Exception if the dataset could not be loaded
+	 */
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames) throws Exception {
+		return createDataSet(resource, datasetId);
+	}
+
+	/**
+	 * Filter a complete dataset to the given tables, matching table names ignoring case. Tables that are not in the
+	 * dataset are ignored.
+	 * @param dataSet the complete dataset
+	 * @param tableNames the names of the tables that are needed
+	 * @return the filtered dataset
+	 * @throws DataSetException if the table names cannot be read
+	 */
+	protected static IDataSet filterTables(IDataSet dataSet, Set<String> tableNames) throws DataSetException {
+		Set<String> keys = new HashSet<>();
+		for (String tableName : tableNames) {
+			keys.add(tableName.trim().toUpperCase(Locale.ENGLISH));
+		}
+		List<String> filtered = new ArrayList<>();
+		for (String tableName : dataSet.getTableNames()) {
+			if (keys.contains(tableName.toUpperCase(Locale.ENGLISH))) {
+				filtered.add(tableName);
+			}
+		}
+		return new FilteredDataSet(filtered.toArray(new String[filtered.size()]), dataSet);
+	}
+
 }
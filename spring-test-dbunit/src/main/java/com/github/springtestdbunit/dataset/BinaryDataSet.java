@@ -0,0 +1,279 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableIterator;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.DataTypeException;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * A read-only {@link org.dbunit.dataset.IDataSet dataset} backed by a buffer in the compiled binary format written by
+ * {@link BinaryDataSetWriter}. Only the table directory is read up front; the cells of a column are decoded directly
+ * from the buffer the first time the column is accessed and are then reused, so there is no tokenizing or type
+ * guessing at load time and values are decoded at most once. Values are returned as strings, in the same way as flat
+ * XML values, and are converted when written to the database. Equal values of a column share one string. Cells
+ * without a value are returned as {@link ITable#NO_VALUE} and columns keep the data type of the source dataset.
+ *
+ * @see BinaryDataSetLoader
+ */
+public class BinaryDataSet extends AbstractDataSet {
+
+	static final int MAGIC = 0x53544442;
+
+	static final int VERSION = 2;
+
+	private final List<ITable> tables;
+
+	/**
+	 * Create a new {@link BinaryDataSet} from a compiled buffer.
+	 * @param buffer the buffer containing the compiled datasets
+	 * @param datasetId the id of the dataset to read or {@code null} to read all datasets
+	 * @throws DataSetException if the buffer does not contain a compiled dataset
+	 */
+	public BinaryDataSet(ByteBuffer buffer, String datasetId) throws DataSetException {
+		Assert.notNull(buffer, "Buffer must not be null");
+		this.tables = Collections.unmodifiableList(new Reader(buffer.duplicate()).read(datasetId));
+	}
+
+	/**
+	 * Create a new {@link BinaryDataSet} by memory-mapping a compiled file.
+	 * @param file the compiled file
+	 * @param datasetId the id of the dataset to read or {@code null} to read all datasets
+	 * @throws IOException if the file cannot be mapped
+	 * @throws DataSetException if the file does not contain a compiled dataset
+	 */
+	public BinaryDataSet(File file, String datasetId) throws IOException, DataSetException {
+		this(map(file), datasetId);
+	}
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		return new DefaultTableIterator(this.tables.toArray(new ITable[this.tables.size()]), reversed);
+	}
+
+	/**
+	 * Returns if the given file is a compiled dataset of the current version.
+	 * @param file the file
+	 * @return if the file can be read
+	 * @throws IOException if the file cannot be read
+	 */
+	static boolean isCurrentVersion(File file) throws IOException {
+		try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+			return inputStream.readInt() == MAGIC && inputStream.readInt() == VERSION;
+		} catch (EOFException ex) {
+			return false;
+		}
+	}
+
+	private static ByteBuffer map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Reads the table directory of a compiled buffer.
+	 */
+	private static class Reader {
+
+		private final ByteBuffer buffer;
+
+		Reader(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public List<ITable> read(String datasetId) throws DataSetException {
+			if (this.buffer.remaining() < 12 || this.buffer.getInt() != MAGIC) {
+				throw new DataSetException("Not a compiled dataset");
+			}
+			int version = this.buffer.getInt();
+			if (version != VERSION) {
+				throw new DataSetException("Unsupported compiled dataset version " + version);
+			}
+			int dataSetCount = this.buffer.getInt();
+			List<ITable> tables = new ArrayList<>();
+			boolean found = false;
+			for (int i = 0; i < dataSetCount; i++) {
+				String id = readString();
+				boolean selected = !StringUtils.hasLength(datasetId) || id == null || datasetId.equals(id);
+				found = found || selected;
+				readDataSet(selected ? tables : null);
+			}
+			if (!found) {
+				throw new DataSetException("No dataset found with id '" + datasetId + "'");
+			}
+			return tables;
+		}
+
+		private void readDataSet(List<ITable> tables) {
+			int tableCount = this.buffer.getInt();
+			for (int i = 0; i < tableCount; i++) {
+				BinaryTable table = readTable();
+				if (tables != null) {
+					tables.add(table);
+				}
+			}
+		}
+
+		private BinaryTable readTable() {
+			String tableName = readString();
+			Column[] columns = new Column[this.buffer.getInt()];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = new Column(readString(), readDataType());
+			}
+			int rowCount = this.buffer.getInt();
+			int[] columnPositions = new int[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				columnPositions[i] = this.buffer.position();
+				int offsetsPosition = this.buffer.position() + 2 * ((rowCount + 7) / 8);
+				int dataLength = this.buffer.getInt(offsetsPosition + 4 * rowCount);
+				((Buffer) this.buffer).position(offsetsPosition + 4 * (rowCount + 1) + dataLength);
+			}
+			return new BinaryTable(this.buffer, new DefaultTableMetaData(tableName, columns), rowCount,
+					columnPositions);
+		}
+
+		private DataType readDataType() {
+			String name = readString();
+			int sqlType = this.buffer.getInt();
+			if (DataType.UNKNOWN.toString().equals(name)) {
+				return DataType.UNKNOWN;
+			}
+			try {
+				return DataType.forSqlTypeName(name);
+			} catch (DataTypeException ex) {
+				try {
+					return DataType.forSqlType(sqlType);
+				} catch (DataTypeException unknown) {
+					return DataType.UNKNOWN;
+				}
+			}
+		}
+
+		private String readString() {
+			int length = this.buffer.getInt();
+			if (length < 0) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			this.buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	}
+
+	/**
+	 * A table that decodes the cells of a column from the compiled buffer when the column is first accessed.
+	 */
+	private static class BinaryTable extends AbstractTable {
+
+		private final ByteBuffer buffer;
+
+		private final ITableMetaData metaData;
+
+		private final int rowCount;
+
+		private final int[] columnPositions;
+
+		private final AtomicReferenceArray<Object[]> columnValues;
+
+		BinaryTable(ByteBuffer buffer, ITableMetaData metaData, int rowCount, int[] columnPositions) {
+			this.buffer = buffer;
+			this.metaData = metaData;
+			this.rowCount = rowCount;
+			this.columnPositions = columnPositions;
+			this.columnValues = new AtomicReferenceArray<>(columnPositions.length);
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return this.metaData;
+		}
+
+		public int getRowCount() {
+			return this.rowCount;
+		}
+
+		public Object getValue(int row, String column) throws DataSetException {
+			assertValidRowIndex(row);
+			int columnIndex = getColumnIndex(column);
+			Object[] values = this.columnValues.get(columnIndex);
+			if (values == null) {
+				values = decode(this.columnPositions[columnIndex]);
+				this.columnValues.compareAndSet(columnIndex, null, values);
+			}
+			return values[row];
+		}
+
+		private Object[] decode(int position) {
+			Object[] values = new Object[this.rowCount];
+			Map<String, String> dictionary = new HashMap<>();
+			int bitmapLength = (this.rowCount + 7) / 8;
+			int offsetsPosition = position + 2 * bitmapLength;
+			ByteBuffer data = this.buffer.duplicate();
+			((Buffer) data).position(offsetsPosition + 4 * (this.rowCount + 1));
+			byte[] bytes = new byte[0];
+			for (int row = 0; row < this.rowCount; row++) {
+				int start = this.buffer.getInt(offsetsPosition + 4 * row);
+				int end = this.buffer.getInt(offsetsPosition + 4 * (row + 1));
+				if ((this.buffer.get(position + row / 8) & (1 << (row % 8))) != 0) {
+					continue;
+				}
+				if ((this.buffer.get(position + bitmapLength + row / 8) & (1 << (row % 8))) != 0) {
+					values[row] = ITable.NO_VALUE;
+					continue;
+				}
+				if (bytes.length < end - start) {
+					bytes = new byte[end - start];
+				}
+				data.get(bytes, 0, end - start);
+				String value = new String(bytes, 0, end - start, StandardCharsets.UTF_8);
+				String existing = dictionary.putIfAbsent(value, value);
+				values[row] = (existing != null ? existing : value);
+			}
+			return values;
+		}
+
+	}
+
+}
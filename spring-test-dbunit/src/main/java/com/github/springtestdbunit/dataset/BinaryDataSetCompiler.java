@@ -0,0 +1,241 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.dataset.IDataSet;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Compiles dataset files into the binary format read by the {@link BinaryDataSetLoader}. Typically run during the
+ * <code>generate-test-resources</code> phase of a build so that tests do not need to parse text datasets:
+ *
+ * <pre class="code">
+ * java com.github.springtestdbunit.dataset.BinaryDataSetCompiler &lt;sourceDirectory&gt; &lt;outputDirectory&gt; [&lt;loaderClass&gt;] [&lt;extensions&gt;]
+ * </pre>
+ *
+ * Every file below the source directory with one of the given extensions (by default <code>.xml</code>) is loaded
+ * using the loader (by default a {@link FlatXmlDataSetLoader}) and written to the same relative path in the output
+ * directory with {@link BinaryDataSetLoader#EXTENSION} appended. XML files that do not have a
+ * <code>&lt;dataset&gt;</code> or <code>&lt;datasets&gt;</code> root element are skipped, as are files whose compiled
+ * counterpart is already up to date. Each <code>&lt;dataset id="..."&gt;</code> of a multi-dataset file is compiled so
+ * that it can still be selected by <code>datasetId</code>.
+ *
+ * @see BinaryDataSetWriter
+ */
+public class BinaryDataSetCompiler {
+
+	private static final Log logger = LogFactory.getLog(BinaryDataSetCompiler.class);
+
+	private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+
+	private final DataSetLoader loader;
+
+	/**
+	 * Create a new {@link BinaryDataSetCompiler}.
+	 * @param loader the loader used to read source files
+	 */
+	public BinaryDataSetCompiler(DataSetLoader loader) {
+		Assert.notNull(loader, "Loader must not be null");
+		this.loader = loader;
+	}
+
+	/**
+	 * Compile all matching files below a source directory.
+	 * @param sourceDirectory the source directory
+	 * @param outputDirectory the output directory
+	 * @param extensions the extensions of the files to compile
+	 * @return the number of files compiled
+	 * @throws Exception if a file cannot be compiled
+	 */
+	public int compileDirectory(File sourceDirectory, File outputDirectory, String... extensions) throws Exception {
+		Assert.isTrue(sourceDirectory.isDirectory(), "SourceDirectory must be a directory");
+		int count = 0;
+		for (File source : findFiles(sourceDirectory, extensions)) {
+			String relativePath = source.getAbsolutePath().substring(sourceDirectory.getAbsolutePath().length() + 1);
+			File target = new File(outputDirectory, relativePath + BinaryDataSetLoader.EXTENSION);
+			if (compile(source, target)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Compile a single file.
+	 * @param source the source file
+	 * @param target the compiled file
+	 * @return <code>true</code> if the file was compiled or <code>false</code> if it was skipped
+	 * @throws Exception if the file cannot be compiled
+	 */
+	public boolean compile(File source, File target) throws Exception {
+		if (target.exists() && target.lastModified() >= source.lastModified()
+				&& BinaryDataSet.isCurrentVersion(target)) {
+			return false;
+		}
+		List<String> datasetIds = getDatasetIds(source);
+		if (datasetIds == null) {
+			return false;
+		}
+		String location = source.toURI().toString();
+		Map<String, IDataSet> dataSets = new LinkedHashMap<>();
+		for (String datasetId : datasetIds) {
+			IDataSet dataSet = this.loader.loadDataSet(BinaryDataSetCompiler.class, location, datasetId);
+			Assert.state(dataSet != null, "Unable to load " + source);
+			dataSets.put(datasetId, dataSet);
+		}
+		target.getParentFile().mkdirs();
+		try (OutputStream outputStream = new FileOutputStream(target)) {
+			new BinaryDataSetWriter(outputStream).write(dataSets);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Compiled " + source + " to " + target);
+		}
+		return true;
+	}
+
+	private List<File> findFiles(File directory, String[] extensions) {
+		List<File> files = new ArrayList<>();
+		File[] children = directory.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.isDirectory()) {
+					files.addAll(findFiles(child, extensions));
+				} else if (hasExtension(child.getName(), extensions)) {
+					files.add(child);
+				}
+			}
+		}
+		return files;
+	}
+
+	private boolean hasExtension(String name, String[] extensions) {
+		for (String extension : extensions) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the ids of the datasets contained in the file, a single <code>null</code> id for files that are not
+	 * split into several datasets, or <code>null</code> if the file is an XML file that does not contain datasets.
+	 */
+	private List<String> getDatasetIds(File source) throws Exception {
+		if (!source.getName().endsWith(".xml")) {
+			return Collections.singletonList(null);
+		}
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		try {
+			factory.setFeature(LOAD_EXTERNAL_DTD, false);
+		} catch (Exception ex) {
+			logger.debug("Unable to disable external DTD loading", ex);
+		}
+		DatasetIdHandler handler = new DatasetIdHandler();
+		try {
+			factory.newSAXParser().parse(source, handler);
+		} catch (SAXException ex) {
+			if (!handler.done) {
+				logger.debug("Not compiling " + source, ex);
+				return null;
+			}
+		}
+		return handler.datasetIds;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BinaryDataSetCompiler <sourceDirectory> <outputDirectory> [<loaderClass>] "
+					+ "[<extensions>]");
+			System.exit(1);
+		}
+		DataSetLoader loader = new FlatXmlDataSetLoader();
+		if (args.length > 2 && StringUtils.hasLength(args[2])) {
+			Class<?> loaderClass = ClassUtils.forName(args[2], BinaryDataSetCompiler.class.getClassLoader());
+			loader = (DataSetLoader) BeanUtils.instantiateClass(loaderClass);
+		}
+		String[] extensions = (args.length > 3 ? StringUtils.commaDelimitedListToStringArray(args[3])
+				: new String[] { ".xml" });
+		File sourceDirectory = new File(args[0]);
+		if (!sourceDirectory.isDirectory()) {
+			return;
+		}
+		int count = new BinaryDataSetCompiler(loader).compileDirectory(sourceDirectory, new File(args[1]),
+				extensions);
+		System.out.println("Compiled " + count + " dataset file(s) from " + sourceDirectory);
+	}
+
+	/**
+	 * Collects the ids of the nested datasets, stopping as soon as the file is known not to be split.
+	 */
+	private static class DatasetIdHandler extends DefaultHandler {
+
+		private final List<String> datasetIds = new ArrayList<>();
+
+		private int depth;
+
+		private boolean done;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes)
+				throws SAXException {
+			this.depth++;
+			if (this.depth == 1) {
+				if ("dataset".equals(qName)) {
+					this.datasetIds.add(null);
+					this.done = true;
+					throw new SAXException("Single dataset");
+				}
+				if (!"datasets".equals(qName)) {
+					throw new SAXException("Unexpected root element " + qName);
+				}
+			} else if (this.depth == 2 && "dataset".equals(qName)) {
+				this.datasetIds.add(attributes.getValue("id"));
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			this.depth--;
+			if (this.depth == 0) {
+				this.done = true;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import org.dbunit.dataset.IDataSet;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A {@link DataSetLoader data set loader} that can be used to load {@link BinaryDataSet BinaryDataSets} compiled by
+ * the {@link BinaryDataSetCompiler}. Compiled files on the file system are memory-mapped, other resources are read
+ * into memory.
+ * <p>
+ * Locations that do not end with {@link #EXTENSION} are first resolved against their compiled counterpart (for
+ * example <code>sample.xml</code> is loaded from <code>sample.xml.bin</code>). If no compiled file exists the location
+ * is loaded using the source loader, so existing annotations can be used unchanged.
+ *
+ * @see BinaryDataSetCompiler
+ */
+public class BinaryDataSetLoader extends AbstractDataSetLoader {
+
+	/**
+	 * The extension added to the name of compiled files.
+	 */
+	public static final String EXTENSION = ".bin";
+
+	private final DataSetLoader sourceLoader;
+
+	/**
+	 * Create a new {@link BinaryDataSetLoader} falling back to a {@link FlatXmlDataSetLoader} when no compiled file
+	 * exists.
+	 */
+	public BinaryDataSetLoader() {
+		this(new FlatXmlDataSetLoader());
+	}
+
+	/**
+	 * Create a new {@link BinaryDataSetLoader}.
+	 * @param sourceLoader the loader used when no compiled file exists
+	 */
+	public BinaryDataSetLoader(DataSetLoader sourceLoader) {
+		Assert.notNull(sourceLoader, "SourceLoader must not be null");
+		this.sourceLoader = sourceLoader;
+	}
+
+	@Override
+	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId, Set<String> tableNames)
+			throws Exception {
+		if (location.endsWith(EXTENSION)) {
+			return super.loadDataSet(testClass, location, datasetId, tableNames);
+		}
+		IDataSet dataSet = super.loadDataSet(testClass, location + EXTENSION, datasetId, tableNames);
+		if (dataSet == null) {
+			dataSet = this.sourceLoader.loadDataSet(testClass, location, datasetId, tableNames);
+		}
+		return dataSet;
+	}
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws Exception {
+		if (resource.isFile()) {
+			return new BinaryDataSet(resource.getFile(), datasetId);
+		}
+		try (InputStream inputStream = resource.getInputStream()) {
+			return new BinaryDataSet(ByteBuffer.wrap(StreamUtils.copyToByteArray(inputStream)), datasetId);
+		}
+	}
+
+}
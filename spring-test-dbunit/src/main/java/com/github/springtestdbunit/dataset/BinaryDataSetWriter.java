@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.datatype.DataType;
+import org.springframework.util.Assert;
+
+/**
+ * Writes {@link IDataSet datasets} in the compiled binary format read by {@link BinaryDataSet}.
+ * <p>
+ * Data is stored column by column. Each column holds a null bitmap, a bitmap of cells without a value
+ * ({@link ITable#NO_VALUE}), the offsets of every cell and the UTF-8 encoded string form of the cell values, in the
+ * same way that values are held as strings in flat XML files. The data type of each column is stored with its name.
+ * Several datasets, each identified by an optional <code>datasetId</code>, may be written to the same file.
+ *
+ * @see BinaryDataSetCompiler
+ */
+public class BinaryDataSetWriter {
+
+	private final DataOutputStream outputStream;
+
+	/**
+	 * Create a new {@link BinaryDataSetWriter}.
+	 * @param outputStream the output stream to write to, not closed by the writer
+	 */
+	public BinaryDataSetWriter(OutputStream outputStream) {
+		Assert.notNull(outputStream, "OutputStream must not be null");
+		this.outputStream = new DataOutputStream(outputStream);
+	}
+
+	/**
+	 * Write the given datasets.
+	 * @param dataSets the datasets to write keyed by <code>datasetId</code>, a <code>null</code> key may be used for a
+	 * file that only contains a single dataset
+	 * @throws IOException on write error
+	 * @throws DataSetException if the datasets cannot be read
+	 */
+	public void write(Map<String, IDataSet> dataSets) throws IOException, DataSetException {
+		this.outputStream.writeInt(BinaryDataSet.MAGIC);
+		this.outputStream.writeInt(BinaryDataSet.VERSION);
+		this.outputStream.writeInt(dataSets.size());
+		for (Map.Entry<String, IDataSet> entry : dataSets.entrySet()) {
+			writeString(entry.getKey());
+			writeDataSet(entry.getValue());
+		}
+		this.outputStream.flush();
+	}
+
+	private void writeDataSet(IDataSet dataSet) throws IOException, DataSetException {
+		List<ITable> tables = new ArrayList<>();
+		ITableIterator iterator = dataSet.iterator();
+		while (iterator.next()) {
+			tables.add(iterator.getTable());
+		}
+		this.outputStream.writeInt(tables.size());
+		for (ITable table : tables) {
+			writeTable(table);
+		}
+	}
+
+	private void writeTable(ITable table) throws IOException, DataSetException {
+		Column[] columns = table.getTableMetaData().getColumns();
+		int rowCount = table.getRowCount();
+		writeString(table.getTableMetaData().getTableName());
+		this.outputStream.writeInt(columns.length);
+		for (Column column : columns) {
+			writeString(column.getColumnName());
+			writeString(column.getDataType().toString());
+			this.outputStream.writeInt(column.getDataType().getSqlType());
+		}
+		this.outputStream.writeInt(rowCount);
+		for (Column column : columns) {
+			writeColumn(table, column.getColumnName(), rowCount);
+		}
+	}
+
+	private void writeColumn(ITable table, String columnName, int rowCount) throws IOException, DataSetException {
+		byte[] nulls = new byte[(rowCount + 7) / 8];
+		byte[] noValues = new byte[nulls.length];
+		int[] offsets = new int[rowCount + 1];
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		for (int row = 0; row < rowCount; row++) {
+			Object value = table.getValue(row, columnName);
+			if (value == ITable.NO_VALUE) {
+				noValues[row / 8] |= (byte) (1 << (row % 8));
+			} else if (value == null) {
+				nulls[row / 8] |= (byte) (1 << (row % 8));
+			} else {
+				data.write(DataType.asString(value).getBytes(StandardCharsets.UTF_8));
+			}
+			offsets[row + 1] = data.size();
+		}
+		this.outputStream.write(nulls);
+		this.outputStream.write(noValues);
+		for (int offset : offsets) {
+			this.outputStream.writeInt(offset);
+		}
+		data.writeTo(this.outputStream);
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			this.outputStream.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.outputStream.writeInt(bytes.length);
+		this.outputStream.write(bytes);
+	}
+
+}
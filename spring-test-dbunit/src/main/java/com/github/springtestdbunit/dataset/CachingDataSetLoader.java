@@ -0,0 +1,292 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.dataset.IDataSet;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DataSetLoader data set loader} that caches the {@link IDataSet datasets} loaded by another loader so that
+ * the same resource is only parsed once, no matter how many tests refer to it.
+ * <p>
+ * Entries are keyed by the resolved resource URL, the <code>datasetId</code>, the requested table names and the
+ * last-modified timestamp of the resource. Cached datasets are shared between tests and are therefore handed out as
+ * read-only {@link ColumnarDataSet columnar} copies, which take a fraction of the memory of the loaded rows. When the
+ * estimated size of all cached datasets exceeds the configured byte budget the least recently used entries are
+ * evicted. Concurrent requests for the same entry share a single parse. {@link StreamableDataSet}s, such as
+ * {@link GeneratedDataSet}s, are streamed into the database and are returned without being cached.
+ * <p>
+ * Loaders created using the default constructors share a single JVM wide cache with a budget of
+ * {@link #DEFAULT_MAX_BYTES}, keyed additionally by the source loader instance, so that two source loaders of the same
+ * class with different settings never see each other's datasets. Since cached datasets are shared, replacements that
+ * must be evaluated per test should be applied by a {@link DataSetModifier} rather than by the source loader.
+ *
+ * @see com.github.springtestdbunit.annotation.DbUnitConfiguration#cacheDataSets()
+ */
+public class CachingDataSetLoader implements DataSetLoader {
+
+	private static final Log logger = LogFactory.getLog(CachingDataSetLoader.class);
+
+	/**
+	 * The default byte budget of the cache.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private static final DataSetCache SHARED_CACHE = new DataSetCache(DEFAULT_MAX_BYTES);
+
+	private final DataSetLoader dataSetLoader;
+
+	private final DataSetCache cache;
+
+	/**
+	 * Create a new {@link CachingDataSetLoader} using a {@link FlatXmlDataSetLoader} to load the source data and the
+	 * shared cache.
+	 */
+	public CachingDataSetLoader() {
+		this(new FlatXmlDataSetLoader());
+	}
+
+	/**
+	 * Create a new {@link CachingDataSetLoader} using the shared cache.
+	 * @param dataSetLoader the source data set loader
+	 */
+	public CachingDataSetLoader(DataSetLoader dataSetLoader) {
+		this(dataSetLoader, SHARED_CACHE);
+	}
+
+	/**
+	 * Create a new {@link CachingDataSetLoader} with its own cache.
+	 * @param dataSetLoader the source data set loader
+	 * @param maxBytes the maximum estimated size in bytes of all cached datasets
+	 */
+	public CachingDataSetLoader(DataSetLoader dataSetLoader, long maxBytes) {
+		this(dataSetLoader, new DataSetCache(maxBytes));
+	}
+
+	private CachingDataSetLoader(DataSetLoader dataSetLoader, DataSetCache cache) {
+		Assert.notNull(dataSetLoader, "Delegate must not be null");
+		this.dataSetLoader = dataSetLoader;
+		this.cache = cache;
+	}
+
+	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId) throws Exception {
+		return loadDataSet(testClass, location, datasetId, null);
+	}
+
+	@Override
+	public IDataSet loadDataSet(final Class<?> testClass, final String location, final String datasetId,
+			final Set<String> tableNames) throws Exception {
+		Resource resource = DataSetResourceCache.getSharedInstance().getResource(testClass, location,
+				getResourceIndex());
+		if (resource == null) {
+			return this.dataSetLoader.loadDataSet(testClass, location, datasetId, tableNames);
+		}
+		CacheKey key = new CacheKey(this.dataSetLoader, resource.getURL().toString(), datasetId, tableNames,
+				getLastModified(resource));
+		return this.cache.get(key, () -> this.dataSetLoader.loadDataSet(testClass, location, datasetId, tableNames));
+	}
+
+	private DataSetResourceIndex getResourceIndex() {
+		return (this.dataSetLoader instanceof AbstractDataSetLoader
+				? ((AbstractDataSetLoader) this.dataSetLoader).getResourceIndex() : null);
+	}
+
+	/**
+	 * Removes all entries from the cache used by this loader.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	private long getLastModified(Resource resource) {
+		try {
+			return resource.lastModified();
+		} catch (IOException ex) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Single-flight, size bounded LRU cache of read-only datasets.
+	 */
+	private static class DataSetCache {
+
+		private final long maxBytes;
+
+		private final ConcurrentMap<CacheKey, FutureTask<IDataSet>> loading = new ConcurrentHashMap<>();
+
+		private final Map<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		private long totalBytes;
+
+		DataSetCache(long maxBytes) {
+			Assert.isTrue(maxBytes >= 0, "MaxBytes must not be negative");
+			this.maxBytes = maxBytes;
+		}
+
+		public IDataSet get(CacheKey key, Callable<IDataSet> loader) throws Exception {
+			IDataSet dataSet = getCached(key);
+			if (dataSet != null) {
+				return dataSet;
+			}
+			FutureTask<IDataSet> task = new FutureTask<>(() -> load(key, loader));
+			FutureTask<IDataSet> existing = this.loading.putIfAbsent(key, task);
+			if (existing == null) {
+				try {
+					task.run();
+				} finally {
+					this.loading.remove(key, task);
+				}
+				existing = task;
+			}
+			try {
+				return existing.get();
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof Exception) {
+					throw (Exception) ex.getCause();
+				}
+				throw ex;
+			}
+		}
+
+		private IDataSet load(CacheKey key, Callable<IDataSet> loader) throws Exception {
+			IDataSet dataSet = getCached(key);
+			if (dataSet != null) {
+				return dataSet;
+			}
+			dataSet = loader.call();
+			if (dataSet == null || dataSet instanceof StreamableDataSet) {
+				return dataSet;
+			}
+			ColumnarDataSet copy = new ColumnarDataSet(dataSet);
+			put(key, new CacheEntry(copy, copy.estimateSize()));
+			return copy;
+		}
+
+		private synchronized IDataSet getCached(CacheKey key) {
+			CacheEntry entry = this.entries.get(key);
+			return (entry != null ? entry.dataSet : null);
+		}
+
+		private synchronized void put(CacheKey key, CacheEntry entry) {
+			if (entry.size > this.maxBytes) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Not caching " + key + ", estimated size of " + entry.size + " bytes exceeds budget");
+				}
+				return;
+			}
+			CacheEntry previous = this.entries.put(key, entry);
+			if (previous != null) {
+				this.totalBytes -= previous.size;
+			}
+			this.totalBytes += entry.size;
+			Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = this.entries.entrySet().iterator();
+			while (this.totalBytes > this.maxBytes && iterator.hasNext()) {
+				Map.Entry<CacheKey, CacheEntry> eldest = iterator.next();
+				if (logger.isDebugEnabled()) {
+					logger.debug("Evicting " + eldest.getKey() + " from dataset cache");
+				}
+				this.totalBytes -= eldest.getValue().size;
+				iterator.remove();
+			}
+		}
+
+		public synchronized void clear() {
+			this.entries.clear();
+			this.totalBytes = 0;
+		}
+
+	}
+
+	private static class CacheEntry {
+
+		private final IDataSet dataSet;
+
+		private final long size;
+
+		CacheEntry(IDataSet dataSet, long size) {
+			this.dataSet = dataSet;
+			this.size = size;
+		}
+
+	}
+
+	private static class CacheKey {
+
+		private final DataSetLoader loader;
+
+		private final String url;
+
+		private final String datasetId;
+
+		private final Set<String> tableNames;
+
+		private final long lastModified;
+
+		CacheKey(DataSetLoader loader, String url, String datasetId, Set<String> tableNames, long lastModified) {
+			this.loader = loader;
+			this.url = url;
+			this.datasetId = datasetId;
+			this.tableNames = (tableNames != null ? new TreeSet<>(tableNames) : null);
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return this.loader == other.loader && this.url.equals(other.url)
+					&& Objects.equals(this.datasetId, other.datasetId)
+					&& Objects.equals(this.tableNames, other.tableNames) && this.lastModified == other.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.loader), this.url, this.datasetId, this.tableNames,
+					this.lastModified);
+		}
+
+		@Override
+		public String toString() {
+			return this.url + (this.datasetId != null ? "#" + this.datasetId : "")
+					+ (this.tableNames != null ? " " + this.tableNames : "");
+		}
+
+	}
+
+}
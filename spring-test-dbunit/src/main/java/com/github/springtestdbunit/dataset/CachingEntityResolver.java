@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.xml.FlatDtdDataSet;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * An {@link EntityResolver} that resolves DTDs and schemas without using the network and keeps them in memory for the
+ * lifetime of the JVM. Local (<code>file:</code> and <code>jar:</code>) system ids are read directly; all other system
+ * ids are looked up on the classpath, first by their path and then by their file name. Entities that cannot be found
+ * resolve to an empty document.
+ * <p>
+ * The table metadata of flat XML DTDs is also cached, so that the {@link FlatXmlDataSetLoader} can parse each DTD once
+ * and pass the metadata to every dataset that refers to it. The DTD system id of each flat XML resource is remembered
+ * until the resource is modified.
+ *
+ * @see #getSharedInstance()
+ */
+public class CachingEntityResolver implements EntityResolver {
+
+	private static final Log logger = LogFactory.getLog(CachingEntityResolver.class);
+
+	private static final CachingEntityResolver SHARED_INSTANCE = new CachingEntityResolver();
+
+	private static final int PROLOG_LENGTH = 4096;
+
+	private static final Pattern DOCTYPE = Pattern.compile(
+			"<!DOCTYPE\\s+[^\\s\\[>]+\\s+(?:SYSTEM|PUBLIC\\s+(?:\"[^\"]*\"|'[^']*'))\\s+(?:\"([^\"]*)\"|'([^']*)')\\s*>");
+
+	private final Map<String, byte[]> entities = new ConcurrentHashMap<>();
+
+	private final Map<String, Optional<IDataSet>> metaDataSets = new ConcurrentHashMap<>();
+
+	private final Map<String, DtdSystemId> dtdSystemIds = new ConcurrentHashMap<>();
+
+	@Override
+	public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+		InputSource inputSource = new InputSource(new ByteArrayInputStream(getEntity(systemId)));
+		inputSource.setPublicId(publicId);
+		inputSource.setSystemId(systemId);
+		return inputSource;
+	}
+
+	/**
+	 * Returns the system id of the external DTD of the given flat XML resource, resolved against the location of the
+	 * resource. Documents that have no external DTD, or that also declare an internal subset, return {@code null}.
+	 * Results are cached by the URL of the resource and reused while its last-modified time is unchanged.
+	 * @param resource the flat XML resource
+	 * @return the system id of the DTD or {@code null}
+	 * @throws IOException if the resource cannot be read
+	 */
+	public String getDtdSystemId(Resource resource) throws IOException {
+		String url;
+		long lastModified;
+		try {
+			url = resource.getURL().toString();
+			lastModified = resource.lastModified();
+		} catch (IOException ex) {
+			return readDtdSystemId(resource);
+		}
+		DtdSystemId dtdSystemId = this.dtdSystemIds.get(url);
+		if (dtdSystemId == null || dtdSystemId.lastModified != lastModified) {
+			dtdSystemId = new DtdSystemId(lastModified, readDtdSystemId(resource));
+			this.dtdSystemIds.put(url, dtdSystemId);
+		}
+		return dtdSystemId.systemId;
+	}
+
+	private String readDtdSystemId(Resource resource) throws IOException {
+		byte[] prolog = new byte[PROLOG_LENGTH];
+		int length = 0;
+		try (InputStream inputStream = resource.getInputStream()) {
+			int read;
+			while (length < prolog.length && (read = inputStream.read(prolog, length, prolog.length - length)) != -1) {
+				length += read;
+			}
+		}
+		Matcher matcher = DOCTYPE.matcher(new String(prolog, 0, length, StandardCharsets.UTF_8));
+		if (!matcher.find()) {
+			return null;
+		}
+		String systemId = (matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+		try {
+			return new URL(resource.getURL(), systemId).toString();
+		} catch (IOException ex) {
+			return systemId;
+		}
+	}
+
+	/**
+	 * Returns the table metadata declared by the flat XML DTD with the given system id. Each DTD is only parsed once.
+	 * @param systemId the system id of the DTD
+	 * @return the metadata or {@code null} if the DTD cannot be resolved
+	 * @throws DataSetException if the DTD cannot be parsed
+	 */
+	public IDataSet getMetaDataSet(String systemId) throws DataSetException {
+		Optional<IDataSet> metaDataSet = this.metaDataSets.get(systemId);
+		if (metaDataSet == null) {
+			byte[] dtd = getEntity(systemId);
+			try {
+				metaDataSet = Optional.ofNullable(dtd.length != 0 ? new FlatDtdDataSet(new ByteArrayInputStream(dtd)) : null);
+			} catch (IOException ex) {
+				throw new DataSetException("Unable to parse DTD " + systemId, ex);
+			}
+			this.metaDataSets.put(systemId, metaDataSet);
+		}
+		return metaDataSet.orElse(null);
+	}
+
+	/**
+	 * Removes all cached entities, metadata and DTD system ids.
+	 */
+	public void clear() {
+		this.entities.clear();
+		this.metaDataSets.clear();
+		this.dtdSystemIds.clear();
+	}
+
+	private byte[] getEntity(String systemId) {
+		if (systemId == null) {
+			return new byte[0];
+		}
+		byte[] entity = this.entities.get(systemId);
+		if (entity == null) {
+			entity = load(systemId);
+			this.entities.put(systemId, entity);
+		}
+		return entity;
+	}
+
+	private byte[] load(String systemId) {
+		for (URL url : getCandidates(systemId)) {
+			try (InputStream inputStream = url.openStream()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Resolved entity " + systemId + " from " + url);
+				}
+				return StreamUtils.copyToByteArray(inputStream);
+			} catch (IOException ex) {
+				// Try the next candidate
+			}
+		}
+		logger.debug("Unable to resolve entity " + systemId + " without using the network, ignoring");
+		return new byte[0];
+	}
+
+	private List<URL> getCandidates(String systemId) {
+		List<URL> candidates = new ArrayList<>();
+		String path = systemId;
+		try {
+			URL url = new URL(systemId);
+			if ("file".equals(url.getProtocol()) || "jar".equals(url.getProtocol())) {
+				candidates.add(url);
+			}
+			path = url.getPath();
+		} catch (MalformedURLException ex) {
+			// Not a URL, look up the path on the classpath
+		}
+		ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+		path = StringUtils.cleanPath(StringUtils.trimLeadingCharacter(path, '/'));
+		for (String name : new String[] { path, StringUtils.getFilename(path) }) {
+			URL url = (StringUtils.hasLength(name) ? classLoader.getResource(name) : null);
+			if (url != null) {
+				candidates.add(url);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns the resolver shared by the supplied loaders.
+	 * @return the shared resolver
+	 */
+	public static CachingEntityResolver getSharedInstance() {
+		return SHARED_INSTANCE;
+	}
+
+	/**
+	 * The DTD system id of a resource together with the last-modified time it was read at.
+	 */
+	private static class DtdSystemId {
+
+		private final long lastModified;
+
+		private final String systemId;
+
+		DtdSystemId(long lastModified, String systemId) {
+			this.lastModified = lastModified;
+			this.systemId = systemId;
+		}
+
+	}
+
+}
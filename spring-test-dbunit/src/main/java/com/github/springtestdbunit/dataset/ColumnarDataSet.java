@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableIterator;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+
+/**
+ * An immutable {@link IDataSet} of {@link ColumnarTable}s. Intended for datasets that are held in memory and shared
+ * between tests, such as those of the {@link CachingDataSetLoader}.
+ */
+public class ColumnarDataSet extends AbstractDataSet {
+
+	private final ITable[] tables;
+
+	/**
+	 * Create a columnar copy of the given dataset.
+	 * @param dataSet the source dataset
+	 * @throws DataSetException if the dataset cannot be read
+	 */
+	public ColumnarDataSet(IDataSet dataSet) throws DataSetException {
+		super(dataSet.isCaseSensitiveTableNames());
+		List<ITable> tables = new ArrayList<>();
+		for (ITableIterator iterator = dataSet.iterator(); iterator.next();) {
+			tables.add(ColumnarTable.copyOf(iterator.getTable()));
+		}
+		this.tables = tables.toArray(new ITable[0]);
+	}
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		return new DefaultTableIterator(this.tables, reversed);
+	}
+
+	/**
+	 * Returns the estimated number of bytes of heap used by the values of this dataset.
+	 * @return the estimated size in bytes
+	 */
+	public long estimateSize() {
+		long size = 0;
+		for (ITable table : this.tables) {
+			size += ((ColumnarTable) table).estimateSize();
+		}
+		return size;
+	}
+
+}
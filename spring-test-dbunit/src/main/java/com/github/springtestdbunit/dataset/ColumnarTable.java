@@ -0,0 +1,419 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+
+/**
+ * An immutable {@link ITable} that stores its values by column rather than as rows of objects. Columns whose non-null
+ * values all have the same type are held in primitive arrays: {@link Long}, {@link Integer}, {@link Double},
+ * {@link Boolean}, {@link Date}, {@link Time}, {@link Timestamp} and {@link BigDecimal} values of a single scale.
+ * Strings are dictionary-encoded, so repeated values are stored once, and {@code null}s are recorded in a bitmap. All
+ * other columns keep their values as objects.
+ * <p>
+ * {@link #getValue(int, String)} returns values equal to, and of the same type as, those of the source table. Dates
+ * and timestamps are mutable, so a new instance is returned on every call.
+ *
+ * @see ColumnarDataSet
+ */
+public final class ColumnarTable extends AbstractTable {
+
+	private final ITableMetaData metaData;
+
+	private final int rowCount;
+
+	private final ColumnVector[] columns;
+
+	private ColumnarTable(ITableMetaData metaData, int rowCount, ColumnVector[] columns) {
+		this.metaData = metaData;
+		this.rowCount = rowCount;
+		this.columns = columns;
+	}
+
+	/**
+	 * Create a columnar copy of the given table. Values are read one column at a time.
+	 * @param table the source table
+	 * @return the columnar table
+	 * @throws DataSetException if the table cannot be read
+	 */
+	public static ColumnarTable copyOf(ITable table) throws DataSetException {
+		if (table instanceof ColumnarTable) {
+			return (ColumnarTable) table;
+		}
+		ITableMetaData metaData = table.getTableMetaData();
+		Column[] columns = metaData.getColumns();
+		int rowCount = table.getRowCount();
+		ColumnVector[] vectors = new ColumnVector[columns.length];
+		Object[] values = new Object[rowCount];
+		for (int i = 0; i < columns.length; i++) {
+			for (int row = 0; row < rowCount; row++) {
+				values[row] = table.getValue(row, columns[i].getColumnName());
+			}
+			vectors[i] = createVector(values);
+		}
+		return new ColumnarTable(metaData, rowCount, vectors);
+	}
+
+	private static ColumnVector createVector(Object[] values) {
+		BitSet nulls = new BitSet(values.length);
+		Class<?> type = null;
+		for (int row = 0; row < values.length; row++) {
+			Object value = values[row];
+			if (value == null) {
+				nulls.set(row);
+			} else if (type == null) {
+				type = value.getClass();
+			} else if (type != value.getClass()) {
+				return new ObjectVector(values);
+			}
+		}
+		if (type == String.class) {
+			return new StringVector(values, nulls);
+		}
+		if (type == Long.class || type == Integer.class) {
+			return new LongVector(values, nulls, type == Integer.class);
+		}
+		if (type == Double.class) {
+			return new DoubleVector(values, nulls);
+		}
+		if (type == Boolean.class) {
+			return new BooleanVector(values, nulls);
+		}
+		if (type == Date.class || type == Time.class || type == Timestamp.class) {
+			return new TemporalVector(values, nulls, type);
+		}
+		if (type == BigDecimal.class && DecimalVector.isSupported(values)) {
+			return new DecimalVector(values, nulls);
+		}
+		return new ObjectVector(values);
+	}
+
+	public ITableMetaData getTableMetaData() {
+		return this.metaData;
+	}
+
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	public Object getValue(int row, String column) throws DataSetException {
+		assertValidRowIndex(row);
+		return this.columns[getColumnIndex(column)].get(row);
+	}
+
+	/**
+	 * Returns the value of the given row and column.
+	 * @param row the row index
+	 * @param column the index of the column in the {@link #getTableMetaData() metadata}
+	 * @return the value
+	 * @throws DataSetException if the row does not exist
+	 */
+	public Object getValue(int row, int column) throws DataSetException {
+		assertValidRowIndex(row);
+		return this.columns[column].get(row);
+	}
+
+	/**
+	 * Returns the estimated number of bytes of heap used by the values of this table.
+	 * @return the estimated size in bytes
+	 */
+	public long estimateSize() {
+		long size = 64;
+		for (ColumnVector column : this.columns) {
+			size += 32 + column.estimateSize();
+		}
+		return size;
+	}
+
+	/**
+	 * The values of a single column.
+	 */
+	private abstract static class ColumnVector {
+
+		private final BitSet nulls;
+
+		ColumnVector(BitSet nulls) {
+			this.nulls = (nulls.isEmpty() ? null : nulls);
+		}
+
+		public final Object get(int row) {
+			return (this.nulls != null && this.nulls.get(row) ? null : getNonNull(row));
+		}
+
+		protected abstract Object getNonNull(int row);
+
+		public long estimateSize() {
+			return (this.nulls != null ? 16 + this.nulls.size() / 8 : 0);
+		}
+
+	}
+
+	private static class ObjectVector extends ColumnVector {
+
+		private final Object[] values;
+
+		ObjectVector(Object[] values) {
+			super(new BitSet());
+			this.values = values.clone();
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			return this.values[row];
+		}
+
+		@Override
+		public long estimateSize() {
+			long size = 16 + 8L * this.values.length;
+			for (Object value : this.values) {
+				size += DataSetSizeEstimator.estimateSize(value);
+			}
+			return size;
+		}
+
+	}
+
+	private static class StringVector extends ColumnVector {
+
+		private final String[] dictionary;
+
+		private final int[] codes;
+
+		StringVector(Object[] values, BitSet nulls) {
+			super(nulls);
+			Map<String, Integer> codes = new HashMap<>();
+			this.codes = new int[values.length];
+			for (int row = 0; row < values.length; row++) {
+				if (values[row] != null) {
+					Integer code = codes.putIfAbsent((String) values[row], codes.size());
+					this.codes[row] = (code != null ? code : codes.size() - 1);
+				}
+			}
+			this.dictionary = new String[codes.size()];
+			for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+				this.dictionary[entry.getValue()] = entry.getKey();
+			}
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			return this.dictionary[this.codes[row]];
+		}
+
+		@Override
+		public long estimateSize() {
+			long size = super.estimateSize() + 32 + 4L * this.codes.length + 8L * this.dictionary.length;
+			for (String value : this.dictionary) {
+				size += DataSetSizeEstimator.estimateSize(value);
+			}
+			return size;
+		}
+
+	}
+
+	private static class LongVector extends ColumnVector {
+
+		private final long[] values;
+
+		private final boolean integer;
+
+		LongVector(Object[] values, BitSet nulls, boolean integer) {
+			super(nulls);
+			this.values = new long[values.length];
+			this.integer = integer;
+			for (int row = 0; row < values.length; row++) {
+				if (values[row] != null) {
+					this.values[row] = ((Number) values[row]).longValue();
+				}
+			}
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			long value = this.values[row];
+			return (this.integer ? (Object) Integer.valueOf((int) value) : (Object) Long.valueOf(value));
+		}
+
+		@Override
+		public long estimateSize() {
+			return super.estimateSize() + 16 + 8L * this.values.length;
+		}
+
+	}
+
+	private static class DoubleVector extends ColumnVector {
+
+		private final double[] values;
+
+		DoubleVector(Object[] values, BitSet nulls) {
+			super(nulls);
+			this.values = new double[values.length];
+			for (int row = 0; row < values.length; row++) {
+				if (values[row] != null) {
+					this.values[row] = (Double) values[row];
+				}
+			}
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			return this.values[row];
+		}
+
+		@Override
+		public long estimateSize() {
+			return super.estimateSize() + 16 + 8L * this.values.length;
+		}
+
+	}
+
+	private static class BooleanVector extends ColumnVector {
+
+		private final BitSet values;
+
+		BooleanVector(Object[] values, BitSet nulls) {
+			super(nulls);
+			this.values = new BitSet(values.length);
+			for (int row = 0; row < values.length; row++) {
+				if (Boolean.TRUE.equals(values[row])) {
+					this.values.set(row);
+				}
+			}
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			return this.values.get(row);
+		}
+
+		@Override
+		public long estimateSize() {
+			return super.estimateSize() + 16 + this.values.size() / 8;
+		}
+
+	}
+
+	private static class TemporalVector extends ColumnVector {
+
+		private final Class<?> type;
+
+		private final long[] millis;
+
+		private final int[] nanos;
+
+		TemporalVector(Object[] values, BitSet nulls, Class<?> type) {
+			super(nulls);
+			this.type = type;
+			this.millis = new long[values.length];
+			this.nanos = (type == Timestamp.class ? new int[values.length] : null);
+			for (int row = 0; row < values.length; row++) {
+				if (values[row] != null) {
+					this.millis[row] = ((java.util.Date) values[row]).getTime();
+					if (this.nanos != null) {
+						this.nanos[row] = ((Timestamp) values[row]).getNanos();
+					}
+				}
+			}
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			if (this.type == Date.class) {
+				return new Date(this.millis[row]);
+			}
+			if (this.type == Time.class) {
+				return new Time(this.millis[row]);
+			}
+			Timestamp timestamp = new Timestamp(this.millis[row]);
+			timestamp.setNanos(this.nanos[row]);
+			return timestamp;
+		}
+
+		@Override
+		public long estimateSize() {
+			return super.estimateSize() + 16 + 8L * this.millis.length
+					+ (this.nanos != null ? 16 + 4L * this.nanos.length : 0);
+		}
+
+	}
+
+	private static class DecimalVector extends ColumnVector {
+
+		private static final int MAX_BITS = 63;
+
+		private final long[] unscaledValues;
+
+		private final int scale;
+
+		DecimalVector(Object[] values, BitSet nulls) {
+			super(nulls);
+			this.unscaledValues = new long[values.length];
+			int scale = 0;
+			for (int row = 0; row < values.length; row++) {
+				if (values[row] != null) {
+					BigDecimal value = (BigDecimal) values[row];
+					this.unscaledValues[row] = value.unscaledValue().longValue();
+					scale = value.scale();
+				}
+			}
+			this.scale = scale;
+		}
+
+		/**
+		 * Returns if all values have the same scale and an unscaled value that fits in a {@code long}.
+		 */
+		static boolean isSupported(Object[] values) {
+			Integer scale = null;
+			for (Object value : values) {
+				if (value != null) {
+					BigDecimal decimal = (BigDecimal) value;
+					BigInteger unscaledValue = decimal.unscaledValue();
+					if ((scale != null && scale != decimal.scale()) || unscaledValue.bitLength() > MAX_BITS) {
+						return false;
+					}
+					scale = decimal.scale();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		protected Object getNonNull(int row) {
+			return BigDecimal.valueOf(this.unscaledValues[row], this.scale);
+		}
+
+		@Override
+		public long estimateSize() {
+			return super.estimateSize() + 16 + 8L * this.unscaledValues.length;
+		}
+
+	}
+
+}
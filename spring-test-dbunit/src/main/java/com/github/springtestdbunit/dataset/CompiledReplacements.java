@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.CompositeDataSet;
+import org.dbunit.dataset.CompositeTable;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.ReplacementFunction;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.StringDataType;
+
+/**
+ * Object, sub-string and function replacements compiled into a transform per column. Replacements are applied eagerly
+ * in a single pass when a dataset is loaded and the result is an immutable copy, so reading values does not repeat any
+ * map lookups. Columns that cannot contain a replaceable value are copied unchanged.
+ * <p>
+ * Values are replaced using the same rules as {@link org.dbunit.dataset.ReplacementDataSet}: an exact object
+ * replacement is used first, then a function registered against the exact value, and finally all sub-string
+ * replacements are applied in order to string values. Each function is evaluated once per replaced value and its result
+ * is kept in the given map of function results, so the value is the same wherever it appears while the map is
+ * retained.
+ *
+ * @see ReplacementDataSetLoader
+ */
+final class CompiledReplacements {
+
+	private final Map<Object, Object> stringReplacements = new HashMap<>();
+
+	private final Map<Object, Object> otherReplacements = new HashMap<>();
+
+	private final Map<String, ReplacementFunction> functionReplacements;
+
+	private final String[][] subStringReplacements;
+
+	private final Map<String, Object> functionResults;
+
+	/**
+	 * Create a new {@link CompiledReplacements} instance.
+	 * @param objectReplacements the object replacements
+	 * @param subStringReplacements the sub-string replacements
+	 * @param functionReplacements the function replacements
+	 * @param functionResults the results of functions that have already been evaluated, updated with new results
+	 */
+	CompiledReplacements(Map<Object, Object> objectReplacements, Map<String, String> subStringReplacements,
+			Map<String, ReplacementFunction> functionReplacements, Map<String, Object> functionResults) {
+		for (Map.Entry<Object, Object> entry : objectReplacements.entrySet()) {
+			Map<Object, Object> target = (entry.getKey() instanceof String ? this.stringReplacements
+					: this.otherReplacements);
+			target.put(entry.getKey(), entry.getValue());
+		}
+		List<String[]> subStrings = new ArrayList<>();
+		for (Map.Entry<String, String> entry : subStringReplacements.entrySet()) {
+			if (entry.getKey() != null && !entry.getKey().isEmpty()) {
+				subStrings.add(new String[] { entry.getKey(), entry.getValue() });
+			}
+		}
+		this.subStringReplacements = subStrings.toArray(new String[0][]);
+		this.functionReplacements = functionReplacements;
+		this.functionResults = functionResults;
+	}
+
+	/**
+	 * Returns {@code true} if no replacements are configured.
+	 * @return if the replacements are empty
+	 */
+	public boolean isEmpty() {
+		return this.stringReplacements.isEmpty() && this.otherReplacements.isEmpty()
+				&& this.functionReplacements.isEmpty() && this.subStringReplacements.length == 0;
+	}
+
+	/**
+	 * Apply the replacements to all tables of the given dataset.
+	 * @param dataSet the source dataset
+	 * @return an immutable dataset containing the replaced values
+	 * @throws DataSetException if the dataset cannot be read
+	 */
+	public IDataSet apply(IDataSet dataSet) throws DataSetException {
+		List<ITable> tables = new ArrayList<>();
+		for (ITable table : dataSet.getTables()) {
+			tables.add(apply(table));
+		}
+		return new CompositeDataSet(tables.toArray(new ITable[0]), dataSet.isCaseSensitiveTableNames());
+	}
+
+	private ITable apply(ITable table) throws DataSetException {
+		ITableMetaData metaData = table.getTableMetaData();
+		Column[] columns = metaData.getColumns();
+		boolean[] replaced = new boolean[columns.length];
+		boolean anyReplaced = false;
+		for (int i = 0; i < columns.length; i++) {
+			replaced[i] = canMatch(columns[i]);
+			anyReplaced |= replaced[i];
+		}
+		if (!anyReplaced) {
+			return new CompositeTable(metaData, table);
+		}
+		int rowCount = table.getRowCount();
+		List<Object[]> rows = new ArrayList<>(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			Object[] values = new Object[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				Object value = table.getValue(row, columns[i].getColumnName());
+				values[i] = (replaced[i] ? replace(value) : value);
+			}
+			rows.add(values);
+		}
+		return new CompositeTable(metaData, new DefaultTable(metaData, rows));
+	}
+
+	/**
+	 * Values of columns with a known non-string type can only match non-string object replacements.
+	 */
+	private boolean canMatch(Column column) {
+		if (!this.otherReplacements.isEmpty()) {
+			return true;
+		}
+		DataType dataType = column.getDataType();
+		return (dataType == null || dataType == DataType.UNKNOWN || dataType instanceof StringDataType);
+	}
+
+	private Object replace(Object value) {
+		if (!(value instanceof String)) {
+			return (value != null && this.otherReplacements.containsKey(value) ? this.otherReplacements.get(value)
+					: value);
+		}
+		if (this.stringReplacements.containsKey(value)) {
+			return this.stringReplacements.get(value);
+		}
+		ReplacementFunction function = this.functionReplacements.get(value);
+		if (function != null) {
+			return applyFunction((String) value, function);
+		}
+		String result = (String) value;
+		for (String[] subString : this.subStringReplacements) {
+			result = result.replace(subString[0], (subString[1] != null ? subString[1] : ""));
+		}
+		return result;
+	}
+
+	private Object applyFunction(String value, ReplacementFunction function) {
+		synchronized (this.functionResults) {
+			if (this.functionResults.containsKey(value)) {
+				return this.functionResults.get(value);
+			}
+			Object result = function.replace(value);
+			this.functionResults.put(value, result);
+			return result;
+		}
+	}
+
+}
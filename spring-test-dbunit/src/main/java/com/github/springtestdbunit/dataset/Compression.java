@@ -0,0 +1,208 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * The compression formats supported for dataset files. A compressed dataset is named after the uncompressed file with
+ * the extension of the format appended, for example <code>dataset.xml.gz</code>, and is decompressed as a stream while
+ * it is parsed.
+ * <p>
+ * Zstandard requires <code>com.github.luben:zstd-jni</code> on the classpath. Datasets are read from the first file
+ * entry of zip archives, except for CSV datasets which are read from a zipped directory.
+ *
+ * @see AbstractDataSetLoader
+ * @see com.github.springtestdbunit.annotation.Export#compression()
+ */
+public enum Compression {
+
+	/**
+	 * GZIP compression (<code>.gz</code>).
+	 */
+	GZIP("gz") {
+
+		@Override
+		public InputStream decompress(InputStream inputStream, String entryName) throws IOException {
+			return new GZIPInputStream(inputStream, BUFFER_SIZE);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream, String entryName) throws IOException {
+			return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+		}
+
+	},
+
+	/**
+	 * Zstandard compression (<code>.zst</code>).
+	 */
+	ZSTD("zst") {
+
+		@Override
+		public InputStream decompress(InputStream inputStream, String entryName) throws IOException {
+			return createZstdStream("com.github.luben.zstd.ZstdInputStream", InputStream.class, inputStream);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream, String entryName) throws IOException {
+			return createZstdStream("com.github.luben.zstd.ZstdOutputStream", OutputStream.class, outputStream);
+		}
+
+	},
+
+	/**
+	 * Zip archive (<code>.zip</code>).
+	 */
+	ZIP("zip") {
+
+		@Override
+		public InputStream decompress(InputStream inputStream, String entryName) throws IOException {
+			ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+			for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream
+					.getNextEntry()) {
+				if (!entry.isDirectory()) {
+					return zipInputStream;
+				}
+			}
+			zipInputStream.close();
+			throw new FileNotFoundException("Zip archive does not contain a dataset");
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream, String entryName) throws IOException {
+			ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+			zipOutputStream.putNextEntry(new ZipEntry(entryName));
+			return zipOutputStream;
+		}
+
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String extension;
+
+	Compression(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * Returns the file extension of the format, without the leading dot.
+	 * @return the file extension
+	 */
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * Returns the name of the uncompressed file.
+	 * @param filename the name of the compressed file
+	 * @return the name without the extension of this format
+	 */
+	public String getUncompressedFilename(String filename) {
+		return filename.substring(0, filename.length() - this.extension.length() - 1);
+	}
+
+	/**
+	 * Returns a stream that decompresses the given stream.
+	 * @param inputStream the compressed stream
+	 * @param entryName the name of the uncompressed file
+	 * @return the decompressed stream
+	 * @throws IOException on read error
+	 */
+	public abstract InputStream decompress(InputStream inputStream, String entryName) throws IOException;
+
+	/**
+	 * Returns a stream that compresses to the given stream. The returned stream must be closed to complete the
+	 * compressed data.
+	 * @param outputStream the stream to receive the compressed data
+	 * @param entryName the name of the uncompressed file, used as the entry name of zip archives
+	 * @return the compressing stream
+	 * @throws IOException on write error
+	 */
+	public abstract OutputStream compress(OutputStream outputStream, String entryName) throws IOException;
+
+	/**
+	 * Returns the compression format of the given file.
+	 * @param filename the file name
+	 * @return the compression format or {@code null} if the file is not compressed
+	 */
+	public static Compression forFilename(String filename) {
+		if (filename != null) {
+			String lowerCaseFilename = filename.toLowerCase(Locale.ENGLISH);
+			for (Compression compression : values()) {
+				if (lowerCaseFilename.endsWith("." + compression.extension)) {
+					return compression;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the compression format with the given name or extension, for example <code>gzip</code> or
+	 * <code>gz</code>.
+	 * @param name the name or extension
+	 * @return the compression format or {@code null} if the name is empty
+	 * @throws IllegalArgumentException if the compression format is not supported
+	 */
+	public static Compression forName(String name) {
+		if (!StringUtils.hasLength(name)) {
+			return null;
+		}
+		for (Compression compression : values()) {
+			if (compression.name().equalsIgnoreCase(name) || compression.extension.equalsIgnoreCase(name)) {
+				return compression;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported compression '" + name + "'");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T createZstdStream(String className, Class<T> streamType, T stream) throws IOException {
+		ClassLoader classLoader = Compression.class.getClassLoader();
+		if (!ClassUtils.isPresent(className, classLoader)) {
+			throw new IllegalStateException("Zstandard compression requires com.github.luben:zstd-jni");
+		}
+		try {
+			Constructor<?> constructor = ClassUtils.forName(className, classLoader).getConstructor(streamType);
+			return (T) constructor.newInstance(stream);
+		} catch (InvocationTargetException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
@@ -16,12 +16,28 @@
  */
 package com.github.springtestdbunit.dataset;
 
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.Column;
 import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
 import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.csv.CsvDataSet;
+import org.dbunit.dataset.csv.CsvDataSetWriter;
+import org.dbunit.dataset.csv.CsvParserException;
+import org.dbunit.dataset.csv.CsvParserImpl;
+import org.dbunit.dataset.csv.CsvProducer;
 import org.dbunit.dataset.csv.CsvURLDataSet;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.IDataSetConsumer;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.ResourceUtils;
 
 import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A {@link DataSetLoader data set loader} that can be used to load {@link CsvURLDataSet}s.
@@ -30,9 +46,69 @@ import java.io.IOException;
  */
 public class CsvUrlDataSetLoader extends AbstractDataSetLoader {
 
+	/**
+	 * CSV datasets are directories, so a <code>.zip</code> location is read as a zipped directory containing the
+	 * <code>table-ordering.txt</code> and CSV files.
+	 */
+	@Override
+	protected Resource decompress(Resource resource) throws Exception {
+		if (Compression.forFilename(resource.getFilename()) == Compression.ZIP) {
+			return new UrlResource(ResourceUtils.JAR_URL_PREFIX + resource.getURL() + ResourceUtils.JAR_URL_SEPARATOR);
+		}
+		return super.decompress(resource);
+	}
+
 	@Override
 	protected IDataSet createDataSet(Resource resource, String datasetId) throws DataSetException, IOException {
 		return new CsvURLDataSet(resource.getURL());
 	}
 
+	/**
+	 * Create the dataset, only parsing the CSV files of the given tables.
+	 */
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames)
+			throws DataSetException, IOException {
+		if (CollectionUtils.isEmpty(tableNames)) {
+			return createDataSet(resource, datasetId);
+		}
+		URL base = resource.getURL();
+		CachedDataSet dataSet = new CachedDataSet();
+		TableFilteringConsumer consumer = new TableFilteringConsumer(dataSet, tableNames);
+		consumer.startDataSet();
+		for (Object tableName : CsvProducer.getTables(base, CsvDataSet.TABLE_ORDERING_FILE)) {
+			if (consumer.accept((String) tableName)) {
+				produceTable(consumer, (String) tableName, new URL(base, tableName + ".csv"));
+			}
+		}
+		consumer.endDataSet();
+		return dataSet;
+	}
+
+	void produceTable(IDataSetConsumer consumer, String tableName, URL url)
+			throws DataSetException, IOException {
+		List<?> lines;
+		try {
+			lines = new CsvParserImpl().parse(url);
+		} catch (CsvParserException ex) {
+			throw new DataSetException("error parsing CSV for URL: '" + url + "'", ex);
+		}
+		List<?> header = (List<?>) lines.get(0);
+		Column[] columns = new Column[header.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new Column((String) header.get(i), DataType.UNKNOWN);
+		}
+		consumer.startTable(new DefaultTableMetaData(tableName, columns));
+		for (int i = 1; i < lines.size(); i++) {
+			Object[] values = ((List<?>) lines.get(i)).toArray();
+			for (int j = 0; j < values.length; j++) {
+				if (CsvDataSetWriter.NULL.equals(values[j])) {
+					values[j] = null;
+				}
+			}
+			consumer.row(values);
+		}
+		consumer.endTable();
+	}
+
 }
@@ -16,6 +16,8 @@
 
 package com.github.springtestdbunit.dataset;
 
+import java.util.Set;
+
 import org.dbunit.dataset.IDataSet;
 
 /**
@@ -40,4 +42,21 @@ public interface DataSetLoader {
 	 */
 	IDataSet loadDataSet(Class<?> testClass, String location, String datasetId) throws Exception;
 
+	/**
+	 * Load and return {@link IDataSet dataset} from the specified location when only some of its tables are needed.
+	 * Implementations may use the table names to avoid parsing other tables. The returned dataset must contain the
+	 * requested tables that exist in the location but may also contain others. The default implementation loads the
+	 * complete dataset.
+	 * @param testClass The class under test
+	 * @param location The location to load
+	 * @param datasetId datasetId
+	 * @param tableNames the names of the tables that are needed or {@code null} if all tables are needed
+	 * @return a {@link IDataSet dataset} or <code>null</code>
+	 * @throws Exception If the {@link IDataSet dataset} cannot be loaded
+	 */
+	default IDataSet loadDataSet(Class<?> testClass, String location, String datasetId, Set<String> tableNames)
+			throws Exception {
+		return loadDataSet(testClass, location, datasetId);
+	}
+
 }
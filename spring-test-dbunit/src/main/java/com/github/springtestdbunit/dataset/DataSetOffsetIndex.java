@@ -0,0 +1,526 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Index of the byte ranges of the <code>&lt;dataset id="..."&gt;</code> elements of multi-dataset XML files, allowing
+ * the {@link FlatXmlDataSetLoader} and {@link XmlDataSetLoader} to read only the segment selected by a
+ * <code>datasetId</code> rather than parsing the file from the top.
+ * <p>
+ * A file is indexed with a single byte-level scan the first time it is accessed. Indexes are kept in memory and, when
+ * a directory is configured, written to disk so that later JVMs (for example other surefire forks) can reuse them.
+ * Indexes are invalidated when the length or last-modified time of the file changes. Only files on the file system of
+ * less than 2GB with a <code>&lt;datasets&gt;</code> root element, an ASCII compatible encoding and no
+ * <code>DOCTYPE</code> are indexed; all other resources are read as before.
+ *
+ * @see #getSharedInstance()
+ */
+public class DataSetOffsetIndex {
+
+	private static final Log logger = LogFactory.getLog(DataSetOffsetIndex.class);
+
+	private static final int MAGIC = 0x53544449;
+
+	private static final int VERSION = 1;
+
+	private static final DataSetOffsetIndex SHARED_INSTANCE = new DataSetOffsetIndex(getDefaultDirectory());
+
+	private final File directory;
+
+	private final Map<String, FileIndex> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link DataSetOffsetIndex}.
+	 * @param directory the directory used to store indexes or {@code null} to only keep them in memory
+	 */
+	public DataSetOffsetIndex(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns a resource containing only the datasets of the given resource with the given id. The returned resource is
+	 * still a complete document with a <code>&lt;datasets&gt;</code> root element, so it can be parsed using the same
+	 * <code>datasetId</code>.
+	 * @param resource the resource
+	 * @param datasetId the dataset id
+	 * @return the segment, or the given resource if the resource cannot be indexed or no dataset has the given id
+	 * @throws IOException if the resource cannot be read
+	 */
+	public Resource getResource(Resource resource, String datasetId) throws IOException {
+		if (!StringUtils.hasLength(datasetId) || !resource.isFile()) {
+			return resource;
+		}
+		File file = resource.getFile();
+		FileIndex index = getIndex(file);
+		long[] ranges = (index != null ? index.ranges.get(datasetId) : null);
+		if (ranges == null) {
+			return resource;
+		}
+		return new ByteArrayResource(index.read(file, ranges), resource.getDescription() + " [" + datasetId + "]");
+	}
+
+	/**
+	 * Removes all indexes held in memory.
+	 */
+	public void clear() {
+		this.indexes.clear();
+	}
+
+	private FileIndex getIndex(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		long length = file.length();
+		long lastModified = file.lastModified();
+		FileIndex index = this.indexes.get(path);
+		if (index == null || !index.isCurrent(length, lastModified)) {
+			File indexFile = getIndexFile(file);
+			index = readIndex(indexFile);
+			if (index == null || !index.isCurrent(length, lastModified)) {
+				index = FileIndex.scan(file, length, lastModified);
+				writeIndex(indexFile, index);
+			}
+			this.indexes.put(path, index);
+		}
+		return (index.ranges.isEmpty() ? null : index);
+	}
+
+	private File getIndexFile(File file) {
+		if (this.directory == null) {
+			return null;
+		}
+		String hash = DigestUtils.md5DigestAsHex(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+		return new File(this.directory, file.getName() + "-" + hash + ".idx");
+	}
+
+	private FileIndex readIndex(File indexFile) {
+		if (indexFile == null || !indexFile.isFile()) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile)))) {
+			return FileIndex.read(input);
+		} catch (IOException ex) {
+			logger.debug("Unable to read dataset index " + indexFile, ex);
+			return null;
+		}
+	}
+
+	private void writeIndex(File indexFile, FileIndex index) {
+		if (indexFile == null) {
+			return;
+		}
+		try {
+			indexFile.getParentFile().mkdirs();
+			// Write to a temporary file first so that concurrent readers never see partial indexes
+			File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+			try {
+				try (DataOutputStream output = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+					index.write(output);
+				}
+				move(tempFile, indexFile);
+			} finally {
+				tempFile.delete();
+			}
+		} catch (IOException ex) {
+			logger.debug("Unable to write dataset index " + indexFile, ex);
+		}
+	}
+
+	private void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Returns the index shared by the {@link FlatXmlDataSetLoader} and {@link XmlDataSetLoader}. Indexes are written to
+	 * <code>target/dataset-index</code> (or <code>build/dataset-index</code>) when the working directory contains a
+	 * build output directory, otherwise they are only kept in memory.
+	 * @return the shared index
+	 */
+	public static DataSetOffsetIndex getSharedInstance() {
+		return SHARED_INSTANCE;
+	}
+
+	private static File getDefaultDirectory() {
+		for (String name : new String[] { "target", "build" }) {
+			File buildDirectory = new File(name);
+			if (buildDirectory.isDirectory()) {
+				return new File(buildDirectory, "dataset-index");
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The index of a single file. Ranges are stored as pairs of start and end offsets.
+	 */
+	private static class FileIndex {
+
+		private final long length;
+
+		private final long lastModified;
+
+		private final long contentStart;
+
+		private final long contentEnd;
+
+		private final Map<String, long[]> ranges;
+
+		FileIndex(long length, long lastModified, long contentStart, long contentEnd, Map<String, long[]> ranges) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.contentStart = contentStart;
+			this.contentEnd = contentEnd;
+			this.ranges = ranges;
+		}
+
+		public boolean isCurrent(long length, long lastModified) {
+			return this.length == length && this.lastModified == lastModified;
+		}
+
+		/**
+		 * Read the prolog and root start tag, the given ranges and the root end tag.
+		 */
+		public byte[] read(File file, long[] ranges) throws IOException {
+			long size = this.contentStart + (this.length - this.contentEnd);
+			for (int i = 0; i < ranges.length; i += 2) {
+				size += ranges[i + 1] - ranges[i];
+			}
+			byte[] bytes = new byte[(int) size];
+			try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+				int offset = read(input, 0, this.contentStart, bytes, 0);
+				for (int i = 0; i < ranges.length; i += 2) {
+					offset = read(input, ranges[i], ranges[i + 1], bytes, offset);
+				}
+				read(input, this.contentEnd, this.length, bytes, offset);
+			}
+			return bytes;
+		}
+
+		private int read(RandomAccessFile input, long start, long end, byte[] bytes, int offset) throws IOException {
+			input.seek(start);
+			input.readFully(bytes, offset, (int) (end - start));
+			return offset + (int) (end - start);
+		}
+
+		public void write(DataOutputStream output) throws IOException {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(this.length);
+			output.writeLong(this.lastModified);
+			output.writeLong(this.contentStart);
+			output.writeLong(this.contentEnd);
+			output.writeInt(this.ranges.size());
+			for (Map.Entry<String, long[]> entry : this.ranges.entrySet()) {
+				output.writeUTF(entry.getKey());
+				output.writeInt(entry.getValue().length);
+				for (long offset : entry.getValue()) {
+					output.writeLong(offset);
+				}
+			}
+		}
+
+		public static FileIndex read(DataInputStream input) throws IOException {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				return null;
+			}
+			long length = input.readLong();
+			long lastModified = input.readLong();
+			long contentStart = input.readLong();
+			long contentEnd = input.readLong();
+			int count = input.readInt();
+			Map<String, long[]> ranges = new LinkedHashMap<>();
+			for (int i = 0; i < count; i++) {
+				String id = input.readUTF();
+				long[] offsets = new long[input.readInt()];
+				for (int j = 0; j < offsets.length; j++) {
+					offsets[j] = input.readLong();
+				}
+				ranges.put(id, offsets);
+			}
+			return new FileIndex(length, lastModified, contentStart, contentEnd, ranges);
+		}
+
+		public static FileIndex scan(File file, long length, long lastModified) throws IOException {
+			ByteBuffer buffer = null;
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				if (channel.size() <= Integer.MAX_VALUE) {
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				}
+			}
+			Scanner scanner = (buffer != null ? new Scanner(buffer) : null);
+			if (scanner == null || !scanner.scan()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Not indexing " + file);
+				}
+				return new FileIndex(length, lastModified, 0, 0, Collections.<String, long[]>emptyMap());
+			}
+			Map<String, long[]> ranges = new LinkedHashMap<>();
+			for (Map.Entry<String, List<Long>> entry : scanner.ranges.entrySet()) {
+				long[] offsets = new long[entry.getValue().size()];
+				for (int i = 0; i < offsets.length; i++) {
+					offsets[i] = entry.getValue().get(i);
+				}
+				ranges.put(entry.getKey(), offsets);
+			}
+			return new FileIndex(length, lastModified, scanner.contentStart, scanner.contentEnd, ranges);
+		}
+
+	}
+
+	/**
+	 * Byte-level scanner that finds the <code>&lt;dataset&gt;</code> elements nested in the root element. Only markup
+	 * is inspected, so the scan is much cheaper than an XML parse.
+	 */
+	private static class Scanner {
+
+		private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+		private static final Pattern ID = Pattern.compile("\\sid\\s*=\\s*(\"([^\"]*)\"|'([^']*)')");
+
+		private final ByteBuffer buffer;
+
+		private Charset charset = StandardCharsets.UTF_8;
+
+		private final Map<String, List<Long>> ranges = new LinkedHashMap<>();
+
+		private long contentStart = -1;
+
+		private long contentEnd = -1;
+
+		Scanner(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Scan the buffer, returning {@code false} if the file cannot be indexed.
+		 */
+		public boolean scan() {
+			int limit = this.buffer.limit();
+			int position = (startsWith(0, "\u00EF\u00BB\u00BF") ? 3 : 0);
+			if (position >= limit || !isAscii(this.buffer.get(position))) {
+				return false;
+			}
+			int depth = 0;
+			String id = null;
+			int start = 0;
+			while (position < limit) {
+				if (this.buffer.get(position) != '<') {
+					position++;
+					continue;
+				}
+				if (startsWith(position, "<!--")) {
+					position = indexOf(position + 4, "-->") + 3;
+				} else if (startsWith(position, "<![CDATA[")) {
+					position = indexOf(position + 9, "]]>") + 3;
+				} else if (startsWith(position, "<?")) {
+					int end = indexOf(position + 2, "?>");
+					if (depth == 0 && !readDeclaration(position, end)) {
+						return false;
+					}
+					position = end + 2;
+				} else if (startsWith(position, "<!")) {
+					// Segments would lose the DOCTYPE, leave documents that use DTDs to the parser
+					return false;
+				} else if (startsWith(position, "</")) {
+					int end = indexOf(position + 2, ">");
+					if (end < 0) {
+						return false;
+					}
+					depth--;
+					if (depth == 0) {
+						this.contentEnd = position;
+						return true;
+					}
+					if (depth == 1 && id != null) {
+						addRange(id, start, end + 1);
+						id = null;
+					}
+					position = end + 1;
+				} else {
+					int end = tagEnd(position);
+					if (end < 0) {
+						return false;
+					}
+					boolean empty = (this.buffer.get(end - 1) == '/');
+					String name = readName(position + 1);
+					if (depth == 0) {
+						if (!"datasets".equals(name) || empty) {
+							return false;
+						}
+						this.contentStart = end + 1;
+					} else if (depth == 1 && "dataset".equals(name)) {
+						String tagId = readId(position, end);
+						if (tagId == null) {
+							return false;
+						}
+						if (empty) {
+							addRange(tagId, position, end + 1);
+						} else {
+							id = tagId;
+							start = position;
+						}
+					}
+					if (!empty) {
+						depth++;
+					}
+					position = end + 1;
+				}
+				if (position <= 0) {
+					return false;
+				}
+			}
+			return false;
+		}
+
+		private boolean readDeclaration(int start, int end) {
+			if (end < 0) {
+				return false;
+			}
+			Matcher matcher = ENCODING.matcher(decode(start, end));
+			if (matcher.find()) {
+				try {
+					this.charset = Charset.forName(matcher.group(1));
+				} catch (RuntimeException ex) {
+					return false;
+				}
+			}
+			String markup = "<dataset id=\"\"></dataset>";
+			return markup.equals(new String(markup.getBytes(StandardCharsets.US_ASCII), this.charset));
+		}
+
+		private String readId(int start, int end) {
+			Matcher matcher = ID.matcher(decode(start, end));
+			if (!matcher.find()) {
+				return "";
+			}
+			String id = (matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+			// Only the predefined entities are supported
+			return (id.indexOf('&') == -1 ? id : null);
+		}
+
+		private void addRange(String id, long start, long end) {
+			List<Long> offsets = this.ranges.get(id);
+			if (offsets == null) {
+				offsets = new ArrayList<>();
+				this.ranges.put(id, offsets);
+			}
+			offsets.add(start);
+			offsets.add(end);
+		}
+
+		private int tagEnd(int position) {
+			byte quote = 0;
+			for (int i = position + 1; i < this.buffer.limit(); i++) {
+				byte b = this.buffer.get(i);
+				if (quote != 0) {
+					quote = (b == quote ? 0 : quote);
+				} else if (b == '"' || b == '\'') {
+					quote = b;
+				} else if (b == '>') {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private String readName(int position) {
+			int end = position;
+			while (end < this.buffer.limit() && !isNameEnd(this.buffer.get(end))) {
+				end++;
+			}
+			return decode(position, end);
+		}
+
+		private boolean isNameEnd(byte b) {
+			return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+		}
+
+		private int indexOf(int position, String value) {
+			for (int i = position; i <= this.buffer.limit() - value.length(); i++) {
+				if (startsWith(i, value)) {
+					return i;
+				}
+			}
+			return -value.length() - 1;
+		}
+
+		private boolean startsWith(int position, String value) {
+			if (position + value.length() > this.buffer.limit()) {
+				return false;
+			}
+			for (int i = 0; i < value.length(); i++) {
+				if (this.buffer.get(position + i) != (byte) value.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean isAscii(byte b) {
+			return b == '<' || Character.isWhitespace(b);
+		}
+
+		private String decode(int start, int end) {
+			byte[] bytes = new byte[end - start];
+			ByteBuffer duplicate = this.buffer.duplicate();
+			((Buffer) duplicate).position(start);
+			duplicate.get(bytes);
+			return new String(bytes, this.charset);
+		}
+
+	}
+
+}
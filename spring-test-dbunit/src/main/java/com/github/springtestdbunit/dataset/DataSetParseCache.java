@@ -0,0 +1,466 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.JarURLConnection;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.CompositeDataSet;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.datatype.DataTypeException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A persistent cache of parsed {@link IDataSet datasets}, allowing later JVMs (for example other surefire forks or a
+ * re-run of the same tests) to skip parsing dataset files that have not changed.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the resource content, the {@link AbstractDataSetLoader#getParseCacheKey()
+ * configuration} of the loader, the <code>datasetId</code> and any requested table names. The hash of a directory (for
+ * example of CSV files) covers the names and content of all of its files; directories inside jars are not cached. Each
+ * entry is written to its own file with a CRC32 checksum, through a temporary file that is atomically moved into
+ * place, so several JVMs can safely share the same directory. Corrupt or unreadable entries are ignored and rewritten.
+ * Cells without a value ({@link ITable#NO_VALUE}) are restored when an entry is read. Datasets containing values that
+ * cannot be serialized, and lazy datasets that are not parsed up front, are not cached.
+ *
+ * @see AbstractDataSetLoader#setParseCache(DataSetParseCache)
+ * @see #getSharedInstance()
+ */
+public class DataSetParseCache {
+
+	private static final Log logger = LogFactory.getLog(DataSetParseCache.class);
+
+	private static final int MAGIC = 0x53544443;
+
+	private static final int VERSION = 2;
+
+	private static final DataSetParseCache SHARED_INSTANCE = new DataSetParseCache(getDefaultDirectory());
+
+	private final File directory;
+
+	private final Map<String, ContentHash> contentHashes = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link DataSetParseCache}.
+	 * @param directory the directory used to store parsed datasets or {@code null} to disable the cache
+	 */
+	public DataSetParseCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Load a dataset from the cache, calling the given loader and caching its result when no current entry exists.
+	 * @param resource the resource containing the dataset
+	 * @param loaderKey the key of the loader that parses the resource, identifying its class and configuration
+	 * @param datasetId the dataset id
+	 * @param tableNames the names of the tables that are needed or {@code null} if all tables are needed
+	 * @param loader the loader used to parse the resource
+	 * @return the dataset
+	 * @throws Exception if the dataset cannot be loaded
+	 */
+	public IDataSet load(Resource resource, String loaderKey, String datasetId, Set<String> tableNames,
+			Callable<IDataSet> loader) throws Exception {
+		if (this.directory == null) {
+			return loader.call();
+		}
+		String key = getKey(resource, loaderKey, datasetId, tableNames);
+		if (key == null) {
+			return loader.call();
+		}
+		File file = new File(this.directory, getFileName(resource, key));
+		IDataSet dataSet = read(file, key);
+		if (dataSet != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded " + resource.getDescription() + " from parse cache " + file);
+			}
+			return dataSet;
+		}
+		dataSet = loader.call();
+		if (dataSet != null && !(dataSet instanceof StreamableDataSet) && !(dataSet instanceof BinaryDataSet)) {
+			write(file, key, dataSet);
+		}
+		return dataSet;
+	}
+
+	private String getKey(Resource resource, String loaderKey, String datasetId, Set<String> tableNames)
+			throws IOException {
+		String contentHash = getContentHash(resource);
+		if (contentHash == null) {
+			return null;
+		}
+		StringBuilder key = new StringBuilder(contentHash);
+		key.append('\n').append(loaderKey);
+		key.append('\n').append(datasetId != null ? datasetId : "");
+		if (tableNames != null) {
+			for (String tableName : new TreeSet<>(tableNames)) {
+				key.append('\n').append(tableName);
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the hash of the resource content or {@code null} if the content cannot be hashed. Hashes of files and
+	 * directories are remembered until the length or modification time of any of their files changes.
+	 */
+	private String getContentHash(Resource resource) throws IOException {
+		if (!resource.isFile()) {
+			if (isJarDirectory(resource)) {
+				return null;
+			}
+			MessageDigest digest = createDigest();
+			try (InputStream inputStream = resource.getInputStream()) {
+				update(digest, inputStream);
+			}
+			return toHex(digest.digest());
+		}
+		File root = resource.getFile();
+		List<File> files = new ArrayList<>();
+		collectFiles(root, files);
+		CRC32 stamp = new CRC32();
+		for (File file : files) {
+			stamp.update((file.getPath() + '\0' + file.length() + '\0' + file.lastModified() + '\0')
+					.getBytes(StandardCharsets.UTF_8));
+		}
+		String path = root.getAbsolutePath();
+		ContentHash contentHash = this.contentHashes.get(path);
+		if (contentHash == null || contentHash.stamp != stamp.getValue()) {
+			contentHash = new ContentHash(stamp.getValue(), hash(root, files));
+			this.contentHashes.put(path, contentHash);
+		}
+		return contentHash.hash;
+	}
+
+	private boolean isJarDirectory(Resource resource) {
+		try {
+			URLConnection connection = resource.getURL().openConnection();
+			return (connection instanceof JarURLConnection
+					&& ((JarURLConnection) connection).getJarEntry().isDirectory());
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Collect the file or all files below the directory, sorted by path.
+	 */
+	private void collectFiles(File file, List<File> files) {
+		if (!file.isDirectory()) {
+			files.add(file);
+			return;
+		}
+		File[] children = file.listFiles();
+		if (children != null) {
+			Arrays.sort(children);
+			for (File child : children) {
+				collectFiles(child, files);
+			}
+		}
+	}
+
+	private String hash(File root, List<File> files) throws IOException {
+		MessageDigest digest = createDigest();
+		int rootLength = root.getPath().length();
+		for (File file : files) {
+			if (root.isDirectory()) {
+				digest.update((file.getPath().substring(rootLength) + '\0').getBytes(StandardCharsets.UTF_8));
+			}
+			try (InputStream inputStream = new FileInputStream(file)) {
+				update(digest, inputStream);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private void update(MessageDigest digest, InputStream inputStream) throws IOException {
+		try (DigestInputStream digestInputStream = new DigestInputStream(inputStream, digest)) {
+			byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+			while (digestInputStream.read(buffer) != -1) {
+				// Only the digest is needed
+			}
+		}
+	}
+
+	private String getFileName(Resource resource, String key) {
+		String name = resource.getFilename();
+		return (name != null ? name + "-" : "") + hash(key.getBytes(StandardCharsets.UTF_8)) + ".dsc";
+	}
+
+	private IDataSet read(File file, String key) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(
+				new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !key.equals(input.readUTF())) {
+				return null;
+			}
+			long checksum = input.readLong();
+			byte[] payload = new byte[input.readInt()];
+			input.readFully(payload);
+			if (checksum(payload) != checksum) {
+				logger.debug("Ignoring corrupt parse cache entry " + file);
+				return null;
+			}
+			try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+				return ((DataSetSnapshot) objectInput.readObject()).toDataSet();
+			}
+		} catch (Exception ex) {
+			logger.debug("Unable to read parse cache entry " + file, ex);
+			return null;
+		}
+	}
+
+	private void write(File file, String key, IDataSet dataSet) {
+		try {
+			ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			try (ObjectOutputStream objectOutput = new ObjectOutputStream(payload)) {
+				objectOutput.writeObject(new DataSetSnapshot(dataSet));
+			}
+			byte[] bytes = payload.toByteArray();
+			file.getParentFile().mkdirs();
+			// Write to a temporary file first so that concurrent readers never see partial entries
+			File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try {
+				try (DataOutputStream output = new DataOutputStream(new FileOutputStream(tempFile))) {
+					output.writeInt(MAGIC);
+					output.writeInt(VERSION);
+					output.writeUTF(key);
+					output.writeLong(checksum(bytes));
+					output.writeInt(bytes.length);
+					output.write(bytes);
+				}
+				move(tempFile, file);
+			} finally {
+				tempFile.delete();
+			}
+		} catch (IOException | DataSetException ex) {
+			logger.debug("Unable to write parse cache entry " + file, ex);
+		}
+	}
+
+	private void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static long checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return crc.getValue();
+	}
+
+	private static String hash(byte[] bytes) {
+		return toHex(createDigest().digest(bytes));
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Returns the shared cache used by the
+	 * {@link com.github.springtestdbunit.annotation.DbUnitConfiguration#persistentDataSetCache() persistent dataset
+	 * cache}. Entries are written to <code>target/dataset-cache</code> (or <code>build/dataset-cache</code>) when the
+	 * working directory contains a build output directory, otherwise the cache is disabled.
+	 * @return the shared cache
+	 */
+	public static DataSetParseCache getSharedInstance() {
+		return SHARED_INSTANCE;
+	}
+
+	private static File getDefaultDirectory() {
+		for (String name : new String[] { "target", "build" }) {
+			File buildDirectory = new File(name);
+			if (buildDirectory.isDirectory()) {
+				return new File(buildDirectory, "dataset-cache");
+			}
+		}
+		return null;
+	}
+
+	private static class ContentHash {
+
+		private final long stamp;
+
+		private final String hash;
+
+		ContentHash(long stamp, String hash) {
+			this.stamp = stamp;
+			this.hash = hash;
+		}
+
+	}
+
+	/**
+	 * Serializable stand-in for {@link ITable#NO_VALUE}.
+	 */
+	private enum NoValue {
+
+		INSTANCE
+
+	}
+
+	/**
+	 * Serializable copy of the tables of a dataset.
+	 */
+	private static class DataSetSnapshot implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final boolean caseSensitiveTableNames;
+
+		private final List<TableSnapshot> tables = new ArrayList<>();
+
+		DataSetSnapshot(IDataSet dataSet) throws DataSetException {
+			this.caseSensitiveTableNames = dataSet.isCaseSensitiveTableNames();
+			for (ITable table : dataSet.getTables()) {
+				this.tables.add(new TableSnapshot(table));
+			}
+		}
+
+		public IDataSet toDataSet() throws DataSetException {
+			ITable[] tables = new ITable[this.tables.size()];
+			for (int i = 0; i < tables.length; i++) {
+				tables[i] = this.tables.get(i).toTable();
+			}
+			return new CompositeDataSet(tables, this.caseSensitiveTableNames);
+		}
+
+	}
+
+	private static class TableSnapshot implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String tableName;
+
+		private final String[] columnNames;
+
+		private final String[] dataTypes;
+
+		private final String[] primaryKeys;
+
+		private final List<Object[]> rows;
+
+		TableSnapshot(ITable table) throws DataSetException {
+			ITableMetaData metaData = table.getTableMetaData();
+			Column[] columns = metaData.getColumns();
+			this.tableName = metaData.getTableName();
+			this.columnNames = new String[columns.length];
+			this.dataTypes = new String[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				this.columnNames[i] = columns[i].getColumnName();
+				this.dataTypes[i] = columns[i].getDataType().toString();
+			}
+			Column[] primaryKeys = metaData.getPrimaryKeys();
+			this.primaryKeys = new String[primaryKeys.length];
+			for (int i = 0; i < primaryKeys.length; i++) {
+				this.primaryKeys[i] = primaryKeys[i].getColumnName();
+			}
+			int rowCount = table.getRowCount();
+			this.rows = new ArrayList<>(rowCount);
+			for (int row = 0; row < rowCount; row++) {
+				Object[] values = new Object[columns.length];
+				for (int i = 0; i < columns.length; i++) {
+					Object value = table.getValue(row, this.columnNames[i]);
+					values[i] = (value == ITable.NO_VALUE ? NoValue.INSTANCE : value);
+				}
+				this.rows.add(values);
+			}
+		}
+
+		public ITable toTable() throws DataSetException {
+			Column[] columns = new Column[this.columnNames.length];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = new Column(this.columnNames[i], getDataType(this.dataTypes[i]));
+			}
+			ITableMetaData metaData = new DefaultTableMetaData(this.tableName, columns, this.primaryKeys);
+			for (Object[] values : this.rows) {
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] == NoValue.INSTANCE) {
+						values[i] = ITable.NO_VALUE;
+					}
+				}
+			}
+			return new DefaultTable(metaData, this.rows);
+		}
+
+		private DataType getDataType(String name) {
+			try {
+				return DataType.forSqlTypeName(name);
+			} catch (DataTypeException ex) {
+				return DataType.UNKNOWN;
+			}
+		}
+
+	}
+
+}
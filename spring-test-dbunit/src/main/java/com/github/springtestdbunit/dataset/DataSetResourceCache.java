@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.io.ClassRelativeResourceLoader;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Cache of resolved dataset locations. A location is first resolved relative to the test class and then against the
+ * root of the classpath; the resource that exists is remembered for the rest of the run so that <code>exists()</code>
+ * is not probed again. The fact that neither exists is only remembered until {@link #clearMissing()} is called, which
+ * happens at the end of every test class. Results are keyed by the class loader and package of the test class and the
+ * location, so all test classes of a package share them.
+ * <p>
+ * When a {@link DataSetResourceIndex} is {@link #getResource(Class, String, DataSetResourceIndex) passed}, locations
+ * of dataset resources are resolved with index lookups rather than by probing the classpath. Locations resolved with
+ * different indexes, or without an index, are kept apart, so tests that use different indexes never invalidate each
+ * other's results.
+ * <p>
+ * The number of hits and misses is recorded and included in the {@link #toString() string representation} of the
+ * cache, which is logged at debug level at the end of every test class.
+ *
+ * @see #getSharedInstance()
+ */
+public class DataSetResourceCache {
+
+	private static final DataSetResourceCache SHARED_INSTANCE = new DataSetResourceCache();
+
+	private final Map<ResourceKey, Optional<Resource>> resources = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Returns the resource for the given location, resolved relative to the test class or, failing that, against the
+	 * root of the classpath.
+	 * @param testClass the class under test
+	 * @param location the location of the resource
+	 * @return the resource or {@code null} if no resource exists at the location
+	 */
+	public Resource getResource(Class<?> testClass, String location) {
+		return getResource(testClass, location, null);
+	}
+
+	/**
+	 * Returns the resource for the given location, resolved relative to the test class or, failing that, against the
+	 * root of the classpath, using the given index to resolve locations of dataset resources.
+	 * @param testClass the class under test
+	 * @param location the location of the resource
+	 * @param index the index or {@code null} to probe the classpath
+	 * @return the resource or {@code null} if no resource exists at the location
+	 */
+	public Resource getResource(Class<?> testClass, String location, DataSetResourceIndex index) {
+		ResourceKey key = new ResourceKey(testClass, location, index);
+		Optional<Resource> resource = this.resources.get(key);
+		if (resource != null) {
+			this.hits.incrementAndGet();
+			return resource.orElse(null);
+		}
+		this.misses.incrementAndGet();
+		resource = Optional.ofNullable(resolve(testClass, location, index));
+		this.resources.put(key, resource);
+		return resource.orElse(null);
+	}
+
+	private Resource resolve(Class<?> testClass, String location, DataSetResourceIndex index) {
+		if (index != null && index.getClassLoader() == testClass.getClassLoader()
+				&& DataSetResourceIndex.isDataSet(location) && !isUrl(location)) {
+			return resolve(index, testClass, location);
+		}
+		Resource resource = new ClassRelativeResourceLoader(testClass).getResource(location);
+		if (resource.exists()) {
+			return resource;
+		}
+		String classpathLocation = location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX) ? location :
+				ResourceLoader.CLASSPATH_URL_PREFIX + location;
+		resource = new DefaultResourceLoader(testClass.getClassLoader()).getResource(classpathLocation);
+		return (resource.exists() ? resource : null);
+	}
+
+	private Resource resolve(DataSetResourceIndex index, Class<?> testClass, String location) {
+		if (location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX)) {
+			return index.getResource(getClasspathPath(location.substring(ResourceLoader.CLASSPATH_URL_PREFIX.length())));
+		}
+		if (!location.startsWith("/")) {
+			String path = ClassUtils.classPackageAsResourcePath(testClass) + "/" + location;
+			Resource resource = index.getResource(StringUtils.cleanPath(path));
+			if (resource != null) {
+				return resource;
+			}
+		}
+		return index.getResource(getClasspathPath(location));
+	}
+
+	private String getClasspathPath(String location) {
+		return StringUtils.cleanPath(StringUtils.trimLeadingCharacter(location, '/'));
+	}
+
+	private boolean isUrl(String location) {
+		return !location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX) && ResourceUtils.isUrl(location);
+	}
+
+	/**
+	 * Returns the number of locations that were resolved from the cache.
+	 * @return the number of hits
+	 */
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Returns the number of locations that had to be resolved.
+	 * @return the number of misses
+	 */
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Returns the fraction of locations that were resolved from the cache.
+	 * @return the hit rate, between {@code 0} and {@code 1}
+	 */
+	public double getHitRate() {
+		long hits = this.hits.get();
+		long total = hits + this.misses.get();
+		return (total != 0 ? (double) hits / total : 0);
+	}
+
+	/**
+	 * Removes the locations for which no resource was found, so that they are resolved again when next requested.
+	 */
+	public void clearMissing() {
+		this.resources.values().removeIf(resource -> !resource.isPresent());
+	}
+
+	/**
+	 * Removes all resolved locations and resets the hit and miss counts.
+	 */
+	public void clear() {
+		this.resources.clear();
+		this.hits.set(0);
+		this.misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "DataSetResourceCache [hits=" + getHitCount() + ", misses=" + getMissCount() + ", hitRate="
+				+ String.format("%.1f%%", getHitRate() * 100) + "]";
+	}
+
+	/**
+	 * Returns the cache shared by the supplied loaders and the {@link com.github.springtestdbunit.DbUnitRunner}.
+	 * @return the shared cache
+	 */
+	public static DataSetResourceCache getSharedInstance() {
+		return SHARED_INSTANCE;
+	}
+
+	private static class ResourceKey {
+
+		private final ClassLoader classLoader;
+
+		private final String packageName;
+
+		private final String location;
+
+		private final DataSetResourceIndex index;
+
+		ResourceKey(Class<?> testClass, String location, DataSetResourceIndex index) {
+			this.classLoader = testClass.getClassLoader();
+			this.packageName = ClassUtils.getPackageName(testClass);
+			this.location = location;
+			this.index = index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			ResourceKey other = (ResourceKey) obj;
+			return this.classLoader == other.classLoader && this.packageName.equals(other.packageName)
+					&& this.location.equals(other.location) && this.index == other.index;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.classLoader), this.packageName, this.location,
+					System.identityHashCode(this.index));
+		}
+
+	}
+
+}
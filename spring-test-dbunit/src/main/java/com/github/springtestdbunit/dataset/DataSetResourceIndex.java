@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * An index of the dataset-like resources (<code>*.xml</code>, <code>*.xlsx</code>, <code>*.csv</code>,
+ * <code>*.yml</code>, <code>*.json</code> and <code>*.sql</code>) available on the classpath. Every classpath root is
+ * enumerated once when the index is created, after which the {@link DataSetResourceCache} resolves locations with map
+ * lookups instead of probing directories and jar entries.
+ * <p>
+ * Roots that contain a pre-built {@link #INDEX_LOCATION index file} are not scanned. Index files can be written at
+ * build time with the {@link #main(String[]) main method}, for example using the <code>exec-maven-plugin</code> in the
+ * <code>process-test-resources</code> phase.
+ *
+ * @see com.github.springtestdbunit.annotation.DbUnitConfiguration#indexDataSets()
+ */
+public class DataSetResourceIndex {
+
+	private static final Log logger = LogFactory.getLog(DataSetResourceIndex.class);
+
+	/**
+	 * The location of pre-built index files, relative to a classpath root.
+	 */
+	public static final String INDEX_LOCATION = "META-INF/dbunit-datasets.idx";
+
+	private static final String[] EXTENSIONS = { ".xml", ".xlsx", ".csv", ".yml", ".json", ".sql" };
+
+	private final ClassLoader classLoader;
+
+	private final Set<String> paths = new HashSet<>();
+
+	/**
+	 * Create a new {@link DataSetResourceIndex} for the default class loader.
+	 * @throws IOException if the classpath cannot be read
+	 */
+	public DataSetResourceIndex() throws IOException {
+		this(ClassUtils.getDefaultClassLoader());
+	}
+
+	/**
+	 * Create a new {@link DataSetResourceIndex} for the given class loader, enumerating all of its classpath roots.
+	 * @param classLoader the class loader
+	 * @throws IOException if the classpath cannot be read
+	 */
+	public DataSetResourceIndex(ClassLoader classLoader) throws IOException {
+		this.classLoader = classLoader;
+		long startTime = System.currentTimeMillis();
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+		Resource[] roots = resolver.getResources(PathMatchingResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX);
+		for (Resource root : roots) {
+			index(resolver, root);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Indexed " + this.paths.size() + " dataset resources from " + roots.length
+					+ " classpath roots in " + (System.currentTimeMillis() - startTime) + "ms");
+		}
+	}
+
+	private void index(PathMatchingResourcePatternResolver resolver, Resource root) throws IOException {
+		Resource indexFile = root.createRelative(INDEX_LOCATION);
+		if (indexFile.exists()) {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(indexFile.getInputStream(), StandardCharsets.UTF_8))) {
+				reader.lines().filter(StringUtils::hasLength).forEach(this.paths::add);
+			}
+			return;
+		}
+		if (root.isFile()) {
+			this.paths.addAll(scan(root.getFile()));
+			return;
+		}
+		String rootUrl = root.getURL().toString();
+		for (Resource resource : resolver.getResources(rootUrl + "**/*")) {
+			String url = resource.getURL().toString();
+			if (url.startsWith(rootUrl) && isDataSet(url)) {
+				this.paths.add(url.substring(rootUrl.length()));
+			}
+		}
+	}
+
+	/**
+	 * Returns the class loader of the indexed classpath.
+	 * @return the class loader
+	 */
+	public ClassLoader getClassLoader() {
+		return this.classLoader;
+	}
+
+	/**
+	 * Returns if a resource exists at the given classpath path.
+	 * @param path the path, relative to the classpath root
+	 * @return if the resource exists
+	 */
+	public boolean contains(String path) {
+		return this.paths.contains(path);
+	}
+
+	/**
+	 * Returns the resource at the given classpath path.
+	 * @param path the path, relative to the classpath root
+	 * @return the resource or {@code null} if no dataset resource exists at the path
+	 */
+	public Resource getResource(String path) {
+		return (contains(path) ? new ClassPathResource(path, this.classLoader) : null);
+	}
+
+	/**
+	 * Returns if resources with the given name are indexed. Only resources with a dataset extension are indexed, other
+	 * resources must be resolved on the classpath.
+	 * @param path the path or location of the resource
+	 * @return if the resource type is indexed
+	 */
+	public static boolean isDataSet(String path) {
+		String lowerCasePath = path.toLowerCase(Locale.ENGLISH);
+		for (String extension : EXTENSIONS) {
+			if (lowerCasePath.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of indexed resources.
+	 * @return the number of resources
+	 */
+	public int size() {
+		return this.paths.size();
+	}
+
+	/**
+	 * Returns the paths of all dataset resources below the given classpath root directory.
+	 * @param directory the classpath root directory
+	 * @return the sorted paths
+	 * @throws IOException if the directory cannot be read
+	 */
+	public static Set<String> scan(File directory) throws IOException {
+		if (!directory.isDirectory()) {
+			return Collections.emptySet();
+		}
+		Path root = directory.toPath();
+		Set<String> paths = new TreeSet<>();
+		try (Stream<Path> files = Files.walk(root)) {
+			files.filter(Files::isRegularFile)
+					.map(file -> root.relativize(file).toString().replace(File.separatorChar, '/'))
+					.filter(DataSetResourceIndex::isDataSet).forEach(paths::add);
+		}
+		return paths;
+	}
+
+	/**
+	 * Write an {@link #INDEX_LOCATION index file} for the given classpath root directory.
+	 * @param directory the classpath root directory
+	 * @return the number of indexed resources
+	 * @throws IOException if the index cannot be written
+	 */
+	public static int write(File directory) throws IOException {
+		Set<String> paths = scan(directory);
+		File indexFile = new File(directory, INDEX_LOCATION);
+		indexFile.getParentFile().mkdirs();
+		try (Writer writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8)) {
+			for (String path : paths) {
+				writer.write(path);
+				writer.write('\n');
+			}
+		}
+		return paths.size();
+	}
+
+	/**
+	 * Write index files for the given classpath root directories. Typically called with
+	 * <code>${project.build.outputDirectory}</code> or <code>${project.build.testOutputDirectory}</code>.
+	 * @param args the classpath root directories
+	 * @throws Exception if the index cannot be written
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: DataSetResourceIndex <directory>...");
+			System.exit(1);
+		}
+		for (String arg : args) {
+			File directory = new File(arg);
+			if (directory.isDirectory()) {
+				int count = write(directory);
+				System.out.println("Indexed " + count + " dataset resource(s) in " + directory);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+
+/**
+ * Estimates the number of bytes of heap used by a loaded {@link IDataSet}. Used to enforce the memory budgets of the
+ * caching and prefetching loaders.
+ */
+final class DataSetSizeEstimator {
+
+	private DataSetSizeEstimator() {
+	}
+
+	/**
+	 * Estimate the size of the given dataset. All values are read, so lazy datasets are fully loaded.
+	 * @param dataSet the dataset
+	 * @return the estimated size in bytes
+	 * @throws DataSetException if the dataset cannot be read
+	 */
+	public static long estimateSize(IDataSet dataSet) throws DataSetException {
+		long size = 0;
+		for (ITable table : dataSet.getTables()) {
+			if (table instanceof ColumnarTable) {
+				size += ((ColumnarTable) table).estimateSize();
+				continue;
+			}
+			Column[] columns = table.getTableMetaData().getColumns();
+			int rowCount = table.getRowCount();
+			size += 64 + (long) rowCount * (16 + 8L * columns.length);
+			for (int row = 0; row < rowCount; row++) {
+				for (Column column : columns) {
+					size += estimateSize(table.getValue(row, column.getColumnName()));
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Estimate the size of a single value.
+	 * @param value the value
+	 * @return the estimated size in bytes
+	 */
+	static long estimateSize(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof String) {
+			return 40 + 2L * ((String) value).length();
+		}
+		if (value instanceof byte[]) {
+			return 16 + ((byte[]) value).length;
+		}
+		return 24;
+	}
+
+}
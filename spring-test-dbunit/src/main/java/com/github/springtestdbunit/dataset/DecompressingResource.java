@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link Resource} that decompresses a compressed resource as it is read. The resource is named after the
+ * uncompressed file and has no URL or file, so loaders read it as a stream.
+ *
+ * @see Compression
+ */
+class DecompressingResource extends AbstractResource {
+
+	private final Resource resource;
+
+	private final Compression compression;
+
+	private final String filename;
+
+	DecompressingResource(Resource resource, Compression compression) {
+		this.resource = resource;
+		this.compression = compression;
+		this.filename = compression.getUncompressedFilename(resource.getFilename());
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		InputStream inputStream = new BufferedInputStream(this.resource.getInputStream());
+		try {
+			return this.compression.decompress(inputStream, this.filename);
+		} catch (IOException | RuntimeException ex) {
+			inputStream.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public boolean exists() {
+		return this.resource.exists();
+	}
+
+	@Override
+	public URL getURL() throws IOException {
+		throw new FileNotFoundException(getDescription() + " cannot be resolved to URL");
+	}
+
+	@Override
+	public long lastModified() throws IOException {
+		return this.resource.lastModified();
+	}
+
+	@Override
+	public String getFilename() {
+		return this.filename;
+	}
+
+	@Override
+	public String getDescription() {
+		return this.compression.getExtension() + " decompressed [" + this.resource.getDescription() + "]";
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return (this == other || (other instanceof DecompressingResource
+				&& this.resource.equals(((DecompressingResource) other).resource)));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.resource.hashCode();
+	}
+
+	/**
+	 * Returns a resource that decompresses the given resource if its name ends with the extension of a
+	 * {@link Compression} format.
+	 * @param resource the resource
+	 * @return the decompressing resource or the resource itself if it is not compressed
+	 */
+	public static Resource decompress(Resource resource) {
+		Compression compression = Compression.forFilename(resource.getFilename());
+		return (compression != null ? new DecompressingResource(resource, compression) : resource);
+	}
+
+}
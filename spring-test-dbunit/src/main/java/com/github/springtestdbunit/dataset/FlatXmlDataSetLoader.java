@@ -18,14 +18,34 @@ package com.github.springtestdbunit.dataset;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableMetaData;
 import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
 import org.dbunit.dataset.xml.FlatXmlDataSet;
 import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
 import org.springframework.core.io.Resource;
+import org.springframework.util.CollectionUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
 
 /**
- * A {@link DataSetLoader data set loader} that can be used to load {@link FlatXmlDataSet FlatXmlDataSets}
+ * A {@link DataSetLoader data set loader} that can be used to load {@link FlatXmlDataSet FlatXmlDataSets}. Datasets
+ * selected by id are read using the {@link DataSetOffsetIndex}. External DTDs are resolved offline by the
+ * {@link CachingEntityResolver}.
  *
  * @author Phillip Webb
  */
@@ -35,7 +55,48 @@ public class FlatXmlDataSetLoader extends AbstractDataSetLoader {
 	protected IDataSet createDataSet(Resource resource, String datasetId) throws Exception {
 		FlatXmlDataSetBuilder builder = new FlatXmlDataSetBuilder();
 		builder.setColumnSensing(true);
-		return buildDataSet(builder, resource, datasetId);
+		Resource dataSetResource = DataSetOffsetIndex.getSharedInstance().getResource(resource, datasetId);
+		applyDtdMetaData(builder, dataSetResource);
+		return buildDataSet(builder, dataSetResource, datasetId);
+	}
+
+	/**
+	 * Use the cached metadata of an external DTD so that it is neither fetched nor parsed again. DTDs that cannot be
+	 * resolved locally are ignored.
+	 */
+	private void applyDtdMetaData(FlatXmlDataSetBuilder builder, Resource resource) throws Exception {
+		CachingEntityResolver entityResolver = CachingEntityResolver.getSharedInstance();
+		String systemId = entityResolver.getDtdSystemId(resource);
+		if (systemId != null) {
+			IDataSet metaDataSet = entityResolver.getMetaDataSet(systemId);
+			if (metaDataSet != null) {
+				builder.setMetaDataSet(metaDataSet);
+			} else {
+				builder.setDtdMetadata(false);
+			}
+		}
+	}
+
+	/**
+	 * Create the dataset, only reading rows of the given tables. Columns are sensed from the rows that are read.
+	 * Documents that declare a <code>DOCTYPE</code> are built in full and then filtered so that their DTD metadata is
+	 * honored in the same way as when all tables are loaded.
+	 */
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames) throws Exception {
+		if (CollectionUtils.isEmpty(tableNames)) {
+			return createDataSet(resource, datasetId);
+		}
+		TableFilteringHandler handler = new TableFilteringHandler(datasetId, tableNames);
+		try {
+			handler.parse(DataSetOffsetIndex.getSharedInstance().getResource(resource, datasetId));
+		} catch (SAXException ex) {
+			if (!handler.isDtdDeclared()) {
+				throw ex;
+			}
+			return filterTables(createDataSet(resource, datasetId), tableNames);
+		}
+		return handler.getDataSet();
 	}
 
 	private IDataSet buildDataSet(FlatXmlDataSetBuilder builder, Resource resource, String datasetId) throws Exception {
@@ -57,4 +118,101 @@ public class FlatXmlDataSetLoader extends AbstractDataSetLoader {
 		}
 	}
 
+	/**
+	 * Collects the rows of the wanted tables, ignoring all other elements. Parsing stops as soon as a
+	 * <code>DOCTYPE</code> is declared.
+	 */
+	private static class TableFilteringHandler extends FlatXmlHandler {
+
+		private final Set<String> tableNames = new HashSet<>();
+
+		private final Map<String, TableBuilder> tables = new LinkedHashMap<>();
+
+		private boolean dtdDeclared;
+
+		TableFilteringHandler(String datasetId, Set<String> tableNames) {
+			super(datasetId);
+			for (String tableName : tableNames) {
+				this.tableNames.add(tableName.trim().toUpperCase(Locale.ENGLISH));
+			}
+		}
+
+		@Override
+		public void startDTD(String name, String publicId, String systemId) throws SAXException {
+			this.dtdDeclared = true;
+			throw new SAXException("Document declares a DTD");
+		}
+
+		@Override
+		protected void startTable(String tableName) {
+			String key = tableName.toUpperCase(Locale.ENGLISH);
+			if (this.tableNames.contains(key) && !this.tables.containsKey(key)) {
+				this.tables.put(key, new TableBuilder(tableName));
+			}
+		}
+
+		@Override
+		protected void row(String tableName, Attributes attributes) {
+			TableBuilder table = this.tables.get(tableName.toUpperCase(Locale.ENGLISH));
+			if (table != null) {
+				table.addRow(attributes);
+			}
+		}
+
+		public boolean isDtdDeclared() {
+			return this.dtdDeclared;
+		}
+
+		public IDataSet getDataSet() throws DataSetException {
+			List<ITable> tables = new ArrayList<>();
+			for (TableBuilder table : this.tables.values()) {
+				tables.add(table.build());
+			}
+			return new DefaultDataSet(tables.toArray(new ITable[tables.size()]));
+		}
+
+	}
+
+	/**
+	 * Builds a table, sensing columns from the attributes of its rows.
+	 */
+	private static class TableBuilder {
+
+		private final String tableName;
+
+		private final Map<String, Integer> columns = new LinkedHashMap<>();
+
+		private final List<Object[]> rows = new ArrayList<>();
+
+		TableBuilder(String tableName) {
+			this.tableName = tableName;
+		}
+
+		public void addRow(Attributes attributes) {
+			for (int i = 0; i < attributes.getLength(); i++) {
+				if (!this.columns.containsKey(attributes.getQName(i))) {
+					this.columns.put(attributes.getQName(i), this.columns.size());
+				}
+			}
+			Object[] row = new Object[this.columns.size()];
+			for (int i = 0; i < attributes.getLength(); i++) {
+				row[this.columns.get(attributes.getQName(i))] = attributes.getValue(i);
+			}
+			this.rows.add(row);
+		}
+
+		public ITable build() throws DataSetException {
+			Column[] columns = new Column[this.columns.size()];
+			for (Map.Entry<String, Integer> column : this.columns.entrySet()) {
+				columns[column.getValue()] = new Column(column.getKey(), DataType.UNKNOWN);
+			}
+			DefaultTable table = new DefaultTable(new DefaultTableMetaData(this.tableName, columns));
+			for (Object[] row : this.rows) {
+				table.addRow(Arrays.copyOf(row, columns.length));
+			}
+			return table;
+		}
+
+	}
+
 }
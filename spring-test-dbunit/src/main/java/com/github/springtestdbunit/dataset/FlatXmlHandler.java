@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.InputStream;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+
+/**
+ * SAX handler that reports the tables and rows of a flat XML resource. Supports both a single
+ * <code>&lt;dataset&gt;</code> root element and multiple <code>&lt;dataset id="..."&gt;</code> elements nested in
+ * <code>&lt;datasets&gt;</code>, only reporting rows of the selected dataset. External DTDs are not loaded, but the
+ * <code>DOCTYPE</code> declaration is reported to {@link #startDTD(String, String, String)}.
+ */
+abstract class FlatXmlHandler extends DefaultHandler2 {
+
+	private static final Log logger = LogFactory.getLog(FlatXmlHandler.class);
+
+	private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+
+	private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+	private final String datasetId;
+
+	private int depth;
+
+	private boolean multiple;
+
+	private boolean active;
+
+	private String tableName;
+
+	/**
+	 * Create a new {@link FlatXmlHandler}.
+	 * @param datasetId the id of the dataset to report or {@code null} to report all rows
+	 */
+	FlatXmlHandler(String datasetId) {
+		this.datasetId = datasetId;
+	}
+
+	/**
+	 * Parse the given resource using this handler.
+	 * @param resource the resource to parse
+	 * @throws Exception on parse error
+	 */
+	public void parse(Resource resource) throws Exception {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(false);
+		factory.setValidating(false);
+		try {
+			factory.setFeature(LOAD_EXTERNAL_DTD, false);
+		} catch (Exception ex) {
+			logger.debug("Unable to disable external DTD loading", ex);
+		}
+		SAXParser parser = factory.newSAXParser();
+		parser.setProperty(LEXICAL_HANDLER, this);
+		try (InputStream inputStream = resource.getInputStream()) {
+			parser.parse(inputStream, this);
+		}
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+		this.depth++;
+		if (this.depth == 1) {
+			this.multiple = "datasets".equals(qName);
+			this.active = !this.multiple;
+		} else if (this.multiple && this.depth == 2) {
+			this.active = "dataset".equals(qName) && isSelected(attributes.getValue("id"));
+		} else if (this.active && this.depth == (this.multiple ? 3 : 2)) {
+			if (!qName.equals(this.tableName)) {
+				this.tableName = qName;
+				startTable(qName);
+			}
+			// An element without attributes declares an empty table rather than a row
+			if (attributes.getLength() > 0) {
+				row(qName, attributes);
+			}
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) {
+		this.depth--;
+	}
+
+	private boolean isSelected(String id) {
+		return !StringUtils.hasLength(this.datasetId) || this.datasetId.equals(id);
+	}
+
+	/**
+	 * Called when rows of a different table start.
+	 * @param tableName the table name
+	 * @throws SAXException to stop parsing
+	 */
+	protected void startTable(String tableName) throws SAXException {
+	}
+
+	/**
+	 * Called for each row. Elements without attributes only start their table and are not reported as rows.
+	 * @param tableName the table name
+	 * @param attributes the column values
+	 * @throws SAXException to stop parsing
+	 */
+	protected void row(String tableName, Attributes attributes) throws SAXException {
+	}
+
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.IllegalFormatException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.dbunit.database.AmbiguousTableNameException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableIterator;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link StreamableDataSet} of synthetic rows described by a small properties file. Rows are never stored: every
+ * value is computed from the row index and the seed when it is requested, so tables of millions of rows can be
+ * inserted without being held in memory, and the same spec always produces the same values.
+ * <p>
+ * Each table is declared with its row count, followed by one entry per column in insert order:
+ *
+ * <pre class="code">
+ * seed = 42
+ *
+ * CUSTOMER = 1000000
+ * CUSTOMER.ID = sequence(1)
+ * CUSTOMER.NAME = format(customer-%d)
+ * CUSTOMER.COUNTRY = pick(FR, DE, GB)
+ * CUSTOMER.CREDIT = range(0.00, 5000.00)
+ *
+ * ORDERS = 5000000
+ * ORDERS.ID = sequence(1)
+ * ORDERS.CUSTOMER_ID = ref(CUSTOMER.ID)
+ * ORDERS.CREATED = date(2020-01-01, 2023-12-31)
+ * ORDERS.NOTE = text(5, 40)
+ * </pre>
+ *
+ * The supported column generators are:
+ * <ul>
+ * <li><code>sequence(start[, step])</code> - consecutive numbers</li>
+ * <li><code>range(min, max)</code> - random numbers, decimal when either bound has a fraction</li>
+ * <li><code>date(from, to)</code> - random ISO dates</li>
+ * <li><code>pick(value, ...)</code> - random values of a list</li>
+ * <li><code>text(length)</code> or <code>text(min, max)</code> - random alphanumeric strings</li>
+ * <li><code>format(pattern)</code> - {@link String#format(String, Object...) formatted} one-based row numbers</li>
+ * <li><code>ref(TABLE.COLUMN)</code> - the value of a random row of a table declared earlier</li>
+ * </ul>
+ * Any other value is used as a constant and an empty value is {@code null}. Random values depend only on the seed, the
+ * table and column names and the row index.
+ *
+ * @see GeneratedDataSetLoader
+ */
+public class GeneratedDataSet extends AbstractDataSet implements StreamableDataSet {
+
+	private static final String SEED = "seed";
+
+	private static final Pattern GENERATOR = Pattern.compile("(\\w+)\\s*\\((.*)\\)");
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static final char[] ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+			.toCharArray();
+
+	private final Resource resource;
+
+	private final List<GeneratedTable> tables = new ArrayList<>();
+
+	/**
+	 * Create a new {@link GeneratedDataSet}.
+	 * @param resource the spec resource
+	 * @throws DataSetException if the spec cannot be read or is invalid
+	 */
+	public GeneratedDataSet(Resource resource) throws DataSetException {
+		this.resource = resource;
+		Map<String, String> entries = readEntries();
+		long seed = parseLong(SEED, entries.getOrDefault(SEED, "0"));
+		Map<String, TableSpec> specs = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : entries.entrySet()) {
+			String key = entry.getKey();
+			int separator = key.lastIndexOf('.');
+			TableSpec spec = (separator != -1 ? specs.get(key.substring(0, separator).toUpperCase(Locale.ENGLISH))
+					: null);
+			if (spec != null) {
+				spec.columns.put(key.substring(separator + 1), entry.getValue());
+			} else if (!SEED.equals(key)) {
+				if (specs.containsKey(key.toUpperCase(Locale.ENGLISH))) {
+					throw new AmbiguousTableNameException(key);
+				}
+				long rowCount = parseLong(key, entry.getValue());
+				if (rowCount < 0 || rowCount > Integer.MAX_VALUE) {
+					throw error(key, "Row count must be between 0 and " + Integer.MAX_VALUE);
+				}
+				specs.put(key.toUpperCase(Locale.ENGLISH), new TableSpec(key, (int) rowCount));
+			}
+		}
+		for (TableSpec spec : specs.values()) {
+			this.tables.add(new GeneratedTable(spec, seed));
+		}
+		for (int i = 0; i < this.tables.size(); i++) {
+			this.tables.get(i).createGenerators(specs.get(this.tables.get(i).getName()
+					.toUpperCase(Locale.ENGLISH)), this.tables.subList(0, i));
+		}
+	}
+
+	/**
+	 * Read the spec entries in file order.
+	 */
+	private Map<String, String> readEntries() throws DataSetException {
+		final Map<String, String> entries = new LinkedHashMap<>();
+		Properties properties = new Properties() {
+
+			@Override
+			public synchronized Object put(Object key, Object value) {
+				entries.put(((String) key).trim(), ((String) value).trim());
+				return super.put(key, value);
+			}
+
+		};
+		try (Reader reader = new InputStreamReader(this.resource.getInputStream(), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to read " + this.resource, ex);
+		}
+		return entries;
+	}
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		return new DefaultTableIterator(this.tables.toArray(new ITable[0]), reversed);
+	}
+
+	/**
+	 * Returns this dataset, rows are already computed as they are read.
+	 */
+	public IDataSet stream(IDatabaseConnection connection) {
+		return this;
+	}
+
+	private long parseLong(String key, String value) throws DataSetException {
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException ex) {
+			throw error(key, "Expected a number but was '" + value + "'");
+		}
+	}
+
+	private DataSetException error(String key, String message) {
+		return new DataSetException(message + " for '" + key + "' in " + this.resource);
+	}
+
+	/**
+	 * Mix the bits of the given value, see the SplitMix64 generator.
+	 */
+	private static long mix(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the random value at the given index of the sequence of a cell.
+	 */
+	private static long random(long cellSeed, int index) {
+		return mix(cellSeed + index * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Returns a random value between {@code 0} (inclusive) and the given bound (exclusive).
+	 */
+	private static long bounded(long random, long bound) {
+		return Math.floorMod(random, bound);
+	}
+
+	/**
+	 * The declaration of a table and the generator expressions of its columns.
+	 */
+	private static class TableSpec {
+
+		private final String tableName;
+
+		private final int rowCount;
+
+		private final Map<String, String> columns = new LinkedHashMap<>();
+
+		TableSpec(String tableName, int rowCount) {
+			this.tableName = tableName;
+			this.rowCount = rowCount;
+		}
+
+	}
+
+	/**
+	 * A table that computes its values on demand.
+	 */
+	private class GeneratedTable extends AbstractTable {
+
+		private final ITableMetaData metaData;
+
+		private final int rowCount;
+
+		private final long[] columnSeeds;
+
+		private final Generator[] generators;
+
+		GeneratedTable(TableSpec spec, long seed) {
+			Column[] columns = new Column[spec.columns.size()];
+			this.columnSeeds = new long[columns.length];
+			int i = 0;
+			long tableSeed = mix(seed ^ mix(spec.tableName.toUpperCase(Locale.ENGLISH).hashCode()));
+			for (String columnName : spec.columns.keySet()) {
+				columns[i] = new Column(columnName, DataType.UNKNOWN);
+				this.columnSeeds[i] = mix(tableSeed + columnName.toUpperCase(Locale.ENGLISH).hashCode() * GOLDEN_GAMMA);
+				i++;
+			}
+			this.metaData = new DefaultTableMetaData(spec.tableName, columns);
+			this.rowCount = spec.rowCount;
+			this.generators = new Generator[columns.length];
+		}
+
+		void createGenerators(TableSpec spec, List<GeneratedTable> referencedTables) throws DataSetException {
+			int i = 0;
+			for (Map.Entry<String, String> column : spec.columns.entrySet()) {
+				String key = spec.tableName + "." + column.getKey();
+				this.generators[i++] = createGenerator(key, column.getValue(), referencedTables);
+			}
+		}
+
+		String getName() {
+			return this.metaData.getTableName();
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return this.metaData;
+		}
+
+		public int getRowCount() {
+			return this.rowCount;
+		}
+
+		public Object getValue(int row, String column) throws DataSetException {
+			assertValidRowIndex(row);
+			return getValue(row, getColumnIndex(column));
+		}
+
+		Object getValue(int row, int columnIndex) throws DataSetException {
+			long cellSeed = mix(this.columnSeeds[columnIndex] + row * GOLDEN_GAMMA);
+			return this.generators[columnIndex].generate(row, cellSeed);
+		}
+
+	}
+
+	private Generator createGenerator(String key, String expression, List<GeneratedTable> referencedTables)
+			throws DataSetException {
+		if (expression.isEmpty()) {
+			return (row, cellSeed) -> null;
+		}
+		Matcher matcher = GENERATOR.matcher(expression);
+		if (!matcher.matches()) {
+			return (row, cellSeed) -> expression;
+		}
+		String name = matcher.group(1).toLowerCase(Locale.ENGLISH);
+		String arguments = matcher.group(2).trim();
+		String[] values = arguments.split("\\s*,\\s*", -1);
+		if ("sequence".equals(name)) {
+			checkArguments(key, values, 1, 2);
+			long start = parseLong(key, values[0]);
+			long step = (values.length > 1 ? parseLong(key, values[1]) : 1);
+			return (row, cellSeed) -> start + row * step;
+		}
+		if ("range".equals(name)) {
+			checkArguments(key, values, 2, 2);
+			return createRangeGenerator(key, values[0], values[1]);
+		}
+		if ("date".equals(name)) {
+			checkArguments(key, values, 2, 2);
+			long from = parseDate(key, values[0]);
+			long span = parseDate(key, values[1]) - from + 1;
+			if (span <= 0) {
+				throw error(key, "Date range is empty");
+			}
+			return (row, cellSeed) -> Date.valueOf(LocalDate.ofEpochDay(from + bounded(cellSeed, span)));
+		}
+		if ("pick".equals(name)) {
+			return (row, cellSeed) -> values[(int) bounded(cellSeed, values.length)];
+		}
+		if ("text".equals(name)) {
+			checkArguments(key, values, 1, 2);
+			int min = (int) parseLong(key, values[0]);
+			int max = (values.length > 1 ? (int) parseLong(key, values[1]) : min);
+			if (min < 0 || max < min) {
+				throw error(key, "Text length range is empty");
+			}
+			return (row, cellSeed) -> {
+				int length = min + (int) bounded(cellSeed, max - min + 1L);
+				char[] text = new char[length];
+				for (int i = 0; i < length; i++) {
+					text[i] = ALPHANUMERIC[(int) bounded(random(cellSeed, i + 1), ALPHANUMERIC.length)];
+				}
+				return new String(text);
+			};
+		}
+		if ("format".equals(name)) {
+			try {
+				String.format(Locale.ROOT, arguments, 1);
+			} catch (IllegalFormatException ex) {
+				throw error(key, "Invalid format '" + arguments + "'");
+			}
+			return (row, cellSeed) -> String.format(Locale.ROOT, arguments, row + 1);
+		}
+		if ("ref".equals(name)) {
+			checkArguments(key, values, 1, 1);
+			return createReferenceGenerator(key, values[0], referencedTables);
+		}
+		throw error(key, "Unknown generator '" + name + "'");
+	}
+
+	private Generator createRangeGenerator(String key, String min, String max) throws DataSetException {
+		BigDecimal minValue;
+		BigDecimal maxValue;
+		try {
+			minValue = new BigDecimal(min);
+			maxValue = new BigDecimal(max);
+		} catch (NumberFormatException ex) {
+			throw error(key, "Invalid range bounds");
+		}
+		int scale = Math.max(Math.max(minValue.scale(), maxValue.scale()), 0);
+		long from = minValue.setScale(scale).unscaledValue().longValue();
+		long span = maxValue.setScale(scale).unscaledValue().longValue() - from + 1;
+		if (span <= 0) {
+			throw error(key, "Range is empty");
+		}
+		if (scale == 0) {
+			return (row, cellSeed) -> from + bounded(cellSeed, span);
+		}
+		return (row, cellSeed) -> BigDecimal.valueOf(from + bounded(cellSeed, span), scale);
+	}
+
+	private Generator createReferenceGenerator(String key, String reference, List<GeneratedTable> referencedTables)
+			throws DataSetException {
+		int separator = reference.lastIndexOf('.');
+		if (separator == -1) {
+			throw error(key, "Expected ref(TABLE.COLUMN)");
+		}
+		String tableName = reference.substring(0, separator);
+		for (GeneratedTable table : referencedTables) {
+			if (table.getName().equalsIgnoreCase(tableName)) {
+				int columnIndex = table.getTableMetaData().getColumnIndex(reference.substring(separator + 1));
+				if (table.getRowCount() == 0) {
+					throw error(key, "Referenced table '" + tableName + "' has no rows");
+				}
+				return (row, cellSeed) -> table.getValue((int) bounded(cellSeed, table.getRowCount()), columnIndex);
+			}
+		}
+		throw error(key, "Referenced table '" + tableName + "' must be declared before the referencing table");
+	}
+
+	private void checkArguments(String key, String[] values, int min, int max) throws DataSetException {
+		if (values.length < min || values.length > max || values[0].isEmpty()) {
+			throw error(key, "Expected " + (min == max ? min : min + " to " + max) + " arguments");
+		}
+	}
+
+	private long parseDate(String key, String value) throws DataSetException {
+		try {
+			return LocalDate.parse(value).toEpochDay();
+		} catch (DateTimeParseException ex) {
+			throw error(key, "Expected an ISO date but was '" + value + "'");
+		}
+	}
+
+	/**
+	 * Computes the value of a column for a row.
+	 */
+	private interface Generator {
+
+		/**
+		 * Compute a value.
+		 * @param row the row index
+		 * @param cellSeed the random seed of the cell
+		 * @return the value
+		 * @throws DataSetException on error
+		 */
+		Object generate(int row, long cellSeed) throws DataSetException;
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link DataSetLoader data set loader} that reads a spec of synthetic tables and returns a
+ * {@link GeneratedDataSet} whose rows are computed on demand. Intended for volume tests that need tables far larger
+ * than any fixture file that could be checked in.
+ */
+public class GeneratedDataSetLoader extends AbstractDataSetLoader {
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws DataSetException {
+		return new GeneratedDataSet(resource);
+	}
+
+}
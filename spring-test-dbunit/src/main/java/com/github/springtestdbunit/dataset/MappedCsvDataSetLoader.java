@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.dbunit.dataset.CachedDataSet;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.csv.CsvDataSet;
+import org.dbunit.dataset.csv.CsvProducer;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+import org.springframework.core.io.Resource;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * A {@link CsvUrlDataSetLoader} that reads CSV directories on the file system with memory-mapped files. All table files
+ * are parsed at the same time on the common {@link ForkJoinPool} and large files are additionally split on row
+ * boundaries so that their chunks are parsed in parallel. Tables are still returned in the order of
+ * <code>table-ordering.txt</code>.
+ * <p>
+ * Numbers are decoded directly from the file bytes and returned as {@link Long}s or
+ * {@link java.math.BigDecimal BigDecimal}s rather than strings, see {@link MappedCsvParser}. Directories inside jar or
+ * zip files, and table files the mapped parser cannot read exactly, are loaded by the {@link CsvUrlDataSetLoader}.
+ */
+public class MappedCsvDataSetLoader extends CsvUrlDataSetLoader {
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws DataSetException, IOException {
+		return createDataSet(resource, datasetId, null);
+	}
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames)
+			throws DataSetException, IOException {
+		if (!resource.isFile() || !resource.getFile().isDirectory()) {
+			return super.createDataSet(resource, datasetId, tableNames);
+		}
+		File directory = resource.getFile();
+		CachedDataSet dataSet = new CachedDataSet();
+		TableFilteringConsumer filter = (CollectionUtils.isEmpty(tableNames) ? null
+				: new TableFilteringConsumer(dataSet, tableNames));
+		IDataSetConsumer consumer = (filter != null ? filter : dataSet);
+		final List<TableTask> tasks = new ArrayList<>();
+		for (Object tableName : CsvProducer.getTables(directory.toURI().toURL(), CsvDataSet.TABLE_ORDERING_FILE)) {
+			if (filter == null || filter.accept((String) tableName)) {
+				tasks.add(new TableTask((String) tableName, new File(directory, tableName + ".csv")));
+			}
+		}
+		try {
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+
+			});
+		} catch (MappedCsvParser.CsvParseFailure ex) {
+			throw ex.getCause();
+		}
+		consumer.startDataSet();
+		for (TableTask task : tasks) {
+			ParsedTable table = task.join();
+			if (table == null) {
+				produceTable(consumer, task.tableName, task.file.toURI().toURL());
+				continue;
+			}
+			consumer.startTable(table.metaData);
+			for (Object[] row : table.rows) {
+				consumer.row(row);
+			}
+			consumer.endTable();
+		}
+		consumer.endDataSet();
+		return dataSet;
+	}
+
+	/**
+	 * Parses a single table file.
+	 */
+	private static class TableTask extends RecursiveTask<ParsedTable> {
+
+		private final String tableName;
+
+		private final File file;
+
+		TableTask(String tableName, File file) {
+			this.tableName = tableName;
+			this.file = file;
+		}
+
+		/**
+		 * Returns the parsed table or {@code null} if the table must be read by the DBUnit parser.
+		 */
+		@Override
+		protected ParsedTable compute() {
+			try {
+				MappedCsvParser parser = new MappedCsvParser(this.file);
+				String[] header = parser.parseHeader();
+				Column[] columns = new Column[header.length];
+				for (int i = 0; i < columns.length; i++) {
+					columns[i] = new Column(header[i], DataType.UNKNOWN);
+				}
+				List<Object[]> rows = parser.createTask(columns.length).invoke();
+				return new ParsedTable(new DefaultTableMetaData(this.tableName, columns), rows);
+			} catch (MappedCsvParser.UnsupportedCsvException ex) {
+				return null;
+			} catch (MappedCsvParser.CsvParseFailure ex) {
+				if (ex.getCause() instanceof MappedCsvParser.UnsupportedCsvException) {
+					return null;
+				}
+				throw ex;
+			} catch (DataSetException ex) {
+				throw new MappedCsvParser.CsvParseFailure(ex);
+			} catch (IOException ex) {
+				throw new MappedCsvParser.CsvParseFailure(
+						new DataSetException("Unable to read CSV file '" + this.file + "'", ex));
+			}
+		}
+
+	}
+
+	/**
+	 * The metadata and rows of a table.
+	 */
+	private static class ParsedTable {
+
+		private final ITableMetaData metaData;
+
+		private final List<Object[]> rows;
+
+		ParsedTable(ITableMetaData metaData, List<Object[]> rows) {
+			this.metaData = metaData;
+			this.rows = rows;
+		}
+
+	}
+
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.csv.CsvDataSetWriter;
+
+/**
+ * Parses a CSV table file that has been memory-mapped. Files larger than {@link #CHUNK_SIZE} are split on row
+ * boundaries and the chunks are parsed as fork/join tasks. The grammar is the one of the DBUnit
+ * {@link org.dbunit.dataset.csv.CsvParserImpl CsvParserImpl}: a header row of column names, comma separated values,
+ * leading whitespace ignored, values optionally quoted with <code>"</code> in which case they may contain separators and
+ * line breaks and <code>\</code> escapes the next character. Every row must have as many values as the header.
+ * <p>
+ * Values are decoded straight from the mapped bytes. Numbers written in canonical form (for example <code>42</code> or
+ * <code>-1.50</code>, but not <code>007</code>) are returned as {@link Long}s or {@link BigDecimal}s without an
+ * intermediate {@code String}; other values are returned as strings and <code>null</code> as {@code null}. Input the
+ * parser cannot reproduce exactly, such as a <code>\</code> outside of quotes, raises an {@link UnsupportedCsvException}
+ * so that the caller can fall back to the DBUnit parser.
+ */
+class MappedCsvParser {
+
+	/**
+	 * The size in bytes above which files are split into chunks that are parsed in parallel.
+	 */
+	static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+	private static final byte[] NULL = CsvDataSetWriter.NULL.getBytes(StandardCharsets.US_ASCII);
+
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+	private static final int MAX_LONG_DIGITS = 18;
+
+	private final File file;
+
+	private final int chunkSize;
+
+	private MappedByteBuffer buffer;
+
+	private int length;
+
+	private int headerEnd;
+
+	MappedCsvParser(File file) {
+		this(file, CHUNK_SIZE);
+	}
+
+	MappedCsvParser(File file, int chunkSize) {
+		this.file = file;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Map the file and parse its header.
+	 * @return the column names
+	 * @throws IOException if the file cannot be mapped
+	 * @throws DataSetException if the header cannot be parsed
+	 */
+	public String[] parseHeader() throws IOException, DataSetException {
+		try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new UnsupportedCsvException(this.file + " is too large to be mapped");
+			}
+			this.length = (int) channel.size();
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, this.length);
+		}
+		byte[] bytes = read(0, Math.min(this.length, MAX_HEADER_SIZE));
+		this.headerEnd = findRowEnd(bytes);
+		if (this.headerEnd == -1) {
+			if (bytes.length < this.length) {
+				throw new UnsupportedCsvException("Header of " + this.file + " is too long");
+			}
+			this.headerEnd = bytes.length;
+		}
+		List<Object[]> rows = new Chunk(this.file, bytes, this.headerEnd, -1, false).parse();
+		if (rows.isEmpty()) {
+			throw new DataSetException("No header found in " + this.file);
+		}
+		Object[] columns = rows.get(0);
+		return Arrays.copyOf(columns, columns.length, String[].class);
+	}
+
+	/**
+	 * Create the task that parses the rows following the header. Must be called after {@link #parseHeader()}.
+	 * @param columnCount the number of columns of the header
+	 * @return a task that returns the rows in file order
+	 */
+	public RecursiveTask<List<Object[]>> createTask(final int columnCount) {
+		return new RecursiveTask<List<Object[]>>() {
+
+			@Override
+			protected List<Object[]> compute() {
+				try {
+					return parseRows(columnCount);
+				} catch (DataSetException ex) {
+					throw new CsvParseFailure(ex);
+				}
+			}
+
+		};
+	}
+
+	private List<Object[]> parseRows(int columnCount) throws DataSetException {
+		List<Chunk> chunks = split(columnCount);
+		if (chunks.isEmpty()) {
+			return new ArrayList<>();
+		}
+		if (chunks.size() == 1) {
+			return chunks.get(0).parse();
+		}
+		List<RecursiveTask<List<Object[]>>> tasks = new ArrayList<>(chunks.size());
+		for (final Chunk chunk : chunks) {
+			tasks.add(new RecursiveTask<List<Object[]>>() {
+
+				@Override
+				protected List<Object[]> compute() {
+					try {
+						return chunk.parse();
+					} catch (DataSetException ex) {
+						throw new CsvParseFailure(ex);
+					}
+				}
+
+			});
+		}
+		List<Object[]> rows = new ArrayList<>();
+		for (RecursiveTask<List<Object[]>> task : RecursiveTask.invokeAll(tasks)) {
+			rows.addAll(task.join());
+		}
+		return rows;
+	}
+
+	/**
+	 * Split the rows into chunks of about {@link #chunkSize} bytes. Boundaries are found by tracking quotes from the
+	 * start of the file so that line breaks inside quoted values never end a chunk.
+	 */
+	private List<Chunk> split(int columnCount) throws DataSetException {
+		List<Chunk> chunks = new ArrayList<>();
+		int start = this.headerEnd;
+		int scanned = start;
+		boolean quoted = false;
+		while (start < this.length) {
+			int end = this.length;
+			if (this.length - start > this.chunkSize) {
+				int target = start + this.chunkSize;
+				for (int i = scanned; i < this.length; i++) {
+					byte b = this.buffer.get(i);
+					if (quoted) {
+						if (b == '\\') {
+							i++;
+						} else if (b == '"') {
+							quoted = false;
+						}
+					} else if (b == '"') {
+						quoted = isQuoteStart(i);
+					} else if (b == '\n' && i >= target) {
+						end = i + 1;
+						break;
+					}
+				}
+				scanned = end;
+			}
+			byte[] bytes = read(start, end - start);
+			chunks.add(new Chunk(this.file, bytes, bytes.length, columnCount, true));
+			start = end;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns if a quote opens a quoted value, which is the case when only whitespace precedes it in the value.
+	 */
+	private boolean isQuoteStart(int index) {
+		for (int i = index - 1; i >= 0; i--) {
+			byte b = this.buffer.get(i);
+			if (b == ',' || b == '\n' || b == '"') {
+				return true;
+			}
+			if (!isWhitespace(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private byte[] read(int start, int length) {
+		ByteBuffer buffer = this.buffer.duplicate();
+		((Buffer) buffer).position(start);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static int findRowEnd(byte[] bytes) {
+		boolean quoted = false;
+		boolean fieldStart = true;
+		for (int i = 0; i < bytes.length; i++) {
+			byte b = bytes[i];
+			if (quoted) {
+				if (b == '\\') {
+					i++;
+				} else if (b == '"') {
+					quoted = false;
+				}
+			} else if (b == '\n') {
+				return i + 1;
+			} else if (b == '"' && fieldStart) {
+				quoted = true;
+			} else if (b == ',') {
+				fieldStart = true;
+			} else if (!isWhitespace(b)) {
+				fieldStart = false;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b >= 0 && b != '\n' && Character.isWhitespace((char) b);
+	}
+
+	/**
+	 * A range of complete rows.
+	 */
+	private static class Chunk {
+
+		private final File file;
+
+		private final byte[] bytes;
+
+		private final int end;
+
+		private final int columnCount;
+
+		private final boolean convertValues;
+
+		private byte[] scratch = new byte[64];
+
+		private int scratchLength;
+
+		Chunk(File file, byte[] bytes, int end, int columnCount, boolean convertValues) {
+			this.file = file;
+			this.bytes = bytes;
+			this.end = end;
+			this.columnCount = columnCount;
+			this.convertValues = convertValues;
+		}
+
+		public List<Object[]> parse() throws DataSetException {
+			List<Object[]> rows = new ArrayList<>();
+			List<Object> row = new ArrayList<>(Math.max(this.columnCount, 8));
+			byte[] bytes = this.bytes;
+			int i = 0;
+			while (i < this.end) {
+				while (i < this.end && isWhitespace(bytes[i])) {
+					i++;
+				}
+				if (i < this.end && bytes[i] == '"') {
+					i = parseQuoted(row, i + 1);
+				} else {
+					int valueStart = i;
+					while (i < this.end && bytes[i] != ',' && bytes[i] != '\n') {
+						if (bytes[i] == '\\') {
+							throw new UnsupportedCsvException("Escape outside of quotes in " + this.file);
+						}
+						i++;
+					}
+					int valueEnd = (i > valueStart && bytes[i - 1] == '\r' ? i - 1 : i);
+					row.add(toValue(bytes, valueStart, valueEnd));
+				}
+				if (i < this.end && bytes[i] == ',') {
+					i++;
+					if (i == this.end) {
+						row.add(toValue(bytes, i, i));
+					}
+				} else {
+					addRow(rows, row);
+					i++;
+				}
+			}
+			if (!row.isEmpty()) {
+				addRow(rows, row);
+			}
+			return rows;
+		}
+
+		/**
+		 * Parse a quoted value, returning the index of the separator or line break that follows it. Values are read
+		 * in place unless they contain escapes or line breaks, which are resolved in the scratch buffer.
+		 */
+		private int parseQuoted(List<Object> row, int start) throws DataSetException {
+			byte[] bytes = this.bytes;
+			this.scratchLength = -1;
+			int i = start;
+			while (true) {
+				if (i >= this.end) {
+					throw new DataSetException("Unterminated quoted value in " + this.file);
+				}
+				byte b = bytes[i];
+				if (b == '"') {
+					int closingQuote = i++;
+					while (i < this.end && isWhitespace(bytes[i])) {
+						i++;
+					}
+					if (i < this.end && bytes[i] == '"') {
+						startCopy(start, closingQuote);
+						i++;
+						continue;
+					}
+					if (i < this.end && bytes[i] != ',' && bytes[i] != '\n') {
+						throw new UnsupportedCsvException("Unexpected characters after quoted value in " + this.file);
+					}
+					row.add(this.scratchLength == -1 ? toValue(bytes, start, closingQuote)
+							: toValue(this.scratch, 0, this.scratchLength));
+					return i;
+				}
+				if (b == '\\' && i + 1 < this.end) {
+					startCopy(start, i);
+					append(bytes[i + 1]);
+					i += 2;
+					continue;
+				}
+				if (b == '\r' && i + 1 < this.end && bytes[i + 1] == '\n') {
+					startCopy(start, i);
+				} else if (this.scratchLength != -1) {
+					append(b);
+				}
+				i++;
+			}
+		}
+
+		private void startCopy(int start, int end) {
+			if (this.scratchLength == -1) {
+				this.scratchLength = 0;
+				for (int i = start; i < end; i++) {
+					append(this.bytes[i]);
+				}
+			}
+		}
+
+		private void append(byte b) {
+			if (this.scratchLength == this.scratch.length) {
+				this.scratch = Arrays.copyOf(this.scratch, this.scratch.length * 2);
+			}
+			this.scratch[this.scratchLength++] = b;
+		}
+
+		private void addRow(List<Object[]> rows, List<Object> row) throws DataSetException {
+			if (this.columnCount != -1 && row.size() != this.columnCount) {
+				throw new DataSetException("Expected " + this.columnCount + " columns on row " + (rows.size() + 1)
+						+ " of chunk in " + this.file + ", got " + row.size());
+			}
+			rows.add(row.toArray());
+			row.clear();
+		}
+
+		private Object toValue(byte[] bytes, int start, int end) {
+			int length = end - start;
+			if (!this.convertValues) {
+				return decode(bytes, start, length);
+			}
+			if (length == NULL.length && matches(bytes, start, NULL)) {
+				return null;
+			}
+			Object number = toNumber(bytes, start, end);
+			return (number != null ? number : decode(bytes, start, length));
+		}
+
+		private boolean matches(byte[] bytes, int start, byte[] expected) {
+			for (int i = 0; i < expected.length; i++) {
+				if (bytes[start + i] != expected[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the number written in the given bytes if converting it back to a string gives the same bytes.
+		 */
+		private Object toNumber(byte[] bytes, int start, int end) {
+			int i = start;
+			boolean negative = (i < end && bytes[i] == '-');
+			if (negative) {
+				i++;
+			}
+			int integerStart = i;
+			long unscaled = 0;
+			int digits = 0;
+			int scale = -1;
+			for (; i < end; i++) {
+				byte b = bytes[i];
+				if (b >= '0' && b <= '9') {
+					unscaled = unscaled * 10 + (b - '0');
+					digits++;
+					if (scale != -1) {
+						scale++;
+					}
+				} else if (b == '.' && scale == -1 && i > integerStart && i < end - 1) {
+					scale = 0;
+				} else {
+					return null;
+				}
+			}
+			if (digits == 0 || digits > MAX_LONG_DIGITS) {
+				return null;
+			}
+			boolean leadingZero = (bytes[integerStart] == '0' && integerStart + 1 < end
+					&& bytes[integerStart + 1] != '.');
+			if (leadingZero || (negative && unscaled == 0)) {
+				return null;
+			}
+			unscaled = (negative ? -unscaled : unscaled);
+			return (scale == -1 ? (Object) Long.valueOf(unscaled) : BigDecimal.valueOf(unscaled, scale));
+		}
+
+		private String decode(byte[] bytes, int start, int length) {
+			for (int i = start; i < start + length; i++) {
+				if (bytes[i] < 0) {
+					return new String(bytes, start, length, StandardCharsets.UTF_8);
+				}
+			}
+			return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+		}
+
+	}
+
+	/**
+	 * Thrown when the file uses a construct that is only handled by the DBUnit parser.
+	 */
+	static class UnsupportedCsvException extends DataSetException {
+
+		UnsupportedCsvException(String message) {
+			super(message);
+		}
+
+	}
+
+	/**
+	 * Carries a {@link DataSetException} out of a fork/join task.
+	 */
+	static class CsvParseFailure extends RuntimeException {
+
+		CsvParseFailure(DataSetException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized DataSetException getCause() {
+			return (DataSetException) super.getCause();
+		}
+
+	}
+
+}
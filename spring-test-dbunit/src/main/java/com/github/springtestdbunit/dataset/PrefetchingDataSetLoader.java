@@ -0,0 +1,273 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.dataset.IDataSet;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DataSetLoader data set loader} that loads datasets ahead of time on a background thread. Datasets
+ * {@link #prefetch(Class, String, String) requested} in advance are loaded in request order and handed out once each
+ * when the same dataset is loaded; all other requests are passed to the source loader.
+ * <p>
+ * Prefetched datasets that have not been handed out yet count against a byte budget. Once the budget is used the
+ * background thread waits until datasets are handed out. Any remaining work is discarded when the loader is
+ * {@link #cancel() cancelled}, typically at the end of a test class.
+ *
+ * @see com.github.springtestdbunit.annotation.DbUnitConfiguration#prefetchDataSets()
+ */
+public class PrefetchingDataSetLoader implements DataSetLoader {
+
+	private static final Log logger = LogFactory.getLog(PrefetchingDataSetLoader.class);
+
+	/**
+	 * The default byte budget of prefetched datasets.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+	private final DataSetLoader dataSetLoader;
+
+	private final long maxBytes;
+
+	private final Map<PrefetchKey, Deque<Prefetch>> prefetches = new HashMap<>();
+
+	private ExecutorService executor;
+
+	private long totalBytes;
+
+	private boolean cancelled;
+
+	/**
+	 * Create a new {@link PrefetchingDataSetLoader} with a budget of {@link #DEFAULT_MAX_BYTES}.
+	 * @param dataSetLoader the source data set loader
+	 */
+	public PrefetchingDataSetLoader(DataSetLoader dataSetLoader) {
+		this(dataSetLoader, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Create a new {@link PrefetchingDataSetLoader}.
+	 * @param dataSetLoader the source data set loader
+	 * @param maxBytes the maximum estimated size in bytes of prefetched datasets that have not been handed out
+	 */
+	public PrefetchingDataSetLoader(DataSetLoader dataSetLoader, long maxBytes) {
+		Assert.notNull(dataSetLoader, "Delegate must not be null");
+		Assert.isTrue(maxBytes >= 0, "MaxBytes must not be negative");
+		this.dataSetLoader = dataSetLoader;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Request that a dataset is loaded in the background. Each request is handed out to a single
+	 * {@link #loadDataSet(Class, String, String) load}.
+	 * @param testClass the class under test
+	 * @param location the location of the dataset
+	 * @param datasetId the dataset id
+	 */
+	public synchronized void prefetch(Class<?> testClass, String location, String datasetId) {
+		if (this.cancelled) {
+			return;
+		}
+		if (this.executor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dbunit-prefetch-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newSingleThreadExecutor(threadFactory);
+		}
+		PrefetchKey key = new PrefetchKey(testClass, location, datasetId);
+		Prefetch prefetch = new Prefetch(key);
+		this.prefetches.computeIfAbsent(key, k -> new ArrayDeque<>()).add(prefetch);
+		this.executor.execute(prefetch.task);
+	}
+
+	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId) throws Exception {
+		return loadDataSet(testClass, location, datasetId, null);
+	}
+
+	/**
+	 * Returns the prefetched dataset when one has been requested, the returned dataset may contain tables other than
+	 * the given ones.
+	 */
+	@Override
+	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId, Set<String> tableNames)
+			throws Exception {
+		Prefetch prefetch = take(new PrefetchKey(testClass, location, datasetId));
+		if (prefetch != null) {
+			try {
+				IDataSet dataSet = prefetch.task.get();
+				release(prefetch);
+				return dataSet;
+			} catch (CancellationException ex) {
+				// Cancelled by the end of the class, load as usual
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof Exception) {
+					throw (Exception) ex.getCause();
+				}
+				throw ex;
+			}
+		}
+		return this.dataSetLoader.loadDataSet(testClass, location, datasetId, tableNames);
+	}
+
+	/**
+	 * Cancel all outstanding prefetches and stop the background thread. Later loads are passed to the source loader.
+	 */
+	public synchronized void cancel() {
+		this.cancelled = true;
+		for (Deque<Prefetch> queue : this.prefetches.values()) {
+			for (Prefetch prefetch : queue) {
+				prefetch.task.cancel(true);
+			}
+		}
+		this.prefetches.clear();
+		this.totalBytes = 0;
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Take the next prefetch for the given key, returning {@code null} if there is none or if it has not been started
+	 * yet, in which case it is cancelled and the caller loads the dataset itself.
+	 */
+	private synchronized Prefetch take(PrefetchKey key) {
+		Deque<Prefetch> queue = this.prefetches.get(key);
+		Prefetch prefetch = (queue != null ? queue.poll() : null);
+		if (prefetch == null) {
+			return null;
+		}
+		prefetch.taken = true;
+		if (queue.isEmpty()) {
+			this.prefetches.remove(key);
+		}
+		notifyAll();
+		if (!prefetch.started) {
+			prefetch.task.cancel(false);
+			return null;
+		}
+		return prefetch;
+	}
+
+	private synchronized void release(Prefetch prefetch) {
+		this.totalBytes -= prefetch.size;
+		prefetch.size = 0;
+		notifyAll();
+	}
+
+	private IDataSet load(Prefetch prefetch) throws Exception {
+		synchronized (this) {
+			if (prefetch.taken || this.cancelled) {
+				// Taken before the task got the lock, the caller loads the dataset itself
+				return null;
+			}
+			prefetch.started = true;
+			// Always allow a single dataset so that a small budget does not stall prefetching
+			while (this.totalBytes > 0 && this.totalBytes >= this.maxBytes && !prefetch.taken && !this.cancelled) {
+				wait();
+			}
+		}
+		IDataSet dataSet = this.dataSetLoader.loadDataSet(prefetch.key.testClass, prefetch.key.location,
+				prefetch.key.datasetId);
+		// Lazy datasets are read by the operation itself, so are not counted
+		long size = (dataSet == null || dataSet instanceof StreamableDataSet ? 0
+				: DataSetSizeEstimator.estimateSize(dataSet));
+		synchronized (this) {
+			if (!prefetch.taken && !this.cancelled) {
+				prefetch.size = size;
+				this.totalBytes += size;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Prefetched " + prefetch.key + " (" + size + " bytes)");
+		}
+		return dataSet;
+	}
+
+	private class Prefetch {
+
+		private final PrefetchKey key;
+
+		private final FutureTask<IDataSet> task;
+
+		private boolean started;
+
+		private boolean taken;
+
+		private long size;
+
+		Prefetch(PrefetchKey key) {
+			this.key = key;
+			this.task = new FutureTask<>(() -> load(this));
+		}
+
+	}
+
+	private static class PrefetchKey {
+
+		private final Class<?> testClass;
+
+		private final String location;
+
+		private final String datasetId;
+
+		PrefetchKey(Class<?> testClass, String location, String datasetId) {
+			this.testClass = testClass;
+			this.location = location;
+			this.datasetId = datasetId;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			PrefetchKey other = (PrefetchKey) obj;
+			return this.testClass.equals(other.testClass) && this.location.equals(other.location)
+					&& Objects.equals(this.datasetId, other.datasetId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.testClass, this.location, this.datasetId);
+		}
+
+		@Override
+		public String toString() {
+			return this.location + (this.datasetId != null ? "#" + this.datasetId : "");
+		}
+
+	}
+
+}
@@ -1,17 +1,25 @@
 package com.github.springtestdbunit.dataset;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
+import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ReplacementDataSet;
 import org.dbunit.dataset.ReplacementFunction;
 import org.springframework.util.Assert;
 
 /**
- * A {@link DataSetLoader data set loader} that uses a {@link ReplacementDataSet} to replace specific objects or
- * sub-strings. By default, will replace "[null]" with <code>null</code>.
+ * A {@link DataSetLoader data set loader} that replaces specific objects or sub-strings in the same way as a
+ * {@link ReplacementDataSet}. By default, will replace "[null]" with <code>null</code>.
+ * <p>
+ * Replacements are applied once when the dataset is loaded and an immutable copy is returned. Values that match a
+ * {@link ReplacementFunction function replacement} are evaluated once and the result is reused by later loads until
+ * {@link #clearFunctionResults()} is called. The {@link com.github.springtestdbunit.DbUnitTestExecutionListener} calls
+ * it after each test method, so that the setup and expected datasets of a test see the same value.
  *
  * @author Stijn Van Bael
  * @author Phillip Webb
@@ -28,6 +36,8 @@ public class ReplacementDataSetLoader implements DataSetLoader {
 
 	private final Map<String, ReplacementFunction> functionReplacements;
 
+	private final Map<String, Object> functionResults = new HashMap<>();
+
 	/**
 	 * Create a new {@link ReplacementDataSetLoader} using a {@link FlatXmlDataSetLoader} to load the source data and
 	 * with {@link #DEFAULT_OBJECT_REPLACEMENTS}.
@@ -58,7 +68,8 @@ public class ReplacementDataSetLoader implements DataSetLoader {
 	 * @param dataSetLoader the source data set loader
 	 * @param objectReplacements the object replacements or {@code null} if no object replacements are required
 	 * @param subStringReplacements the sub-string replacements or {@code null} if no sub-string replacements are
-	 * @param functionReplacements the replacementFunction replacements
+	 * required
+	 * @param functionReplacements the function replacements or {@code null} if no function replacements are required
 	 */
 	public ReplacementDataSetLoader(DataSetLoader dataSetLoader, Map<?, ?> objectReplacements,
 			Map<String, String> subStringReplacements, Map<String, ReplacementFunction> functionReplacements) {
@@ -66,7 +77,7 @@ public class ReplacementDataSetLoader implements DataSetLoader {
 		this.dataSetLoader = dataSetLoader;
 		this.objectReplacements = unmodifiableMap(objectReplacements);
 		this.subStringReplacements = unmodifiableMap(subStringReplacements);
-		this.functionReplacements = functionReplacements;
+		this.functionReplacements = unmodifiableMap(functionReplacements);
 	}
 
 	private <K, V> Map<K, V> unmodifiableMap(Map<? extends K, ? extends V> map) {
@@ -78,8 +89,31 @@ public class ReplacementDataSetLoader implements DataSetLoader {
 	}
 
 	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId) throws Exception {
-		IDataSet dataSet = this.dataSetLoader.loadDataSet(testClass, location, datasetId);
-		return new ReplacementDataSet(dataSet);
+		return replace(this.dataSetLoader.loadDataSet(testClass, location, datasetId));
+	}
+
+	@Override
+	public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId, Set<String> tableNames)
+			throws Exception {
+		return replace(this.dataSetLoader.loadDataSet(testClass, location, datasetId, tableNames));
+	}
+
+	/**
+	 * Forget the results of function replacements, so that functions are evaluated again by the next load.
+	 */
+	public void clearFunctionResults() {
+		synchronized (this.functionResults) {
+			this.functionResults.clear();
+		}
+	}
+
+	private IDataSet replace(IDataSet dataSet) throws DataSetException {
+		if (dataSet == null) {
+			return null;
+		}
+		CompiledReplacements replacements = new CompiledReplacements(this.objectReplacements,
+				this.subStringReplacements, this.functionReplacements, this.functionResults);
+		return (replacements.isEmpty() ? dataSet : replacements.apply(dataSet));
 	}
 
 }
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.dbunit.database.AmbiguousTableNameException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
+import org.springframework.core.io.Resource;
+
+/**
+ * Base class for {@link StreamableDataSet}s read from documents that map each table name to a list of rows, such as
+ * the JSON and YAML files written by {@link com.github.springtestdbunit.DbUnitRunner#export}. Documents are read
+ * with a {@link RowReader} that reports tables and rows as they are tokenized, so no document tree is built.
+ * <p>
+ * The document is scanned once when the dataset is created to find its tables, the position of their rows and their
+ * column names (sensed from every row). A table is only read the first time it is requested, and when
+ * {@link #stream streamed} rows are pulled one at a time by a single reader that moves through the document in order.
+ * Columns that are not present on a row are
+ * {@code null} or, when streamed, reported as {@link ITable#NO_VALUE} so that the column is left out of the insert.
+ *
+ * @see StreamingJsonDataSet
+ * @see StreamingYamlDataSet
+ */
+abstract class RowStreamDataSet extends AbstractDataSet implements StreamableDataSet {
+
+	private final Resource resource;
+
+	private final Map<String, TableInfo> tableInfos = new LinkedHashMap<>();
+
+	private final Map<String, ITable> tables = new HashMap<>();
+
+	/**
+	 * Create a new {@link RowStreamDataSet}.
+	 * @param resource the document resource
+	 * @throws DataSetException if the document cannot be read
+	 */
+	protected RowStreamDataSet(Resource resource) throws DataSetException {
+		this.resource = resource;
+		try (RowReader reader = openReader(0)) {
+			String tableName = reader.nextTable();
+			while (tableName != null) {
+				String key = tableName.toUpperCase(Locale.ENGLISH);
+				if (this.tableInfos.containsKey(key)) {
+					throw new AmbiguousTableNameException(tableName);
+				}
+				TableInfo info = new TableInfo(tableName, reader.getPosition());
+				for (Map<String, Object> row = reader.nextRow(); row != null; row = reader.nextRow()) {
+					info.columnNames.addAll(row.keySet());
+					info.rowCount++;
+				}
+				this.tableInfos.put(key, info);
+				tableName = reader.nextTable();
+			}
+		}
+	}
+
+	private RowReader openReader(long position) throws DataSetException {
+		try {
+			Reader reader = new BufferedReader(new InputStreamReader(this.resource.getInputStream(),
+					StandardCharsets.UTF_8));
+			long skipped = 0;
+			while (skipped < position) {
+				long count = reader.skip(position - skipped);
+				if (count <= 0) {
+					reader.close();
+					throw new DataSetException("Unexpected end of " + this.resource);
+				}
+				skipped += count;
+			}
+			return createReader(reader, position);
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to read " + this.resource, ex);
+		}
+	}
+
+	/**
+	 * Create a reader for the document.
+	 * @param reader the document content
+	 * @param position the position of the content; {@code 0} for the start of the document or a position returned from
+	 * {@link RowReader#getPosition()} to read the rows of a single table
+	 * @return the row reader
+	 */
+	protected abstract RowReader createReader(Reader reader, long position);
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		List<String> tableNames = new ArrayList<>(this.tableInfos.keySet());
+		if (reversed) {
+			Collections.reverse(tableNames);
+		}
+		return new LazyTableIterator(tableNames);
+	}
+
+	@Override
+	public String[] getTableNames() throws DataSetException {
+		List<String> tableNames = new ArrayList<>(this.tableInfos.size());
+		for (TableInfo info : this.tableInfos.values()) {
+			tableNames.add(info.tableName);
+		}
+		return tableNames.toArray(new String[0]);
+	}
+
+	@Override
+	public ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+		return getTableInfo(tableName).getMetaData();
+	}
+
+	@Override
+	public synchronized ITable getTable(String tableName) throws DataSetException {
+		TableInfo info = getTableInfo(tableName);
+		ITable table = this.tables.get(info.tableName);
+		if (table == null) {
+			DefaultTable defaultTable = new DefaultTable(info.getMetaData());
+			if (info.rowCount > 0) {
+				try (RowReader reader = openReader(info.position)) {
+					for (Map<String, Object> row = reader.nextRow(); row != null; row = reader.nextRow()) {
+						defaultTable.addRow(info.toValues(row, null));
+					}
+				}
+			}
+			table = defaultTable;
+			this.tables.put(info.tableName, table);
+		}
+		return table;
+	}
+
+	private TableInfo getTableInfo(String tableName) throws NoSuchTableException {
+		TableInfo info = this.tableInfos.get(tableName.toUpperCase(Locale.ENGLISH));
+		if (info == null) {
+			throw new NoSuchTableException(tableName);
+		}
+		return info;
+	}
+
+	public IDataSet stream(IDatabaseConnection connection) throws DataSetException {
+		return new StreamingDataSet();
+	}
+
+	/**
+	 * Pull reader of the tables and rows of a document.
+	 */
+	protected interface RowReader extends Closeable {
+
+		/**
+		 * Move to the next table, skipping the remaining rows of the current table.
+		 * @return the table name or {@code null} at the end of the document
+		 * @throws DataSetException on read error
+		 */
+		String nextTable() throws DataSetException;
+
+		/**
+		 * Returns the position of the rows of the table returned from the last call to {@link #nextTable()}.
+		 * @return the position in characters from the start of the document
+		 */
+		long getPosition();
+
+		/**
+		 * Read the next row of the current table.
+		 * @return the column values in document order or {@code null} at the end of the table
+		 * @throws DataSetException on read error
+		 */
+		Map<String, Object> nextRow() throws DataSetException;
+
+		@Override
+		void close();
+
+	}
+
+	/**
+	 * The location and metadata of a table.
+	 */
+	private static class TableInfo {
+
+		private final String tableName;
+
+		private final long position;
+
+		private final Set<String> columnNames = new LinkedHashSet<>();
+
+		private int rowCount;
+
+		private ITableMetaData metaData;
+
+		TableInfo(String tableName, long position) {
+			this.tableName = tableName;
+			this.position = position;
+		}
+
+		public Object[] toValues(Map<String, Object> row, Object missingValue) throws DataSetException {
+			Column[] columns = getMetaData().getColumns();
+			Object[] values = new Object[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				String columnName = columns[i].getColumnName();
+				values[i] = (row.containsKey(columnName) ? row.get(columnName) : missingValue);
+			}
+			return values;
+		}
+
+		public ITableMetaData getMetaData() {
+			if (this.metaData == null) {
+				List<Column> columns = new ArrayList<>(this.columnNames.size());
+				for (String columnName : this.columnNames) {
+					columns.add(new Column(columnName, DataType.UNKNOWN));
+				}
+				this.metaData = new DefaultTableMetaData(this.tableName, columns.toArray(new Column[0]));
+			}
+			return this.metaData;
+		}
+
+	}
+
+	/**
+	 * Iterates tables in document order, reading each table only when it is reached.
+	 */
+	private class LazyTableIterator implements ITableIterator {
+
+		private final List<String> tableNames;
+
+		private int index = -1;
+
+		LazyTableIterator(List<String> tableNames) {
+			this.tableNames = tableNames;
+		}
+
+		public boolean next() {
+			this.index++;
+			return this.index < this.tableNames.size();
+		}
+
+		public ITableMetaData getTableMetaData() throws DataSetException {
+			return RowStreamDataSet.this.getTableMetaData(this.tableNames.get(this.index));
+		}
+
+		public ITable getTable() throws DataSetException {
+			return RowStreamDataSet.this.getTable(this.tableNames.get(this.index));
+		}
+
+	}
+
+	/**
+	 * Forward only view of the document that pulls rows while they are written. Tables are visited in document order,
+	 * so one reader is opened for the whole iteration and skips the rows that were not read.
+	 */
+	private class StreamingDataSet extends AbstractDataSet implements Closeable {
+
+		private final List<RowReader> readers = new ArrayList<>();
+
+		@Override
+		protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+			if (reversed) {
+				return RowStreamDataSet.this.createIterator(true);
+			}
+			final List<TableInfo> infos = new ArrayList<>(RowStreamDataSet.this.tableInfos.values());
+			return new ITableIterator() {
+
+				private int index = -1;
+
+				private RowReader reader;
+
+				private int readerIndex = -1;
+
+				private StreamingTable table;
+
+				public boolean next() throws DataSetException {
+					this.table = null;
+					this.index++;
+					if (this.index < infos.size()) {
+						return true;
+					}
+					if (this.reader != null) {
+						this.reader.close();
+					}
+					return false;
+				}
+
+				public ITableMetaData getTableMetaData() throws DataSetException {
+					return infos.get(this.index).getMetaData();
+				}
+
+				public ITable getTable() throws DataSetException {
+					if (this.table == null) {
+						if (this.reader == null) {
+							this.reader = openReader(0);
+							synchronized (StreamingDataSet.this.readers) {
+								StreamingDataSet.this.readers.add(this.reader);
+							}
+						}
+						while (this.readerIndex < this.index) {
+							this.reader.nextTable();
+							this.readerIndex++;
+						}
+						this.table = new StreamingTable(infos.get(this.index), this.reader);
+					}
+					return this.table;
+				}
+
+			};
+		}
+
+		@Override
+		public String[] getTableNames() throws DataSetException {
+			return RowStreamDataSet.this.getTableNames();
+		}
+
+		@Override
+		public ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+			return RowStreamDataSet.this.getTableMetaData(tableName);
+		}
+
+		@Override
+		public ITable getTable(String tableName) throws DataSetException {
+			throw new UnsupportedOperationException("Streamed datasets do not support random table access");
+		}
+
+		public void close() {
+			synchronized (this.readers) {
+				for (RowReader reader : this.readers) {
+					reader.close();
+				}
+				this.readers.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * A forward only table that holds a single row.
+	 */
+	private static class StreamingTable extends AbstractTable {
+
+		private final TableInfo info;
+
+		private final RowReader reader;
+
+		private Object[] values;
+
+		private int currentRow = -1;
+
+		StreamingTable(TableInfo info, RowReader reader) {
+			this.info = info;
+			this.reader = reader;
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return this.info.getMetaData();
+		}
+
+		public int getRowCount() {
+			return this.info.rowCount;
+		}
+
+		public Object getValue(int row, String column) throws DataSetException {
+			if (row < this.currentRow) {
+				throw new UnsupportedOperationException("Streamed tables only support sequential row access");
+			}
+			if (row >= this.info.rowCount) {
+				throw new RowOutOfBoundsException(row + " > " + (this.info.rowCount - 1));
+			}
+			while (this.currentRow < row) {
+				this.values = this.info.toValues(this.reader.nextRow(), ITable.NO_VALUE);
+				this.currentRow++;
+			}
+			return this.values[getColumnIndex(column)];
+		}
+
+	}
+
+}
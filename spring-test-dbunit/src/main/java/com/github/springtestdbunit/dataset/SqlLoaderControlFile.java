@@ -0,0 +1,553 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.sqlloader.SqlLoaderControlProducer;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * An Oracle SQL*Loader control file, parsed once so that its data file can be read any number of times with a
+ * {@link RowReader}. The control file names the table (<code>INTO TABLE</code>), the data file (<code>INFILE</code>,
+ * resolved relative to the control file), the field terminator and enclosure (<code>FIELDS TERMINATED BY ';'
+ * OPTIONALLY ENCLOSED BY '"'</code>, which are also the defaults), <code>TRAILING NULLCOLS</code>, the
+ * <code>CHARACTERSET</code> of the data file (UTF-8 by default) and the parenthesized list of fields. Fields declared
+ * <code>FILLER</code> are read but not loaded.
+ * <p>
+ * Data files are read as by the DBUnit {@link org.dbunit.dataset.sqlloader.SqlLoaderControlDataSet
+ * SqlLoaderControlDataSet}: leading whitespace is ignored, enclosed values may contain terminators and line breaks and
+ * <code>\</code> escapes the next character, and <code>null</code> is read as {@code null}. As with SQL*Loader, and
+ * unlike DBUnit, empty values are also read as {@code null} and a doubled enclosure character inside an enclosed value
+ * is read as a single one.
+ */
+class SqlLoaderControlFile {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+	private static final byte[] NULL = SqlLoaderControlProducer.NULL.getBytes(StandardCharsets.US_ASCII);
+
+	private static final String CHARACTER = "('(?:[^']|'')*'|\"[^\"]*\"|[xX]'[0-9a-fA-F]{2}')";
+
+	private static final Pattern COMMENT = Pattern.compile("--[^\n]*");
+
+	private static final Pattern LOAD_DATA = Pattern.compile("^\\s*(?:OPTIONS\\s*\\([^)]*\\)\\s*)?LOAD\\s+DATA\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern CHARACTERSET = Pattern.compile("\\bCHARACTERSET\\s+['\"]?([\\w-]+)",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern INFILE = Pattern.compile("\\bINFILE\\s+(?:'([^']*)'|\"([^\"]*)\"|(\\S+))",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern INTO_TABLE = Pattern.compile("\\bINTO\\s+TABLE\\s+(\"[^\"]+\"|[\\w$#.]+)",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern TERMINATED_BY = Pattern.compile("\\bTERMINATED\\s+BY\\s+(WHITESPACE|" + CHARACTER
+			+ ")", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern ENCLOSED_BY = Pattern.compile("\\bENCLOSED\\s+BY\\s+" + CHARACTER,
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern TRAILING_NULLCOLS = Pattern.compile("\\bTRAILING\\s+NULLCOLS\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern FIELD = Pattern.compile("^\\s*(\"[^\"]+\"|[\\w$#]+)\\s*(FILLER|BOUNDFILLER)?\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Map<String, Charset> ORACLE_CHARSETS;
+	static {
+		Map<String, Charset> charsets = new HashMap<>();
+		charsets.put("AL32UTF8", StandardCharsets.UTF_8);
+		charsets.put("UTF8", StandardCharsets.UTF_8);
+		charsets.put("US7ASCII", StandardCharsets.US_ASCII);
+		charsets.put("WE8ISO8859P1", StandardCharsets.ISO_8859_1);
+		charsets.put("WE8ISO8859P15", Charset.forName("ISO-8859-15"));
+		charsets.put("WE8MSWIN1252", Charset.forName("windows-1252"));
+		ORACLE_CHARSETS = charsets;
+	}
+
+	private final Resource controlFile;
+
+	private final Resource dataFile;
+
+	private final ITableMetaData metaData;
+
+	private final int[] fieldColumns;
+
+	private final int terminator;
+
+	private final int enclosure;
+
+	private final boolean trailingNullCols;
+
+	private final Charset charset;
+
+	/**
+	 * Parse a control file.
+	 * @param controlFile the control file
+	 * @throws DataSetException if the control file cannot be read or is not supported
+	 */
+	SqlLoaderControlFile(Resource controlFile) throws DataSetException {
+		this.controlFile = controlFile;
+		String content;
+		try (InputStream inputStream = controlFile.getInputStream()) {
+			content = new String(FileCopyUtils.copyToByteArray(inputStream), StandardCharsets.UTF_8);
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to read control file " + controlFile, ex);
+		}
+		content = COMMENT.matcher(content.replace("\r", "")).replaceAll("");
+		if (!LOAD_DATA.matcher(content).find()) {
+			throw new DataSetException("Control file " + controlFile + " does not start with 'LOAD DATA'");
+		}
+		int fieldListStart = findFieldListStart(content);
+		String header = content.substring(0, fieldListStart);
+		this.charset = getCharset(header);
+		this.dataFile = getDataFile(header);
+		this.terminator = getCharacter(header, TERMINATED_BY, ';');
+		this.enclosure = getCharacter(header, ENCLOSED_BY, '"');
+		this.trailingNullCols = TRAILING_NULLCOLS.matcher(header).find();
+		byte[] delimiters = { (byte) this.terminator, (byte) this.enclosure, '\n' };
+		if (new String(delimiters, this.charset).length() != delimiters.length) {
+			throw new DataSetException("Character set " + this.charset + " of " + controlFile + " is not supported");
+		}
+		List<String> fields = splitFields(content.substring(fieldListStart + 1, content.lastIndexOf(')')));
+		List<Column> columns = new ArrayList<>(fields.size());
+		this.fieldColumns = new int[fields.size()];
+		for (int i = 0; i < fields.size(); i++) {
+			Matcher matcher = FIELD.matcher(fields.get(i));
+			if (!matcher.find()) {
+				throw new DataSetException("Unable to parse field '" + fields.get(i).trim() + "' of " + controlFile);
+			}
+			this.fieldColumns[i] = (matcher.group(2) != null ? -1 : columns.size());
+			if (matcher.group(2) == null) {
+				columns.add(new Column(unquote(matcher.group(1)), DataType.UNKNOWN));
+			}
+		}
+		this.metaData = new DefaultTableMetaData(getTableName(header), columns.toArray(new Column[0]));
+	}
+
+	private int findFieldListStart(String content) throws DataSetException {
+		int end = content.lastIndexOf(')');
+		int depth = 0;
+		for (int i = end; i >= 0; i--) {
+			char ch = content.charAt(i);
+			if (ch == '\'' || ch == '"') {
+				i = content.lastIndexOf(ch, i - 1);
+				if (i == -1) {
+					break;
+				}
+			} else if (ch == ')') {
+				depth++;
+			} else if (ch == '(' && --depth == 0) {
+				return i;
+			}
+		}
+		throw new DataSetException("No field list found in control file " + this.controlFile);
+	}
+
+	private Charset getCharset(String header) throws DataSetException {
+		Matcher matcher = CHARACTERSET.matcher(header);
+		if (!matcher.find()) {
+			return StandardCharsets.UTF_8;
+		}
+		String name = matcher.group(1);
+		Charset charset = ORACLE_CHARSETS.get(name.toUpperCase(Locale.ENGLISH));
+		try {
+			return (charset != null ? charset : Charset.forName(name));
+		} catch (IllegalArgumentException ex) {
+			throw new DataSetException("Unknown character set '" + name + "' in " + this.controlFile, ex);
+		}
+	}
+
+	private Resource getDataFile(String header) throws DataSetException {
+		Matcher matcher = INFILE.matcher(header);
+		if (!matcher.find()) {
+			throw new DataSetException("No INFILE found in control file " + this.controlFile);
+		}
+		String name = matcher.group(matcher.group(1) != null ? 1 : matcher.group(2) != null ? 2 : 3);
+		if ("*".equals(name)) {
+			throw new DataSetException("Inline data (INFILE *) in " + this.controlFile + " is not supported");
+		}
+		if (new File(name).isAbsolute()) {
+			return new FileSystemResource(name);
+		}
+		name = name.replace('\\', '/');
+		while (name.startsWith("./")) {
+			name = name.substring(2);
+		}
+		try {
+			return this.controlFile.createRelative(name);
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to resolve data file '" + name + "' of " + this.controlFile, ex);
+		}
+	}
+
+	private String getTableName(String header) throws DataSetException {
+		Matcher matcher = INTO_TABLE.matcher(header);
+		if (!matcher.find()) {
+			throw new DataSetException("No INTO TABLE found in control file " + this.controlFile);
+		}
+		return unquote(matcher.group(1));
+	}
+
+	private int getCharacter(String header, Pattern pattern, char defaultValue) throws DataSetException {
+		Matcher matcher = pattern.matcher(header);
+		if (!matcher.find()) {
+			return defaultValue;
+		}
+		String value = matcher.group(1);
+		if ("WHITESPACE".equalsIgnoreCase(value)) {
+			throw new DataSetException("TERMINATED BY WHITESPACE in " + this.controlFile + " is not supported");
+		}
+		if (value.charAt(0) == 'x' || value.charAt(0) == 'X') {
+			return Integer.parseInt(value.substring(2, 4), 16);
+		}
+		value = value.substring(1, value.length() - 1).replace("''", "'");
+		if (value.length() != 1 || value.charAt(0) > 0x7F) {
+			throw new DataSetException("Only single ASCII characters are supported as delimiters in "
+					+ this.controlFile);
+		}
+		return value.charAt(0);
+	}
+
+	private static List<String> splitFields(String fieldList) {
+		List<String> fields = new ArrayList<>();
+		int depth = 0;
+		int start = 0;
+		for (int i = 0; i < fieldList.length(); i++) {
+			char ch = fieldList.charAt(i);
+			if (ch == '\'' || ch == '"') {
+				int end = fieldList.indexOf(ch, i + 1);
+				i = (end != -1 ? end : fieldList.length());
+			} else if (ch == '(') {
+				depth++;
+			} else if (ch == ')') {
+				depth--;
+			} else if (ch == ',' && depth == 0) {
+				fields.add(fieldList.substring(start, i));
+				start = i + 1;
+			}
+		}
+		if (fieldList.substring(start).trim().length() > 0) {
+			fields.add(fieldList.substring(start));
+		}
+		return fields;
+	}
+
+	private static String unquote(String name) {
+		return (name.startsWith("\"") ? name.substring(1, name.length() - 1) : name);
+	}
+
+	/**
+	 * Returns the table the control file loads, with a column for each field that is not a <code>FILLER</code>.
+	 * @return the table metadata
+	 */
+	public ITableMetaData getTableMetaData() {
+		return this.metaData;
+	}
+
+	/**
+	 * Open a reader over the rows of the data file. Data files on the file system are memory-mapped, all others are
+	 * read as a stream.
+	 * @return the row reader
+	 * @throws DataSetException if the data file cannot be opened
+	 */
+	public RowReader openReader() throws DataSetException {
+		try {
+			if (this.dataFile.isFile()) {
+				return new RowReader(new MappedRegions(this.dataFile.getFile()));
+			}
+			return new RowReader(Channels.newChannel(this.dataFile.getInputStream()));
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to open data file " + this.dataFile + " of " + this.controlFile, ex);
+		}
+	}
+
+	/**
+	 * Source of the bytes of a data file.
+	 */
+	private interface ByteSource extends Closeable {
+
+		/**
+		 * Returns a buffer holding the next bytes of the file.
+		 * @return the buffer or {@code null} at the end of the file
+		 * @throws IOException on read error
+		 */
+		ByteBuffer next() throws IOException;
+
+	}
+
+	/**
+	 * Maps a file in consecutive regions so that files larger than 2GB can be read.
+	 */
+	private static class MappedRegions implements ByteSource {
+
+		private final FileChannel channel;
+
+		private long position;
+
+		MappedRegions(File file) throws IOException {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+
+		public ByteBuffer next() throws IOException {
+			long size = this.channel.size();
+			if (this.position >= size) {
+				return null;
+			}
+			long length = Math.min(size - this.position, MAPPED_REGION_SIZE);
+			ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+			this.position += length;
+			return buffer;
+		}
+
+		public void close() throws IOException {
+			this.channel.close();
+		}
+
+	}
+
+	/**
+	 * Reads rows from a data file, one at a time.
+	 */
+	class RowReader implements Closeable {
+
+		private final ByteSource source;
+
+		private ByteBuffer buffer;
+
+		private byte[] value = new byte[256];
+
+		private int length;
+
+		private int line = 1;
+
+		RowReader(ByteSource source) {
+			this.source = source;
+			this.buffer = ByteBuffer.allocate(0);
+		}
+
+		RowReader(final ReadableByteChannel channel) {
+			this(new ByteSource() {
+
+				private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+				public ByteBuffer next() throws IOException {
+					((Buffer) this.buffer).clear();
+					int count = channel.read(this.buffer);
+					while (count == 0) {
+						count = channel.read(this.buffer);
+					}
+					((Buffer) this.buffer).flip();
+					return (count == -1 ? null : this.buffer);
+				}
+
+				public void close() throws IOException {
+					channel.close();
+				}
+
+			});
+		}
+
+		/**
+		 * Read the next row. Blank lines are skipped.
+		 * @return the values of the columns of the {@link #getTableMetaData() table} or {@code null} at the end of the
+		 * data file
+		 * @throws DataSetException if the data file cannot be read or the row does not match the field list
+		 */
+		public Object[] nextRow() throws DataSetException {
+			try {
+				int b = read();
+				while (b == '\n' || b == '\r') {
+					if (b == '\n') {
+						this.line++;
+					}
+					b = read();
+				}
+				if (b == -1) {
+					return null;
+				}
+				int firstLine = this.line;
+				Object[] row = new Object[SqlLoaderControlFile.this.metaData.getColumns().length];
+				int fieldCount = 0;
+				while (true) {
+					b = readField(b);
+					if (fieldCount == SqlLoaderControlFile.this.fieldColumns.length) {
+						throw new DataSetException(getRowError(firstLine, fieldCount + 1));
+					}
+					int column = SqlLoaderControlFile.this.fieldColumns[fieldCount++];
+					if (column != -1) {
+						row[column] = getValue();
+					}
+					if (b != SqlLoaderControlFile.this.terminator) {
+						break;
+					}
+					b = read();
+				}
+				if (b == '\n') {
+					this.line++;
+				}
+				if (fieldCount < SqlLoaderControlFile.this.fieldColumns.length
+						&& !SqlLoaderControlFile.this.trailingNullCols) {
+					throw new DataSetException(getRowError(firstLine, fieldCount));
+				}
+				return row;
+			} catch (IOException ex) {
+				throw new DataSetException("Unable to read data file " + SqlLoaderControlFile.this.dataFile, ex);
+			}
+		}
+
+		private String getRowError(int line, int fieldCount) {
+			return "Expected " + SqlLoaderControlFile.this.fieldColumns.length + " fields on line " + line + " of "
+					+ SqlLoaderControlFile.this.dataFile + ", got " + fieldCount;
+		}
+
+		/**
+		 * Read a field into the value buffer.
+		 * @param first the first byte of the field
+		 * @return the byte that ended the field: the terminator, a line break or {@code -1}
+		 */
+		private int readField(int first) throws IOException, DataSetException {
+			int terminator = SqlLoaderControlFile.this.terminator;
+			int enclosure = SqlLoaderControlFile.this.enclosure;
+			this.length = 0;
+			int b = first;
+			while ((b == ' ' || b == '\t') && b != terminator) {
+				b = read();
+			}
+			if (b == enclosure) {
+				int enclosedLine = this.line;
+				b = read();
+				while (true) {
+					if (b == -1) {
+						throw new DataSetException("Unterminated value starting on line " + enclosedLine + " of "
+								+ SqlLoaderControlFile.this.dataFile);
+					}
+					if (b == enclosure) {
+						b = read();
+						if (b != enclosure) {
+							break;
+						}
+					} else if (b == '\\') {
+						b = read();
+						if (b == -1) {
+							continue;
+						}
+					} else if (b == '\r') {
+						b = read();
+						if (b != '\n') {
+							append('\r');
+							continue;
+						}
+					}
+					if (b == '\n') {
+						this.line++;
+					}
+					append(b);
+					b = read();
+				}
+			}
+			while (b != terminator && b != '\n' && b != -1) {
+				if (b == '\r') {
+					int next = read();
+					if (next == '\n' || next == -1) {
+						return next;
+					}
+					append(b);
+					b = next;
+					continue;
+				}
+				append(b);
+				b = read();
+			}
+			return b;
+		}
+
+		private Object getValue() {
+			if (this.length == 0) {
+				return null;
+			}
+			if (this.length == NULL.length) {
+				int i = 0;
+				while (i < NULL.length && this.value[i] == NULL[i]) {
+					i++;
+				}
+				if (i == NULL.length) {
+					return null;
+				}
+			}
+			return new String(this.value, 0, this.length, SqlLoaderControlFile.this.charset);
+		}
+
+		private void append(int b) {
+			if (this.length == this.value.length) {
+				this.value = Arrays.copyOf(this.value, this.length * 2);
+			}
+			this.value[this.length++] = (byte) b;
+		}
+
+		private int read() throws IOException {
+			if (!this.buffer.hasRemaining()) {
+				this.buffer = this.source.next();
+				if (this.buffer == null) {
+					this.buffer = ByteBuffer.allocate(0);
+					return -1;
+				}
+			}
+			return this.buffer.get() & 0xFF;
+		}
+
+		public void close() {
+			try {
+				this.source.close();
+			} catch (IOException ex) {
+				// Ignore
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.datatype.DataType;
+import org.springframework.core.io.Resource;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link DataSetLoader data set loader} for flat XML files that uses a StAX pull parser rather than the SAX pipeline
+ * of the {@link org.dbunit.dataset.xml.FlatXmlDataSetBuilder}. Attribute values are read straight into per-table column
+ * buffers, and repeated table names, column names and short values are shared rather than copied for every row.
+ * <p>
+ * Datasets are read with column sensing and case-insensitive table names, the same as the {@link FlatXmlDataSetLoader};
+ * rows of a table that appears more than once are merged. Documents that declare a <code>DOCTYPE</code> are loaded by
+ * the {@link FlatXmlDataSetLoader} so that their DTD metadata is honored.
+ *
+ * @see FlatXmlDataSetLoader
+ */
+public class StaxFlatXmlDataSetLoader extends AbstractDataSetLoader {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final int MAX_INTERNED_LENGTH = 64;
+
+	private static final int MAX_INTERNED_VALUES = 1 << 16;
+
+	private final XMLInputFactory inputFactory = createInputFactory();
+
+	private final FlatXmlDataSetLoader fallback = new FlatXmlDataSetLoader();
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws Exception {
+		return createDataSet(resource, datasetId, null);
+	}
+
+	/**
+	 * Create the dataset, only reading rows of the given tables.
+	 */
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames) throws Exception {
+		Resource dataSetResource = DataSetOffsetIndex.getSharedInstance().getResource(resource, datasetId);
+		IDataSet dataSet;
+		try (InputStream inputStream = dataSetResource.getInputStream()) {
+			XMLStreamReader reader = this.inputFactory.createXMLStreamReader(inputStream);
+			try {
+				dataSet = new Parser(datasetId, tableNames).parse(reader);
+			} finally {
+				reader.close();
+			}
+		}
+		if (dataSet == null) {
+			return (CollectionUtils.isEmpty(tableNames) ? this.fallback.createDataSet(resource, datasetId)
+					: this.fallback.createDataSet(resource, datasetId, tableNames));
+		}
+		return dataSet;
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		inputFactory.setXMLResolver((publicId, systemId, baseUri, namespace) -> new ByteArrayInputStream(new byte[0]));
+		return inputFactory;
+	}
+
+	/**
+	 * Reads the rows of a single document into {@link TableBuffer table buffers}.
+	 */
+	private static class Parser {
+
+		private final String datasetId;
+
+		private final Set<String> tableNames;
+
+		private final Map<String, TableBuffer> tables = new LinkedHashMap<>();
+
+		private final Map<String, String> strings = new HashMap<>();
+
+		private int depth;
+
+		private boolean multiple;
+
+		private boolean active;
+
+		private String tableName;
+
+		private TableBuffer table;
+
+		Parser(String datasetId, Set<String> tableNames) {
+			this.datasetId = datasetId;
+			if (CollectionUtils.isEmpty(tableNames)) {
+				this.tableNames = null;
+			} else {
+				this.tableNames = new HashSet<>();
+				for (String name : tableNames) {
+					this.tableNames.add(name.trim().toUpperCase(Locale.ENGLISH));
+				}
+			}
+		}
+
+		/**
+		 * Parse the document.
+		 * @param reader the reader of the document
+		 * @return the dataset or {@code null} if the document declares a <code>DOCTYPE</code>
+		 * @throws XMLStreamException on parse error
+		 * @throws DataSetException if the dataset cannot be created
+		 */
+		public IDataSet parse(XMLStreamReader reader) throws XMLStreamException, DataSetException {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.DTD) {
+					return null;
+				}
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					startElement(reader);
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					this.depth--;
+				}
+			}
+			List<ITable> tables = new ArrayList<>(this.tables.size());
+			for (TableBuffer table : this.tables.values()) {
+				tables.add(table.build());
+			}
+			return new DefaultDataSet(tables.toArray(new ITable[0]));
+		}
+
+		private void startElement(XMLStreamReader reader) {
+			this.depth++;
+			String name = reader.getLocalName();
+			if (this.depth == 1) {
+				this.multiple = "datasets".equals(name);
+				this.active = !this.multiple;
+			} else if (this.multiple && this.depth == 2) {
+				this.active = "dataset".equals(name) && isSelected(reader.getAttributeValue(null, "id"));
+			} else if (this.active && this.depth == (this.multiple ? 3 : 2)) {
+				if (!name.equals(this.tableName)) {
+					this.tableName = name;
+					this.table = getTable(name);
+				}
+				if (this.table != null) {
+					row(reader);
+				}
+			}
+		}
+
+		private boolean isSelected(String id) {
+			return !StringUtils.hasLength(this.datasetId) || this.datasetId.equals(id);
+		}
+
+		private TableBuffer getTable(String name) {
+			String key = name.toUpperCase(Locale.ENGLISH);
+			if (this.tableNames != null && !this.tableNames.contains(key)) {
+				return null;
+			}
+			TableBuffer table = this.tables.get(key);
+			if (table == null) {
+				table = new TableBuffer(intern(name));
+				this.tables.put(key, table);
+			}
+			return table;
+		}
+
+		private void row(XMLStreamReader reader) {
+			int attributeCount = reader.getAttributeCount();
+			if (attributeCount == 0) {
+				return;
+			}
+			int row = this.table.addRow();
+			for (int i = 0; i < attributeCount; i++) {
+				int column = this.table.getColumn(reader.getAttributeLocalName(i), this);
+				this.table.setValue(row, column, intern(reader.getAttributeValue(i)));
+			}
+		}
+
+		/**
+		 * Returns a shared instance of the given string. Long strings, and new strings once enough have been seen, are
+		 * returned as is to bound the memory used by the lookup.
+		 */
+		String intern(String value) {
+			if (value.length() > MAX_INTERNED_LENGTH) {
+				return value;
+			}
+			String interned = this.strings.get(value);
+			if (interned != null) {
+				return interned;
+			}
+			if (this.strings.size() < MAX_INTERNED_VALUES) {
+				this.strings.put(value, value);
+			}
+			return value;
+		}
+
+	}
+
+	/**
+	 * Column buffers of a single table. Columns are sensed from the attributes of the rows; values of columns that are
+	 * not present in a row are {@code null}.
+	 */
+	private static class TableBuffer {
+
+		private final String tableName;
+
+		private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+		private final List<String> columnNames = new ArrayList<>();
+
+		private final List<Object[]> columns = new ArrayList<>();
+
+		private int capacity = INITIAL_CAPACITY;
+
+		private int rowCount;
+
+		TableBuffer(String tableName) {
+			this.tableName = tableName;
+		}
+
+		public int getColumn(String columnName, Parser parser) {
+			Integer index = this.columnIndexes.get(columnName);
+			if (index == null) {
+				index = this.columnNames.size();
+				String name = parser.intern(columnName);
+				this.columnIndexes.put(name, index);
+				this.columnNames.add(name);
+				this.columns.add(new Object[this.capacity]);
+			}
+			return index;
+		}
+
+		public int addRow() {
+			if (this.rowCount == this.capacity) {
+				this.capacity = this.capacity * 2;
+				for (int i = 0; i < this.columns.size(); i++) {
+					this.columns.set(i, Arrays.copyOf(this.columns.get(i), this.capacity));
+				}
+			}
+			return this.rowCount++;
+		}
+
+		public void setValue(int row, int column, Object value) {
+			this.columns.get(column)[row] = value;
+		}
+
+		public ITable build() {
+			Column[] columns = new Column[this.columnNames.size()];
+			Object[][] values = new Object[columns.length][];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = new Column(this.columnNames.get(i), DataType.UNKNOWN);
+				Object[] column = this.columns.get(i);
+				values[i] = (column.length == this.rowCount ? column : Arrays.copyOf(column, this.rowCount));
+			}
+			return new ColumnBufferTable(new DefaultTableMetaData(this.tableName, columns), values, this.rowCount);
+		}
+
+	}
+
+	/**
+	 * Immutable table backed by one value array per column.
+	 */
+	private static class ColumnBufferTable extends AbstractTable {
+
+		private final ITableMetaData metaData;
+
+		private final Object[][] columns;
+
+		private final int rowCount;
+
+		ColumnBufferTable(ITableMetaData metaData, Object[][] columns, int rowCount) {
+			this.metaData = metaData;
+			this.columns = columns;
+			this.rowCount = rowCount;
+		}
+
+		@Override
+		public ITableMetaData getTableMetaData() {
+			return this.metaData;
+		}
+
+		@Override
+		public int getRowCount() {
+			return this.rowCount;
+		}
+
+		@Override
+		public Object getValue(int row, String column) throws DataSetException {
+			assertValidRowIndex(row);
+			return this.columns[getColumnIndex(column)][row];
+		}
+
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+
+/**
+ * A {@link IDataSet dataset} that can be streamed directly into a database rather than being fully loaded into memory.
+ * When used for database setup or teardown the dataset returned from {@link #stream(IDatabaseConnection)} is passed to
+ * the DBUnit operation instead of this instance. The returned dataset may only support forward iteration and may
+ * implement {@link java.io.Closeable} if resources need to be released once the operation completes.
+ *
+ * @see StreamingFlatXmlDataSetLoader
+ */
+public interface StreamableDataSet extends IDataSet {
+
+	/**
+	 * Returns a streaming view of this dataset that uses the given connection to resolve table metadata.
+	 * @param connection the connection that will receive the data
+	 * @return a streaming dataset
+	 * @throws DataSetException if the dataset cannot be streamed
+	 */
+	IDataSet stream(IDatabaseConnection connection) throws DataSetException;
+
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableIterator;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.springframework.core.io.Resource;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * A {@link StreamableDataSet} backed by a flat XML resource.
+ * <p>
+ * When {@link #stream(IDatabaseConnection) streamed} the resource is parsed on a background thread that feeds rows
+ * through a bounded buffer, so parsing overlaps with JDBC writes and memory use does not depend on the size of the
+ * file. Columns are taken from the metadata of the target tables rather than sensed from the file; attributes that are
+ * not present on a row are reported as {@link ITable#NO_VALUE} so that the column is left out of the insert. The
+ * streamed dataset only supports forward iteration of rows and is intended for <code>INSERT</code> and
+ * <code>CLEAN_INSERT</code> operations.
+ * <p>
+ * When used in any other way (for example as an expected dataset) the resource is loaded in full using a
+ * {@link FlatXmlDataSetLoader}.
+ *
+ * @see StreamingFlatXmlDataSetLoader
+ */
+public class StreamingFlatXmlDataSet extends AbstractDataSet implements StreamableDataSet {
+
+	private static final Object END = new Object();
+
+	private final Resource resource;
+
+	private final String datasetId;
+
+	private final int bufferSize;
+
+	private IDataSet loadedDataSet;
+
+	/**
+	 * Create a new {@link StreamingFlatXmlDataSet}.
+	 * @param resource the flat XML resource
+	 * @param datasetId the id of the dataset to read or {@code null} to read all rows
+	 * @param bufferSize the maximum number of parsed rows held in memory while streaming
+	 */
+	public StreamingFlatXmlDataSet(Resource resource, String datasetId, int bufferSize) {
+		this.resource = resource;
+		this.datasetId = datasetId;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		IDataSet dataSet = getLoadedDataSet();
+		return (reversed ? dataSet.reverseIterator() : dataSet.iterator());
+	}
+
+	private synchronized IDataSet getLoadedDataSet() throws DataSetException {
+		if (this.loadedDataSet == null) {
+			try {
+				this.loadedDataSet = new FlatXmlDataSetLoader().createDataSet(this.resource, this.datasetId);
+			} catch (DataSetException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				throw new DataSetException("Unable to load " + this.resource, ex);
+			}
+		}
+		return this.loadedDataSet;
+	}
+
+	public IDataSet stream(IDatabaseConnection connection) throws DataSetException {
+		try {
+			return new DatabaseStreamingDataSet(connection.createDataSet());
+		} catch (SQLException ex) {
+			throw new DataSetException(ex);
+		}
+	}
+
+	private List<String> getTableNames(boolean reversed) throws DataSetException {
+		final Set<String> tableNames = new LinkedHashSet<>();
+		try {
+			new FlatXmlHandler(this.datasetId) {
+
+				@Override
+				protected void startTable(String tableName) {
+					tableNames.add(tableName);
+				}
+
+			}.parse(this.resource);
+		} catch (Exception ex) {
+			throw new DataSetException("Unable to parse " + this.resource, ex);
+		}
+		List<String> result = new ArrayList<>(tableNames);
+		if (reversed) {
+			Collections.reverse(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Streaming view of the dataset, using the metadata of the target database.
+	 */
+	private class DatabaseStreamingDataSet extends AbstractDataSet implements Closeable {
+
+		private final IDataSet databaseDataSet;
+
+		private final List<Pipeline> pipelines = new ArrayList<>();
+
+		DatabaseStreamingDataSet(IDataSet databaseDataSet) {
+			this.databaseDataSet = databaseDataSet;
+		}
+
+		@Override
+		protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+			if (!reversed) {
+				Pipeline pipeline = new Pipeline();
+				synchronized (this.pipelines) {
+					this.pipelines.add(pipeline);
+				}
+				pipeline.start();
+				return new PipelineIterator(this.databaseDataSet, pipeline);
+			}
+			List<String> tableNames = StreamingFlatXmlDataSet.this.getTableNames(true);
+			ITable[] tables = new ITable[tableNames.size()];
+			for (int i = 0; i < tables.length; i++) {
+				tables[i] = new DefaultTable(getTableMetaData(tableNames.get(i)));
+			}
+			return new DefaultTableIterator(tables);
+		}
+
+		@Override
+		public String[] getTableNames() throws DataSetException {
+			List<String> tableNames = StreamingFlatXmlDataSet.this.getTableNames(false);
+			return tableNames.toArray(new String[tableNames.size()]);
+		}
+
+		@Override
+		public ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+			return this.databaseDataSet.getTableMetaData(tableName);
+		}
+
+		@Override
+		public ITable getTable(String tableName) throws DataSetException {
+			throw new UnsupportedOperationException("Streamed datasets do not support random table access");
+		}
+
+		public void close() {
+			synchronized (this.pipelines) {
+				for (Pipeline pipeline : this.pipelines) {
+					pipeline.close();
+				}
+				this.pipelines.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * Bounded producer/consumer pipeline that parses the resource on a background thread.
+	 */
+	private class Pipeline implements Runnable {
+
+		private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(
+				StreamingFlatXmlDataSet.this.bufferSize);
+
+		private volatile boolean closed;
+
+		public void start() {
+			Thread thread = new Thread(this, "spring-test-dbunit-streaming-" + StreamingFlatXmlDataSet.this.resource);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public void run() {
+			try {
+				new FlatXmlHandler(StreamingFlatXmlDataSet.this.datasetId) {
+
+					@Override
+					protected void startTable(String tableName) throws SAXException {
+						put(new TableStart(tableName));
+					}
+
+					@Override
+					protected void row(String tableName, Attributes attributes) throws SAXException {
+						put(new Row(attributes));
+					}
+
+				}.parse(StreamingFlatXmlDataSet.this.resource);
+				put(END);
+			} catch (Throwable ex) {
+				if (!this.closed) {
+					try {
+						put(ex);
+					} catch (SAXException closed) {
+						// The consumer has gone away
+					}
+				}
+			}
+		}
+
+		private void put(Object event) throws SAXException {
+			try {
+				while (!this.queue.offer(event, 100, TimeUnit.MILLISECONDS)) {
+					if (this.closed) {
+						throw new SAXException("Streaming of " + StreamingFlatXmlDataSet.this.resource + " was closed");
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new SAXException(ex);
+			}
+		}
+
+		public Object take() throws DataSetException {
+			try {
+				Object event = this.queue.take();
+				if (event instanceof Throwable) {
+					throw new DataSetException("Unable to parse " + StreamingFlatXmlDataSet.this.resource,
+							(Throwable) event);
+				}
+				return event;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new DataSetException(ex);
+			}
+		}
+
+		public void close() {
+			this.closed = true;
+			this.queue.clear();
+		}
+
+	}
+
+	/**
+	 * Consumer side of the {@link Pipeline}. Table metadata is resolved on the calling thread so that the connection is
+	 * never used concurrently.
+	 */
+	private static class PipelineIterator implements ITableIterator {
+
+		private final IDataSet databaseDataSet;
+
+		private final Pipeline pipeline;
+
+		private Object pending;
+
+		private PipelineTable table;
+
+		PipelineIterator(IDataSet databaseDataSet, Pipeline pipeline) {
+			this.databaseDataSet = databaseDataSet;
+			this.pipeline = pipeline;
+		}
+
+		public boolean next() throws DataSetException {
+			if (this.table != null) {
+				this.table.drain();
+			}
+			Object event = nextEvent();
+			if (event == END) {
+				this.table = null;
+				this.pipeline.close();
+				return false;
+			}
+			String tableName = ((TableStart) event).tableName;
+			this.table = new PipelineTable(this, this.databaseDataSet.getTableMetaData(tableName));
+			return true;
+		}
+
+		public ITableMetaData getTableMetaData() throws DataSetException {
+			return getTable().getTableMetaData();
+		}
+
+		public ITable getTable() throws DataSetException {
+			if (this.table == null) {
+				throw new IllegalStateException("No current table, call next() first");
+			}
+			return this.table;
+		}
+
+		Object nextEvent() throws DataSetException {
+			if (this.pending != null) {
+				Object event = this.pending;
+				this.pending = null;
+				return event;
+			}
+			return this.pipeline.take();
+		}
+
+		void pushBack(Object event) {
+			this.pending = event;
+		}
+
+	}
+
+	/**
+	 * A forward only table that reads rows from the pipeline on demand.
+	 */
+	private static class PipelineTable implements ITable {
+
+		private final PipelineIterator iterator;
+
+		private final ITableMetaData metaData;
+
+		private final int columnCount;
+
+		private Object[] values;
+
+		private int currentRow = -1;
+
+		private boolean exhausted;
+
+		PipelineTable(PipelineIterator iterator, ITableMetaData metaData) throws DataSetException {
+			this.iterator = iterator;
+			this.metaData = metaData;
+			this.columnCount = metaData.getColumns().length;
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return this.metaData;
+		}
+
+		public int getRowCount() {
+			throw new UnsupportedOperationException("Streamed tables do not support getRowCount()");
+		}
+
+		public Object getValue(int row, String column) throws DataSetException {
+			if (row < this.currentRow) {
+				throw new UnsupportedOperationException("Streamed tables only support sequential row access");
+			}
+			while (this.currentRow < row && !this.exhausted) {
+				advance();
+			}
+			if (this.currentRow < row) {
+				throw new RowOutOfBoundsException(row + " > " + this.currentRow);
+			}
+			return this.values[this.metaData.getColumnIndex(column)];
+		}
+
+		void drain() throws DataSetException {
+			while (!this.exhausted) {
+				advance();
+			}
+		}
+
+		private void advance() throws DataSetException {
+			Object event = this.iterator.nextEvent();
+			if (!(event instanceof Row)) {
+				this.iterator.pushBack(event);
+				this.exhausted = true;
+				return;
+			}
+			Row row = (Row) event;
+			Object[] values = new Object[this.columnCount];
+			Arrays.fill(values, ITable.NO_VALUE);
+			for (int i = 0; i < row.names.length; i++) {
+				values[this.metaData.getColumnIndex(row.names[i])] = row.values[i];
+			}
+			this.values = values;
+			this.currentRow++;
+		}
+
+	}
+
+	private static class TableStart {
+
+		private final String tableName;
+
+		TableStart(String tableName) {
+			this.tableName = tableName;
+		}
+
+	}
+
+	private static class Row {
+
+		private final String[] names;
+
+		private final String[] values;
+
+		Row(Attributes attributes) {
+			int length = attributes.getLength();
+			this.names = new String[length];
+			this.values = new String[length];
+			for (int i = 0; i < length; i++) {
+				this.names[i] = attributes.getQName(i);
+				this.values[i] = attributes.getValue(i);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import org.dbunit.dataset.IDataSet;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DataSetLoader data set loader} that streams flat XML files into the database instead of loading them into
+ * memory. Intended for very large setup files; column sensing is replaced by the metadata of the target tables. Each
+ * setup annotation should reference a single location for the data to be streamed, see
+ * {@link StreamingFlatXmlDataSet} for details.
+ *
+ * @see StreamingFlatXmlDataSet
+ */
+public class StreamingFlatXmlDataSetLoader extends AbstractDataSetLoader {
+
+	/**
+	 * The default number of parsed rows that can be buffered ahead of the database writes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+	private final int bufferSize;
+
+	public StreamingFlatXmlDataSetLoader() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a new {@link StreamingFlatXmlDataSetLoader}.
+	 * @param bufferSize the maximum number of parsed rows held in memory while streaming
+	 */
+	public StreamingFlatXmlDataSetLoader(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "BufferSize must be positive");
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws Exception {
+		return new StreamingFlatXmlDataSet(resource, datasetId, this.bufferSize);
+	}
+
+}
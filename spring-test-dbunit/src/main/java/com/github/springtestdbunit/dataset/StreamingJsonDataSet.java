@@ -0,0 +1,304 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.dbunit.dataset.DataSetException;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link StreamableDataSet} backed by a JSON document in the format written by
+ * {@link com.github.springtestdbunit.DbUnitRunner#export}: an object that maps each table name to an array of row
+ * objects. Column values must be strings, numbers, booleans or {@code null}; numbers are returned as
+ * {@link BigDecimal}s. The document is read with a token-level pull parser, see {@link RowStreamDataSet}.
+ *
+ * @see JsonDataSetLoader
+ */
+public class StreamingJsonDataSet extends RowStreamDataSet {
+
+	/**
+	 * Create a new {@link StreamingJsonDataSet}.
+	 * @param resource the JSON resource
+	 * @throws DataSetException if the document cannot be read
+	 */
+	public StreamingJsonDataSet(Resource resource) throws DataSetException {
+		super(resource);
+	}
+
+	@Override
+	protected RowReader createReader(Reader reader, long position) {
+		return new JsonRowReader(reader, position);
+	}
+
+	/**
+	 * Pull parser for the tables and rows of a JSON document.
+	 */
+	private static class JsonRowReader implements RowReader {
+
+		private final Reader reader;
+
+		private long position;
+
+		private int peeked = -2;
+
+		private boolean started;
+
+		private boolean finished;
+
+		private boolean inTable;
+
+		private boolean firstRow;
+
+		private long tablePosition;
+
+		JsonRowReader(Reader reader, long position) {
+			this.reader = reader;
+			this.position = position;
+			if (position > 0) {
+				this.started = true;
+				this.inTable = true;
+				this.firstRow = true;
+			}
+		}
+
+		@Override
+		public String nextTable() throws DataSetException {
+			while (this.inTable) {
+				nextRow();
+			}
+			if (this.finished) {
+				return null;
+			}
+			int c;
+			if (!this.started) {
+				expect(readNonWhitespace(), '{');
+				this.started = true;
+				c = readNonWhitespace();
+			} else {
+				c = readNonWhitespace();
+				if (c == ',') {
+					c = readNonWhitespace();
+				} else if (c != '}') {
+					throw error("Expected ',' or '}'");
+				}
+			}
+			if (c == '}') {
+				this.finished = true;
+				return null;
+			}
+			expect(c, '"');
+			String tableName = readString();
+			expect(readNonWhitespace(), ':');
+			expect(readNonWhitespace(), '[');
+			this.tablePosition = this.position;
+			this.inTable = true;
+			this.firstRow = true;
+			return tableName;
+		}
+
+		@Override
+		public long getPosition() {
+			return this.tablePosition;
+		}
+
+		@Override
+		public Map<String, Object> nextRow() throws DataSetException {
+			if (!this.inTable) {
+				return null;
+			}
+			int c = readNonWhitespace();
+			if (c == ']') {
+				this.inTable = false;
+				return null;
+			}
+			if (!this.firstRow) {
+				expect(c, ',');
+				c = readNonWhitespace();
+			}
+			this.firstRow = false;
+			expect(c, '{');
+			Map<String, Object> row = new LinkedHashMap<>();
+			c = readNonWhitespace();
+			while (c != '}') {
+				expect(c, '"');
+				String column = readString();
+				expect(readNonWhitespace(), ':');
+				row.put(column, readValue());
+				c = readNonWhitespace();
+				if (c == ',') {
+					c = readNonWhitespace();
+				} else if (c != '}') {
+					throw error("Expected ',' or '}'");
+				}
+			}
+			return row;
+		}
+
+		private Object readValue() throws DataSetException {
+			int c = readNonWhitespace();
+			if (c == '"') {
+				return readString();
+			}
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				StringBuilder number = new StringBuilder().append((char) c);
+				while (isNumberPart(peek())) {
+					number.append((char) read());
+				}
+				try {
+					return new BigDecimal(number.toString());
+				} catch (NumberFormatException ex) {
+					throw error("Invalid number '" + number + "'");
+				}
+			}
+			if (c == 't') {
+				return readLiteral("rue", Boolean.TRUE);
+			}
+			if (c == 'f') {
+				return readLiteral("alse", Boolean.FALSE);
+			}
+			if (c == 'n') {
+				return readLiteral("ull", null);
+			}
+			throw error("Unsupported value, columns must be strings, numbers, booleans or null");
+		}
+
+		private boolean isNumberPart(int c) {
+			return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+		}
+
+		private Object readLiteral(String remainder, Object value) throws DataSetException {
+			for (int i = 0; i < remainder.length(); i++) {
+				if (read() != remainder.charAt(i)) {
+					throw error("Invalid literal");
+				}
+			}
+			return value;
+		}
+
+		private String readString() throws DataSetException {
+			StringBuilder string = new StringBuilder();
+			int c = read();
+			while (c != '"') {
+				if (c == -1) {
+					throw error("Unterminated string");
+				}
+				if (c == '\\') {
+					c = read();
+					switch (c) {
+					case 'b':
+						c = '\b';
+						break;
+					case 'f':
+						c = '\f';
+						break;
+					case 'n':
+						c = '\n';
+						break;
+					case 'r':
+						c = '\r';
+						break;
+					case 't':
+						c = '\t';
+						break;
+					case 'u':
+						c = readUnicodeEscape();
+						break;
+					case '"':
+					case '\\':
+					case '/':
+						break;
+					default:
+						throw error("Invalid escape");
+					}
+				}
+				string.append((char) c);
+				c = read();
+			}
+			return string.toString();
+		}
+
+		private int readUnicodeEscape() throws DataSetException {
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit == -1) {
+					throw error("Invalid unicode escape");
+				}
+				value = value * 16 + digit;
+			}
+			return value;
+		}
+
+		private void expect(int c, char expected) throws DataSetException {
+			if (c != expected) {
+				throw error("Expected '" + expected + "'");
+			}
+		}
+
+		private int readNonWhitespace() throws DataSetException {
+			int c = read();
+			while (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\uFEFF') {
+				c = read();
+			}
+			return c;
+		}
+
+		private int peek() throws DataSetException {
+			if (this.peeked == -2) {
+				this.peeked = readChar();
+			}
+			return this.peeked;
+		}
+
+		private int read() throws DataSetException {
+			int c = peek();
+			this.peeked = -2;
+			if (c != -1) {
+				this.position++;
+			}
+			return c;
+		}
+
+		private int readChar() throws DataSetException {
+			try {
+				return this.reader.read();
+			} catch (IOException ex) {
+				throw new DataSetException("Unable to read JSON dataset", ex);
+			}
+		}
+
+		private DataSetException error(String message) {
+			return new DataSetException(message + " at position " + this.position + " of JSON dataset");
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.reader.close();
+			} catch (IOException ex) {
+				// Ignore
+			}
+		}
+
+	}
+
+}
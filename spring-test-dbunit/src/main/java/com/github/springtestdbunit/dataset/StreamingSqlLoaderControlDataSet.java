@@ -0,0 +1,332 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.dbunit.database.AmbiguousTableNameException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link StreamableDataSet} of Oracle SQL*Loader control files. The resource is either the directory of the control
+ * files or the <code>tables.lst</code> file inside it, which lists the tables in insert order; each table is loaded by
+ * the control file <code>&lt;table&gt;.ctl</code> next to it. Control and data files are read through Spring
+ * {@link Resource}s, so the directory may be packed inside a jar.
+ * <p>
+ * Control files are parsed once when the dataset is created, see {@link SqlLoaderControlFile} for the supported
+ * syntax. Data files are only read when a table is requested. When {@link #stream streamed} rows are pulled from the
+ * data files one at a time as they are written, so memory use does not depend on the size of the files. Data files on
+ * the file system are memory-mapped, data files inside a jar are read as a stream.
+ *
+ * @see StreamingSqlLoaderControlDataSetLoader
+ */
+public class StreamingSqlLoaderControlDataSet extends AbstractDataSet implements StreamableDataSet {
+
+	/**
+	 * The name of the file that lists the tables of the dataset.
+	 */
+	public static final String ORDERED_TABLE_FILE = "tables.lst";
+
+	private final Map<String, SqlLoaderControlFile> controlFiles = new LinkedHashMap<>();
+
+	private final Map<String, ITable> tables = new HashMap<>();
+
+	/**
+	 * Create a new {@link StreamingSqlLoaderControlDataSet}.
+	 * @param resource the directory of the control files or the <code>tables.lst</code> file
+	 * @throws DataSetException if the table list or a control file cannot be read
+	 */
+	public StreamingSqlLoaderControlDataSet(Resource resource) throws DataSetException {
+		Resource tableList = getTableList(resource);
+		for (String tableName : readTableNames(tableList)) {
+			SqlLoaderControlFile controlFile;
+			try {
+				controlFile = new SqlLoaderControlFile(tableList.createRelative(tableName + ".ctl"));
+			} catch (IOException ex) {
+				throw new DataSetException("Unable to resolve the control file of table '" + tableName + "'", ex);
+			}
+			String key = controlFile.getTableMetaData().getTableName().toUpperCase(Locale.ENGLISH);
+			if (this.controlFiles.containsKey(key)) {
+				throw new AmbiguousTableNameException(key);
+			}
+			this.controlFiles.put(key, controlFile);
+		}
+	}
+
+	private static Resource getTableList(Resource resource) throws DataSetException {
+		try {
+			String filename = resource.getFilename();
+			if (ORDERED_TABLE_FILE.equals(filename)) {
+				return resource;
+			}
+			if (StringUtils.hasLength(filename)) {
+				resource = resource.createRelative(filename + "/");
+			}
+			return resource.createRelative(ORDERED_TABLE_FILE);
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to resolve " + ORDERED_TABLE_FILE + " of " + resource, ex);
+		}
+	}
+
+	private static List<String> readTableNames(Resource tableList) throws DataSetException {
+		List<String> tableNames = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(tableList.getInputStream(), StandardCharsets.UTF_8))) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (line.trim().length() > 0) {
+					tableNames.add(line.trim());
+				}
+			}
+		} catch (IOException ex) {
+			throw new DataSetException("Unable to read " + tableList, ex);
+		}
+		return tableNames;
+	}
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		List<SqlLoaderControlFile> controlFiles = getControlFiles(reversed);
+		return new TableIterator(controlFiles) {
+
+			public ITable getTable() throws DataSetException {
+				return StreamingSqlLoaderControlDataSet.this.getTable(getTableMetaData().getTableName());
+			}
+
+		};
+	}
+
+	private List<SqlLoaderControlFile> getControlFiles(boolean reversed) {
+		List<SqlLoaderControlFile> controlFiles = new ArrayList<>(this.controlFiles.values());
+		if (reversed) {
+			Collections.reverse(controlFiles);
+		}
+		return controlFiles;
+	}
+
+	@Override
+	public String[] getTableNames() throws DataSetException {
+		List<String> tableNames = new ArrayList<>(this.controlFiles.size());
+		for (SqlLoaderControlFile controlFile : this.controlFiles.values()) {
+			tableNames.add(controlFile.getTableMetaData().getTableName());
+		}
+		return tableNames.toArray(new String[0]);
+	}
+
+	@Override
+	public ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+		return getControlFile(tableName).getTableMetaData();
+	}
+
+	@Override
+	public synchronized ITable getTable(String tableName) throws DataSetException {
+		SqlLoaderControlFile controlFile = getControlFile(tableName);
+		ITableMetaData metaData = controlFile.getTableMetaData();
+		ITable table = this.tables.get(metaData.getTableName());
+		if (table == null) {
+			DefaultTable defaultTable = new DefaultTable(metaData);
+			try (SqlLoaderControlFile.RowReader reader = controlFile.openReader()) {
+				for (Object[] row = reader.nextRow(); row != null; row = reader.nextRow()) {
+					defaultTable.addRow(row);
+				}
+			}
+			table = defaultTable;
+			this.tables.put(metaData.getTableName(), table);
+		}
+		return table;
+	}
+
+	private SqlLoaderControlFile getControlFile(String tableName) throws NoSuchTableException {
+		SqlLoaderControlFile controlFile = this.controlFiles.get(tableName.toUpperCase(Locale.ENGLISH));
+		if (controlFile == null) {
+			throw new NoSuchTableException(tableName);
+		}
+		return controlFile;
+	}
+
+	public IDataSet stream(IDatabaseConnection connection) {
+		return new StreamingDataSet();
+	}
+
+	/**
+	 * Iterates the tables of a list of control files.
+	 */
+	private abstract static class TableIterator implements ITableIterator {
+
+		private final List<SqlLoaderControlFile> controlFiles;
+
+		private int index = -1;
+
+		TableIterator(List<SqlLoaderControlFile> controlFiles) {
+			this.controlFiles = controlFiles;
+		}
+
+		public boolean next() throws DataSetException {
+			this.index++;
+			return this.index < this.controlFiles.size();
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return getControlFile().getTableMetaData();
+		}
+
+		protected SqlLoaderControlFile getControlFile() {
+			return this.controlFiles.get(this.index);
+		}
+
+	}
+
+	/**
+	 * Forward only view of the dataset that pulls rows from the data files while they are written.
+	 */
+	private class StreamingDataSet extends AbstractDataSet implements Closeable {
+
+		private final List<SqlLoaderControlFile.RowReader> readers = new ArrayList<>();
+
+		@Override
+		protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+			if (reversed) {
+				return StreamingSqlLoaderControlDataSet.this.createIterator(true);
+			}
+			return new TableIterator(getControlFiles(false)) {
+
+				private StreamingTable table;
+
+				@Override
+				public boolean next() throws DataSetException {
+					if (this.table != null) {
+						this.table.close();
+						this.table = null;
+					}
+					return super.next();
+				}
+
+				public ITable getTable() throws DataSetException {
+					if (this.table == null) {
+						SqlLoaderControlFile.RowReader reader = getControlFile().openReader();
+						synchronized (StreamingDataSet.this.readers) {
+							StreamingDataSet.this.readers.add(reader);
+						}
+						this.table = new StreamingTable(getTableMetaData(), reader);
+					}
+					return this.table;
+				}
+
+			};
+		}
+
+		@Override
+		public String[] getTableNames() throws DataSetException {
+			return StreamingSqlLoaderControlDataSet.this.getTableNames();
+		}
+
+		@Override
+		public ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+			return StreamingSqlLoaderControlDataSet.this.getTableMetaData(tableName);
+		}
+
+		@Override
+		public ITable getTable(String tableName) throws DataSetException {
+			throw new UnsupportedOperationException("Streamed datasets do not support random table access");
+		}
+
+		public void close() {
+			synchronized (this.readers) {
+				for (SqlLoaderControlFile.RowReader reader : this.readers) {
+					reader.close();
+				}
+				this.readers.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * A forward only table that holds a single row.
+	 */
+	private static class StreamingTable implements ITable {
+
+		private final ITableMetaData metaData;
+
+		private final SqlLoaderControlFile.RowReader reader;
+
+		private Object[] values;
+
+		private int currentRow = -1;
+
+		private boolean exhausted;
+
+		StreamingTable(ITableMetaData metaData, SqlLoaderControlFile.RowReader reader) {
+			this.metaData = metaData;
+			this.reader = reader;
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return this.metaData;
+		}
+
+		public int getRowCount() {
+			throw new UnsupportedOperationException("Streamed tables do not support getRowCount()");
+		}
+
+		public Object getValue(int row, String column) throws DataSetException {
+			if (row < this.currentRow) {
+				throw new UnsupportedOperationException("Streamed tables only support sequential row access");
+			}
+			while (this.currentRow < row && !this.exhausted) {
+				Object[] values = this.reader.nextRow();
+				if (values == null) {
+					this.exhausted = true;
+				} else {
+					this.values = values;
+					this.currentRow++;
+				}
+			}
+			if (this.currentRow < row) {
+				throw new RowOutOfBoundsException(row + " > " + this.currentRow);
+			}
+			return this.values[this.metaData.getColumnIndex(column)];
+		}
+
+		void close() {
+			this.reader.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link DataSetLoader data set loader} that streams Oracle SQL*Loader exports into the database instead of loading
+ * them into memory. Unlike the {@link SqlLoaderControlDataSetLoader} the control directory does not need to be on the
+ * file system, see {@link StreamingSqlLoaderControlDataSet} for details.
+ *
+ * @see StreamingSqlLoaderControlDataSet
+ */
+public class StreamingSqlLoaderControlDataSetLoader extends AbstractDataSetLoader {
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws DataSetException {
+		return new StreamingSqlLoaderControlDataSet(resource);
+	}
+
+}
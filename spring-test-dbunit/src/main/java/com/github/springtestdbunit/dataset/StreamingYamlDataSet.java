@@ -0,0 +1,335 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.dbunit.dataset.DataSetException;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link StreamableDataSet} backed by a YAML document in the format written by
+ * {@link com.github.springtestdbunit.DbUnitRunner#export}: a block mapping of table names to block sequences of rows,
+ * each row being a block mapping of column names to scalars. Tables without rows may be written as <code>[]</code>.
+ * Plain, single-quoted and double-quoted scalars are supported; <code>null</code> and <code>~</code> are read as
+ * {@code null}, <code>true</code> and <code>false</code> as {@link Boolean}s and numbers as {@link BigDecimal}s. The
+ * document is read line by line with a pull parser, see {@link RowStreamDataSet}.
+ *
+ * @see YamlDataSetLoader
+ */
+public class StreamingYamlDataSet extends RowStreamDataSet {
+
+	private static final Pattern NUMBER = Pattern.compile("[-+]?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?");
+
+	/**
+	 * Create a new {@link StreamingYamlDataSet}.
+	 * @param resource the YAML resource
+	 * @throws DataSetException if the document cannot be read
+	 */
+	public StreamingYamlDataSet(Resource resource) throws DataSetException {
+		super(resource);
+	}
+
+	@Override
+	protected RowReader createReader(Reader reader, long position) {
+		return new YamlRowReader(reader, position);
+	}
+
+	/**
+	 * Pull parser for the tables and rows of a YAML document.
+	 */
+	private static class YamlRowReader implements RowReader {
+
+		private final Reader reader;
+
+		private long position;
+
+		private int lineNumber;
+
+		private String line;
+
+		private boolean inTable;
+
+		private long tablePosition;
+
+		YamlRowReader(Reader reader, long position) {
+			this.reader = reader;
+			this.position = position;
+			this.inTable = (position > 0);
+		}
+
+		@Override
+		public String nextTable() throws DataSetException {
+			while (this.inTable) {
+				nextRow();
+			}
+			String line = nextLine();
+			if (line == null) {
+				return null;
+			}
+			if (indent(line) != 0 || isRow(line)) {
+				throw error("Expected a table name");
+			}
+			String[] keyValue = splitKeyValue(line);
+			String tableName = (String) toScalar(keyValue[0], false);
+			String value = keyValue[1].trim();
+			this.line = null;
+			this.tablePosition = this.position;
+			if (value.isEmpty()) {
+				this.inTable = true;
+			} else if (!"[]".equals(value)) {
+				throw error("Expected a sequence of rows");
+			}
+			return tableName;
+		}
+
+		@Override
+		public long getPosition() {
+			return this.tablePosition;
+		}
+
+		@Override
+		public Map<String, Object> nextRow() throws DataSetException {
+			if (!this.inTable) {
+				return null;
+			}
+			String line = nextLine();
+			if (line == null || (indent(line) == 0 && !isRow(line))) {
+				this.inTable = false;
+				return null;
+			}
+			if (!isRow(line)) {
+				throw error("Expected a row starting with '-'");
+			}
+			this.line = null;
+			int rowIndent = indent(line);
+			Map<String, Object> row = new LinkedHashMap<>();
+			String content = line.substring(rowIndent + 1).trim();
+			if ("{}".equals(content)) {
+				return row;
+			}
+			if (!content.isEmpty()) {
+				putValue(row, content);
+			}
+			line = nextLine();
+			while (line != null && indent(line) > rowIndent && !isRow(line)) {
+				this.line = null;
+				putValue(row, line.trim());
+				line = nextLine();
+			}
+			return row;
+		}
+
+		private void putValue(Map<String, Object> row, String content) throws DataSetException {
+			String[] keyValue = splitKeyValue(content);
+			row.put((String) toScalar(keyValue[0], false), toScalar(keyValue[1].trim(), true));
+		}
+
+		private boolean isRow(String line) {
+			int indent = indent(line);
+			return line.startsWith("-", indent) && (line.length() == indent + 1 || line.charAt(indent + 1) == ' ');
+		}
+
+		private int indent(String line) {
+			int indent = 0;
+			while (indent < line.length() && line.charAt(indent) == ' ') {
+				indent++;
+			}
+			return indent;
+		}
+
+		/**
+		 * Split a <code>key: value</code> pair, taking quoted keys into account.
+		 */
+		private String[] splitKeyValue(String content) throws DataSetException {
+			String text = content.trim();
+			int start = 0;
+			if (text.startsWith("'") || text.startsWith("\"")) {
+				start = text.indexOf(text.charAt(0), 1);
+				while (start != -1 && text.charAt(0) == '\'' && start + 1 < text.length()
+						&& text.charAt(start + 1) == '\'') {
+					start = text.indexOf('\'', start + 2);
+				}
+				if (start == -1) {
+					throw error("Unterminated quoted key");
+				}
+			}
+			int separator = text.indexOf(": ", start);
+			if (separator == -1 && text.endsWith(":")) {
+				separator = text.length() - 1;
+			}
+			if (separator == -1) {
+				throw error("Expected 'key: value'");
+			}
+			return new String[] { text.substring(0, separator).trim(), text.substring(separator + 1) };
+		}
+
+		private Object toScalar(String text, boolean resolve) throws DataSetException {
+			if (text.startsWith("'")) {
+				int end = 1;
+				while (end < text.length() && (text.charAt(end) != '\'' || text.startsWith("''", end))) {
+					end += (text.charAt(end) == '\'' ? 2 : 1);
+				}
+				if (end >= text.length()) {
+					throw error("Unterminated single-quoted scalar");
+				}
+				checkTrailing(text.substring(end + 1));
+				return text.substring(1, end).replace("''", "'");
+			}
+			if (text.startsWith("\"")) {
+				int end = 1;
+				while (end < text.length() && text.charAt(end) != '"') {
+					end += (text.charAt(end) == '\\' ? 2 : 1);
+				}
+				if (end >= text.length()) {
+					throw error("Unterminated double-quoted scalar");
+				}
+				checkTrailing(text.substring(end + 1));
+				return unescape(text.substring(1, end));
+			}
+			if (text.startsWith("|") || text.startsWith(">") || text.startsWith("{") || text.startsWith("[")
+					|| text.startsWith("&") || text.startsWith("*") || text.startsWith("!")) {
+				throw error("Unsupported value, columns must be plain or quoted scalars");
+			}
+			int comment = text.indexOf(" #");
+			String plain = (comment != -1 ? text.substring(0, comment) : text).trim();
+			if (!resolve) {
+				return plain;
+			}
+			if (plain.isEmpty() || "~".equals(plain) || "null".equalsIgnoreCase(plain)) {
+				return null;
+			}
+			if ("true".equalsIgnoreCase(plain) || "false".equalsIgnoreCase(plain)) {
+				return Boolean.valueOf(plain);
+			}
+			if (NUMBER.matcher(plain).matches()) {
+				return new BigDecimal(plain.startsWith("+") ? plain.substring(1) : plain);
+			}
+			return plain;
+		}
+
+		/**
+		 * Only whitespace or a comment may follow the closing quote of a scalar.
+		 */
+		private void checkTrailing(String text) throws DataSetException {
+			String trailing = text.trim();
+			if (!trailing.isEmpty() && (!trailing.startsWith("#") || !Character.isWhitespace(text.charAt(0)))) {
+				throw error("Unexpected text after quoted scalar");
+			}
+		}
+
+		private String unescape(String text) throws DataSetException {
+			StringBuilder string = new StringBuilder(text.length());
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if (c == '\\' && i + 1 < text.length()) {
+					c = text.charAt(++i);
+					switch (c) {
+					case '0':
+						c = '\0';
+						break;
+					case 'n':
+						c = '\n';
+						break;
+					case 'r':
+						c = '\r';
+						break;
+					case 't':
+						c = '\t';
+						break;
+					case 'u':
+						if (i + 4 >= text.length()) {
+							throw error("Invalid unicode escape");
+						}
+						c = (char) Integer.parseInt(text.substring(i + 1, i + 5), 16);
+						i += 4;
+						break;
+					default:
+						break;
+					}
+				}
+				string.append(c);
+			}
+			return string.toString();
+		}
+
+		/**
+		 * Returns the next line that is not blank, a comment or a document marker without consuming it.
+		 */
+		private String nextLine() throws DataSetException {
+			while (this.line == null) {
+				String line = readLine();
+				if (line == null) {
+					return null;
+				}
+				String trimmed = line.trim();
+				if (!trimmed.isEmpty() && !trimmed.startsWith("#") && !"---".equals(trimmed)
+						&& !"...".equals(trimmed)) {
+					if (line.startsWith("\t", indent(line))) {
+						throw error("Tabs are not allowed for indentation");
+					}
+					this.line = line;
+				}
+			}
+			return this.line;
+		}
+
+		private String readLine() throws DataSetException {
+			try {
+				StringBuilder line = new StringBuilder();
+				int c = this.reader.read();
+				if (c == -1) {
+					return null;
+				}
+				while (c != -1 && c != '\n') {
+					this.position++;
+					if (c != '\r' && c != '\uFEFF') {
+						line.append((char) c);
+					}
+					c = this.reader.read();
+				}
+				if (c == '\n') {
+					this.position++;
+				}
+				this.lineNumber++;
+				return line.toString();
+			} catch (IOException ex) {
+				throw new DataSetException("Unable to read YAML dataset", ex);
+			}
+		}
+
+		private DataSetException error(String message) {
+			return new DataSetException(message + " at line " + this.lineNumber + " of YAML dataset");
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.reader.close();
+			} catch (IOException ex) {
+				// Ignore
+			}
+		}
+
+	}
+
+}
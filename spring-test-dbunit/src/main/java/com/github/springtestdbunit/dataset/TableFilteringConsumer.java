@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.stream.IDataSetConsumer;
+
+/**
+ * {@link IDataSetConsumer} that only passes the tables with the given names (ignoring case) on to another consumer.
+ */
+class TableFilteringConsumer implements IDataSetConsumer {
+
+	private final IDataSetConsumer consumer;
+
+	private final Set<String> tableNames = new HashSet<>();
+
+	private boolean accepted;
+
+	TableFilteringConsumer(IDataSetConsumer consumer, Set<String> tableNames) {
+		this.consumer = consumer;
+		for (String tableName : tableNames) {
+			this.tableNames.add(tableName.trim().toUpperCase(Locale.ENGLISH));
+		}
+	}
+
+	/**
+	 * Returns if the given table is passed on.
+	 * @param tableName the table name
+	 * @return if the table is accepted
+	 */
+	public boolean accept(String tableName) {
+		return this.tableNames.contains(tableName.toUpperCase(Locale.ENGLISH));
+	}
+
+	public void startDataSet() throws DataSetException {
+		this.consumer.startDataSet();
+	}
+
+	public void endDataSet() throws DataSetException {
+		this.consumer.endDataSet();
+	}
+
+	public void startTable(ITableMetaData metaData) throws DataSetException {
+		this.accepted = accept(metaData.getTableName());
+		if (this.accepted) {
+			this.consumer.startTable(metaData);
+		}
+	}
+
+	public void endTable() throws DataSetException {
+		if (this.accepted) {
+			this.consumer.endTable();
+		}
+	}
+
+	public void row(Object[] values) throws DataSetException {
+		if (this.accepted) {
+			this.consumer.row(values);
+		}
+	}
+
+}
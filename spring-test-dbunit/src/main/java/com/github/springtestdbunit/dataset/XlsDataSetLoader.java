@@ -20,8 +20,14 @@ import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.excel.XlsDataSet;
 import org.springframework.core.io.Resource;
+import org.springframework.util.CollectionUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
 
 /**
  * A {@link DataSetLoader data set loader} that can be used to load {@link XlsDataSet}s.
@@ -32,7 +38,34 @@ public class XlsDataSetLoader extends AbstractDataSetLoader {
 
 	@Override
 	protected IDataSet createDataSet(final Resource resource, String datasetId) throws IOException, DataSetException {
-		return new XlsDataSet(resource.getFile(), datasetId);
+		return new XlsDataSet(getFile(resource), datasetId);
+	}
+
+	/**
+	 * Returns the workbook file, copying resources that are not files (such as compressed workbooks) to a temporary
+	 * file.
+	 */
+	private File getFile(Resource resource) throws IOException {
+		if (resource.isFile()) {
+			return resource.getFile();
+		}
+		File file = File.createTempFile("spring-test-dbunit", ".xls");
+		file.deleteOnExit();
+		try (InputStream inputStream = resource.getInputStream()) {
+			Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	/**
+	 * Create the dataset when only some sheets are needed. The workbook is loaded in full, in the same way as when all
+	 * sheets are needed, and then filtered so that values are read identically in both cases.
+	 */
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames)
+			throws IOException, DataSetException {
+		IDataSet dataSet = createDataSet(resource, datasetId);
+		return (CollectionUtils.isEmpty(tableNames) ? dataSet : filterTables(dataSet, tableNames));
 	}
 
 }
@@ -0,0 +1,739 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.AbstractDataSet;
+import org.dbunit.dataset.AbstractTable;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.DefaultTableMetaData;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchTableException;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
+import org.springframework.core.io.Resource;
+
+/**
+ * A {@link StreamableDataSet} backed by an XLSX workbook that is read using the POI package API and streamed sheet XML
+ * rather than a workbook DOM. Each sheet is a table, the first row of a sheet holds the column names.
+ * <p>
+ * Only the workbook index is read when the dataset is created. A sheet is parsed the first time its table (or its
+ * metadata) is requested, so sheets that are never referenced are never parsed. When {@link #stream streamed} rows are
+ * pulled from the sheet XML one at a time, so only a single row per sheet is held in memory. Both transitional and
+ * strict OOXML workbooks are supported. As with {@link org.dbunit.dataset.excel.XlsDataSet} numbers are returned as
+ * {@link BigDecimal}s and dates as milliseconds. Rows without any values are skipped.
+ * <p>
+ * Resources that are not on the file system (for example inside a jar) are copied to a temporary file so that the
+ * package can be read without buffering every part in memory.
+ *
+ * @see XlsxDataSetLoader
+ */
+public class XlsxDataSet extends AbstractDataSet implements StreamableDataSet {
+
+	private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+	private final File file;
+
+	private final Map<String, String> sheets = new LinkedHashMap<>();
+
+	private final Map<String, ITable> tables = new HashMap<>();
+
+	private final Map<String, ITableMetaData> metaData = new HashMap<>();
+
+	private String sharedStringsPart;
+
+	private String stylesPart;
+
+	private boolean date1904;
+
+	private List<String> sharedStrings;
+
+	private boolean[] dateStyles;
+
+	/**
+	 * Create a new {@link XlsxDataSet}.
+	 * @param resource the XLSX resource
+	 * @throws IOException on read error
+	 * @throws DataSetException if the resource is not a valid workbook
+	 */
+	public XlsxDataSet(Resource resource) throws IOException, DataSetException {
+		this.file = getFile(resource);
+		try (Workbook workbook = new Workbook()) {
+			readWorkbook(workbook);
+		}
+	}
+
+	private File getFile(Resource resource) throws IOException {
+		if (resource.isFile()) {
+			return resource.getFile();
+		}
+		File file = File.createTempFile("spring-test-dbunit", ".xlsx");
+		file.deleteOnExit();
+		try (InputStream inputStream = resource.getInputStream()) {
+			Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	private void readWorkbook(Workbook workbook) throws DataSetException {
+		PackagePart part = workbook.getWorkbookPart();
+		for (PackageRelationship relationship : workbook.getRelationships(part)) {
+			String type = relationship.getRelationshipType();
+			if (type.endsWith("/sharedStrings")) {
+				this.sharedStringsPart = workbook.getRelatedPart(part, relationship).getPartName().getName();
+			} else if (type.endsWith("/styles")) {
+				this.stylesPart = workbook.getRelatedPart(part, relationship).getPartName().getName();
+			}
+		}
+		try (XmlReader reader = new XmlReader(part)) {
+			while (reader.nextStartOrEnd()) {
+				if (reader.isStartElement() && "workbookPr".equals(reader.getLocalName())) {
+					String date1904 = reader.attribute("date1904");
+					this.date1904 = "1".equals(date1904) || "true".equals(date1904);
+				} else if (reader.isStartElement() && "sheet".equals(reader.getLocalName())) {
+					PackageRelationship relationship = part.getRelationship(reader.attribute("id"));
+					if (relationship == null) {
+						throw new DataSetException("Missing relationship for sheet " + reader.attribute("name"));
+					}
+					this.sheets.put(reader.attribute("name"),
+							workbook.getRelatedPart(part, relationship).getPartName().getName());
+				}
+			}
+		}
+	}
+
+	@Override
+	protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+		List<String> tableNames = new ArrayList<>(this.sheets.keySet());
+		if (reversed) {
+			Collections.reverse(tableNames);
+		}
+		return new LazyTableIterator(tableNames);
+	}
+
+	@Override
+	public String[] getTableNames() throws DataSetException {
+		return this.sheets.keySet().toArray(new String[this.sheets.size()]);
+	}
+
+	@Override
+	public synchronized ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+		String sheetName = getSheetName(tableName);
+		ITable table = this.tables.get(sheetName);
+		if (table != null) {
+			return table.getTableMetaData();
+		}
+		ITableMetaData metaData = this.metaData.get(sheetName);
+		if (metaData == null) {
+			try (SheetReader reader = new SheetReader(sheetName)) {
+				metaData = reader.getMetaData();
+			}
+			this.metaData.put(sheetName, metaData);
+		}
+		return metaData;
+	}
+
+	@Override
+	public synchronized ITable getTable(String tableName) throws DataSetException {
+		String sheetName = getSheetName(tableName);
+		ITable table = this.tables.get(sheetName);
+		if (table == null) {
+			try (SheetReader reader = new SheetReader(sheetName)) {
+				DefaultTable defaultTable = new DefaultTable(reader.getMetaData());
+				Object[] values = reader.nextRow();
+				while (values != null) {
+					defaultTable.addRow(values);
+					values = reader.nextRow();
+				}
+				table = defaultTable;
+			}
+			this.tables.put(sheetName, table);
+		}
+		return table;
+	}
+
+	private String getSheetName(String tableName) throws NoSuchTableException {
+		for (String sheetName : this.sheets.keySet()) {
+			if (sheetName.equalsIgnoreCase(tableName)) {
+				return sheetName;
+			}
+		}
+		throw new NoSuchTableException(tableName);
+	}
+
+	public IDataSet stream(IDatabaseConnection connection) throws DataSetException {
+		return new StreamingXlsxDataSet();
+	}
+
+	private synchronized List<String> getSharedStrings() throws DataSetException {
+		if (this.sharedStrings == null) {
+			this.sharedStrings = new ArrayList<>();
+			if (this.sharedStringsPart != null) {
+				try (Workbook workbook = new Workbook(); XmlReader reader = new XmlReader(
+						workbook.getPart(this.sharedStringsPart))) {
+					while (reader.next("si")) {
+						this.sharedStrings.add(reader.text("si"));
+					}
+				}
+			}
+		}
+		return this.sharedStrings;
+	}
+
+	private synchronized boolean[] getDateStyles() throws DataSetException {
+		if (this.dateStyles == null) {
+			Map<Integer, String> formats = new HashMap<>();
+			List<Boolean> dateStyles = new ArrayList<>();
+			if (this.stylesPart != null) {
+				try (Workbook workbook = new Workbook(); XmlReader reader = new XmlReader(
+						workbook.getPart(this.stylesPart))) {
+					boolean cellXfs = false;
+					while (reader.nextStartOrEnd()) {
+						String name = reader.getLocalName();
+						if (!reader.isStartElement()) {
+							cellXfs = cellXfs && !"cellXfs".equals(name);
+						} else if ("numFmt".equals(name)) {
+							formats.put(Integer.valueOf(reader.attribute("numFmtId")), reader.attribute("formatCode"));
+						} else if ("cellXfs".equals(name)) {
+							cellXfs = true;
+						} else if (cellXfs && "xf".equals(name)) {
+							String numFmtId = reader.attribute("numFmtId");
+							int formatIndex = (numFmtId != null ? Integer.parseInt(numFmtId) : 0);
+							String format = formats.containsKey(formatIndex) ? formats.get(formatIndex)
+									: BuiltinFormats.getBuiltinFormat(formatIndex);
+							dateStyles.add(DateUtil.isADateFormat(formatIndex, format));
+						}
+					}
+				}
+			}
+			this.dateStyles = new boolean[dateStyles.size()];
+			for (int i = 0; i < this.dateStyles.length; i++) {
+				this.dateStyles[i] = dateStyles.get(i);
+			}
+		}
+		return this.dateStyles;
+	}
+
+	private static XMLInputFactory createXmlInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * A read-only view of the workbook package.
+	 */
+	private class Workbook implements Closeable {
+
+		private final OPCPackage pkg;
+
+		Workbook() throws DataSetException {
+			try {
+				this.pkg = OPCPackage.open(XlsxDataSet.this.file, PackageAccess.READ);
+			} catch (Exception ex) {
+				throw new DataSetException("Unable to open workbook " + XlsxDataSet.this.file, ex);
+			}
+		}
+
+		public PackagePart getWorkbookPart() throws DataSetException {
+			for (PackageRelationship relationship : this.pkg.getRelationships()) {
+				if (relationship.getRelationshipType().endsWith("/officeDocument")) {
+					return this.pkg.getPart(relationship);
+				}
+			}
+			throw new DataSetException("No workbook found in " + XlsxDataSet.this.file);
+		}
+
+		public PackagePart getPart(String partName) throws DataSetException {
+			PackagePart part;
+			try {
+				part = this.pkg.getPart(PackagingURIHelper.createPartName(partName));
+			} catch (Exception ex) {
+				throw new DataSetException(ex);
+			}
+			if (part == null) {
+				throw new DataSetException("Missing part " + partName + " in " + XlsxDataSet.this.file);
+			}
+			return part;
+		}
+
+		public Iterable<PackageRelationship> getRelationships(PackagePart part) throws DataSetException {
+			try {
+				return part.getRelationships();
+			} catch (Exception ex) {
+				throw new DataSetException(ex);
+			}
+		}
+
+		public PackagePart getRelatedPart(PackagePart part, PackageRelationship relationship)
+				throws DataSetException {
+			try {
+				return part.getRelatedPart(relationship);
+			} catch (Exception ex) {
+				throw new DataSetException(ex);
+			}
+		}
+
+		public void close() {
+			this.pkg.revert();
+		}
+
+	}
+
+	/**
+	 * Thin wrapper around a namespace agnostic {@link XMLStreamReader}.
+	 */
+	private static class XmlReader implements Closeable {
+
+		private final InputStream inputStream;
+
+		private final XMLStreamReader reader;
+
+		XmlReader(PackagePart part) throws DataSetException {
+			try {
+				this.inputStream = part.getInputStream();
+				this.reader = XML_INPUT_FACTORY.createXMLStreamReader(this.inputStream);
+			} catch (Exception ex) {
+				throw new DataSetException("Unable to read " + part.getPartName(), ex);
+			}
+		}
+
+		/**
+		 * Advance to the next start element with the given local name.
+		 */
+		public boolean next(String localName) throws DataSetException {
+			while (nextStartOrEnd()) {
+				if (isStartElement() && localName.equals(getLocalName())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Advance to the next start or end element.
+		 */
+		public boolean nextStartOrEnd() throws DataSetException {
+			try {
+				while (this.reader.hasNext()) {
+					int event = this.reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+						return true;
+					}
+				}
+				return false;
+			} catch (XMLStreamException ex) {
+				throw new DataSetException(ex);
+			}
+		}
+
+		public boolean isStartElement() {
+			return this.reader.isStartElement();
+		}
+
+		public String getLocalName() {
+			return this.reader.getLocalName();
+		}
+
+		public String attribute(String localName) {
+			for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+				if (localName.equals(this.reader.getAttributeLocalName(i))) {
+					return this.reader.getAttributeValue(i);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Collect the text of the <code>t</code> elements up to the end of the given element, ignoring phonetic runs.
+		 */
+		public String text(String endElement) throws DataSetException {
+			StringBuilder text = new StringBuilder();
+			int phonetic = 0;
+			try {
+				while (this.reader.hasNext()) {
+					int event = this.reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						if ("rPh".equals(this.reader.getLocalName())) {
+							phonetic++;
+						} else if (phonetic == 0 && "t".equals(this.reader.getLocalName())) {
+							text.append(this.reader.getElementText());
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT) {
+						if ("rPh".equals(this.reader.getLocalName())) {
+							phonetic--;
+						} else if (endElement.equals(this.reader.getLocalName())) {
+							break;
+						}
+					}
+				}
+			} catch (XMLStreamException ex) {
+				throw new DataSetException(ex);
+			}
+			return text.toString();
+		}
+
+		public String elementText() throws DataSetException {
+			try {
+				return this.reader.getElementText();
+			} catch (XMLStreamException ex) {
+				throw new DataSetException(ex);
+			}
+		}
+
+		public void close() {
+			try {
+				this.reader.close();
+				this.inputStream.close();
+			} catch (Exception ex) {
+				// Ignore
+			}
+		}
+
+	}
+
+	/**
+	 * Pulls the rows of a single sheet, reading the header row on creation.
+	 */
+	private class SheetReader implements Closeable {
+
+		private final Workbook workbook;
+
+		private final XmlReader reader;
+
+		private final ITableMetaData metaData;
+
+		SheetReader(String sheetName) throws DataSetException {
+			this.workbook = new Workbook();
+			try {
+				this.reader = new XmlReader(this.workbook.getPart(XlsxDataSet.this.sheets.get(sheetName)));
+				List<Object> header = readRow(-1);
+				List<Column> columns = new ArrayList<>();
+				if (header != null) {
+					for (Object name : header) {
+						if (name == null || name.toString().trim().length() == 0) {
+							break;
+						}
+						columns.add(new Column(name.toString().trim(), DataType.UNKNOWN));
+					}
+				}
+				this.metaData = new DefaultTableMetaData(sheetName, columns.toArray(new Column[columns.size()]));
+			} catch (DataSetException ex) {
+				this.workbook.close();
+				throw ex;
+			}
+		}
+
+		public ITableMetaData getMetaData() {
+			return this.metaData;
+		}
+
+		/**
+		 * Returns the values of the next row that contains a value or <code>null</code> at the end of the sheet.
+		 */
+		public Object[] nextRow() throws DataSetException {
+			int columnCount = this.metaData.getColumns().length;
+			List<Object> row = readRow(columnCount);
+			while (row != null) {
+				for (Object value : row) {
+					if (value != null) {
+						return row.toArray();
+					}
+				}
+				row = readRow(columnCount);
+			}
+			return null;
+		}
+
+		private List<Object> readRow(int columnCount) throws DataSetException {
+			if (!this.reader.next("row")) {
+				return null;
+			}
+			List<Object> values = new ArrayList<>();
+			if (columnCount >= 0) {
+				values.addAll(Arrays.asList(new Object[columnCount]));
+			}
+			int column = -1;
+			while (this.reader.nextStartOrEnd()) {
+				if (!this.reader.isStartElement()) {
+					if ("row".equals(this.reader.getLocalName())) {
+						break;
+					}
+					continue;
+				}
+				if ("c".equals(this.reader.getLocalName())) {
+					String reference = this.reader.attribute("r");
+					column = (reference != null ? getColumnIndex(reference) : column + 1);
+					Object value = readCell(this.reader.attribute("t"), this.reader.attribute("s"));
+					if (columnCount < 0) {
+						while (values.size() <= column) {
+							values.add(null);
+						}
+					}
+					if (column < values.size()) {
+						values.set(column, value);
+					}
+				}
+			}
+			return values;
+		}
+
+		private Object readCell(String type, String style) throws DataSetException {
+			String text = null;
+			while (this.reader.nextStartOrEnd()) {
+				String name = this.reader.getLocalName();
+				if (!this.reader.isStartElement()) {
+					if ("c".equals(name)) {
+						break;
+					}
+				} else if ("v".equals(name)) {
+					text = this.reader.elementText();
+				} else if ("is".equals(name)) {
+					text = this.reader.text("is");
+				}
+			}
+			if (text == null) {
+				return null;
+			}
+			if ("s".equals(type)) {
+				return getSharedStrings().get(Integer.parseInt(text.trim()));
+			}
+			if ("b".equals(type)) {
+				return Boolean.valueOf("1".equals(text.trim()) || "true".equalsIgnoreCase(text.trim()));
+			}
+			if (type != null && !"n".equals(type)) {
+				return text;
+			}
+			if (text.trim().length() == 0) {
+				return null;
+			}
+			if (style != null && isDateStyle(Integer.parseInt(style))) {
+				return DateUtil.getJavaDate(Double.parseDouble(text), XlsxDataSet.this.date1904).getTime();
+			}
+			return toNumber(text.trim());
+		}
+
+		private boolean isDateStyle(int style) throws DataSetException {
+			boolean[] dateStyles = getDateStyles();
+			return (style < dateStyles.length && dateStyles[style]);
+		}
+
+		private BigDecimal toNumber(String text) {
+			BigDecimal number = new BigDecimal(text);
+			if (number.scale() > 0) {
+				number = number.stripTrailingZeros();
+			}
+			return (number.scale() < 0 ? number.setScale(0) : number);
+		}
+
+		private int getColumnIndex(String reference) {
+			int index = 0;
+			for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+				index = index * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+			}
+			return index - 1;
+		}
+
+		public void close() {
+			this.reader.close();
+			this.workbook.close();
+		}
+
+	}
+
+	/**
+	 * Iterates tables in sheet order, parsing each sheet only when it is reached.
+	 */
+	private class LazyTableIterator implements ITableIterator {
+
+		private final List<String> tableNames;
+
+		private int index = -1;
+
+		LazyTableIterator(List<String> tableNames) {
+			this.tableNames = tableNames;
+		}
+
+		public boolean next() {
+			this.index++;
+			return this.index < this.tableNames.size();
+		}
+
+		public ITableMetaData getTableMetaData() throws DataSetException {
+			return XlsxDataSet.this.getTableMetaData(this.tableNames.get(this.index));
+		}
+
+		public ITable getTable() throws DataSetException {
+			return XlsxDataSet.this.getTable(this.tableNames.get(this.index));
+		}
+
+	}
+
+	/**
+	 * Forward only view of the workbook that pulls rows while they are written.
+	 */
+	private class StreamingXlsxDataSet extends AbstractDataSet implements Closeable {
+
+		private final List<SheetReader> readers = new ArrayList<>();
+
+		@Override
+		protected ITableIterator createIterator(boolean reversed) throws DataSetException {
+			if (reversed) {
+				return XlsxDataSet.this.createIterator(true);
+			}
+			final List<String> tableNames = new ArrayList<>(XlsxDataSet.this.sheets.keySet());
+			return new ITableIterator() {
+
+				private int index = -1;
+
+				private StreamingTable table;
+
+				public boolean next() throws DataSetException {
+					if (this.table != null) {
+						this.table.close();
+						this.table = null;
+					}
+					this.index++;
+					return this.index < tableNames.size();
+				}
+
+				public ITableMetaData getTableMetaData() throws DataSetException {
+					return getTable().getTableMetaData();
+				}
+
+				public ITable getTable() throws DataSetException {
+					if (this.table == null) {
+						SheetReader reader = new SheetReader(tableNames.get(this.index));
+						synchronized (StreamingXlsxDataSet.this.readers) {
+							StreamingXlsxDataSet.this.readers.add(reader);
+						}
+						this.table = new StreamingTable(reader);
+					}
+					return this.table;
+				}
+
+			};
+		}
+
+		@Override
+		public String[] getTableNames() throws DataSetException {
+			return XlsxDataSet.this.getTableNames();
+		}
+
+		@Override
+		public ITableMetaData getTableMetaData(String tableName) throws DataSetException {
+			return XlsxDataSet.this.getTableMetaData(tableName);
+		}
+
+		@Override
+		public ITable getTable(String tableName) throws DataSetException {
+			throw new UnsupportedOperationException("Streamed datasets do not support random table access");
+		}
+
+		public void close() {
+			synchronized (this.readers) {
+				for (SheetReader reader : this.readers) {
+					reader.close();
+				}
+				this.readers.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * A forward only table that holds a single row of its sheet.
+	 */
+	private static class StreamingTable extends AbstractTable {
+
+		private final SheetReader reader;
+
+		private Object[] values;
+
+		private int currentRow = -1;
+
+		private boolean exhausted;
+
+		StreamingTable(SheetReader reader) {
+			this.reader = reader;
+		}
+
+		public ITableMetaData getTableMetaData() {
+			return this.reader.getMetaData();
+		}
+
+		public int getRowCount() {
+			throw new UnsupportedOperationException("Streamed tables do not support getRowCount()");
+		}
+
+		public Object getValue(int row, String column) throws DataSetException {
+			if (row < this.currentRow) {
+				throw new UnsupportedOperationException("Streamed tables only support sequential row access");
+			}
+			while (this.currentRow < row && !this.exhausted) {
+				this.values = this.reader.nextRow();
+				this.exhausted = (this.values == null);
+				if (!this.exhausted) {
+					this.currentRow++;
+				}
+			}
+			if (this.currentRow < row) {
+				throw new RowOutOfBoundsException(row + " > " + this.currentRow);
+			}
+			return this.values[getColumnIndex(column)];
+		}
+
+		void close() {
+			this.reader.close();
+		}
+
+	}
+
+}
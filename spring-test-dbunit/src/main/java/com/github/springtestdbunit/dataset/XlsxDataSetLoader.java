@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import java.io.IOException;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link DataSetLoader data set loader} that can be used to load large XLSX workbooks as {@link XlsxDataSet}s.
+ * Unlike the {@link XlsDataSetLoader} the workbook is not loaded into memory, sheets are only parsed when they are
+ * referenced and resources inside jars are supported. A workbook holds a single dataset, so a <code>datasetId</code>
+ * cannot be used.
+ */
+public class XlsxDataSetLoader extends AbstractDataSetLoader {
+
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId) throws IOException, DataSetException {
+		if (StringUtils.hasLength(datasetId)) {
+			throw new DataSetException("XLSX workbooks do not contain datasets with ids, unable to load '" + datasetId
+					+ "' from " + resource);
+		}
+		return new XlsxDataSet(resource);
+	}
+
+}
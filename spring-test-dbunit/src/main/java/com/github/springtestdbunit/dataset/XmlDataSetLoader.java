@@ -1,13 +1,23 @@
 package com.github.springtestdbunit.dataset;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
+import org.dbunit.dataset.CachedDataSet;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.xml.XmlDataSet;
+import org.dbunit.dataset.xml.XmlProducer;
 import org.springframework.core.io.Resource;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 /**
- * A {@link DataSetLoader data set loader} that can be used to load {@link XmlDataSet XmlDataSets}.
+ * A {@link DataSetLoader data set loader} that can be used to load {@link XmlDataSet XmlDataSets}. Datasets selected
+ * by id are read using the {@link DataSetOffsetIndex}. The dataset DTD is read once and cached by the
+ * {@link CachingEntityResolver}.
  *
  * @author Jorge Davison
  * @since 1.3.0
@@ -16,9 +26,52 @@ public class XmlDataSetLoader extends AbstractDataSetLoader {
 
 	@Override
 	protected IDataSet createDataSet(Resource resource, String datasetId) throws Exception {
-		try (InputStream inputStream = resource.getInputStream()) {
+		Resource indexed = DataSetOffsetIndex.getSharedInstance().getResource(resource, datasetId);
+		try (InputStream inputStream = indexed.getInputStream()) {
+			if (!StringUtils.hasLength(datasetId)) {
+				return new CachedDataSet(new CachingXmlProducer(new InputSource(inputStream)));
+			}
 			return new XmlDataSet(inputStream, datasetId);
 		}
 	}
 
+	/**
+	 * Create the dataset, only keeping rows of the given tables. Datasets selected by id are loaded in full.
+	 */
+	@Override
+	protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames) throws Exception {
+		if (CollectionUtils.isEmpty(tableNames) || StringUtils.hasLength(datasetId)) {
+			return createDataSet(resource, datasetId);
+		}
+		try (InputStream inputStream = resource.getInputStream()) {
+			CachedDataSet dataSet = new CachedDataSet();
+			XmlProducer producer = new CachingXmlProducer(new InputSource(inputStream));
+			producer.setConsumer(new TableFilteringConsumer(dataSet, tableNames));
+			producer.produce();
+			return dataSet;
+		}
+	}
+
+	/**
+	 * {@link XmlProducer} that reads the dataset DTD through the {@link CachingEntityResolver}.
+	 */
+	private static class CachingXmlProducer extends XmlProducer {
+
+		private static final String DATASET_DTD = "org/dbunit/dataset/xml/dataset.dtd";
+
+		CachingXmlProducer(InputSource inputSource) {
+			super(inputSource);
+		}
+
+		@Override
+		public InputSource resolveEntity(String publicId, String systemId) throws SAXException {
+			try {
+				return CachingEntityResolver.getSharedInstance().resolveEntity(publicId, DATASET_DTD);
+			} catch (IOException ex) {
+				throw new SAXException(ex);
+			}
+		}
+
+	}
+
 }
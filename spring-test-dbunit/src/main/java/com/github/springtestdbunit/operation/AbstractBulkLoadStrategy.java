@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+
+/**
+ * Base class for {@link BulkLoadStrategy} implementations that insert each chunk of rows with a single
+ * {@code INSERT ... SELECT} statement, binding the values of every column as one parameter. Character, numeric,
+ * boolean and date/time columns are supported.
+ */
+public abstract class AbstractBulkLoadStrategy implements BulkLoadStrategy {
+
+	private static final Set<Integer> SUPPORTED_TYPES = new HashSet<>(Arrays.asList(Types.CHAR, Types.VARCHAR,
+			Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+			Types.DECIMAL, Types.NUMERIC, Types.REAL, Types.FLOAT, Types.DOUBLE, Types.BOOLEAN, Types.BIT, Types.DATE,
+			Types.TIME, Types.TIMESTAMP));
+
+	private final String databaseProductName;
+
+	/**
+	 * Create a new {@link AbstractBulkLoadStrategy}.
+	 * @param databaseProductName the JDBC database product name of the supported database
+	 */
+	protected AbstractBulkLoadStrategy(String databaseProductName) {
+		this.databaseProductName = databaseProductName;
+	}
+
+	public boolean supports(IDatabaseConnection connection) throws SQLException {
+		String productName = connection.getConnection().getMetaData().getDatabaseProductName();
+		return this.databaseProductName.equalsIgnoreCase(productName);
+	}
+
+	public boolean supports(Column column) {
+		return SUPPORTED_TYPES.contains(column.getDataType().getSqlType());
+	}
+
+	public BulkInsert prepare(IDatabaseConnection connection, String tableName, String[] columnNames)
+			throws SQLException {
+		Connection jdbcConnection = connection.getConnection();
+		String[] columnTypes = getColumnTypes(jdbcConnection, tableName, columnNames);
+		String sql = createInsertSql(tableName, columnNames, columnTypes);
+		return new StatementBulkInsert(jdbcConnection, jdbcConnection.prepareStatement(sql), columnTypes);
+	}
+
+	private String[] getColumnTypes(Connection connection, String tableName, String[] columnNames)
+			throws SQLException {
+		String sql = "SELECT " + String.join(", ", columnNames) + " FROM " + tableName + " WHERE 1 = 0";
+		try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			String[] columnTypes = new String[columnNames.length];
+			for (int i = 0; i < columnTypes.length; i++) {
+				columnTypes[i] = getColumnType(metaData, i + 1);
+			}
+			return columnTypes;
+		}
+	}
+
+	/**
+	 * Returns the SQL type declaration of a column, including its length or precision where required.
+	 * @param metaData the metadata of the target table
+	 * @param column the column index, starting at 1
+	 * @return the type declaration, for example {@code VARCHAR(20)}
+	 * @throws SQLException on a database error
+	 */
+	protected String getColumnType(ResultSetMetaData metaData, int column) throws SQLException {
+		String typeName = metaData.getColumnTypeName(column);
+		switch (metaData.getColumnType(column)) {
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+			return typeName + "(" + metaData.getPrecision(column) + ")";
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			return typeName + "(" + metaData.getPrecision(column) + ", " + metaData.getScale(column) + ")";
+		case Types.TIMESTAMP:
+			return typeName + "(" + metaData.getScale(column) + ")";
+		default:
+			return typeName;
+		}
+	}
+
+	/**
+	 * Create the statement used to insert a chunk of rows. The statement must declare one parameter for each column.
+	 * @param tableName the qualified table name
+	 * @param columnNames the qualified column names
+	 * @param columnTypes the column type declarations
+	 * @return the SQL statement
+	 */
+	protected abstract String createInsertSql(String tableName, String[] columnNames, String[] columnTypes);
+
+	/**
+	 * Bind the values of a single column. By default the values are bound as a JDBC {@link java.sql.Array}.
+	 * @param connection the JDBC connection
+	 * @param statement the insert statement
+	 * @param index the parameter index, starting at 1
+	 * @param columnType the column type declaration
+	 * @param values the column values
+	 * @throws SQLException on a database error
+	 */
+	protected void bind(Connection connection, PreparedStatement statement, int index, String columnType,
+			Object[] values) throws SQLException {
+		int length = columnType.indexOf('(');
+		String typeName = (length != -1 ? columnType.substring(0, length) : columnType);
+		statement.setArray(index, connection.createArrayOf(typeName, values));
+	}
+
+	private class StatementBulkInsert implements BulkInsert {
+
+		private final Connection connection;
+
+		private final PreparedStatement statement;
+
+		private final String[] columnTypes;
+
+		StatementBulkInsert(Connection connection, PreparedStatement statement, String[] columnTypes) {
+			this.connection = connection;
+			this.statement = statement;
+			this.columnTypes = columnTypes;
+		}
+
+		public void insert(Object[][] columnValues, int rowCount) throws SQLException {
+			for (int i = 0; i < columnValues.length; i++) {
+				Object[] values = columnValues[i];
+				if (values.length != rowCount) {
+					values = Arrays.copyOf(values, rowCount);
+				}
+				bind(this.connection, this.statement, i + 1, this.columnTypes[i], values);
+			}
+			this.statement.executeUpdate();
+		}
+
+		public void close() throws SQLException {
+			this.statement.close();
+		}
+
+	}
+
+}
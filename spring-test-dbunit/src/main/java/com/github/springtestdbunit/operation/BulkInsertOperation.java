@@ -0,0 +1,232 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchColumnException;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.operation.AbstractOperation;
+import org.dbunit.operation.DatabaseOperation;
+import org.springframework.util.Assert;
+
+import com.github.springtestdbunit.operation.BulkLoadStrategy.BulkInsert;
+
+/**
+ * DBUnit {@link DatabaseOperation} that inserts dataset rows in chunks using the native bulk import of the database.
+ * Rows are read one at a time, so streamed tables are never held in memory. The fallback operation is used when no
+ * {@link BulkLoadStrategy} supports the database, for tables containing columns that the strategy does not support and
+ * for rows that omit column values.
+ *
+ * @see BulkLoadDatabaseOperationLookup
+ */
+public class BulkInsertOperation extends AbstractOperation {
+
+	private static final Log logger = LogFactory.getLog(BulkInsertOperation.class);
+
+	/**
+	 * The default number of rows inserted by each statement.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	private final List<BulkLoadStrategy> strategies;
+
+	private final DatabaseOperation fallback;
+
+	private final int chunkSize;
+
+	/**
+	 * Create a new {@link BulkInsertOperation}.
+	 * @param strategies the candidate strategies, the first that supports the database is used
+	 * @param fallback the operation used when rows cannot be bulk loaded
+	 * @param chunkSize the maximum number of rows inserted by each statement
+	 */
+	public BulkInsertOperation(List<BulkLoadStrategy> strategies, DatabaseOperation fallback, int chunkSize) {
+		Assert.notNull(strategies, "Strategies must not be null");
+		Assert.notNull(fallback, "Fallback must not be null");
+		Assert.isTrue(chunkSize > 0, "ChunkSize must be positive");
+		this.strategies = new ArrayList<>(strategies);
+		this.fallback = fallback;
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public void execute(IDatabaseConnection connection, IDataSet dataSet) throws DatabaseUnitException, SQLException {
+		BulkLoadStrategy strategy = getStrategy(connection);
+		if (strategy == null) {
+			this.fallback.execute(connection, dataSet);
+			return;
+		}
+		IDataSet databaseDataSet = connection.createDataSet();
+		ITableIterator iterator = dataSet.iterator();
+		while (iterator.next()) {
+			ITable table = iterator.getTable();
+			ITableMetaData metaData = databaseDataSet.getTableMetaData(table.getTableMetaData().getTableName());
+			Column[] columns = getDatabaseColumns(table.getTableMetaData(), metaData);
+			if (isSupported(strategy, columns)) {
+				insert(connection, strategy, table, metaData, columns);
+			} else {
+				logger.debug("Using fallback operation for table " + metaData.getTableName());
+				this.fallback.execute(connection, new DefaultDataSet(table));
+			}
+		}
+	}
+
+	private BulkLoadStrategy getStrategy(IDatabaseConnection connection) throws SQLException {
+		for (BulkLoadStrategy strategy : this.strategies) {
+			if (strategy.supports(connection)) {
+				return strategy;
+			}
+		}
+		return null;
+	}
+
+	private Column[] getDatabaseColumns(ITableMetaData tableMetaData, ITableMetaData databaseMetaData)
+			throws DatabaseUnitException {
+		Column[] columns = tableMetaData.getColumns();
+		Column[] databaseColumns = new Column[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			databaseColumns[i] = Columns.getColumn(columns[i].getColumnName(), databaseMetaData.getColumns());
+			if (databaseColumns[i] == null) {
+				throw new NoSuchColumnException(databaseMetaData.getTableName(), columns[i].getColumnName());
+			}
+		}
+		return databaseColumns;
+	}
+
+	private boolean isSupported(BulkLoadStrategy strategy, Column[] columns) {
+		for (Column column : columns) {
+			if (!strategy.supports(column)) {
+				return false;
+			}
+		}
+		return columns.length > 0;
+	}
+
+	private void insert(IDatabaseConnection connection, BulkLoadStrategy strategy, ITable table,
+			ITableMetaData metaData, Column[] columns) throws DatabaseUnitException, SQLException {
+		Column[] tableColumns = table.getTableMetaData().getColumns();
+		int chunkSize = getChunkSize(table);
+		Object[][] values = new Object[columns.length][chunkSize];
+		BulkInsert bulkInsert = null;
+		int count = 0;
+		int chunk = 0;
+		try {
+			for (int row = 0;; row++) {
+				Object[] rowValues = getRow(table, tableColumns, row);
+				if (rowValues == null) {
+					break;
+				}
+				if (hasNoValue(rowValues)) {
+					bulkInsert = flush(connection, strategy, metaData, columns, bulkInsert, values, chunk);
+					chunk = 0;
+					DefaultTable single = new DefaultTable(table.getTableMetaData());
+					single.addRow(rowValues);
+					this.fallback.execute(connection, new DefaultDataSet(single));
+				} else {
+					for (int i = 0; i < columns.length; i++) {
+						values[i][chunk] = columns[i].getDataType().typeCast(rowValues[i]);
+					}
+					chunk++;
+					if (chunk == chunkSize) {
+						bulkInsert = flush(connection, strategy, metaData, columns, bulkInsert, values, chunk);
+						chunk = 0;
+					}
+				}
+				count++;
+			}
+			bulkInsert = flush(connection, strategy, metaData, columns, bulkInsert, values, chunk);
+		} finally {
+			if (bulkInsert != null) {
+				bulkInsert.close();
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Bulk loaded " + count + " rows into table " + metaData.getTableName());
+		}
+	}
+
+	/**
+	 * Returns the number of rows buffered for each statement, which is never more than the rows of the table. Tables
+	 * that cannot report their row count use the configured chunk size.
+	 */
+	private int getChunkSize(ITable table) {
+		try {
+			return Math.max(1, Math.min(this.chunkSize, table.getRowCount()));
+		} catch (UnsupportedOperationException ex) {
+			return this.chunkSize;
+		}
+	}
+
+	private Object[] getRow(ITable table, Column[] columns, int row) throws DatabaseUnitException {
+		Object[] values = new Object[columns.length];
+		try {
+			for (int i = 0; i < columns.length; i++) {
+				values[i] = table.getValue(row, columns[i].getColumnName());
+			}
+		} catch (RowOutOfBoundsException ex) {
+			return null;
+		}
+		return values;
+	}
+
+	private boolean hasNoValue(Object[] values) {
+		for (Object value : values) {
+			if (value == ITable.NO_VALUE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private BulkInsert flush(IDatabaseConnection connection, BulkLoadStrategy strategy, ITableMetaData metaData,
+			Column[] columns, BulkInsert bulkInsert, Object[][] values, int rowCount) throws SQLException {
+		if (rowCount == 0) {
+			return bulkInsert;
+		}
+		if (bulkInsert == null) {
+			String tableName = getQualifiedName(connection.getSchema(), metaData.getTableName(), connection);
+			String[] columnNames = new String[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				columnNames[i] = getQualifiedName(null, columns[i].getColumnName(), connection);
+			}
+			bulkInsert = strategy.prepare(connection, tableName, columnNames);
+		}
+		bulkInsert.insert(values, rowCount);
+		return bulkInsert;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[strategies=" + this.strategies + ", fallback=" + this.fallback + "]";
+	}
+
+}
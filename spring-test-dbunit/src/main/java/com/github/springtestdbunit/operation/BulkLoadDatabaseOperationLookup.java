@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import org.dbunit.operation.CompositeOperation;
+
+import com.github.springtestdbunit.annotation.DatabaseOperation;
+
+/**
+ * {@link DatabaseOperationLookup} that performs {@link DatabaseOperation#INSERT INSERT} and
+ * {@link DatabaseOperation#CLEAN_INSERT CLEAN_INSERT} operations using a {@link BulkInsertOperation}. The HSQLDB
+ * strategy is used by default and others can be registered as {@link ServiceLoader} services of
+ * {@link BulkLoadStrategy}. The {@link H2BulkLoadStrategy} is not used by default and must be passed to the
+ * constructor. The standard DBUnit operations are used for other databases and column types.
+ */
+public class BulkLoadDatabaseOperationLookup extends DefaultDatabaseOperationLookup {
+
+	private final Map<DatabaseOperation, org.dbunit.operation.DatabaseOperation> bulkLookup;
+
+	/**
+	 * Create a new {@link BulkLoadDatabaseOperationLookup} using registered and built-in strategies.
+	 */
+	public BulkLoadDatabaseOperationLookup() {
+		this(getDefaultStrategies());
+	}
+
+	/**
+	 * Create a new {@link BulkLoadDatabaseOperationLookup} using the given strategies.
+	 * @param strategies the strategies
+	 */
+	public BulkLoadDatabaseOperationLookup(BulkLoadStrategy... strategies) {
+		this(Arrays.asList(strategies));
+	}
+
+	/**
+	 * Create a new {@link BulkLoadDatabaseOperationLookup} using the given strategies.
+	 * @param strategies the strategies, the first that supports the database is used
+	 */
+	public BulkLoadDatabaseOperationLookup(List<BulkLoadStrategy> strategies) {
+		BulkInsertOperation insert = new BulkInsertOperation(strategies, org.dbunit.operation.DatabaseOperation.INSERT,
+				BulkInsertOperation.DEFAULT_CHUNK_SIZE);
+		this.bulkLookup = new HashMap<>();
+		this.bulkLookup.put(DatabaseOperation.INSERT, insert);
+		this.bulkLookup.put(DatabaseOperation.CLEAN_INSERT,
+				new CompositeOperation(org.dbunit.operation.DatabaseOperation.DELETE_ALL, insert));
+	}
+
+	private static List<BulkLoadStrategy> getDefaultStrategies() {
+		List<BulkLoadStrategy> strategies = new ArrayList<>();
+		for (BulkLoadStrategy strategy : ServiceLoader.load(BulkLoadStrategy.class)) {
+			strategies.add(strategy);
+		}
+		strategies.add(new HsqldbBulkLoadStrategy());
+		return strategies;
+	}
+
+	@Override
+	public org.dbunit.operation.DatabaseOperation get(DatabaseOperation operation) {
+		if (this.bulkLookup.containsKey(operation)) {
+			return this.bulkLookup.get(operation);
+		}
+		return super.get(operation);
+	}
+
+}
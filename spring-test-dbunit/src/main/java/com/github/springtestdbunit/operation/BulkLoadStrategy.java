@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.sql.SQLException;
+
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+
+/**
+ * Strategy used by {@link BulkInsertOperation} to insert rows using the native bulk import of a specific database.
+ * Implementations can be registered using the {@link java.util.ServiceLoader} mechanism.
+ *
+ * @see BulkLoadDatabaseOperationLookup
+ * @see AbstractBulkLoadStrategy
+ */
+public interface BulkLoadStrategy {
+
+	/**
+	 * Returns {@code true} if this strategy can be used with the given connection.
+	 * @param connection the database connection
+	 * @return if the database is supported
+	 * @throws SQLException on a database error
+	 */
+	boolean supports(IDatabaseConnection connection) throws SQLException;
+
+	/**
+	 * Returns {@code true} if values of the given database column can be bulk loaded. Tables containing unsupported
+	 * columns are inserted using the fallback operation.
+	 * @param column the database column
+	 * @return if the column is supported
+	 */
+	boolean supports(Column column);
+
+	/**
+	 * Prepare a bulk insert into the given table.
+	 * @param connection the database connection
+	 * @param tableName the qualified table name
+	 * @param columnNames the qualified column names
+	 * @return the bulk insert, closed by the caller
+	 * @throws SQLException on a database error
+	 */
+	BulkInsert prepare(IDatabaseConnection connection, String tableName, String[] columnNames) throws SQLException;
+
+	/**
+	 * A prepared bulk insert into a single table.
+	 */
+	interface BulkInsert extends AutoCloseable {
+
+		/**
+		 * Insert a chunk of rows.
+		 * @param columnValues the values of each column, already converted to the type of the database column. Each
+		 * array may be longer than the row count.
+		 * @param rowCount the number of rows to insert
+		 * @throws SQLException on a database error
+		 */
+		void insert(Object[][] columnValues, int rowCount) throws SQLException;
+
+		void close() throws SQLException;
+
+	}
+
+}
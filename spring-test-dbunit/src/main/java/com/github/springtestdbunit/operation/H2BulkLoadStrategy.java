@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * H2 {@link BulkLoadStrategy}. Each chunk of rows is bound as one array per column and inserted using
+ * {@code INSERT INTO ... SELECT * FROM TABLE(...)}. This strategy is not part of the default strategies of the
+ * {@link BulkLoadDatabaseOperationLookup}.
+ */
+public class H2BulkLoadStrategy extends AbstractBulkLoadStrategy {
+
+	public H2BulkLoadStrategy() {
+		super("H2");
+	}
+
+	@Override
+	protected String createInsertSql(String tableName, String[] columnNames, String[] columnTypes) {
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+		sql.append(String.join(", ", columnNames)).append(") SELECT * FROM TABLE(");
+		for (int i = 0; i < columnTypes.length; i++) {
+			sql.append(i > 0 ? ", " : "").append("C").append(i + 1).append(" ").append(columnTypes[i]).append(" = ?");
+		}
+		return sql.append(")").toString();
+	}
+
+	@Override
+	protected void bind(Connection connection, PreparedStatement statement, int index, String columnType,
+			Object[] values) throws SQLException {
+		statement.setObject(index, values);
+	}
+
+}
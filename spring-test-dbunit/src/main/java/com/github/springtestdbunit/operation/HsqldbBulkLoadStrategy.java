@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * HSQLDB {@link BulkLoadStrategy}. Each chunk of rows is bound as one typed array per column and inserted using
+ * {@code INSERT INTO ... SELECT ... FROM UNNEST(...)}. HSQLDB drops the fraction of decimal and timestamp array
+ * elements, so those values are bound as strings and converted by the statement.
+ */
+public class HsqldbBulkLoadStrategy extends AbstractBulkLoadStrategy {
+
+	private static final String STRING_ARRAY_TYPE = "VARCHAR(1024)";
+
+	public HsqldbBulkLoadStrategy() {
+		super("HSQL Database Engine");
+	}
+
+	@Override
+	protected String createInsertSql(String tableName, String[] columnNames, String[] columnTypes) {
+		StringBuilder select = new StringBuilder();
+		StringBuilder arrays = new StringBuilder();
+		StringBuilder aliases = new StringBuilder();
+		for (int i = 0; i < columnTypes.length; i++) {
+			String separator = (i > 0 ? ", " : "");
+			String arrayType = (isBoundAsString(columnTypes[i]) ? STRING_ARRAY_TYPE : columnTypes[i]);
+			select.append(separator).append("CAST(C").append(i + 1).append(" AS ").append(columnTypes[i]).append(")");
+			arrays.append(separator).append("CAST(? AS ").append(arrayType).append(" ARRAY)");
+			aliases.append(separator).append("C").append(i + 1);
+		}
+		return "INSERT INTO " + tableName + " (" + String.join(", ", columnNames) + ") SELECT " + select
+				+ " FROM UNNEST(" + arrays + ") AS U(" + aliases + ")";
+	}
+
+	@Override
+	protected void bind(Connection connection, PreparedStatement statement, int index, String columnType,
+			Object[] values) throws SQLException {
+		if (!isBoundAsString(columnType)) {
+			super.bind(connection, statement, index, columnType, values);
+			return;
+		}
+		Object[] strings = new Object[values.length];
+		for (int i = 0; i < values.length; i++) {
+			strings[i] = (values[i] != null ? toString(values[i]) : null);
+		}
+		statement.setArray(index, connection.createArrayOf("VARCHAR", strings));
+	}
+
+	private boolean isBoundAsString(String columnType) {
+		return columnType.startsWith("DECIMAL") || columnType.startsWith("NUMERIC")
+				|| columnType.startsWith("TIMESTAMP");
+	}
+
+	private String toString(Object value) {
+		return (value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dbunit.operation.CompositeOperation;
+
+import com.github.springtestdbunit.annotation.DatabaseOperation;
+
+/**
+ * {@link DatabaseOperationLookup} that performs {@link DatabaseOperation#INSERT INSERT} and
+ * {@link DatabaseOperation#CLEAN_INSERT CLEAN_INSERT} operations using a {@link MultiRowInsertOperation}.
+ */
+public class MultiRowInsertDatabaseOperationLookup extends DefaultDatabaseOperationLookup {
+
+	private final Map<DatabaseOperation, org.dbunit.operation.DatabaseOperation> multiRowLookup;
+
+	/**
+	 * Create a new {@link MultiRowInsertDatabaseOperationLookup} using
+	 * {@link MultiRowInsertOperation#DEFAULT_MAX_PARAMETERS}.
+	 */
+	public MultiRowInsertDatabaseOperationLookup() {
+		this(MultiRowInsertOperation.DEFAULT_MAX_PARAMETERS);
+	}
+
+	/**
+	 * Create a new {@link MultiRowInsertDatabaseOperationLookup}.
+	 * @param maxParameters the maximum number of parameters of each insert statement
+	 */
+	public MultiRowInsertDatabaseOperationLookup(int maxParameters) {
+		MultiRowInsertOperation insert = new MultiRowInsertOperation(maxParameters);
+		this.multiRowLookup = new HashMap<>();
+		this.multiRowLookup.put(DatabaseOperation.INSERT, insert);
+		this.multiRowLookup.put(DatabaseOperation.CLEAN_INSERT,
+				new CompositeOperation(org.dbunit.operation.DatabaseOperation.DELETE_ALL, insert));
+	}
+
+	@Override
+	public org.dbunit.operation.DatabaseOperation get(DatabaseOperation operation) {
+		if (this.multiRowLookup.containsKey(operation)) {
+			return this.multiRowLookup.get(operation);
+		}
+		return super.get(operation);
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbunit.DatabaseUnitException;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.Columns;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.NoSuchColumnException;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.operation.AbstractOperation;
+import org.springframework.util.Assert;
+
+/**
+ * DBUnit {@link org.dbunit.operation.DatabaseOperation} that inserts dataset rows using multi-row
+ * {@code INSERT INTO ... VALUES (...), (...)} statements. Consecutive rows that provide values for the same columns are
+ * grouped into one statement, limited by the maximum number of parameters a statement may declare and by
+ * {@link #MAX_ROWS}. Columns with {@link ITable#NO_VALUE} are omitted, as with the standard DBUnit insert.
+ * <p>
+ * Prepared statements are reused for every statement of the same table, column names and row count within one
+ * execution. The generated SQL is cached for the lifetime of the operation, keyed by the same values.
+ *
+ * @see MultiRowInsertDatabaseOperationLookup
+ */
+public class MultiRowInsertOperation extends AbstractOperation {
+
+	private static final Log logger = LogFactory.getLog(MultiRowInsertOperation.class);
+
+	/**
+	 * The default maximum number of parameters of each statement, below the SQL Server limit of 2100.
+	 */
+	public static final int DEFAULT_MAX_PARAMETERS = 2000;
+
+	/**
+	 * The maximum number of rows of each statement, the SQL Server limit for a {@code VALUES} clause.
+	 */
+	public static final int MAX_ROWS = 1000;
+
+	private final int maxParameters;
+
+	private final Map<String, String> sqlCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link MultiRowInsertOperation} using {@link #DEFAULT_MAX_PARAMETERS}.
+	 */
+	public MultiRowInsertOperation() {
+		this(DEFAULT_MAX_PARAMETERS);
+	}
+
+	/**
+	 * Create a new {@link MultiRowInsertOperation}.
+	 * @param maxParameters the maximum number of parameters of each statement. Rows with more columns are inserted one
+	 * at a time.
+	 */
+	public MultiRowInsertOperation(int maxParameters) {
+		Assert.isTrue(maxParameters > 0, "MaxParameters must be positive");
+		this.maxParameters = maxParameters;
+	}
+
+	@Override
+	public void execute(IDatabaseConnection connection, IDataSet dataSet) throws DatabaseUnitException, SQLException {
+		IDataSet databaseDataSet = connection.createDataSet();
+		Map<String, PreparedStatement> statements = new HashMap<>();
+		try {
+			ITableIterator iterator = dataSet.iterator();
+			while (iterator.next()) {
+				ITable table = iterator.getTable();
+				ITableMetaData metaData = databaseDataSet.getTableMetaData(table.getTableMetaData().getTableName());
+				insert(connection, table, metaData, statements);
+			}
+		} finally {
+			for (PreparedStatement statement : statements.values()) {
+				statement.close();
+			}
+		}
+	}
+
+	private void insert(IDatabaseConnection connection, ITable table, ITableMetaData metaData,
+			Map<String, PreparedStatement> statements) throws DatabaseUnitException, SQLException {
+		Column[] tableColumns = table.getTableMetaData().getColumns();
+		Column[] columns = getDatabaseColumns(tableColumns, metaData);
+		String tableName = getQualifiedName(connection.getSchema(), metaData.getTableName(), connection);
+		String[] columnNames = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			columnNames[i] = getQualifiedName(null, columns[i].getColumnName(), connection);
+		}
+		List<Object[]> rows = new ArrayList<>();
+		BitSet columnSet = null;
+		int count = 0;
+		for (int row = 0;; row++) {
+			Object[] values = getRow(table, tableColumns, row);
+			if (values == null) {
+				break;
+			}
+			BitSet rowColumnSet = getColumnSet(values);
+			if (!rowColumnSet.equals(columnSet) || rows.size() == getMaxRows(columnSet)) {
+				flush(connection, tableName, columnNames, columns, columnSet, rows, statements);
+				columnSet = rowColumnSet;
+			}
+			rows.add(values);
+			count++;
+		}
+		flush(connection, tableName, columnNames, columns, columnSet, rows, statements);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Inserted " + count + " rows into table " + metaData.getTableName());
+		}
+	}
+
+	private Column[] getDatabaseColumns(Column[] tableColumns, ITableMetaData metaData) throws DatabaseUnitException {
+		Column[] columns = new Column[tableColumns.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = Columns.getColumn(tableColumns[i].getColumnName(), metaData.getColumns());
+			if (columns[i] == null) {
+				throw new NoSuchColumnException(metaData.getTableName(), tableColumns[i].getColumnName());
+			}
+		}
+		return columns;
+	}
+
+	private Object[] getRow(ITable table, Column[] columns, int row) throws DatabaseUnitException {
+		Object[] values = new Object[columns.length];
+		try {
+			for (int i = 0; i < columns.length; i++) {
+				values[i] = table.getValue(row, columns[i].getColumnName());
+			}
+		} catch (RowOutOfBoundsException ex) {
+			return null;
+		}
+		return values;
+	}
+
+	private BitSet getColumnSet(Object[] values) {
+		BitSet columnSet = new BitSet(values.length);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != ITable.NO_VALUE) {
+				columnSet.set(i);
+			}
+		}
+		return columnSet;
+	}
+
+	private int getMaxRows(BitSet columnSet) {
+		int parameters = Math.max(columnSet.cardinality(), 1);
+		return Math.max(Math.min(this.maxParameters / parameters, MAX_ROWS), 1);
+	}
+
+	private void flush(IDatabaseConnection connection, String tableName, String[] columnNames, Column[] columns,
+			BitSet columnSet, List<Object[]> rows, Map<String, PreparedStatement> statements)
+			throws DatabaseUnitException, SQLException {
+		if (rows.isEmpty()) {
+			return;
+		}
+		String columnList = getColumnList(columnNames, columnSet);
+		String key = tableName + " (" + columnList + ") " + rows.size();
+		String sql = this.sqlCache.computeIfAbsent(key, k -> createSql(tableName, columnList, columnSet, rows.size()));
+		PreparedStatement statement = statements.get(key);
+		if (statement == null) {
+			statement = connection.getConnection().prepareStatement(sql);
+			statements.put(key, statement);
+		}
+		int index = 1;
+		for (Object[] row : rows) {
+			for (int i = columnSet.nextSetBit(0); i >= 0; i = columnSet.nextSetBit(i + 1)) {
+				columns[i].getDataType().setSqlValue(row[i], index++, statement);
+			}
+		}
+		statement.executeUpdate();
+		rows.clear();
+	}
+
+	private String getColumnList(String[] columnNames, BitSet columnSet) {
+		StringBuilder columnList = new StringBuilder();
+		for (int i = columnSet.nextSetBit(0); i >= 0; i = columnSet.nextSetBit(i + 1)) {
+			columnList.append(columnList.length() > 0 ? ", " : "").append(columnNames[i]);
+		}
+		return columnList.toString();
+	}
+
+	private String createSql(String tableName, String columnList, BitSet columnSet, int rowCount) {
+		StringBuilder values = new StringBuilder("(");
+		for (int i = 0; i < columnSet.cardinality(); i++) {
+			values.append(i > 0 ? ", " : "").append("?");
+		}
+		values.append(")");
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (").append(columnList);
+		sql.append(") VALUES ");
+		for (int row = 0; row < rowCount; row++) {
+			sql.append(row > 0 ? ", " : "").append(values);
+		}
+		return sql.toString();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[maxParameters=" + this.maxParameters + "]";
+	}
+
+}
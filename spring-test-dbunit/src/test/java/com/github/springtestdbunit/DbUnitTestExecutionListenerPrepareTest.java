@@ -20,6 +20,11 @@ import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 import javax.sql.DataSource;
 
 import com.github.springtestdbunit.annotation.DbUnitTestContextConstants;
@@ -28,15 +33,20 @@ import org.dbunit.database.IDatabaseConnection;
 import org.dbunit.dataset.IDataSet;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.ContextLoader;
 import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.github.springtestdbunit.annotation.DatabaseOperation;
 import com.github.springtestdbunit.annotation.DbUnitConfiguration;
+import com.github.springtestdbunit.dataset.CachingDataSetLoader;
 import com.github.springtestdbunit.dataset.DataSetLoader;
 import com.github.springtestdbunit.dataset.FlatXmlDataSetLoader;
+import com.github.springtestdbunit.dataset.ReplacementDataSetLoader;
 import com.github.springtestdbunit.operation.DatabaseOperationLookup;
 import com.github.springtestdbunit.operation.DefaultDatabaseOperationLookup;
 import com.github.springtestdbunit.testutils.ExtendedTestContextManager;
@@ -187,6 +197,69 @@ public class DbUnitTestExecutionListenerPrepareTest {
 				.getTestContextAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE).getClass());
 	}
 
+	@Test
+	public void shouldWrapDataSetLoaderWhenCachingDataSets() throws Exception {
+		addBean("dbUnitDatabaseConnection", this.databaseConnection);
+		ExtendedTestContextManager testContextManager = new ExtendedTestContextManager(CachingConfiguration.class);
+		testContextManager.prepareTestInstance();
+		assertEquals(CachingDataSetLoader.class, testContextManager
+				.getTestContextAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE).getClass());
+	}
+
+	@Test
+	public void shouldRegisterCachingDataSetLoaderWithApplicationContext() throws Exception {
+		ConfigurableApplicationContext applicationContext = mock(ConfigurableApplicationContext.class);
+		ConfigurableListableBeanFactory beanFactory = mock(ConfigurableListableBeanFactory.class);
+		given(applicationContext.isActive()).willReturn(true);
+		given(applicationContext.getBeanFactory()).willReturn(beanFactory);
+		this.applicationContext = applicationContext;
+		DbUnitTestExecutionListenerPrepareTest.applicationContextThreadLocal.set(applicationContext);
+		addBean("dbUnitDatabaseConnection", this.databaseConnection);
+		ExtendedTestContextManager testContextManager = new ExtendedTestContextManager(CachingConfiguration.class);
+		testContextManager.prepareTestInstance();
+		Object dataSetLoader = testContextManager
+				.getTestContextAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE);
+		verify(beanFactory).registerSingleton("dbUnitCachingDataSetLoader#" + FlatXmlDataSetLoader.class.getName(),
+				dataSetLoader);
+	}
+
+	@Test
+	public void shouldUseCachingDataSetLoaderOfApplicationContext() throws Exception {
+		CachingDataSetLoader dataSetLoader = new CachingDataSetLoader();
+		addBean("dbUnitDatabaseConnection", this.databaseConnection);
+		addBean("dbUnitCachingDataSetLoader#" + FlatXmlDataSetLoader.class.getName(), dataSetLoader);
+		ExtendedTestContextManager testContextManager = new ExtendedTestContextManager(CachingConfiguration.class);
+		testContextManager.prepareTestInstance();
+		assertSame(dataSetLoader,
+				testContextManager.getTestContextAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE));
+	}
+
+	@Test
+	public void shouldKeepReplacementDataSetLoaderForClearingFunctionResults() throws Exception {
+		addBean("dbUnitDatabaseConnection", this.databaseConnection);
+		ExtendedTestContextManager testContextManager = new ExtendedTestContextManager(
+				ReplacementConfiguration.class);
+		testContextManager.prepareTestInstance();
+		assertSame(testContextManager.getTestContextAttribute(DbUnitTestContextConstants.DATA_SET_LOADER_ATTRIBUTE),
+				testContextManager
+						.getTestContextAttribute(DbUnitTestContextConstants.REPLACEMENT_DATA_SET_LOADER_ATTRIBUTE));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRequireSortTablesForParallelSetup() throws Exception {
+		addBean("dbUnitDatabaseConnection", this.databaseConnection);
+		new ExtendedTestContextManager(UnsortedParallelSetup.class).prepareTestInstance();
+	}
+
+	@Test
+	public void shouldOnlyPrefetchForTestAnnotations() throws Exception {
+		DbUnitTestExecutionListener listener = new DbUnitTestExecutionListener();
+		assertTrue((Boolean) ReflectionTestUtils.invokeMethod(listener, "isTestMethod",
+				PrefetchCandidates.class.getMethod("test")));
+		assertFalse((Boolean) ReflectionTestUtils.invokeMethod(listener, "isTestMethod",
+				PrefetchCandidates.class.getMethod("beforeTest")));
+	}
+
 	private static class LocalApplicationContextLoader implements ContextLoader {
 		public String[] processLocations(Class<?> clazz, String... locations) {
 			return new String[] {"mock"};
@@ -212,6 +285,24 @@ public class DbUnitTestExecutionListenerPrepareTest {
 		}
 	}
 
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	private @interface BeforeTest {
+
+	}
+
+	public static class PrefetchCandidates {
+
+		@Test
+		public void test() {
+		}
+
+		@BeforeTest
+		public void beforeTest() {
+		}
+
+	}
+
 	@ContextConfiguration(loader = LocalApplicationContextLoader.class)
 	@TestExecutionListeners(DbUnitTestExecutionListener.class)
 	private static class NoDbUnitConfiguration {
@@ -232,6 +323,27 @@ public class DbUnitTestExecutionListenerPrepareTest {
 
 	}
 
+	@ContextConfiguration(loader = LocalApplicationContextLoader.class)
+	@TestExecutionListeners(DbUnitTestExecutionListener.class)
+	@DbUnitConfiguration(cacheDataSets = true)
+	private static class CachingConfiguration {
+
+	}
+
+	@ContextConfiguration(loader = LocalApplicationContextLoader.class)
+	@TestExecutionListeners(DbUnitTestExecutionListener.class)
+	@DbUnitConfiguration(dataSetLoader = ReplacementDataSetLoader.class)
+	private static class ReplacementConfiguration {
+
+	}
+
+	@ContextConfiguration(loader = LocalApplicationContextLoader.class)
+	@TestExecutionListeners(DbUnitTestExecutionListener.class)
+	@DbUnitConfiguration(setupThreads = 2)
+	private static class UnsortedParallelSetup {
+
+	}
+
 	@ContextConfiguration(loader = LocalApplicationContextLoader.class)
 	@TestExecutionListeners(DbUnitTestExecutionListener.class)
 	@DbUnitConfiguration(dataSetLoader = AbstractCustomDataSetLoader.class)
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ForeignKeyGraph}.
+ */
+public class ForeignKeyGraphTest {
+
+	private Connection jdbcConnection;
+
+	private IDatabaseConnection connection;
+
+	@Before
+	public void setup() throws Exception {
+		this.jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:foreignkeys", "sa", "");
+		execute("CREATE TABLE parent (id INTEGER PRIMARY KEY, parent_id INTEGER REFERENCES parent(id))");
+		execute("CREATE TABLE child (id INTEGER PRIMARY KEY, parent_id INTEGER REFERENCES parent(id))");
+		execute("CREATE TABLE grandchild (id INTEGER PRIMARY KEY, child_id INTEGER REFERENCES child(id))");
+		execute("CREATE TABLE unrelated (id INTEGER PRIMARY KEY)");
+		execute("CREATE TABLE first (id INTEGER PRIMARY KEY, second_id INTEGER)");
+		execute("CREATE TABLE second (id INTEGER PRIMARY KEY, first_id INTEGER REFERENCES first(id))");
+		execute("ALTER TABLE first ADD FOREIGN KEY (second_id) REFERENCES second(id)");
+		this.connection = new DatabaseConnection(this.jdbcConnection);
+		ForeignKeyGraph.invalidateAll();
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		execute("DROP SCHEMA PUBLIC CASCADE");
+		this.jdbcConnection.close();
+		ForeignKeyGraph.invalidateAll();
+	}
+
+	@Test
+	public void shouldSortParentsFirst() throws Exception {
+		ForeignKeyGraph graph = ForeignKeyGraph.get(this.connection);
+		String[] sorted = graph.sort(new String[] { "grandchild", "unrelated", "child", "parent" });
+		assertArrayEquals(new String[] { "unrelated", "parent", "child", "grandchild" }, sorted);
+		assertEquals(1, graph.getParents("CHILD").size());
+		assertTrue(graph.getParents("parent").isEmpty());
+	}
+
+	@Test
+	public void shouldIgnoreTablesMissingFromDataSet() throws Exception {
+		String[] sorted = ForeignKeyGraph.get(this.connection).sort(new String[] { "GRANDCHILD", "PUBLIC.PARENT" });
+		assertArrayEquals(new String[] { "GRANDCHILD", "PUBLIC.PARENT" }, sorted);
+	}
+
+	@Test
+	public void shouldKeepOrderOfCycles() throws Exception {
+		ForeignKeyGraph graph = ForeignKeyGraph.get(this.connection);
+		assertTrue(graph.isCyclic("first", "second"));
+		assertFalse(graph.isCyclic("parent", "child"));
+		assertArrayEquals(new String[] { "second", "first", "unrelated" },
+				graph.sort(new String[] { "second", "first", "unrelated" }));
+	}
+
+	@Test
+	public void shouldIgnoreSelfReferences() throws Exception {
+		ForeignKeyGraph graph = ForeignKeyGraph.get(this.connection);
+		assertFalse(graph.isCyclic("parent", "parent"));
+		assertArrayEquals(new String[] { "parent", "child" }, graph.sort(new String[] { "child", "parent" }));
+		assertEquals(1, graph.group(new String[] { "parent" }).size());
+	}
+
+	@Test
+	public void shouldGroupIndependentTables() throws Exception {
+		ForeignKeyGraph graph = ForeignKeyGraph.get(this.connection);
+		List<String[]> groups = graph
+				.group(new String[] { "grandchild", "first", "unrelated", "parent", "second", "PUBLIC.CHILD" });
+		assertEquals(3, groups.size());
+		assertArrayEquals(new String[] { "parent", "PUBLIC.CHILD", "grandchild" }, groups.get(0));
+		assertArrayEquals(new String[] { "first", "second" }, groups.get(1));
+		assertArrayEquals(new String[] { "unrelated" }, groups.get(2));
+		assertEquals(2, graph.group(new String[] { "grandchild", "parent" }).size());
+	}
+
+	@Test
+	public void shouldIgnoreForeignKeysToOtherSchemas() throws Exception {
+		execute("CREATE SCHEMA other");
+		try {
+			execute("CREATE TABLE other.unrelated (id INTEGER PRIMARY KEY)");
+			execute("CREATE TABLE referencing (id INTEGER PRIMARY KEY, "
+					+ "other_id INTEGER REFERENCES other.unrelated(id))");
+			ForeignKeyGraph graph = ForeignKeyGraph.get(new DatabaseConnection(this.jdbcConnection, "PUBLIC"));
+			assertTrue(graph.getParents("referencing").isEmpty());
+		} finally {
+			execute("DROP SCHEMA other CASCADE");
+		}
+	}
+
+	@Test
+	public void shouldCacheAndRebuildForNewTables() throws Exception {
+		ForeignKeyGraph graph = ForeignKeyGraph.get(this.connection);
+		assertSame(graph, ForeignKeyGraph.get(new DatabaseConnection(this.jdbcConnection)));
+		assertSame(graph, ForeignKeyGraph.get(this.connection, new String[] { "child" }));
+		execute("CREATE TABLE added (id INTEGER PRIMARY KEY, child_id INTEGER REFERENCES child(id))");
+		ForeignKeyGraph rebuilt = ForeignKeyGraph.get(this.connection, new String[] { "added", "missing" });
+		assertNotSame(graph, rebuilt);
+		assertEquals(1, rebuilt.getParents("added").size());
+		assertSame(rebuilt, ForeignKeyGraph.get(this.connection, new String[] { "added", "missing" }));
+		ForeignKeyGraph.invalidate(this.connection);
+		assertNotSame(rebuilt, ForeignKeyGraph.get(this.connection));
+	}
+
+	private void execute(String sql) throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+}
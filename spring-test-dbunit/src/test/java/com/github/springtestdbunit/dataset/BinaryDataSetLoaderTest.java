@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link BinaryDataSetLoader} and {@link BinaryDataSetCompiler}.
+ */
+public class BinaryDataSetLoaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File sourceDirectory;
+
+	private File outputDirectory;
+
+	@Before
+	public void setup() throws Exception {
+		this.sourceDirectory = this.temporaryFolder.newFolder("source");
+		this.outputDirectory = this.temporaryFolder.newFolder("output");
+		copy("test-streaming.xml");
+		copy("test-streaming-multiple.xml");
+		copy("non-flat-xmldataset.xml");
+		FileCopyUtils.copy("<beans/>".getBytes(), new File(this.sourceDirectory, "context.xml"));
+	}
+
+	@Test
+	public void shouldCompileDatasetFiles() throws Exception {
+		int count = compile();
+		assertEquals(3, count);
+		assertTrue(new File(this.outputDirectory, "test-streaming.xml.bin").exists());
+		assertFalse(new File(this.outputDirectory, "context.xml.bin").exists());
+	}
+
+	@Test
+	public void shouldSkipUpToDateFiles() throws Exception {
+		compile();
+		assertEquals(0, compile());
+	}
+
+	@Test
+	public void shouldReadCompiledValues() throws Exception {
+		compile();
+		IDataSet expected = new FlatXmlDataSetLoader().loadDataSet(getClass(), "test-streaming.xml", null);
+		IDataSet dataSet = new BinaryDataSet(new File(this.outputDirectory, "test-streaming.xml.bin"), null);
+		assertArrayEquals(expected.getTableNames(), dataSet.getTableNames());
+		ITable table = dataSet.getTable("Streamed");
+		assertEquals(3, table.getRowCount());
+		assertEquals("1", table.getValue(0, "id"));
+		assertEquals("first", table.getValue(0, "name"));
+		assertNull(table.getValue(1, "name"));
+		assertEquals("third", table.getValue(2, "name"));
+		assertEquals("x", dataSet.getTable("Other").getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldRecompileOlderVersions() throws Exception {
+		compile();
+		File file = new File(this.outputDirectory, "test-streaming.xml.bin");
+		try (DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(file))) {
+			outputStream.writeInt(BinaryDataSet.MAGIC);
+			outputStream.writeInt(BinaryDataSet.VERSION - 1);
+		}
+		assertEquals(1, compile());
+		assertEquals(3, new BinaryDataSet(file, null).getTable("Streamed").getRowCount());
+	}
+
+	@Test
+	public void shouldKeepNoValueAndDataTypes() throws Exception {
+		DefaultTable table = new DefaultTable("Typed",
+				new Column[] { new Column("id", DataType.INTEGER), new Column("name", DataType.VARCHAR) });
+		table.addRow(new Object[] { "1", ITable.NO_VALUE });
+		table.addRow(new Object[] { "2", null });
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new BinaryDataSetWriter(outputStream).write(Collections.singletonMap(null, new DefaultDataSet(table)));
+		ITable read = new BinaryDataSet(ByteBuffer.wrap(outputStream.toByteArray()), null).getTable("Typed");
+		Column[] columns = read.getTableMetaData().getColumns();
+		assertEquals(DataType.INTEGER, columns[0].getDataType());
+		assertEquals(DataType.VARCHAR, columns[1].getDataType());
+		assertSame(ITable.NO_VALUE, read.getValue(0, "name"));
+		assertNull(read.getValue(1, "name"));
+		assertEquals("2", read.getValue(1, "id"));
+	}
+
+	@Test
+	public void shouldDecodeValuesOnce() throws Exception {
+		DefaultTable table = new DefaultTable("Decoded", new Column[] { new Column("name", DataType.VARCHAR) });
+		table.addRow(new Object[] { "same" });
+		table.addRow(new Object[] { null });
+		table.addRow(new Object[] { "same" });
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new BinaryDataSetWriter(outputStream).write(Collections.singletonMap(null, new DefaultDataSet(table)));
+		ITable read = new BinaryDataSet(ByteBuffer.wrap(outputStream.toByteArray()), null).getTable("Decoded");
+		Object value = read.getValue(0, "name");
+		assertEquals("same", value);
+		assertSame(value, read.getValue(0, "name"));
+		assertSame(value, read.getValue(2, "name"));
+		assertNull(read.getValue(1, "name"));
+	}
+
+	@Test
+	public void shouldSelectDatasetId() throws Exception {
+		compile();
+		File file = new File(this.outputDirectory, "test-streaming-multiple.xml.bin");
+		assertEquals(2, new BinaryDataSet(file, "two").getTable("Streamed").getRowCount());
+		assertEquals("one", new BinaryDataSet(file, "one").getTable("Streamed").getValue(0, "name"));
+	}
+
+	@Test(expected = DataSetException.class)
+	public void shouldFailOnUnknownDatasetId() throws Exception {
+		compile();
+		new BinaryDataSet(new File(this.outputDirectory, "test-streaming-multiple.xml.bin"), "missing");
+	}
+
+	@Test(expected = DataSetException.class)
+	public void shouldFailOnNonCompiledFile() throws Exception {
+		new BinaryDataSet(new File(this.sourceDirectory, "test-streaming.xml"), null);
+	}
+
+	@Test
+	public void shouldLoadCompiledCounterpart() throws Exception {
+		compile();
+		IDataSet dataSet = new BinaryDataSetLoader().loadDataSet(getClass(),
+				"file:" + new File(this.outputDirectory, "test-streaming.xml").getAbsolutePath(), null);
+		assertTrue(dataSet instanceof BinaryDataSet);
+	}
+
+	@Test
+	public void shouldFallBackToSourceLoader() throws Exception {
+		IDataSet dataSet = new BinaryDataSetLoader().loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertFalse(dataSet instanceof BinaryDataSet);
+		assertEquals("test", dataSet.getTable("Sample").getValue(1, "name"));
+	}
+
+	@Test
+	public void shouldReturnNullOnMissingFile() throws Exception {
+		assertNull(new BinaryDataSetLoader().loadDataSet(getClass(), "doesnotexist.xml", null));
+	}
+
+	private int compile() throws Exception {
+		return new BinaryDataSetCompiler(new FlatXmlDataSetLoader()).compileDirectory(this.sourceDirectory,
+				this.outputDirectory, ".xml");
+	}
+
+	private void copy(String name) throws Exception {
+		FileCopyUtils.copy(new ClassPathResource(name, getClass()).getInputStream(),
+				new FileOutputStream(new File(this.sourceDirectory, name)));
+	}
+
+}
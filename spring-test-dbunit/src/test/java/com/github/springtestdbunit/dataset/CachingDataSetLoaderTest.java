@@ -0,0 +1,164 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CachingDataSetLoader}.
+ */
+public class CachingDataSetLoaderTest {
+
+	private CountingDataSetLoader source;
+
+	private CachingDataSetLoader loader;
+
+	@Before
+	public void setup() {
+		this.source = new CountingDataSetLoader();
+		this.loader = new CachingDataSetLoader(this.source, CachingDataSetLoader.DEFAULT_MAX_BYTES);
+	}
+
+	@Test
+	public void shouldOnlyParseOnce() throws Exception {
+		IDataSet first = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		IDataSet second = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertSame(first, second);
+		assertEquals(1, this.source.count.get());
+		assertEquals("test", second.getTable("Sample").getValue(1, "name"));
+	}
+
+	@Test
+	public void shouldHandOutReadOnlyTables() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertFalse(dataSet.getTable("Sample") instanceof DefaultTable);
+	}
+
+	@Test
+	public void shouldKeyByDatasetId() throws Exception {
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", "other");
+		assertEquals(2, this.source.count.get());
+	}
+
+	@Test
+	public void shouldKeyByTableNames() throws Exception {
+		Set<String> tableNames = Collections.singleton("Sample");
+		IDataSet first = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null, tableNames);
+		IDataSet second = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null, tableNames);
+		assertSame(first, second);
+		assertEquals(tableNames, this.source.tableNames);
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertEquals(2, this.source.count.get());
+	}
+
+	@Test
+	public void shouldNotCacheStreamableDataSets() throws Exception {
+		this.loader = new CachingDataSetLoader(new StreamingFlatXmlDataSetLoader(),
+				CachingDataSetLoader.DEFAULT_MAX_BYTES);
+		IDataSet first = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		IDataSet second = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertTrue(first instanceof StreamableDataSet);
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void shouldResolveClassRelativeAndClasspathToSameEntry() throws Exception {
+		this.loader.loadDataSet(getClass(), "test-column-sensing-classpath.xml", null);
+		this.loader.loadDataSet(getClass(), "/test-column-sensing-classpath.xml", null);
+		assertEquals(1, this.source.count.get());
+	}
+
+	@Test
+	public void shouldReturnNullOnMissingFile() throws Exception {
+		assertNull(this.loader.loadDataSet(getClass(), "doesnotexist.xml", null));
+	}
+
+	@Test
+	public void shouldNotShareBetweenSourceLoadersOfSameClass() throws Exception {
+		CountingDataSetLoader otherSource = new CountingDataSetLoader();
+		new CachingDataSetLoader(this.source).loadDataSet(getClass(), "test-column-sensing.xml", null);
+		new CachingDataSetLoader(otherSource).loadDataSet(getClass(), "test-column-sensing.xml", null);
+		new CachingDataSetLoader(this.source).loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertEquals(1, this.source.count.get());
+		assertEquals(1, otherSource.count.get());
+	}
+
+	@Test
+	public void shouldEvictWhenOverBudget() throws Exception {
+		this.loader = new CachingDataSetLoader(this.source, 0);
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertEquals(2, this.source.count.get());
+	}
+
+	@Test
+	public void shouldShareConcurrentParse() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<IDataSet>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+				}));
+			}
+			start.countDown();
+			IDataSet first = results.get(0).get();
+			for (Future<IDataSet> result : results) {
+				assertSame(first, result.get());
+			}
+			assertEquals(1, this.source.count.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static class CountingDataSetLoader extends FlatXmlDataSetLoader {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		private volatile Set<String> tableNames;
+
+		@Override
+		public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId, Set<String> tableNames)
+				throws Exception {
+			this.count.incrementAndGet();
+			this.tableNames = tableNames;
+			Thread.sleep(50);
+			return super.loadDataSet(testClass, location, datasetId, tableNames);
+		}
+
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Tests for {@link CachingEntityResolver}.
+ */
+public class CachingEntityResolverTest {
+
+	private static final String DTD = "<!ELEMENT dataset (Sample*)>\n<!ELEMENT Sample EMPTY>\n"
+			+ "<!ATTLIST Sample id CDATA #REQUIRED name CDATA #IMPLIED>\n";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private CachingEntityResolver resolver = new CachingEntityResolver();
+
+	private File dtd;
+
+	@Before
+	public void setup() throws Exception {
+		this.dtd = new File(this.temporaryFolder.getRoot(), "sample.dtd");
+		FileCopyUtils.copy(DTD.getBytes(StandardCharsets.UTF_8), this.dtd);
+	}
+
+	@Test
+	public void shouldFindRelativeDtdSystemId() throws Exception {
+		File file = write("dataset.xml", "<?xml version=\"1.0\"?>\n<!DOCTYPE dataset SYSTEM \"sample.dtd\">\n"
+				+ "<dataset><Sample id=\"1\"/></dataset>");
+		String systemId = this.resolver.getDtdSystemId(new FileSystemResource(file));
+		assertEquals(this.dtd.toURI().toURL().toString(), systemId);
+	}
+
+	@Test
+	public void shouldCacheDtdSystemIdUntilModified() throws Exception {
+		File file = write("dataset.xml", "<!DOCTYPE dataset SYSTEM \"sample.dtd\">\n<dataset/>");
+		file.setLastModified(1000000L);
+		String systemId = this.resolver.getDtdSystemId(new FileSystemResource(file));
+		write("dataset.xml", "<!DOCTYPE dataset SYSTEM \"other.dtd\">\n<dataset/>");
+		file.setLastModified(1000000L);
+		assertEquals(systemId, this.resolver.getDtdSystemId(new FileSystemResource(file)));
+		file.setLastModified(2000000L);
+		assertTrue(this.resolver.getDtdSystemId(new FileSystemResource(file)).endsWith("/other.dtd"));
+	}
+
+	@Test
+	public void shouldIgnoreInternalSubset() throws Exception {
+		File file = write("dataset.xml", "<!DOCTYPE dataset SYSTEM \"sample.dtd\" [<!ELEMENT Other EMPTY>]>"
+				+ "<dataset/>");
+		assertNull(this.resolver.getDtdSystemId(new FileSystemResource(file)));
+	}
+
+	@Test
+	public void shouldParseDtdOnce() throws Exception {
+		String systemId = this.dtd.toURI().toURL().toString();
+		IDataSet metaDataSet = this.resolver.getMetaDataSet(systemId);
+		assertArrayEquals(new String[] { "Sample" }, metaDataSet.getTableNames());
+		assertEquals(2, metaDataSet.getTableMetaData("Sample").getColumns().length);
+		this.dtd.delete();
+		assertSame(metaDataSet, this.resolver.getMetaDataSet(systemId));
+	}
+
+	@Test
+	public void shouldNotUseNetwork() throws Exception {
+		assertNull(this.resolver.getMetaDataSet("http://dbunit.invalid/missing.dtd"));
+		assertEquals(0, StreamUtils
+				.copyToByteArray(this.resolver.resolveEntity(null, "http://dbunit.invalid/missing.dtd").getByteStream())
+				.length);
+	}
+
+	@Test
+	public void shouldResolveRemoteSystemIdFromClasspath() throws Exception {
+		byte[] dtd = StreamUtils.copyToByteArray(this.resolver
+				.resolveEntity(null, "http://www.dbunit.org/org/dbunit/dataset/xml/dataset.dtd").getByteStream());
+		assertTrue(new String(dtd, StandardCharsets.UTF_8).contains("<!ELEMENT dataset"));
+	}
+
+	@Test
+	public void shouldLoadFlatXmlWithExternalDtd() throws Exception {
+		File file = write("dataset.xml", "<!DOCTYPE dataset SYSTEM \"sample.dtd\">\n"
+				+ "<dataset><Sample id=\"1\"/><Sample id=\"2\" name=\"b\"/></dataset>");
+		IDataSet dataSet = new FlatXmlDataSetLoader().loadDataSet(getClass(), file.toURI().toString(), null);
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(2, table.getRowCount());
+		assertEquals(2, table.getTableMetaData().getColumns().length);
+		assertEquals("b", table.getValue(1, "name"));
+	}
+
+	@Test
+	public void shouldLoadFlatXmlWithUnresolvableDtd() throws Exception {
+		File file = write("dataset.xml", "<!DOCTYPE dataset SYSTEM \"http://dbunit.invalid/missing.dtd\">\n"
+				+ "<dataset><Sample id=\"1\" name=\"a\"/></dataset>");
+		IDataSet dataSet = new FlatXmlDataSetLoader().loadDataSet(getClass(), file.toURI().toString(), null);
+		assertEquals("a", dataSet.getTable("Sample").getValue(0, "name"));
+	}
+
+	private File write(String name, String content) throws Exception {
+		File file = new File(this.temporaryFolder.getRoot(), name);
+		FileCopyUtils.copy(content.getBytes(StandardCharsets.UTF_8), file);
+		return file;
+	}
+
+}
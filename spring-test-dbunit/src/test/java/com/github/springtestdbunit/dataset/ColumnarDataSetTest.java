@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ColumnarDataSet} and {@link ColumnarTable}.
+ */
+public class ColumnarDataSetTest {
+
+	private static final Object[][] ROWS = {
+			{ 1L, 10, "a", new BigDecimal("1.50"), true, Date.valueOf("2023-01-02"), 1.5, "x" },
+			{ 2L, null, "b", new BigDecimal("-2.25"), false, null, null, 7 },
+			{ 3L, 30, "a", null, null, Date.valueOf("2023-03-04"), 2.5, null } };
+
+	@Test
+	public void shouldReturnSameValuesAndTypes() throws Exception {
+		DefaultTable source = createTable("Sample", ROWS);
+		ColumnarTable table = ColumnarTable.copyOf(source);
+		assertEquals(3, table.getRowCount());
+		Column[] columns = source.getTableMetaData().getColumns();
+		for (int row = 0; row < ROWS.length; row++) {
+			for (int column = 0; column < columns.length; column++) {
+				Object expected = ROWS[row][column];
+				Object value = table.getValue(row, columns[column].getColumnName());
+				assertEquals(expected, value);
+				assertEquals(expected, table.getValue(row, column));
+				if (expected != null) {
+					assertSame(expected.getClass(), value.getClass());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shouldKeepTimestampNanosAndMixedScales() throws Exception {
+		Timestamp timestamp = Timestamp.valueOf("2023-05-06 07:08:09.123456789");
+		ITable table = ColumnarTable.copyOf(createTable("Sample",
+				new Object[][] { { 1L, timestamp, new BigDecimal("1.5") }, { 2L, null, new BigDecimal("2.25") },
+						{ 3L, timestamp, new BigDecimal("12345678901234567890.1") } }));
+		assertEquals(timestamp, table.getValue(0, "c1"));
+		assertNotSame(table.getValue(0, "c1"), table.getValue(0, "c1"));
+		assertEquals(new BigDecimal("1.5"), table.getValue(0, "c2"));
+		assertEquals(new BigDecimal("12345678901234567890.1"), table.getValue(2, "c2"));
+	}
+
+	@Test
+	public void shouldKeepTableOrder() throws Exception {
+		ITable other = createTable("Other", new Object[][] { { 1L } });
+		IDataSet dataSet = new ColumnarDataSet(new DefaultDataSet(createTable("Sample", ROWS), other));
+		assertArrayEquals(new String[] { "Sample", "Other" }, dataSet.getTableNames());
+		assertEquals("b", dataSet.getTable("SAMPLE").getValue(1, "c2"));
+		assertTrue(dataSet.getTable("Other") instanceof ColumnarTable);
+	}
+
+	@Test
+	public void shouldCompareEqualToSource() throws Exception {
+		IDataSet source = new FlatXmlDataSetLoader().loadDataSet(getClass(), "test-column-sensing.xml", null);
+		Assertion.assertEquals(source, new ColumnarDataSet(source));
+	}
+
+	@Test
+	public void shouldUseLessMemoryThanRows() throws Exception {
+		Object[][] rows = new Object[10000][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = new Object[] { (long) i, i % 7, "status-" + (i % 3) };
+		}
+		IDataSet source = new DefaultDataSet(createTable("Sample", rows));
+		ColumnarDataSet dataSet = new ColumnarDataSet(source);
+		assertTrue(dataSet.estimateSize() * 3 < DataSetSizeEstimator.estimateSize(source));
+		assertEquals(DataSetSizeEstimator.estimateSize(dataSet), dataSet.estimateSize());
+	}
+
+	@Test(expected = RowOutOfBoundsException.class)
+	public void shouldFailOnMissingRow() throws Exception {
+		ColumnarTable.copyOf(createTable("Sample", ROWS)).getValue(3, "c0");
+	}
+
+	private DefaultTable createTable(String tableName, Object[][] rows) throws Exception {
+		Column[] columns = new Column[rows[0].length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new Column("c" + i, DataType.UNKNOWN);
+		}
+		DefaultTable table = new DefaultTable(tableName, columns);
+		for (Object[] row : rows) {
+			table.addRow(row);
+		}
+		return table;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.dbunit.dataset.IDataSet;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Tests for {@link Compression}.
+ */
+public class CompressionTest {
+
+	private static final String CONTENT = "<dataset><Sample id=\"1\"/></dataset>";
+
+	@Test
+	public void shouldFindCompressionForFilename() throws Exception {
+		assertEquals(Compression.GZIP, Compression.forFilename("dataset.xml.gz"));
+		assertEquals(Compression.ZSTD, Compression.forFilename("dataset.JSON.ZST"));
+		assertEquals(Compression.ZIP, Compression.forFilename("dataset.zip"));
+		assertNull(Compression.forFilename("dataset.xml"));
+		assertNull(Compression.forFilename(null));
+	}
+
+	@Test
+	public void shouldFindCompressionForName() throws Exception {
+		assertEquals(Compression.GZIP, Compression.forName("gzip"));
+		assertEquals(Compression.GZIP, Compression.forName("gz"));
+		assertEquals(Compression.ZSTD, Compression.forName("zst"));
+		assertNull(Compression.forName(""));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldFailOnUnknownName() throws Exception {
+		Compression.forName("bz2");
+	}
+
+	@Test
+	public void shouldRoundTripGzip() throws Exception {
+		assertRoundTrip(Compression.GZIP);
+	}
+
+	@Test
+	public void shouldRoundTripZip() throws Exception {
+		assertRoundTrip(Compression.ZIP);
+	}
+
+	@Test
+	public void shouldFailOnZstdWithoutLibrary() throws Exception {
+		Assume.assumeFalse(ClassUtils.isPresent("com.github.luben.zstd.ZstdInputStream", null));
+		try {
+			Compression.ZSTD.decompress(new ByteArrayInputStream(new byte[0]), "dataset.xml");
+			fail("Expected exception");
+		} catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage().contains("zstd-jni"));
+		}
+	}
+
+	@Test
+	public void shouldDecompressResource() throws Exception {
+		Resource resource = DecompressingResource.decompress(compressedResource(Compression.GZIP, "dataset.xml.gz"));
+		assertEquals("dataset.xml", resource.getFilename());
+		try (InputStream inputStream = resource.getInputStream()) {
+			assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void shouldNotWrapUncompressedResource() throws Exception {
+		Resource resource = new ByteArrayResource(new byte[0]) {
+
+			@Override
+			public String getFilename() {
+				return "dataset.xml";
+			}
+
+		};
+		assertSame(resource, DecompressingResource.decompress(resource));
+	}
+
+	@Test
+	public void shouldLoadZippedCsvDirectory() throws Exception {
+		IDataSet dataset = new CsvUrlDataSetLoader().loadDataSet(getClass(), "test-csv.zip", null);
+		assertEquals(2, dataset.getTable("Sample").getRowCount());
+		assertEquals("second", dataset.getTable("Sample").getValue(1, "name"));
+	}
+
+	private void assertRoundTrip(Compression compression) throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream outputStream = compression.compress(compressed, "dataset.xml")) {
+			outputStream.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+		}
+		try (InputStream inputStream = compression.decompress(new ByteArrayInputStream(compressed.toByteArray()),
+				"dataset.xml")) {
+			assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+		}
+	}
+
+	private Resource compressedResource(Compression compression, final String filename) throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream outputStream = compression.compress(compressed, "dataset.xml")) {
+			outputStream.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+		}
+		return new ByteArrayResource(compressed.toByteArray()) {
+
+			@Override
+			public String getFilename() {
+				return filename;
+			}
+
+		};
+	}
+
+}
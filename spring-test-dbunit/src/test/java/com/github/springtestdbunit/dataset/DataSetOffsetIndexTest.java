@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link DataSetOffsetIndex}.
+ */
+public class DataSetOffsetIndexTest {
+
+	private static final String DATASETS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- <dataset id=\"comment\"> -->\n"
+			+ "<datasets>\n\t<dataset id=\"one\">\n\t\t<Sample id=\"1\" name=\"a > b\"/>\n\t</dataset>\n"
+			+ "\t<dataset id='two'>\n\t\t<Sample id=\"2\"/>\n\t\t<Sample id=\"3\"><![CDATA[</dataset>]]></Sample>\n"
+			+ "\t</dataset>\n\t<dataset id=\"empty\"/>\n</datasets>\n";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File indexDirectory;
+
+	private File file;
+
+	private DataSetOffsetIndex index;
+
+	@Before
+	public void setup() throws Exception {
+		this.indexDirectory = new File(this.temporaryFolder.getRoot(), "index");
+		this.file = write("datasets.xml", DATASETS);
+		this.index = new DataSetOffsetIndex(this.indexDirectory);
+	}
+
+	@Test
+	public void shouldReadOnlySelectedSegment() throws Exception {
+		String content = read(this.index.getResource(new FileSystemResource(this.file), "two"));
+		assertTrue(content.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+		assertTrue(content.contains("<dataset id='two'>"));
+		assertTrue(content.contains("<![CDATA[</dataset>]]>"));
+		assertFalse(content.contains("id=\"one\""));
+		assertTrue(content.trim().endsWith("</dataset></datasets>"));
+	}
+
+	@Test
+	public void shouldReadEmptyDataset() throws Exception {
+		String content = read(this.index.getResource(new FileSystemResource(this.file), "empty"));
+		assertTrue(content.endsWith("<datasets><dataset id=\"empty\"/></datasets>\n"));
+	}
+
+	@Test
+	public void shouldLoadSegmentWithDatasetId() throws Exception {
+		Resource resource = this.index.getResource(new FileSystemResource(this.file), "two");
+		IDataSet dataSet = new FlatXmlDataSetLoader().createDataSet(resource, "two");
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(2, table.getRowCount());
+		assertEquals("2", table.getValue(0, "id"));
+	}
+
+	@Test
+	public void shouldWriteIndexToDirectory() throws Exception {
+		this.index.getResource(new FileSystemResource(this.file), "one");
+		File[] indexFiles = this.indexDirectory.listFiles();
+		assertEquals(1, indexFiles.length);
+		assertTrue(indexFiles[0].getName().startsWith("datasets.xml-"));
+		DataSetOffsetIndex other = new DataSetOffsetIndex(this.indexDirectory);
+		String content = read(other.getResource(new FileSystemResource(this.file), "one"));
+		assertTrue(content.contains("a > b"));
+	}
+
+	@Test
+	public void shouldReindexModifiedFile() throws Exception {
+		this.index.getResource(new FileSystemResource(this.file), "one");
+		write("datasets.xml", DATASETS.replace("\"one\"", "\"three\""));
+		this.file.setLastModified(this.file.lastModified() + 2000);
+		Resource resource = new FileSystemResource(this.file);
+		assertSame(resource, this.index.getResource(resource, "one"));
+		assertTrue(read(this.index.getResource(resource, "three")).contains("a > b"));
+	}
+
+	@Test
+	public void shouldReturnResourceWhenNotIndexable() throws Exception {
+		assertUnchanged(write("single.xml", "<dataset><Sample id=\"1\"/></dataset>"), "one");
+		assertUnchanged(write("doctype.xml", "<?xml version=\"1.0\"?>\n<!DOCTYPE datasets SYSTEM \"datasets.dtd\">\n"
+				+ "<datasets><dataset id=\"one\"/></datasets>"), "one");
+		assertUnchanged(this.file, "missing");
+		assertUnchanged(this.file, null);
+	}
+
+	@Test
+	public void shouldReturnResourceOfFileTooLargeToMap() throws Exception {
+		File file = write("large.xml", DATASETS);
+		try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+			output.setLength(Integer.MAX_VALUE + 1L);
+		}
+		assertUnchanged(file, "one");
+	}
+
+	private void assertUnchanged(File file, String datasetId) throws Exception {
+		Resource resource = new FileSystemResource(file);
+		assertSame(resource, this.index.getResource(resource, datasetId));
+	}
+
+	private File write(String name, String content) throws Exception {
+		File file = new File(this.temporaryFolder.getRoot(), name);
+		FileCopyUtils.copy(content.getBytes(StandardCharsets.UTF_8), file);
+		return file;
+	}
+
+	private String read(Resource resource) throws Exception {
+		return new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link DataSetParseCache}.
+ */
+public class DataSetParseCacheTest {
+
+	private static final String DATASET = "<dataset><Sample id=\"1\" name=\"a\"/><Other id=\"2\"/></dataset>";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File cacheDirectory;
+
+	private File file;
+
+	@Before
+	public void setup() throws Exception {
+		this.cacheDirectory = new File(this.temporaryFolder.getRoot(), "cache");
+		this.file = new File(this.temporaryFolder.getRoot(), "dataset.xml");
+		write(DATASET);
+	}
+
+	@Test
+	public void shouldReuseParsedDataSetInNewCache() throws Exception {
+		CountingDataSetLoader loader = createLoader();
+		loader.loadDataSet(getClass(), this.file.toURI().toString(), null);
+		assertEquals(1, loader.count);
+		CountingDataSetLoader other = createLoader();
+		IDataSet dataSet = other.loadDataSet(getClass(), this.file.toURI().toString(), null);
+		assertEquals(0, other.count);
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(1, table.getRowCount());
+		assertEquals("a", table.getValue(0, "name"));
+		assertEquals(2, dataSet.getTableNames().length);
+	}
+
+	@Test
+	public void shouldParseChangedContent() throws Exception {
+		createLoader().loadDataSet(getClass(), this.file.toURI().toString(), null);
+		write(DATASET.replace("\"a\"", "\"b\""));
+		CountingDataSetLoader loader = createLoader();
+		IDataSet dataSet = loader.loadDataSet(getClass(), this.file.toURI().toString(), null);
+		assertEquals(1, loader.count);
+		assertEquals("b", dataSet.getTable("Sample").getValue(0, "name"));
+	}
+
+	@Test
+	public void shouldKeySeparatelyByTableNames() throws Exception {
+		Set<String> tableNames = Collections.singleton("Sample");
+		createLoader().loadDataSet(getClass(), this.file.toURI().toString(), null);
+		CountingDataSetLoader loader = createLoader();
+		IDataSet dataSet = loader.loadDataSet(getClass(), this.file.toURI().toString(), null, tableNames);
+		assertEquals(1, loader.count);
+		assertEquals(1, dataSet.getTableNames().length);
+	}
+
+	@Test
+	public void shouldRestoreNoValue() throws Exception {
+		NoValueDataSetLoader loader = new NoValueDataSetLoader(this.cacheDirectory);
+		loader.loadDataSet(getClass(), this.file.toURI().toString(), null);
+		ITable table = loader.loadDataSet(getClass(), this.file.toURI().toString(), null).getTable("Sample");
+		assertEquals(1, loader.count);
+		assertSame(ITable.NO_VALUE, table.getValue(0, "name"));
+		assertEquals("1", table.getValue(0, "id"));
+	}
+
+	@Test
+	public void shouldKeySeparatelyByLoaderConfiguration() throws Exception {
+		createLoader().loadDataSet(getClass(), this.file.toURI().toString(), null);
+		CountingDataSetLoader loader = new ConfiguredDataSetLoader("other");
+		loader.setParseCache(new DataSetParseCache(this.cacheDirectory));
+		loader.loadDataSet(getClass(), this.file.toURI().toString(), null);
+		assertEquals(1, loader.count);
+	}
+
+	@Test
+	public void shouldIgnoreCorruptEntries() throws Exception {
+		createLoader().loadDataSet(getClass(), this.file.toURI().toString(), null);
+		File[] entries = this.cacheDirectory.listFiles();
+		assertEquals(1, entries.length);
+		byte[] bytes = FileCopyUtils.copyToByteArray(entries[0]);
+		bytes[bytes.length - 1] ^= 1;
+		FileCopyUtils.copy(bytes, entries[0]);
+		CountingDataSetLoader loader = createLoader();
+		IDataSet dataSet = loader.loadDataSet(getClass(), this.file.toURI().toString(), null);
+		assertEquals(1, loader.count);
+		assertEquals("a", dataSet.getTable("Sample").getValue(0, "name"));
+	}
+
+	@Test
+	public void shouldHashFilesOfCsvDirectory() throws Exception {
+		File directory = this.temporaryFolder.newFolder("csv");
+		File csv = new File(directory, "Sample.csv");
+		FileCopyUtils.copy("Sample\n".getBytes(StandardCharsets.UTF_8), new File(directory, "table-ordering.txt"));
+		FileCopyUtils.copy("id,name\n1,a\n".getBytes(StandardCharsets.UTF_8), csv);
+		String location = directory.toURI().toString();
+		CountingCsvDataSetLoader loader = new CountingCsvDataSetLoader(this.cacheDirectory);
+		assertEquals("a", loader.loadDataSet(getClass(), location, null).getTable("Sample").getValue(0, "name"));
+		assertEquals("a", loader.loadDataSet(getClass(), location, null).getTable("Sample").getValue(0, "name"));
+		assertEquals(1, loader.count);
+		FileCopyUtils.copy("id,name\n1,b\n".getBytes(StandardCharsets.UTF_8), csv);
+		csv.setLastModified(csv.lastModified() + 2000);
+		assertEquals("b", loader.loadDataSet(getClass(), location, null).getTable("Sample").getValue(0, "name"));
+		assertEquals(2, loader.count);
+	}
+
+	private CountingDataSetLoader createLoader() {
+		CountingDataSetLoader loader = new CountingDataSetLoader();
+		loader.setParseCache(new DataSetParseCache(this.cacheDirectory));
+		return loader;
+	}
+
+	private void write(String content) throws Exception {
+		FileCopyUtils.copy(content.getBytes(StandardCharsets.UTF_8), this.file);
+		this.file.setLastModified(this.file.lastModified() + 2000);
+	}
+
+	private static class CountingCsvDataSetLoader extends CsvUrlDataSetLoader {
+
+		private int count;
+
+		CountingCsvDataSetLoader(File cacheDirectory) {
+			setParseCache(new DataSetParseCache(cacheDirectory));
+		}
+
+		@Override
+		protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames)
+				throws DataSetException, IOException {
+			this.count++;
+			return super.createDataSet(resource, datasetId, tableNames);
+		}
+
+	}
+
+	private static class ConfiguredDataSetLoader extends CountingDataSetLoader {
+
+		private final String setting;
+
+		ConfiguredDataSetLoader(String setting) {
+			this.setting = setting;
+		}
+
+		@Override
+		protected String getParseCacheKey() {
+			return super.getParseCacheKey() + "?setting=" + this.setting;
+		}
+
+	}
+
+	private static class NoValueDataSetLoader extends AbstractDataSetLoader {
+
+		private int count;
+
+		NoValueDataSetLoader(File cacheDirectory) {
+			setParseCache(new DataSetParseCache(cacheDirectory));
+		}
+
+		@Override
+		protected IDataSet createDataSet(Resource resource, String datasetId) throws Exception {
+			this.count++;
+			DefaultTable table = new DefaultTable("Sample",
+					new Column[] { new Column("id", DataType.UNKNOWN), new Column("name", DataType.UNKNOWN) });
+			table.addRow(new Object[] { "1", ITable.NO_VALUE });
+			return new DefaultDataSet(table);
+		}
+
+	}
+
+	private static class CountingDataSetLoader extends FlatXmlDataSetLoader {
+
+		private int count;
+
+		@Override
+		protected IDataSet createDataSet(Resource resource, String datasetId, Set<String> tableNames)
+				throws Exception {
+			this.count++;
+			return super.createDataSet(resource, datasetId, tableNames);
+		}
+
+	}
+
+}
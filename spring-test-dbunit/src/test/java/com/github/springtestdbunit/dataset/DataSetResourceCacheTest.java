@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+
+/**
+ * Tests for {@link DataSetResourceCache}.
+ */
+public class DataSetResourceCacheTest {
+
+	private DataSetResourceCache cache = new DataSetResourceCache();
+
+	@Test
+	public void shouldResolveRelativeToTestClass() throws Exception {
+		Resource resource = this.cache.getResource(getClass(), "test.xml");
+		assertNotNull(resource);
+		assertTrue(resource.getURL().toString().endsWith("com/github/springtestdbunit/dataset/test.xml"));
+	}
+
+	@Test
+	public void shouldResolveAgainstClasspath() throws Exception {
+		Resource resource = this.cache.getResource(getClass(), "META-INF/dbunit-context.xml");
+		assertNotNull(resource);
+		assertTrue(resource.exists());
+	}
+
+	@Test
+	public void shouldCacheResultsPerPackage() throws Exception {
+		Resource resource = this.cache.getResource(getClass(), "test.xml");
+		assertSame(resource, this.cache.getResource(FlatXmlDataSetLoaderTest.class, "test.xml"));
+		assertEquals(1, this.cache.getHitCount());
+		assertEquals(1, this.cache.getMissCount());
+		assertEquals(0.5, this.cache.getHitRate(), 0.0);
+	}
+
+	@Test
+	public void shouldCacheMissingResources() throws Exception {
+		assertNull(this.cache.getResource(getClass(), "doesnotexist.xml"));
+		assertNull(this.cache.getResource(getClass(), "doesnotexist.xml"));
+		assertEquals(1, this.cache.getHitCount());
+		this.cache.clear();
+		assertEquals(0, this.cache.getHitCount());
+		assertNull(this.cache.getResource(getClass(), "doesnotexist.xml"));
+		assertEquals(1, this.cache.getMissCount());
+	}
+
+	@Test
+	public void shouldResolveMissingResourcesAgainAfterClearMissing() throws Exception {
+		this.cache.getResource(getClass(), "test.xml");
+		assertNull(this.cache.getResource(getClass(), "doesnotexist.xml"));
+		this.cache.clearMissing();
+		this.cache.getResource(getClass(), "test.xml");
+		assertNull(this.cache.getResource(getClass(), "doesnotexist.xml"));
+		assertEquals(1, this.cache.getHitCount());
+		assertEquals(3, this.cache.getMissCount());
+	}
+
+	@Test
+	public void shouldKeySeparatelyByIndex() throws Exception {
+		DataSetResourceIndex index = new DataSetResourceIndex(getClass().getClassLoader());
+		this.cache.getResource(getClass(), "test.xml");
+		assertNotNull(this.cache.getResource(getClass(), "test.xml", index));
+		this.cache.getResource(getClass(), "test.xml", index);
+		this.cache.getResource(getClass(), "test.xml");
+		assertEquals(2, this.cache.getHitCount());
+		assertEquals(2, this.cache.getMissCount());
+	}
+
+}
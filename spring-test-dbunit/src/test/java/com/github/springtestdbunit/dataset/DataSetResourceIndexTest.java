@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link DataSetResourceIndex}.
+ */
+public class DataSetResourceIndexTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldIndexClasspath() throws Exception {
+		DataSetResourceIndex index = new DataSetResourceIndex(getClass().getClassLoader());
+		assertTrue(index.contains("com/github/springtestdbunit/dataset/test.xml"));
+		assertTrue(index.contains("com/github/springtestdbunit/dataset/test-strict.xlsx"));
+		assertFalse(index.contains("com/github/springtestdbunit/dataset/DataSetResourceIndexTest.class"));
+		assertNotNull(index.getResource("com/github/springtestdbunit/dataset/test.xml").getInputStream());
+		assertNull(index.getResource("com/github/springtestdbunit/dataset/missing.xml"));
+	}
+
+	@Test
+	public void shouldWriteAndReadIndexFile() throws Exception {
+		File root = this.temporaryFolder.getRoot();
+		write(new File(root, "data/sample.xml"), "<dataset/>");
+		write(new File(root, "data/script.sql"), "select 1;");
+		write(new File(root, "data/readme.txt"), "text");
+		assertEquals(2, DataSetResourceIndex.write(root));
+		String content = new String(FileCopyUtils.copyToByteArray(new File(root, DataSetResourceIndex.INDEX_LOCATION)),
+				StandardCharsets.UTF_8);
+		assertEquals("data/sample.xml\ndata/script.sql\n", content);
+		// Files added after the index was written are not seen, showing that the root is not scanned
+		write(new File(root, "data/added.xml"), "<dataset/>");
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, null)) {
+			DataSetResourceIndex index = new DataSetResourceIndex(classLoader);
+			assertTrue(index.contains("data/sample.xml"));
+			assertFalse(index.contains("data/added.xml"));
+		}
+	}
+
+	@Test
+	public void shouldResolveLocationsUsingIndex() throws Exception {
+		DataSetResourceCache cache = new DataSetResourceCache();
+		DataSetResourceIndex index = new DataSetResourceIndex(getClass().getClassLoader());
+		assertTrue(cache.getResource(getClass(), "test.xml", index).exists());
+		assertTrue(cache.getResource(getClass(), "/com/github/springtestdbunit/dataset/test.xml", index).exists());
+		assertTrue(cache.getResource(getClass(), "classpath:com/github/springtestdbunit/dataset/test.xml", index)
+				.exists());
+		assertTrue(cache.getResource(getClass(), "../dataset/test.xml", index).exists());
+		assertNull(cache.getResource(getClass(), "missing.xml", index));
+	}
+
+	private void write(File file, String content) throws Exception {
+		file.getParentFile().mkdirs();
+		FileCopyUtils.copy(content.getBytes(StandardCharsets.UTF_8), file);
+	}
+
+}
@@ -18,6 +18,8 @@ package com.github.springtestdbunit.dataset;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+
 import org.dbunit.dataset.DataSetException;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
@@ -72,12 +74,93 @@ public class FlatXmlDataSetLoaderTest {
 		assertEquals("Sample", dataset.getTableNames()[0]);
 	}
 
+	@Test
+	public void shouldUseOverriddenResourceLoader() throws Exception {
+		FlatXmlDataSetLoader loader = new FlatXmlDataSetLoader() {
+
+			@Override
+			protected ResourceLoader getResourceLoader(Class<?> testClass) {
+				return new DefaultResourceLoader() {
+
+					@Override
+					public Resource getResource(String location) {
+						return super.getResource("classpath:com/github/springtestdbunit/dataset/"
+								+ location.replace("alias", "test"));
+					}
+
+				};
+			}
+
+		};
+		IDataSet dataset = loader.loadDataSet(this.testContext.getTestClass(), "alias.xml", null);
+		assertEquals("Sample", dataset.getTableNames()[0]);
+	}
+
 	@Test
 	public void shouldReturnNullOnMissingFile() throws Exception {
 		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "doesnotexist.xml", null);
 		assertNull(dataset);
 	}
 
+	@Test
+	public void shouldLoadOnlyRequestedTables() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-streaming.xml", null,
+				Collections.singleton("streamed"));
+		assertArrayEquals(new String[] { "Streamed" }, dataset.getTableNames());
+		assertEquals(3, dataset.getTable("Streamed").getRowCount());
+		assertNull(dataset.getTable("Streamed").getValue(1, "name"));
+		assertEquals("third", dataset.getTable("Streamed").getValue(2, "name"));
+	}
+
+	@Test
+	public void shouldLoadOnlyRequestedTablesFromDatasetId() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-streaming-multiple.xml",
+				"two", Collections.singleton("Streamed"));
+		assertEquals(2, dataset.getTable("Streamed").getRowCount());
+		assertEquals("2", dataset.getTable("Streamed").getValue(0, "id"));
+	}
+
+	@Test
+	public void shouldLoadRequestedEmptyTable() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-streaming-empty.xml", null,
+				Collections.singleton("Streamed"));
+		assertArrayEquals(new String[] { "Streamed" }, dataset.getTableNames());
+		assertEquals(0, dataset.getTable("Streamed").getRowCount());
+	}
+
+	@Test
+	public void shouldUseDtdMetaDataForRequestedTables() throws Exception {
+		IDataSet expected = this.loader.loadDataSet(this.testContext.getTestClass(), "test-dtd.xml", null);
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-dtd.xml", null,
+				Collections.singleton("sample"));
+		assertArrayEquals(new String[] { "Sample" }, dataset.getTableNames());
+		assertEquals(3, dataset.getTableMetaData("Sample").getColumns().length);
+		assertEquals(expected.getTableMetaData("Sample").getColumns()[2].getColumnName(),
+				dataset.getTableMetaData("Sample").getColumns()[2].getColumnName());
+		assertEquals("test", dataset.getTable("Sample").getValue(1, "name"));
+	}
+
+	@Test
+	public void shouldLoadAllTablesWithoutTableNames() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-streaming.xml", null,
+				Collections.<String>emptySet());
+		assertEquals(2, dataset.getTableNames().length);
+	}
+
+	@Test
+	public void shouldLoadGzipCompressedFile() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-column-sensing.xml.gz", null);
+		assertDataset(dataset);
+	}
+
+	@Test
+	public void shouldLoadOnlyRequestedTablesFromZipArchive() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "test-streaming.xml.zip", null,
+				Collections.singleton("Streamed"));
+		assertArrayEquals(new String[] { "Streamed" }, dataset.getTableNames());
+		assertEquals("third", dataset.getTable("Streamed").getValue(2, "name"));
+	}
+
 	@Test
 	public void testBuildDataSetFromStream() throws Exception {
 		buildDataSetFromStream("test-column-sensing-classpath.xml");
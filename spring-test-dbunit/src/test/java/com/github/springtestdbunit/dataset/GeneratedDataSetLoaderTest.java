@@ -0,0 +1,148 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.operation.DatabaseOperation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+/**
+ * Tests for {@link GeneratedDataSetLoader}.
+ */
+public class GeneratedDataSetLoaderTest {
+
+	private GeneratedDataSetLoader loader = new GeneratedDataSetLoader();
+
+	private Connection jdbcConnection;
+
+	private IDatabaseConnection connection;
+
+	@Before
+	public void setup() throws Exception {
+		this.jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:generated", "sa", "");
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("CREATE TABLE Customer (id INTEGER PRIMARY KEY, name VARCHAR(20), "
+					+ "country VARCHAR(2), credit DECIMAL(10,2))");
+			statement.execute("CREATE TABLE Orders (id INTEGER PRIMARY KEY, customer_id INTEGER NOT NULL "
+					+ "REFERENCES Customer (id), created DATE, note VARCHAR(10), status VARCHAR(10), shipped DATE)");
+		}
+		this.connection = new DatabaseConnection(this.jdbcConnection);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("DROP SCHEMA PUBLIC CASCADE");
+		}
+		this.jdbcConnection.close();
+	}
+
+	@Test
+	public void shouldGenerateTables() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-generated.properties", null);
+		assertArrayEquals(new String[] { "Customer", "Orders" }, dataSet.getTableNames());
+		ITable customer = dataSet.getTable("CUSTOMER");
+		assertEquals(1000, customer.getRowCount());
+		assertEquals(4, customer.getTableMetaData().getColumns().length);
+		assertEquals(1L, customer.getValue(0, "id"));
+		assertEquals("customer-0042", customer.getValue(41, "name"));
+		assertTrue("FR DE GB".contains((String) customer.getValue(7, "country")));
+		BigDecimal credit = (BigDecimal) customer.getValue(3, "credit");
+		assertEquals(2, credit.scale());
+		assertTrue(credit.signum() >= 0 && credit.compareTo(new BigDecimal("5000")) <= 0);
+		ITable orders = dataSet.getTable("Orders");
+		assertEquals(110L, orders.getValue(1, "id"));
+		long customerId = (Long) orders.getValue(5, "customer_id");
+		assertTrue(customerId >= 1 && customerId <= 1000);
+		Date created = (Date) orders.getValue(5, "created");
+		assertEquals(2020, created.toLocalDate().getYear());
+		String note = (String) orders.getValue(5, "note");
+		assertTrue(note.matches("[A-Za-z0-9]{5,10}"));
+		assertEquals("NEW", orders.getValue(5, "status"));
+		assertNull(orders.getValue(5, "shipped"));
+	}
+
+	@Test
+	public void shouldGenerateSameValuesForSameSeed() throws Exception {
+		ITable first = this.loader.loadDataSet(getClass(), "test-generated.properties", null).getTable("Orders");
+		ITable second = this.loader.loadDataSet(getClass(), "test-generated.properties", null).getTable("Orders");
+		for (int row : new int[] { 19999, 0, 1234 }) {
+			for (String column : new String[] { "customer_id", "created", "note" }) {
+				assertEquals(second.getValue(row, column), first.getValue(row, column));
+			}
+		}
+	}
+
+	@Test
+	public void shouldGenerateDifferentValuesForDifferentSeed() throws Exception {
+		ITable first = generate("seed=1\nT=100\nT.v=range(0, 1000000000)\n").getTable("T");
+		ITable second = generate("seed=2\nT=100\nT.v=range(0, 1000000000)\n").getTable("T");
+		assertNotEquals(first.getValue(0, "v"), second.getValue(0, "v"));
+	}
+
+	@Test
+	public void shouldInsertIntoDatabase() throws Exception {
+		StreamableDataSet dataSet = (StreamableDataSet) this.loader.loadDataSet(getClass(),
+				"test-generated.properties", null);
+		DatabaseOperation.CLEAN_INSERT.execute(this.connection, dataSet.stream(this.connection));
+		assertEquals(1000, this.connection.getRowCount("Customer"));
+		assertEquals(20000, this.connection.getRowCount("Orders"));
+		ITable table = this.connection.createQueryTable("Orders", "SELECT * FROM Orders WHERE id = 110");
+		assertEquals("NEW", table.getValue(0, "status"));
+	}
+
+	@Test
+	public void shouldRequireReferencedTableToBeDeclaredFirst() throws Exception {
+		try {
+			generate("A=10\nA.id=ref(B.id)\nB=10\nB.id=sequence(1)\n");
+			fail("Expected exception");
+		} catch (DataSetException ex) {
+			assertTrue(ex.getMessage().contains("must be declared before"));
+		}
+	}
+
+	@Test(expected = DataSetException.class)
+	public void shouldFailOnUnknownGenerator() throws Exception {
+		generate("A=10\nA.id=uuid()\n");
+	}
+
+	@Test(expected = DataSetException.class)
+	public void shouldFailOnColumnOfUndeclaredTable() throws Exception {
+		generate("A.id=sequence(1)\n");
+	}
+
+	private IDataSet generate(String spec) throws DataSetException {
+		return new GeneratedDataSet(new ByteArrayResource(spec.getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
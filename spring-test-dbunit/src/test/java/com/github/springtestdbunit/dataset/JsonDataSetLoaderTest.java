@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableIterator;
+import org.dbunit.dataset.datatype.DataType;
+import org.dbunit.dataset.json.JsonDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+/**
+ * Tests for {@link JsonDataSetLoader}.
+ */
+public class JsonDataSetLoaderTest {
+
+	private JsonDataSetLoader loader = new JsonDataSetLoader();
+
+	private Connection jdbcConnection;
+
+	private IDatabaseConnection connection;
+
+	@Before
+	public void setup() throws Exception {
+		this.jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:json", "sa", "");
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("CREATE TABLE Streamed (id INTEGER PRIMARY KEY, name VARCHAR(20) DEFAULT 'default')");
+			statement.execute("CREATE TABLE Other (id INTEGER PRIMARY KEY, value VARCHAR(20))");
+		}
+		this.connection = new DatabaseConnection(this.jdbcConnection);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("DROP SCHEMA PUBLIC CASCADE");
+		}
+		this.jdbcConnection.close();
+	}
+
+	@Test
+	public void shouldLoadTables() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-streaming.json", null);
+		assertArrayEquals(new String[] { "Streamed", "Other" }, dataSet.getTableNames());
+		ITable table = dataSet.getTable("streamed");
+		assertEquals(3, table.getRowCount());
+		assertEquals(2, table.getTableMetaData().getColumns().length);
+		assertEquals(new BigDecimal("2"), table.getValue(1, "id"));
+		assertNull(table.getValue(1, "name"));
+		assertEquals("third", table.getValue(2, "name"));
+		assertEquals("x", dataSet.getTable("Other").getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldReadValues() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-values.json", null);
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(new BigDecimal("-1.5e2"), table.getValue(0, "number"));
+		assertEquals(Boolean.TRUE, table.getValue(0, "flag"));
+		assertNull(table.getValue(0, "empty"));
+		assertEquals(0, dataSet.getTable("Empty").getRowCount());
+		assertEquals(0, dataSet.getTableMetaData("Empty").getColumns().length);
+	}
+
+	@Test
+	public void shouldReadEscapedStrings() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-values.json", null);
+		assertEquals("a \"quoted\" \u00e9", dataSet.getTable("Sample").getValue(0, "text"));
+	}
+
+	@Test
+	public void shouldStreamIntoDatabase() throws Exception {
+		IDataSet streamed = ((StreamableDataSet) this.loader.loadDataSet(getClass(), "test-streaming.json", null))
+				.stream(this.connection);
+		try {
+			DatabaseOperation.CLEAN_INSERT.execute(this.connection, streamed);
+		} finally {
+			((Closeable) streamed).close();
+		}
+		ITable table = this.connection.createQueryTable("Streamed", "SELECT * FROM Streamed ORDER BY id");
+		assertEquals(3, table.getRowCount());
+		assertEquals("first", table.getValue(0, "name"));
+		assertEquals("default", table.getValue(1, "name"));
+		assertEquals("third", table.getValue(2, "name"));
+		assertEquals(1, this.connection.getRowCount("Other"));
+	}
+
+	@Test
+	public void shouldStreamTablesWithOneReader() throws Exception {
+		IDataSet streamed = ((StreamableDataSet) this.loader.loadDataSet(getClass(), "test-streaming.json", null))
+				.stream(this.connection);
+		try {
+			ITableIterator iterator = streamed.iterator();
+			assertTrue(iterator.next());
+			assertEquals("first", iterator.getTable().getValue(0, "name"));
+			assertTrue(iterator.next());
+			assertEquals("x", iterator.getTable().getValue(0, "value"));
+			assertFalse(iterator.next());
+		} finally {
+			((Closeable) streamed).close();
+		}
+	}
+
+	@Test
+	public void shouldReloadWrittenDataSet() throws Exception {
+		StringBuilder longText = new StringBuilder();
+		while (longText.length() < 100000) {
+			longText.append("a long value ");
+		}
+		DefaultTable table = new DefaultTable("Sample",
+				new Column[] { new Column("id", DataType.INTEGER), new Column("text", DataType.VARCHAR) });
+		table.addRow(new Object[] { 1, longText.toString() });
+		table.addRow(new Object[] { 2, "first line\nsecond \"line\" it's\r\n\ttabbed \\ end" });
+		table.addRow(new Object[] { 3, null });
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		JsonDataSet.write(new DefaultDataSet(table), outputStream, false, null);
+		ITable reloaded = new StreamingJsonDataSet(new ByteArrayResource(outputStream.toByteArray()))
+				.getTable("Sample");
+		assertEquals(3, reloaded.getRowCount());
+		assertEquals(longText.toString(), reloaded.getValue(0, "text"));
+		assertEquals("first line\nsecond \"line\" it's\r\n\ttabbed \\ end", reloaded.getValue(1, "text"));
+		assertNull(reloaded.getValue(2, "text"));
+		assertEquals(new BigDecimal("3"), reloaded.getValue(2, "id"));
+	}
+
+	@Test
+	public void shouldReturnNullOnMissingFile() throws Exception {
+		assertNull(this.loader.loadDataSet(getClass(), "doesnotexist.json", null));
+	}
+
+}
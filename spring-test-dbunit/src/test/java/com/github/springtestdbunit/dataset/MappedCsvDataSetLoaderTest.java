@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.csv.CsvParserImpl;
+import org.dbunit.dataset.csv.CsvURLDataSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link MappedCsvDataSetLoader}.
+ */
+public class MappedCsvDataSetLoaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private MappedCsvDataSetLoader loader = new MappedCsvDataSetLoader();
+
+	private File directory;
+
+	@Before
+	public void setup() throws Exception {
+		this.directory = this.temporaryFolder.newFolder("csv");
+		write("table-ordering.txt", "Sample\nOther\n");
+		write("Sample.csv", "id, name, amount\n\"1\",\"first\",\"10.50\"\n2,null,007\n"
+				+ "3, \"quoted, \\\"escaped\\\"\nand multi-line\" ,-4\r\n4,\u00e9t\u00e9 ,\n");
+		write("Other.csv", "id,value\n1,x");
+	}
+
+	@Test
+	public void shouldLoadTablesInOrder() throws Exception {
+		IDataSet dataSet = load();
+		assertArrayEquals(new String[] { "Sample", "Other" }, dataSet.getTableNames());
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(4, table.getRowCount());
+		assertEquals(Long.valueOf(1), table.getValue(0, "id"));
+		assertEquals("first", table.getValue(0, "name"));
+		assertEquals(new BigDecimal("10.50"), table.getValue(0, "amount"));
+		assertNull(table.getValue(1, "name"));
+		assertEquals("007", table.getValue(1, "amount"));
+		assertEquals("quoted, \"escaped\"\nand multi-line", table.getValue(2, "name"));
+		assertEquals(Long.valueOf(-4), table.getValue(2, "amount"));
+		assertEquals("\u00e9t\u00e9 ", table.getValue(3, "name"));
+		assertEquals("", table.getValue(3, "amount"));
+		assertEquals("x", dataSet.getTable("Other").getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldLoadSameValuesAsCsvUrlDataSet() throws Exception {
+		write("Sample.csv", "id,name\n1,\"quoted, \\\"escaped\\\"\r\nand multi-line\"\n2,null\n");
+		write("Other.csv", "id,value\n1,\"x\"\"y\"\n 2 ,  \n3,\"\"\n");
+		assertSameAsCsvUrlDataSet(load());
+	}
+
+	@Test
+	public void shouldLoadOnlyRequestedTables() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), this.directory.toURI().toString(), null,
+				Collections.singleton("other"));
+		assertArrayEquals(new String[] { "Other" }, dataSet.getTableNames());
+	}
+
+	@Test
+	public void shouldFallBackToCsvParserForUnsupportedInput() throws Exception {
+		write("Other.csv", "id,value\n1,\"a\" b\n");
+		assertEquals("ab", load().getTable("Other").getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldFailOnWrongColumnCount() throws Exception {
+		write("Other.csv", "id,value\n1\n");
+		try {
+			load();
+			fail("Expected exception");
+		} catch (DataSetException ex) {
+			assertTrue(ex.getMessage().contains("Expected 2 columns"));
+		}
+	}
+
+	@Test
+	public void shouldSplitLargeFilesOnRowBoundaries() throws Exception {
+		StringBuilder content = new StringBuilder("id,name\n");
+		for (int i = 0; i < 2000; i++) {
+			content.append(i).append(i % 3 == 0 ? ",\"a,\nb\\\"" + i + "\"\n" : ",\" v" + i + "\"\r\n");
+		}
+		write("Large.csv", content.toString());
+		File file = new File(this.directory, "Large.csv");
+		MappedCsvParser parser = new MappedCsvParser(file, 100);
+		assertArrayEquals(new String[] { "id", "name" }, parser.parseHeader());
+		List<Object[]> rows = parser.createTask(2).invoke();
+		List<?> expected = new CsvParserImpl().parse(file.toURI().toURL());
+		assertEquals(expected.size() - 1, rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			List<?> expectedRow = (List<?>) expected.get(i + 1);
+			for (int j = 0; j < 2; j++) {
+				assertEquals(expectedRow.get(j), String.valueOf(rows.get(i)[j]));
+			}
+		}
+	}
+
+	private void assertSameAsCsvUrlDataSet(IDataSet dataSet) throws Exception {
+		IDataSet expected = new CsvURLDataSet(this.directory.toURI().toURL());
+		assertArrayEquals(expected.getTableNames(), dataSet.getTableNames());
+		for (String tableName : expected.getTableNames()) {
+			ITable expectedTable = expected.getTable(tableName);
+			ITable table = dataSet.getTable(tableName);
+			assertEquals(expectedTable.getRowCount(), table.getRowCount());
+			for (int row = 0; row < table.getRowCount(); row++) {
+				for (int column = 0; column < table.getTableMetaData().getColumns().length; column++) {
+					String columnName = table.getTableMetaData().getColumns()[column].getColumnName();
+					Object value = table.getValue(row, columnName);
+					assertEquals(expectedTable.getValue(row, columnName), Objects.toString(value, null));
+				}
+			}
+		}
+	}
+
+	private IDataSet load() throws Exception {
+		return this.loader.loadDataSet(getClass(), this.directory.toURI().toString(), null);
+	}
+
+	private void write(String name, String content) throws Exception {
+		FileCopyUtils.copy(content.getBytes(StandardCharsets.UTF_8), new File(this.directory, name));
+	}
+
+}
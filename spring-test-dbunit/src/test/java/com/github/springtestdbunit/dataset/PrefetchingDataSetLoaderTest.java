@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dbunit.dataset.IDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PrefetchingDataSetLoader}.
+ */
+public class PrefetchingDataSetLoaderTest {
+
+	private CountingDataSetLoader source;
+
+	private PrefetchingDataSetLoader loader;
+
+	@Before
+	public void setup() {
+		this.source = new CountingDataSetLoader();
+		this.loader = new PrefetchingDataSetLoader(this.source);
+	}
+
+	@After
+	public void cancel() {
+		this.loader.cancel();
+	}
+
+	@Test
+	public void shouldLoadInBackground() throws Exception {
+		this.loader.prefetch(getClass(), "test-column-sensing.xml", null);
+		assertTrue(this.source.loaded.await(5, TimeUnit.SECONDS));
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertEquals("test", dataSet.getTable("Sample").getValue(1, "name"));
+		assertEquals(1, this.source.count.get());
+	}
+
+	@Test
+	public void shouldHandOutEachPrefetchOnce() throws Exception {
+		this.loader.prefetch(getClass(), "test-column-sensing.xml", null);
+		this.loader.prefetch(getClass(), "test-column-sensing.xml", null);
+		IDataSet first = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		IDataSet second = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertNotSame(first, second);
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertEquals(3, this.source.count.get());
+	}
+
+	@Test
+	public void shouldPassOtherRequestsToSource() throws Exception {
+		this.loader.prefetch(getClass(), "test-column-sensing.xml", null);
+		assertNotNull(this.loader.loadDataSet(getClass(), "test.xml", null));
+		assertNull(this.loader.loadDataSet(getClass(), "doesnotexist.xml", null));
+	}
+
+	@Test
+	public void shouldWaitForBudget() throws Exception {
+		this.loader = new PrefetchingDataSetLoader(this.source, 0);
+		this.loader.prefetch(getClass(), "test-column-sensing.xml", null);
+		this.loader.prefetch(getClass(), "test.xml", null);
+		assertTrue(this.source.loaded.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(1, this.source.count.get());
+		this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		this.loader.loadDataSet(getClass(), "test.xml", null);
+		assertEquals(2, this.source.count.get());
+	}
+
+	@Test
+	public void shouldLoadAsUsualWhenCancelled() throws Exception {
+		this.loader = new PrefetchingDataSetLoader(this.source, 0);
+		this.loader.prefetch(getClass(), "test-column-sensing.xml", null);
+		this.loader.prefetch(getClass(), "test.xml", null);
+		this.loader.cancel();
+		this.loader.prefetch(getClass(), "test.xml", null);
+		assertNotNull(this.loader.loadDataSet(getClass(), "test.xml", null));
+	}
+
+	private static class CountingDataSetLoader implements DataSetLoader {
+
+		private final DataSetLoader dataSetLoader = new FlatXmlDataSetLoader();
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		private final CountDownLatch loaded = new CountDownLatch(1);
+
+		public IDataSet loadDataSet(Class<?> testClass, String location, String datasetId) throws Exception {
+			this.count.incrementAndGet();
+			try {
+				return this.dataSetLoader.loadDataSet(testClass, location, datasetId);
+			} finally {
+				this.loaded.countDown();
+			}
+		}
+
+	}
+
+}
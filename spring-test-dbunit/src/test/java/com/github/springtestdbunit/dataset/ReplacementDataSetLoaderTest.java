@@ -1,9 +1,21 @@
 package com.github.springtestdbunit.dataset;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+import static org.mockito.Mockito.*;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.test.context.TestContext;
@@ -37,4 +49,62 @@ public class ReplacementDataSetLoaderTest {
 		assertNull(table.getValue(0, "value"));
 	}
 
+	@Test
+	public void shouldReplaceSubStrings() throws Exception {
+		DefaultTable source = new DefaultTable("Sample", new Column[] { new Column("value", DataType.UNKNOWN) });
+		source.addRow(new Object[] { "${a} and ${b}" });
+		ReplacementDataSetLoader loader = createLoader(source, null);
+		ITable table = loader.loadDataSet(getClass(), "test", null).getTable("Sample");
+		assertEquals("1 and 2", table.getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldApplyReplacementsWhenLoaded() throws Exception {
+		DefaultTable source = new DefaultTable("Sample", new Column[] { new Column("value", DataType.UNKNOWN) });
+		source.addRow(new Object[] { "[null]" });
+		ReplacementDataSetLoader loader = createLoader(source, ReplacementDataSetLoader.DEFAULT_OBJECT_REPLACEMENTS);
+		ITable table = loader.loadDataSet(getClass(), "test", null).getTable("Sample");
+		source.setValue(0, "value", "changed");
+		assertNull(table.getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldNotReplaceStringsInTypedColumns() throws Exception {
+		DefaultTable source = new DefaultTable("Sample", new Column[] { new Column("id", DataType.INTEGER),
+				new Column("value", DataType.VARCHAR) });
+		source.addRow(new Object[] { "[null]", "[null]" });
+		ReplacementDataSetLoader loader = createLoader(source, ReplacementDataSetLoader.DEFAULT_OBJECT_REPLACEMENTS);
+		ITable table = loader.loadDataSet(getClass(), "test", null).getTable("Sample");
+		assertEquals("[null]", table.getValue(0, "id"));
+		assertNull(table.getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldReuseFunctionResultsUntilCleared() throws Exception {
+		DefaultTable source = new DefaultTable("Sample", new Column[] { new Column("value", DataType.UNKNOWN) });
+		source.addRow(new Object[] { "[next]" });
+		source.addRow(new Object[] { "[next]" });
+		DataSetLoader sourceLoader = mock(DataSetLoader.class);
+		given(sourceLoader.loadDataSet(any(), anyString(), any())).willReturn(new DefaultDataSet(source));
+		AtomicInteger counter = new AtomicInteger();
+		ReplacementDataSetLoader loader = new ReplacementDataSetLoader(sourceLoader, null, null,
+				Collections.singletonMap("[next]", value -> counter.incrementAndGet()));
+		ITable first = loader.loadDataSet(getClass(), "test", null).getTable("Sample");
+		assertEquals(1, first.getValue(0, "value"));
+		assertEquals(1, first.getValue(1, "value"));
+		assertEquals(1, loader.loadDataSet(getClass(), "test", null).getTable("Sample").getValue(0, "value"));
+		loader.clearFunctionResults();
+		assertEquals(2, loader.loadDataSet(getClass(), "test", null).getTable("Sample").getValue(0, "value"));
+	}
+
+	private ReplacementDataSetLoader createLoader(ITable table, Map<?, ?> objectReplacements)
+			throws Exception {
+		DataSetLoader source = mock(DataSetLoader.class);
+		given(source.loadDataSet(any(), anyString(), any())).willReturn(new DefaultDataSet(table));
+		Map<String, String> subStrings = new LinkedHashMap<>();
+		subStrings.put("${a}", "1");
+		subStrings.put("${b}", "2");
+		return new ReplacementDataSetLoader(source, objectReplacements, subStrings, Collections.emptyMap());
+	}
+
 }
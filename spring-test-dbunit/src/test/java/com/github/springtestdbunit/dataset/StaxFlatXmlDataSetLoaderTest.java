@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.dbunit.Assertion;
+import org.dbunit.dataset.IDataSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link StaxFlatXmlDataSetLoader}.
+ */
+public class StaxFlatXmlDataSetLoaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private StaxFlatXmlDataSetLoader loader = new StaxFlatXmlDataSetLoader();
+
+	@Test
+	public void shouldSenseColumns() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(getClass(), "test-column-sensing.xml", null);
+		assertNull(dataset.getTable("Sample").getValue(0, "name"));
+		assertEquals("test", dataset.getTable("Sample").getValue(1, "name"));
+	}
+
+	@Test
+	public void shouldLoadEmptyTable() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(getClass(), "test.xml", null);
+		assertArrayEquals(new String[] { "Sample" }, dataset.getTableNames());
+		assertEquals(0, dataset.getTable("Sample").getRowCount());
+	}
+
+	@Test
+	public void shouldLoadSameDataSetAsBuilder() throws Exception {
+		assertSameAsBuilder("test-column-sensing.xml", null);
+		assertSameAsBuilder("test-streaming.xml", null);
+		assertSameAsBuilder("test-streaming-multiple.xml", "two");
+		assertSameAsBuilder("test-replacement.xml", null);
+	}
+
+	@Test
+	public void shouldMergeRepeatedTablesAsBuilder() throws Exception {
+		File file = this.temporaryFolder.newFile("repeated.xml");
+		FileCopyUtils.copy(("<dataset><Sample id=\"1\"/><Other id=\"1\"/><SAMPLE name=\"b\" id=\"2\"/>"
+				+ "<Sample id=\"3\" value=\"c\"/></dataset>").getBytes(StandardCharsets.UTF_8), file);
+		assertSameAsBuilder(file.toURI().toString(), null);
+		assertEquals(3, this.loader.loadDataSet(getClass(), file.toURI().toString(), null).getTable("Sample")
+				.getRowCount());
+	}
+
+	@Test
+	public void shouldLoadOnlyRequestedTables() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(getClass(), "test-streaming.xml", null,
+				Collections.singleton("streamed"));
+		assertArrayEquals(new String[] { "Streamed" }, dataset.getTableNames());
+		assertEquals(3, dataset.getTable("Streamed").getRowCount());
+		assertEquals("third", dataset.getTable("Streamed").getValue(2, "name"));
+	}
+
+	@Test
+	public void shouldFallBackToBuilderForDtd() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(getClass(), "/META-INF/db/expected_nonstrict_with_dtd.xml", null);
+		IDataSet expected = new FlatXmlDataSetLoader().loadDataSet(getClass(),
+				"/META-INF/db/expected_nonstrict_with_dtd.xml", null);
+		Assertion.assertEquals(expected, dataset);
+	}
+
+	private void assertSameAsBuilder(String location, String datasetId) throws Exception {
+		IDataSet expected = new FlatXmlDataSetLoader().loadDataSet(getClass(), location, datasetId);
+		IDataSet actual = this.loader.loadDataSet(getClass(), location, datasetId);
+		assertArrayEquals(expected.getTableNames(), actual.getTableNames());
+		Assertion.assertEquals(expected, actual);
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.operation.DatabaseOperation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StreamingFlatXmlDataSetLoader}.
+ */
+public class StreamingFlatXmlDataSetLoaderTest {
+
+	private StreamingFlatXmlDataSetLoader loader;
+
+	private Connection jdbcConnection;
+
+	private IDatabaseConnection connection;
+
+	@Before
+	public void setup() throws Exception {
+		this.loader = new StreamingFlatXmlDataSetLoader(1);
+		this.jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:streaming", "sa", "");
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("CREATE TABLE Streamed (id INTEGER PRIMARY KEY, name VARCHAR(20) DEFAULT 'default')");
+			statement.execute("CREATE TABLE Other (id INTEGER PRIMARY KEY, value VARCHAR(20))");
+		}
+		this.connection = new DatabaseConnection(this.jdbcConnection);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("DROP SCHEMA PUBLIC CASCADE");
+		}
+		this.jdbcConnection.close();
+	}
+
+	@Test
+	public void shouldLoadInFullWhenNotStreamed() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-streaming.xml", null);
+		assertTrue(dataSet instanceof StreamableDataSet);
+		assertEquals(3, dataSet.getTable("Streamed").getRowCount());
+		assertEquals("x", dataSet.getTable("Other").getValue(0, "value"));
+	}
+
+	@Test
+	public void shouldStreamIntoDatabase() throws Exception {
+		insert(this.loader.loadDataSet(getClass(), "test-streaming.xml", null));
+		ITable table = this.connection.createQueryTable("Streamed", "SELECT * FROM Streamed ORDER BY id");
+		assertEquals(3, table.getRowCount());
+		assertEquals("first", table.getValue(0, "name"));
+		assertEquals("third", table.getValue(2, "name"));
+		assertEquals(1, this.connection.getRowCount("Other"));
+	}
+
+	@Test
+	public void shouldLeaveOutMissingAttributes() throws Exception {
+		insert(this.loader.loadDataSet(getClass(), "test-streaming.xml", null));
+		ITable table = this.connection.createQueryTable("Streamed", "SELECT * FROM Streamed WHERE id = 2");
+		assertEquals("default", table.getValue(0, "name"));
+	}
+
+	@Test
+	public void shouldTreatElementWithoutAttributesAsEmptyTable() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("INSERT INTO Streamed (id, name) VALUES (9, 'existing')");
+		}
+		insert(this.loader.loadDataSet(getClass(), "test-streaming-empty.xml", null));
+		assertEquals(0, this.connection.getRowCount("Streamed"));
+		assertEquals(1, this.connection.getRowCount("Other"));
+	}
+
+	@Test
+	public void shouldOnlyStreamSelectedDataset() throws Exception {
+		insert(this.loader.loadDataSet(getClass(), "test-streaming-multiple.xml", "two"));
+		ITable table = this.connection.createQueryTable("Streamed", "SELECT * FROM Streamed ORDER BY id");
+		assertEquals(2, table.getRowCount());
+		assertEquals("two", table.getValue(0, "name"));
+	}
+
+	@Test
+	public void shouldReturnNullOnMissingFile() throws Exception {
+		assertNull(this.loader.loadDataSet(getClass(), "doesnotexist.xml", null));
+	}
+
+	private void insert(IDataSet dataSet) throws Exception {
+		IDataSet streamed = ((StreamableDataSet) dataSet).stream(this.connection);
+		try {
+			DatabaseOperation.CLEAN_INSERT.execute(this.connection, streamed);
+		} finally {
+			((Closeable) streamed).close();
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.sqlloader.SqlLoaderControlDataSet;
+import org.dbunit.operation.DatabaseOperation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link StreamingSqlLoaderControlDataSetLoader}.
+ */
+public class StreamingSqlLoaderControlDataSetLoaderTest {
+
+	private static final String[] FILES = { "tables.lst", "COUNTRIES.ctl", "countries.dat", "PEOPLE.ctl",
+			"data/people.dat" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private StreamingSqlLoaderControlDataSetLoader loader = new StreamingSqlLoaderControlDataSetLoader();
+
+	@Test
+	public void shouldLoadSameValuesAsSqlLoaderControlDataSet() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-sqlloader", null);
+		File directory = new ClassPathResource("test-sqlloader", getClass()).getFile();
+		assertSameValues(new SqlLoaderControlDataSet(directory, new File(directory, "tables.lst")), dataSet);
+	}
+
+	@Test
+	public void shouldLoadTablesInOrder() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-sqlloader/tables.lst", null);
+		assertArrayEquals(new String[] { "COUNTRIES", "PEOPLE" }, dataSet.getTableNames());
+		ITable countries = dataSet.getTable("countries");
+		assertEquals(5, countries.getRowCount());
+		assertEquals("France; the republic", countries.getValue(1, "NAME"));
+		assertEquals("multi\nline", countries.getValue(3, "NAME"));
+		assertNull(countries.getValue(2, "POPULATION"));
+		assertNull(countries.getValue(4, "CODE"));
+		assertEquals("x\"y", dataSet.getTable("PEOPLE").getValue(1, "ID"));
+	}
+
+	@Test
+	public void shouldLoadFromJar() throws Exception {
+		File jar = this.temporaryFolder.newFile("fixtures.jar");
+		try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(jar))) {
+			for (String file : FILES) {
+				outputStream.putNextEntry(new ZipEntry("exports/" + file));
+				outputStream.write(FileCopyUtils.copyToByteArray(
+						new ClassPathResource("test-sqlloader/" + file, getClass()).getInputStream()));
+				outputStream.closeEntry();
+			}
+		}
+		IDataSet expected = this.loader.loadDataSet(getClass(), "test-sqlloader", null);
+		String location = "jar:" + jar.toURI() + "!/exports";
+		assertSameValues(expected, new StreamingSqlLoaderControlDataSet(new UrlResource(location)));
+	}
+
+	@Test
+	public void shouldStreamIntoDatabase() throws Exception {
+		Connection jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:sqlloader", "sa", "");
+		try (Statement statement = jdbcConnection.createStatement()) {
+			statement.execute("CREATE TABLE countries (country_id INTEGER PRIMARY KEY, name VARCHAR(40), "
+					+ "code VARCHAR(2), population INTEGER)");
+			statement.execute("CREATE TABLE people (id VARCHAR(10), name VARCHAR(10))");
+			IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+			StreamableDataSet dataSet = (StreamableDataSet) this.loader.loadDataSet(getClass(), "test-sqlloader",
+					null);
+			IDataSet streamed = dataSet.stream(connection);
+			DatabaseOperation.CLEAN_INSERT.execute(connection, streamed);
+			((Closeable) streamed).close();
+			assertEquals(5, connection.getRowCount("countries"));
+			assertEquals(3, connection.getRowCount("people"));
+			ITable table = connection.createQueryTable("countries", "SELECT * FROM countries WHERE country_id = 4");
+			assertEquals("multi\nline", table.getValue(0, "name"));
+			statement.execute("DROP SCHEMA PUBLIC CASCADE");
+		} finally {
+			jdbcConnection.close();
+		}
+	}
+
+	@Test
+	public void shouldUseFieldSpecsOfControlFile() throws Exception {
+		write("tables.lst", "ITEMS\n");
+		write("ITEMS.ctl", "-- items\nLOAD DATA\nCHARACTERSET WE8ISO8859P1\nINFILE 'items.dat'\n"
+				+ "INTO TABLE \"Items\"\nFIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY X'27'\nTRAILING NULLCOLS\n"
+				+ "(\n  ID INTEGER EXTERNAL,\n  SKIPPED FILLER,\n  PRICE DECIMAL EXTERNAL(10,2),\n"
+				+ "  LABEL CHAR \"UPPER(:LABEL)\"\n)\n");
+		FileCopyUtils.copy("1,x,'1,5','it''s'\n2,y,3\n".getBytes(StandardCharsets.ISO_8859_1),
+				new File(this.temporaryFolder.getRoot(), "items.dat"));
+		IDataSet dataSet = new StreamingSqlLoaderControlDataSet(
+				new FileSystemResource(this.temporaryFolder.getRoot()));
+		ITable table = dataSet.getTable("ITEMS");
+		assertEquals("Items", table.getTableMetaData().getTableName());
+		Column[] columns = table.getTableMetaData().getColumns();
+		assertEquals(3, columns.length);
+		assertEquals("PRICE", columns[1].getColumnName());
+		assertEquals("1,5", table.getValue(0, "PRICE"));
+		assertEquals("it's", table.getValue(0, "LABEL"));
+		assertNull(table.getValue(1, "LABEL"));
+	}
+
+	@Test
+	public void shouldFailOnMissingFields() throws Exception {
+		write("tables.lst", "ITEMS\n");
+		write("ITEMS.ctl", "LOAD DATA\nINFILE 'items.dat'\nINTO TABLE ITEMS\n(\nID CHAR,\nNAME CHAR\n)\n");
+		write("items.dat", "1;a\n2\n");
+		IDataSet dataSet = new StreamingSqlLoaderControlDataSet(
+				new FileSystemResource(this.temporaryFolder.getRoot()));
+		try {
+			dataSet.getTable("ITEMS");
+			fail("Expected exception");
+		} catch (DataSetException ex) {
+			assertTrue(ex.getMessage().contains("Expected 2 fields on line 2"));
+		}
+	}
+
+	private void assertSameValues(IDataSet expected, IDataSet dataSet) throws Exception {
+		assertArrayEquals(expected.getTableNames(), dataSet.getTableNames());
+		for (String tableName : expected.getTableNames()) {
+			ITable expectedTable = expected.getTable(tableName);
+			ITable table = dataSet.getTable(tableName);
+			assertEquals(expectedTable.getRowCount(), table.getRowCount());
+			for (int row = 0; row < table.getRowCount(); row++) {
+				for (Column column : expectedTable.getTableMetaData().getColumns()) {
+					String columnName = column.getColumnName();
+					Object expectedValue = expectedTable.getValue(row, columnName);
+					// DBUnit reads empty values as empty strings rather than null
+					assertEquals("".equals(expectedValue) ? null : expectedValue, table.getValue(row, columnName));
+				}
+			}
+		}
+	}
+
+	private void write(String name, String content) throws Exception {
+		FileCopyUtils.copy(content.getBytes(StandardCharsets.UTF_8), new File(this.temporaryFolder.getRoot(), name));
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link XlsDataSetLoader}.
+ */
+public class XlsDataSetLoaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final XlsDataSetLoader loader = new XlsDataSetLoader();
+
+	@Test
+	public void shouldReadSameValuesForRequestedSheets() throws Exception {
+		String location = createWorkbook().toURI().toString();
+		IDataSet expected = this.loader.loadDataSet(getClass(), location, null);
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), location, null, Collections.singleton("sample"));
+		assertArrayEquals(new String[] { "Sample" }, dataSet.getTableNames());
+		ITable expectedTable = expected.getTable("Sample");
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(expectedTable.getRowCount(), table.getRowCount());
+		assertEquals(expectedTable.getValue(0, "amount"), table.getValue(0, "amount"));
+		assertEquals(expectedTable.getValue(0, "name"), table.getValue(0, "name"));
+	}
+
+	private File createWorkbook() throws Exception {
+		File file = this.temporaryFolder.newFile("sample.xlsx");
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream outputStream = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet("Sample");
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("amount");
+			header.createCell(1).setCellValue("name");
+			Row row = sheet.createRow(1);
+			row.createCell(0).setCellValue(1.5);
+			row.createCell(1).setCellValue("text");
+			workbook.createSheet("Other").createRow(0).createCell(0).setCellValue("id");
+			workbook.write(outputStream);
+		}
+		return file;
+	}
+
+}
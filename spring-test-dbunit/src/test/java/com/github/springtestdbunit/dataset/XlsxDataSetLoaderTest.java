@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.dataset;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.ITable;
+import org.dbunit.operation.DatabaseOperation;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+/**
+ * Tests for {@link XlsxDataSetLoader}.
+ */
+public class XlsxDataSetLoaderTest {
+
+	private final XlsxDataSetLoader loader = new XlsxDataSetLoader();
+
+	@Test
+	public void shouldLoadStrictWorkbook() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-strict.xlsx", null);
+		assertArrayEquals(new String[] { "Person", "Bankcard", "User" }, dataSet.getTableNames());
+		ITable person = dataSet.getTable("person");
+		assertEquals(3, person.getRowCount());
+		assertEquals(new BigDecimal("0"), person.getValue(0, "id"));
+		assertEquals("Phillip", person.getValue(0, "firstName"));
+		assertEquals("Podgorsek", person.getValue(2, "lastName"));
+		assertEquals(new BigDecimal("456"), dataSet.getTable("Bankcard").getValue(1, "bankcardNo"));
+	}
+
+	@Test(expected = DataSetException.class)
+	public void shouldFailOnDatasetId() throws Exception {
+		this.loader.loadDataSet(getClass(), "test-strict.xlsx", "Person");
+	}
+
+	@Test
+	public void shouldReadMetaDataFromHeaderRow() throws Exception {
+		IDataSet dataSet = this.loader.loadDataSet(getClass(), "test-strict.xlsx", null);
+		assertEquals(2, dataSet.getTableMetaData("User").getColumns().length);
+		assertEquals("name", dataSet.getTableMetaData("User").getColumns()[1].getColumnName());
+	}
+
+	@Test
+	public void shouldConvertCellTypes() throws Exception {
+		IDataSet dataSet = new XlsxDataSet(new ByteArrayResource(createWorkbook()));
+		ITable table = dataSet.getTable("Sample");
+		assertEquals(2, table.getRowCount());
+		assertEquals(new BigDecimal("1.5"), table.getValue(0, "amount"));
+		assertEquals(Boolean.TRUE, table.getValue(0, "flag"));
+		assertEquals(date(2020, Calendar.JANUARY, 2).getTime(), table.getValue(0, "created"));
+		assertEquals("text", table.getValue(0, "name"));
+		assertNull(table.getValue(1, "name"));
+		assertEquals(new BigDecimal("2"), table.getValue(1, "amount"));
+	}
+
+	@Test
+	public void shouldStreamIntoDatabase() throws Exception {
+		try (Connection jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:xlsx", "sa", "")) {
+			try (Statement statement = jdbcConnection.createStatement()) {
+				statement.execute("CREATE TABLE Person (id INTEGER PRIMARY KEY, title VARCHAR(10), "
+						+ "firstName VARCHAR(20), lastName VARCHAR(20))");
+			}
+			IDatabaseConnection connection = new DatabaseConnection(jdbcConnection);
+			IDataSet person = new XlsxDataSet(new ByteArrayResource(createPersonWorkbook()));
+			IDataSet streamed = ((StreamableDataSet) person).stream(connection);
+			try {
+				DatabaseOperation.CLEAN_INSERT.execute(connection, streamed);
+			} finally {
+				((Closeable) streamed).close();
+			}
+			ITable table = connection.createQueryTable("Person", "SELECT * FROM Person ORDER BY id");
+			assertEquals(3, table.getRowCount());
+			assertEquals("Mario", table.getValue(1, "firstName"));
+			try (Statement statement = jdbcConnection.createStatement()) {
+				statement.execute("DROP SCHEMA PUBLIC CASCADE");
+			}
+		}
+	}
+
+	@Test
+	public void shouldReturnNullOnMissingFile() throws Exception {
+		assertNull(this.loader.loadDataSet(getClass(), "doesnotexist.xlsx", null));
+	}
+
+	private byte[] createWorkbook() throws Exception {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			CellStyle dateStyle = workbook.createCellStyle();
+			dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+			Sheet sheet = workbook.createSheet("Sample");
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("amount");
+			header.createCell(1).setCellValue("flag");
+			header.createCell(2).setCellValue("created");
+			header.createCell(3).setCellValue("name");
+			Row row = sheet.createRow(1);
+			row.createCell(0).setCellValue(1.5);
+			row.createCell(1).setCellValue(true);
+			row.createCell(2).setCellValue(date(2020, Calendar.JANUARY, 2));
+			row.getCell(2).setCellStyle(dateStyle);
+			row.createCell(3).setCellValue("text");
+			sheet.createRow(2).createCell(3).setCellStyle(dateStyle);
+			sheet.createRow(3).createCell(0).setCellValue(2);
+			return toBytes(workbook);
+		}
+	}
+
+	private byte[] createPersonWorkbook() throws Exception {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet("Person");
+			String[][] rows = { { "id", "title", "firstName", "lastName" }, { "0", "Mr", "Phillip", "Webb" },
+					{ "1", "Mr", "Mario", "Zagar" }, { "2", "Mr", "Paul", "Podgorsek" } };
+			for (int i = 0; i < rows.length; i++) {
+				Row row = sheet.createRow(i);
+				for (int j = 0; j < rows[i].length; j++) {
+					if (i > 0 && j == 0) {
+						row.createCell(j).setCellValue(Integer.parseInt(rows[i][j]));
+					} else {
+						row.createCell(j).setCellValue(rows[i][j]);
+					}
+				}
+			}
+			return toBytes(workbook);
+		}
+	}
+
+	private byte[] toBytes(XSSFWorkbook workbook) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		workbook.write(outputStream);
+		return outputStream.toByteArray();
+	}
+
+	private Date date(int year, int month, int day) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, month, day);
+		return calendar.getTime();
+	}
+
+}
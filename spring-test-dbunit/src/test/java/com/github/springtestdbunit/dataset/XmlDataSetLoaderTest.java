@@ -2,6 +2,8 @@ package com.github.springtestdbunit.dataset;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+
 import org.dbunit.dataset.IDataSet;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,6 +35,16 @@ public class XmlDataSetLoaderTest {
 		assertEquals("Sample", dataset.getTableNames()[0]);
 	}
 
+	@Test
+	public void shouldLoadOnlyRequestedTables() throws Exception {
+		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "non-flat-xmldataset.xml", null,
+				Collections.singleton("sample"));
+		assertArrayEquals(new String[] { "Sample" }, dataset.getTableNames());
+		dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "non-flat-xmldataset.xml", null,
+				Collections.singleton("Other"));
+		assertEquals(0, dataset.getTableNames().length);
+	}
+
 	@Test
 	public void shouldReturnNullOnMissingFile() throws Exception {
 		IDataSet dataset = this.loader.loadDataSet(this.testContext.getTestClass(), "doesnotexist.xml", null);
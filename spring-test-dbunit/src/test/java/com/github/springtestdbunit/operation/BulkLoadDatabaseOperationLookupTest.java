@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.springtestdbunit.annotation.DatabaseOperation;
+
+/**
+ * Tests for {@link BulkLoadDatabaseOperationLookup}.
+ */
+public class BulkLoadDatabaseOperationLookupTest {
+
+	private Connection jdbcConnection;
+
+	private IDatabaseConnection connection;
+
+	@Before
+	public void setup() throws Exception {
+		this.jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:bulkload", "sa", "");
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("CREATE TABLE sample (id INTEGER PRIMARY KEY, name VARCHAR(10), "
+					+ "amount DECIMAL(10, 2), created TIMESTAMP(9), active BOOLEAN)");
+			statement.execute("CREATE TABLE document (id INTEGER PRIMARY KEY, content BLOB)");
+		}
+		this.connection = new DatabaseConnection(this.jdbcConnection);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("DROP SCHEMA PUBLIC CASCADE");
+		}
+		this.jdbcConnection.close();
+	}
+
+	@Test
+	public void shouldLookup() {
+		DefaultDatabaseOperationLookup lookup = new BulkLoadDatabaseOperationLookup();
+		assertSame(org.dbunit.operation.DatabaseOperation.UPDATE, lookup.get(DatabaseOperation.UPDATE));
+		assertTrue(lookup.get(DatabaseOperation.INSERT) instanceof BulkInsertOperation);
+		assertSame(org.dbunit.operation.DatabaseOperation.REFRESH, lookup.get(DatabaseOperation.REFRESH));
+		assertSame(org.dbunit.operation.DatabaseOperation.DELETE, lookup.get(DatabaseOperation.DELETE));
+		assertSame(org.dbunit.operation.DatabaseOperation.DELETE_ALL, lookup.get(DatabaseOperation.DELETE_ALL));
+		assertSame(org.dbunit.operation.DatabaseOperation.TRUNCATE_TABLE, lookup.get(DatabaseOperation.TRUNCATE_TABLE));
+		assertNotNull(lookup.get(DatabaseOperation.CLEAN_INSERT));
+	}
+
+	@Test
+	public void shouldBulkInsertConvertedValues() throws Exception {
+		DefaultTable table = createSampleTable();
+		for (int i = 0; i < 25; i++) {
+			table.addRow(new Object[] { String.valueOf(i), "n" + i, "1.25", "2023-01-02 03:04:05.123456789",
+					(i % 2 == 0 ? "true" : null) });
+		}
+		new BulkInsertOperation(Collections.singletonList(new HsqldbBulkLoadStrategy()),
+				org.dbunit.operation.DatabaseOperation.INSERT, 10).execute(this.connection,
+						new DefaultDataSet(table));
+		assertEquals(25, this.connection.getRowCount("sample"));
+		ITable inserted = this.connection.createQueryTable("sample", "SELECT * FROM sample WHERE id = 24");
+		assertEquals("n24", inserted.getValue(0, "name"));
+		assertEquals(new BigDecimal("1.25"), inserted.getValue(0, "amount"));
+		assertEquals(Timestamp.valueOf("2023-01-02 03:04:05.123456789"), inserted.getValue(0, "created"));
+		assertEquals(Boolean.TRUE, inserted.getValue(0, "active"));
+		assertEquals(12, this.connection.getRowCount("sample", "WHERE active IS NULL"));
+	}
+
+	@Test
+	public void shouldUseFallbackForUnsupportedColumns() throws Exception {
+		RecordingBulkLoadStrategy strategy = new RecordingBulkLoadStrategy();
+		DefaultTable table = new DefaultTable("document",
+				new Column[] { new Column("id", DataType.UNKNOWN), new Column("content", DataType.UNKNOWN) });
+		table.addRow(new Object[] { 1, new byte[] { 1, 2 } });
+		new BulkLoadDatabaseOperationLookup(strategy).get(DatabaseOperation.INSERT).execute(this.connection,
+				new DefaultDataSet(table));
+		assertEquals(1, this.connection.getRowCount("document"));
+		assertEquals(0, strategy.prepared);
+	}
+
+	@Test
+	public void shouldUseFallbackForUnsupportedDatabase() throws Exception {
+		BulkLoadStrategy strategy = new H2BulkLoadStrategy();
+		DefaultTable table = createSampleTable();
+		table.addRow(new Object[] { 1, "a", null, null, null });
+		new BulkLoadDatabaseOperationLookup(strategy).get(DatabaseOperation.INSERT).execute(this.connection,
+				new DefaultDataSet(table));
+		assertEquals(1, this.connection.getRowCount("sample"));
+	}
+
+	@Test
+	public void shouldUseFallbackForRowsWithoutValues() throws Exception {
+		RecordingBulkLoadStrategy strategy = new RecordingBulkLoadStrategy();
+		DefaultTable table = createSampleTable();
+		table.addRow(new Object[] { 1, "a", null, null, null });
+		table.addRow(new Object[] { 2, ITable.NO_VALUE, null, null, null });
+		table.addRow(new Object[] { 3, "c", null, null, null });
+		new BulkLoadDatabaseOperationLookup(strategy).get(DatabaseOperation.INSERT).execute(this.connection,
+				new DefaultDataSet(table));
+		assertEquals(3, this.connection.getRowCount("sample"));
+		assertEquals(1, strategy.prepared);
+		assertEquals(2, strategy.inserted);
+		assertEquals(3, strategy.bufferSize);
+	}
+
+	@Test
+	public void shouldCleanInsert() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("INSERT INTO sample (id, name) VALUES (1, 'old')");
+		}
+		DefaultTable table = createSampleTable();
+		table.addRow(new Object[] { 1, "new", null, null, null });
+		new BulkLoadDatabaseOperationLookup().get(DatabaseOperation.CLEAN_INSERT).execute(this.connection,
+				new DefaultDataSet(table));
+		ITable inserted = this.connection.createQueryTable("sample", "SELECT * FROM sample");
+		assertEquals(1, inserted.getRowCount());
+		assertEquals("new", inserted.getValue(0, "name"));
+	}
+
+	private DefaultTable createSampleTable() {
+		String[] names = { "id", "name", "amount", "created", "active" };
+		Column[] columns = new Column[names.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new Column(names[i], DataType.UNKNOWN);
+		}
+		return new DefaultTable("sample", columns);
+	}
+
+	private static class RecordingBulkLoadStrategy extends HsqldbBulkLoadStrategy {
+
+		private int prepared;
+
+		private int inserted;
+
+		private int bufferSize;
+
+		@Override
+		public BulkInsert prepare(IDatabaseConnection connection, String tableName, String[] columnNames)
+				throws SQLException {
+			this.prepared++;
+			BulkInsert bulkInsert = super.prepare(connection, tableName, columnNames);
+			return new BulkInsert() {
+
+				public void insert(Object[][] columnValues, int rowCount) throws SQLException {
+					RecordingBulkLoadStrategy.this.inserted += rowCount;
+					RecordingBulkLoadStrategy.this.bufferSize = columnValues[0].length;
+					bulkInsert.insert(columnValues, rowCount);
+				}
+
+				public void close() throws SQLException {
+					bulkInsert.close();
+				}
+
+			};
+		}
+
+	}
+
+}
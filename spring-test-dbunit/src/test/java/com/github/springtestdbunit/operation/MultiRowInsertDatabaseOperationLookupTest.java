@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.operation;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.Column;
+import org.dbunit.dataset.DefaultDataSet;
+import org.dbunit.dataset.DefaultTable;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.datatype.DataType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.springtestdbunit.annotation.DatabaseOperation;
+
+/**
+ * Tests for {@link MultiRowInsertDatabaseOperationLookup} and {@link MultiRowInsertOperation}.
+ */
+public class MultiRowInsertDatabaseOperationLookupTest {
+
+	private Connection jdbcConnection;
+
+	private IDatabaseConnection connection;
+
+	private List<String> preparedSql = new ArrayList<>();
+
+	@Before
+	public void setup() throws Exception {
+		this.jdbcConnection = DriverManager.getConnection("jdbc:hsqldb:mem:multirow", "sa", "");
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("CREATE TABLE sample (id INTEGER PRIMARY KEY, name VARCHAR(10), "
+					+ "status VARCHAR(10) DEFAULT 'new')");
+		}
+		Connection recording = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if (method.getName().equals("prepareStatement")) {
+						this.preparedSql.add((String) args[0]);
+					}
+					try {
+						return method.invoke(this.jdbcConnection, args);
+					} catch (InvocationTargetException ex) {
+						throw ex.getCause();
+					}
+				});
+		this.connection = new DatabaseConnection(recording);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("DROP SCHEMA PUBLIC CASCADE");
+		}
+		this.jdbcConnection.close();
+	}
+
+	@Test
+	public void shouldLookup() {
+		DefaultDatabaseOperationLookup lookup = new MultiRowInsertDatabaseOperationLookup();
+		assertSame(org.dbunit.operation.DatabaseOperation.UPDATE, lookup.get(DatabaseOperation.UPDATE));
+		assertTrue(lookup.get(DatabaseOperation.INSERT) instanceof MultiRowInsertOperation);
+		assertSame(org.dbunit.operation.DatabaseOperation.REFRESH, lookup.get(DatabaseOperation.REFRESH));
+		assertSame(org.dbunit.operation.DatabaseOperation.DELETE_ALL, lookup.get(DatabaseOperation.DELETE_ALL));
+		assertNotNull(lookup.get(DatabaseOperation.CLEAN_INSERT));
+	}
+
+	@Test
+	public void shouldGroupRowsByParameterLimit() throws Exception {
+		DefaultTable table = createSampleTable();
+		for (int i = 0; i < 25; i++) {
+			table.addRow(new Object[] { String.valueOf(i), "n" + i, "done" });
+		}
+		new MultiRowInsertDatabaseOperationLookup(10).get(DatabaseOperation.INSERT).execute(this.connection,
+				new DefaultDataSet(table));
+		assertEquals(25, this.connection.getRowCount("sample"));
+		assertEquals(2, this.preparedSql.size());
+		assertEquals(3, countRows(this.preparedSql.get(0)));
+		assertEquals(1, countRows(this.preparedSql.get(1)));
+		ITable inserted = this.connection.createQueryTable("sample", "SELECT * FROM sample WHERE id = 24");
+		assertEquals("n24", inserted.getValue(0, "name"));
+	}
+
+	@Test
+	public void shouldInsertOneRowWhenColumnsExceedLimit() throws Exception {
+		DefaultTable table = createSampleTable();
+		table.addRow(new Object[] { 1, "a", "done" });
+		table.addRow(new Object[] { 2, "b", "done" });
+		new MultiRowInsertOperation(2).execute(this.connection, new DefaultDataSet(table));
+		assertEquals(2, this.connection.getRowCount("sample"));
+		assertEquals(1, this.preparedSql.size());
+		assertEquals(1, countRows(this.preparedSql.get(0)));
+	}
+
+	@Test
+	public void shouldOmitColumnsWithoutValue() throws Exception {
+		DefaultTable table = createSampleTable();
+		table.addRow(new Object[] { 1, "a", "done" });
+		table.addRow(new Object[] { 2, "b", ITable.NO_VALUE });
+		table.addRow(new Object[] { 3, "c", ITable.NO_VALUE });
+		table.addRow(new Object[] { 4, null, "done" });
+		new MultiRowInsertOperation().execute(this.connection, new DefaultDataSet(table));
+		assertEquals(2, this.preparedSql.size());
+		assertFalse(this.preparedSql.get(1).contains("STATUS"));
+		assertEquals(2, countRows(this.preparedSql.get(1)));
+		ITable inserted = this.connection.createQueryTable("sample", "SELECT * FROM sample ORDER BY id");
+		assertEquals("new", inserted.getValue(2, "status"));
+		assertNull(inserted.getValue(3, "name"));
+	}
+
+	@Test
+	public void shouldReuseOperationForDifferentColumns() throws Exception {
+		MultiRowInsertOperation operation = new MultiRowInsertOperation();
+		DefaultTable named = new DefaultTable("sample",
+				new Column[] { new Column("id", DataType.UNKNOWN), new Column("name", DataType.UNKNOWN) });
+		named.addRow(new Object[] { 1, "a" });
+		operation.execute(this.connection, new DefaultDataSet(named));
+		DefaultTable withStatus = new DefaultTable("sample",
+				new Column[] { new Column("id", DataType.UNKNOWN), new Column("status", DataType.UNKNOWN) });
+		withStatus.addRow(new Object[] { 2, "done" });
+		operation.execute(this.connection, new DefaultDataSet(withStatus));
+		ITable inserted = this.connection.createQueryTable("sample", "SELECT * FROM sample ORDER BY id");
+		assertEquals("a", inserted.getValue(0, "name"));
+		assertEquals("new", inserted.getValue(0, "status"));
+		assertNull(inserted.getValue(1, "name"));
+		assertEquals("done", inserted.getValue(1, "status"));
+	}
+
+	@Test
+	public void shouldCleanInsert() throws Exception {
+		try (Statement statement = this.jdbcConnection.createStatement()) {
+			statement.execute("INSERT INTO sample (id, name) VALUES (1, 'old')");
+		}
+		DefaultTable table = createSampleTable();
+		table.addRow(new Object[] { 1, "new", "done" });
+		new MultiRowInsertDatabaseOperationLookup().get(DatabaseOperation.CLEAN_INSERT).execute(this.connection,
+				new DefaultDataSet(table));
+		ITable inserted = this.connection.createQueryTable("sample", "SELECT * FROM sample");
+		assertEquals(1, inserted.getRowCount());
+		assertEquals("new", inserted.getValue(0, "name"));
+	}
+
+	private int countRows(String sql) {
+		return sql.split("\\(\\?").length - 1;
+	}
+
+	private DefaultTable createSampleTable() {
+		Column[] columns = { new Column("id", DataType.UNKNOWN), new Column("name", DataType.UNKNOWN),
+				new Column("status", DataType.UNKNOWN) };
+		return new DefaultTable("sample", columns);
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.setup;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.springtestdbunit.TransactionDbUnitTestExecutionListener;
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.github.springtestdbunit.annotation.DbUnitConfiguration;
+import com.github.springtestdbunit.dataset.DataSetResourceCache;
+import com.github.springtestdbunit.dataset.DataSetResourceIndex;
+import com.github.springtestdbunit.entity.EntityAssert;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("/META-INF/dbunit-context.xml")
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class,
+		TransactionDbUnitTestExecutionListener.class })
+@DbUnitConfiguration(indexDataSets = true)
+@DatabaseSetup("/META-INF/db/insert.xml")
+@Transactional
+public class IndexedSetupTest {
+
+	@Autowired
+	private EntityAssert entityAssert;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Test
+	public void testIndexedSetup() throws Exception {
+		this.entityAssert.assertValues("fromDbUnit");
+		DataSetResourceIndex index = this.applicationContext.getBean(DataSetResourceIndex.class);
+		assertTrue(index.contains("META-INF/db/insert.xml"));
+		assertNotNull(DataSetResourceCache.getSharedInstance().getResource(getClass(), "/META-INF/db/insert.xml",
+				index));
+	}
+
+}
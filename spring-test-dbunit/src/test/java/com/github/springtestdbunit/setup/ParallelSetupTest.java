@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.setup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.github.springtestdbunit.TransactionDbUnitTestExecutionListener;
+import com.github.springtestdbunit.annotation.DatabaseOperation;
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.github.springtestdbunit.annotation.DbUnitConfiguration;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("/META-INF/dbunit-context.xml")
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, DbUnitTestExecutionListener.class })
+@DbUnitConfiguration(databaseConnection = "dataSource2", sortTables = true, setupThreads = 4)
+@DatabaseSetup("/META-INF/db/parallel-setup.xml")
+public class ParallelSetupTest {
+
+	@Autowired
+	@Qualifier("dataSource2")
+	private DataSource dataSource;
+
+	@BeforeClass
+	public static void createTables() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:springtestdbunit2", "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("DROP TABLE ParallelChild IF EXISTS");
+			statement.execute("DROP TABLE ParallelParent IF EXISTS");
+			statement.execute("DROP TABLE ParallelOther IF EXISTS");
+			statement.execute("CREATE TABLE ParallelParent (id INTEGER PRIMARY KEY, name VARCHAR(20))");
+			statement.execute("CREATE TABLE ParallelChild (id INTEGER PRIMARY KEY, "
+					+ "parent_id INTEGER REFERENCES ParallelParent(id))");
+			statement.execute("CREATE TABLE ParallelOther (id INTEGER PRIMARY KEY, name VARCHAR(20))");
+		}
+	}
+
+	@Test
+	public void shouldSetupAllGroups() throws Exception {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		assertEquals(Integer.valueOf(2),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ParallelChild", Integer.class));
+		assertEquals("other", jdbcTemplate.queryForObject("SELECT name FROM ParallelOther", String.class));
+	}
+
+	@Test
+	@DatabaseSetup(value = "/META-INF/db/parallel-setup.xml", type = DatabaseOperation.REFRESH)
+	public void shouldRefreshAllGroups() throws Exception {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		assertEquals(Integer.valueOf(2),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ParallelParent", Integer.class));
+	}
+
+	@Test
+	public void shouldRejectTransactionalTests() throws Exception {
+		Result result = JUnitCore.runClasses(TransactionalParallelSetup.class);
+		assertEquals(1, result.getFailureCount());
+		assertTrue(result.getFailures().get(0).getMessage().contains("@Transactional"));
+	}
+
+	@RunWith(SpringJUnit4ClassRunner.class)
+	@ContextConfiguration("/META-INF/dbunit-context.xml")
+	@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class,
+			TransactionDbUnitTestExecutionListener.class })
+	@DbUnitConfiguration(databaseConnection = "dataSource2", sortTables = true, setupThreads = 4)
+	@DatabaseSetup("/META-INF/db/parallel-setup.xml")
+	@Transactional
+	public static class TransactionalParallelSetup {
+
+		@Test
+		public void test() {
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2023 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.springtestdbunit.setup;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+
+import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.github.springtestdbunit.annotation.DatabaseOperation;
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.github.springtestdbunit.annotation.DbUnitConfiguration;
+import com.github.springtestdbunit.annotation.PartitionedTable;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("/META-INF/dbunit-context.xml")
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, DbUnitTestExecutionListener.class })
+@DbUnitConfiguration(databaseConnection = "dataSource2", sortTables = true, partitionedTables = @PartitionedTable(
+		name = "partitionedchild", partitions = 3, commitRows = 2, batchSize = 3))
+@DatabaseSetup("/META-INF/db/partitioned-setup.xml")
+public class PartitionedSetupTest {
+
+	@Autowired
+	@Qualifier("dataSource2")
+	private DataSource dataSource;
+
+	@BeforeClass
+	public static void createTables() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:springtestdbunit2", "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("DROP TABLE PartitionedGrandchild IF EXISTS");
+			statement.execute("DROP TABLE PartitionedChild IF EXISTS");
+			statement.execute("DROP TABLE PartitionedParent IF EXISTS");
+			statement.execute("CREATE TABLE PartitionedParent (id INTEGER PRIMARY KEY, name VARCHAR(20))");
+			statement.execute("CREATE TABLE PartitionedChild (id INTEGER PRIMARY KEY, "
+					+ "parent_id INTEGER REFERENCES PartitionedParent(id))");
+			statement.execute("CREATE TABLE PartitionedGrandchild (id INTEGER PRIMARY KEY, "
+					+ "child_id INTEGER REFERENCES PartitionedChild(id))");
+		}
+	}
+
+	@Test
+	public void shouldInsertPartitionsAfterParentsAndBeforeChildren() throws Exception {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		assertEquals(Integer.valueOf(7),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PartitionedChild", Integer.class));
+		assertEquals(Integer.valueOf(1),
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PartitionedGrandchild", Integer.class));
+	}
+
+	@Test
+	@DatabaseSetup(value = "/META-INF/db/partitioned-setup.xml", type = DatabaseOperation.REFRESH)
+	public void shouldRefreshPartitions() throws Exception {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		assertEquals(Integer.valueOf(4), jdbcTemplate
+				.queryForObject("SELECT COUNT(*) FROM PartitionedChild WHERE parent_id = 1", Integer.class));
+	}
+
+}